@@ -0,0 +1,2 @@
+#!/bin/bash
+mvn clean package -P benchmarks -am -pl minerva-benchmark,minerva-loadtest -DskipTests -Dmaven.javadoc.skip=true -Dsource.skip=true
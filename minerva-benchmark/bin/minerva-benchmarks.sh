@@ -0,0 +1,10 @@
+#!/bin/sh
+DIRNAME=`dirname $0`
+
+JAVAARGS="-Xmx4G"
+
+if [ $MINERVA_BENCHMARK_MEMORY ]
+then
+  JAVAARGS="-Xmx$MINERVA_BENCHMARK_MEMORY"
+fi
+java $JAVAARGS -jar $DIRNAME/minerva-benchmarks.jar "$@"
@@ -0,0 +1,10 @@
+#!/bin/sh
+DIRNAME=`dirname $0`
+
+JAVAARGS="-Xms4G -Xmx4G"
+
+if [ $MINERVA_BENCHMARK_MEMORY ]
+then
+  JAVAARGS="-Xms$MINERVA_BENCHMARK_MEMORY -Xmx$MINERVA_BENCHMARK_MEMORY"
+fi
+java $JAVAARGS -cp $DIRNAME/minerva-benchmarks.jar org.geneontology.minerva.benchmark.FootprintTool "$@"
@@ -0,0 +1,31 @@
+package org.geneontology.minerva.benchmark;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with the JMH command line options. Unless specified
+ * otherwise, the results are written as JSON to a file with a time stamp,
+ * which allows to compare runs, i.e. with the JMH visualizer.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+		if (cmdOptions.getResultFormat().hasValue() == false) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if (cmdOptions.getResult().hasValue() == false) {
+			String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+			builder.result("minerva-benchmark-"+timestamp+".json");
+		}
+		new Runner(builder.build()).run();
+	}
+}
@@ -0,0 +1,152 @@
+package org.geneontology.minerva.benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.geneontology.minerva.ModelContainer;
+import org.geneontology.minerva.MolecularModelManager;
+import org.geneontology.minerva.util.AnnotationShorthand;
+import org.geneontology.minerva.util.OWLObjectInterner;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import owltools.cli.Opts;
+
+/**
+ * Compare the heap footprint of loaded models with and without the
+ * {@link OWLObjectInterner}. A corpus of synthetic models with evidence,
+ * date and contributor annotations is saved and loaded again with each
+ * setting. The retained heap is measured after a full GC and optionally
+ * written as heap dump for a detailed comparison, i.e. with Eclipse MAT.
+ * Run with a fixed heap size (-Xms = -Xmx) for stable numbers.
+ */
+public class FootprintTool {
+
+	public static void main(String[] args) throws Exception {
+		Opts opts = new Opts(args);
+		int modelCount = 200;
+		int axioms = 1000;
+		String heapDumpPrefix = null;
+		while (opts.hasArgs()) {
+			if (opts.nextEq("--models")) {
+				modelCount = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--axioms")) {
+				axioms = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--heap-dump")) {
+				heapDumpPrefix = opts.nextOpt();
+			}
+			else {
+				break;
+			}
+		}
+		File folder = Files.createTempDirectory("minerva-footprint").toFile();
+		try {
+			SyntheticModels synthetic = new SyntheticModels(ModelState.CLASS_COUNT);
+			List<IRI> modelIds = createCorpus(synthetic, folder, modelCount, axioms);
+			long plain = measure(synthetic, folder, modelIds, false, heapDumpPrefix);
+			long interned = measure(synthetic, folder, modelIds, true, heapDumpPrefix);
+			System.out.println("Models: "+modelCount+", axioms per model: "+axioms);
+			System.out.println(String.format("without interning: %,d bytes per model", Long.valueOf(plain / modelCount)));
+			System.out.println(String.format("with interning:    %,d bytes per model", Long.valueOf(interned / modelCount)));
+			System.out.println(String.format("reduction:         %.1f %%", Double.valueOf(100.0d * (plain - interned) / plain)));
+		}
+		finally {
+			FileUtils.deleteQuietly(folder);
+		}
+	}
+
+	private static MolecularModelManager<Void> createManager(SyntheticModels synthetic, File folder) throws Exception {
+		MolecularModelManager<Void> m3 = new MolecularModelManager<Void>(synthetic.getGraph(), new ElkReasonerFactory(),
+				synthetic.getCurieHandler(), SyntheticModels.MODEL_ID_PREFIX);
+		m3.setPathToOWLFiles(folder.getAbsolutePath());
+		m3.setSyncOnSave(false);
+		return m3;
+	}
+
+	/**
+	 * Create and save the models. The annotation values are drawn from small
+	 * pools, as in the curated models.
+	 */
+	private static List<IRI> createCorpus(SyntheticModels synthetic, File folder, int modelCount, int axioms) throws Exception {
+		MolecularModelManager<Void> m3 = createManager(synthetic, folder);
+		OWLDataFactory f = synthetic.getGraph().getDataFactory();
+		OWLAnnotationProperty contributor = f.getOWLAnnotationProperty(AnnotationShorthand.contributor.getAnnotationProperty());
+		OWLAnnotationProperty date = f.getOWLAnnotationProperty(AnnotationShorthand.date.getAnnotationProperty());
+		OWLAnnotationProperty evidence = f.getOWLAnnotationProperty(AnnotationShorthand.evidence.getAnnotationProperty());
+		Random random = new Random(42);
+		List<IRI> modelIds = new ArrayList<IRI>(modelCount);
+		try {
+			for (int i = 0; i < modelCount; i++) {
+				ModelContainer model = m3.generateBlankModel(null);
+				Set<OWLAnnotation> annotations = new HashSet<OWLAnnotation>();
+				annotations.add(f.getOWLAnnotation(contributor, f.getOWLLiteral("http://orcid.org/0000-0000-0000-"+String.format("%04d", Integer.valueOf(random.nextInt(20))))));
+				annotations.add(f.getOWLAnnotation(date, f.getOWLLiteral(String.format("2016-%02d-%02d", Integer.valueOf(1 + random.nextInt(12)), Integer.valueOf(1 + random.nextInt(28))))));
+				annotations.add(f.getOWLAnnotation(evidence, IRI.create("http://purl.obolibrary.org/obo/ECO_"+String.format("%07d", Integer.valueOf(random.nextInt(10))))));
+				synthetic.fillModel(m3, model, axioms, random, annotations, null);
+				m3.saveModel(model, annotations, null);
+				modelIds.add(model.getModelId());
+			}
+		}
+		finally {
+			m3.dispose();
+		}
+		return modelIds;
+	}
+
+	private static long measure(SyntheticModels synthetic, File folder, List<IRI> modelIds,
+			boolean interning, String heapDumpPrefix) throws Exception {
+		MolecularModelManager<Void> m3 = createManager(synthetic, folder);
+		if (interning) {
+			m3.setInterner(new OWLObjectInterner(synthetic.getGraph().getDataFactory()));
+		}
+		try {
+			long before = usedHeap();
+			for (IRI modelId : modelIds) {
+				m3.getModel(modelId);
+			}
+			long after = usedHeap();
+			if (heapDumpPrefix != null) {
+				String fileName = heapDumpPrefix + (interning ? "-interned" : "-plain") + ".hprof";
+				HotSpotDiagnosticMXBean bean = ManagementFactory.newPlatformMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+						"com.sun.management:type=HotSpotDiagnostic", HotSpotDiagnosticMXBean.class);
+				bean.dumpHeap(fileName, true);
+				System.out.println("Wrote heap dump: "+fileName);
+			}
+			return after - before;
+		}
+		finally {
+			m3.dispose();
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long used = Long.MAX_VALUE;
+		// repeat until the used heap is stable
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			Thread.sleep(100);
+			long current = memory.getHeapMemoryUsage().getUsed();
+			if (current >= used) {
+				return current;
+			}
+			used = current;
+		}
+		return used;
+	}
+}
@@ -0,0 +1,47 @@
+package org.geneontology.minerva.benchmark;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.geneontology.minerva.CoreMolecularModelManager.DeleteInformation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+/**
+ * Single edit operations on the model manager, without reasoner. Each
+ * operation is reverted in the same invocation to keep the model size
+ * stable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ModelEditBenchmark {
+
+	private static final Set<OWLAnnotation> NO_ANNOTATIONS = Collections.emptySet();
+
+	@Benchmark
+	public DeleteInformation createDeleteIndividual(ModelState state) {
+		OWLNamedIndividual i = state.m3.createIndividualNonReasoning(state.model, NO_ANNOTATIONS, null);
+		state.m3.addTypeNonReasoning(state.model, i, SyntheticModels.pick(state.synthetic.getFunctions(), state.random));
+		return state.m3.deleteIndividualNonReasoning(state.model, i, null);
+	}
+
+	@Benchmark
+	public OWLNamedIndividual addRemoveFact(ModelState state) throws Exception {
+		OWLNamedIndividual i = state.randomIndividual();
+		OWLNamedIndividual j = state.randomIndividual();
+		state.m3.addFactNonReasoning(state.model, state.synthetic.getHasInput(), i, j, NO_ANNOTATIONS, null);
+		state.m3.removeFactNonReasoning(state.model, state.synthetic.getHasInput(), i, j, null);
+		return i;
+	}
+}
@@ -0,0 +1,65 @@
+package org.geneontology.minerva.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.geneontology.minerva.ModelContainer;
+import org.geneontology.minerva.MolecularModelManager;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+/**
+ * Shared benchmark state: a synthetic ontology, a model manager without
+ * undo history and one model with the requested number of axioms.
+ */
+@State(Scope.Benchmark)
+public class ModelState {
+
+	/**
+	 * Number of classes for each GO branch in the synthetic ontology.
+	 */
+	static final int CLASS_COUNT = 2000;
+
+	@Param({"10", "1000", "10000", "50000"})
+	public int axioms;
+
+	SyntheticModels synthetic;
+	MolecularModelManager<Void> m3;
+	ModelContainer model;
+	List<OWLNamedIndividual> individuals;
+	File folder;
+	Random random;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		folder = Files.createTempDirectory("minerva-benchmark").toFile();
+		synthetic = new SyntheticModels(CLASS_COUNT);
+		m3 = new MolecularModelManager<Void>(synthetic.getGraph(), new ElkReasonerFactory(),
+				synthetic.getCurieHandler(), SyntheticModels.MODEL_ID_PREFIX);
+		m3.setPathToOWLFiles(folder.getAbsolutePath());
+		random = new Random(23);
+		model = m3.generateBlankModel(null);
+		individuals = synthetic.fillModel(m3, model, axioms, random, null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (m3 != null) {
+			m3.dispose();
+		}
+		FileUtils.deleteQuietly(folder);
+	}
+
+	OWLNamedIndividual randomIndividual() {
+		return SyntheticModels.pick(individuals, random);
+	}
+}
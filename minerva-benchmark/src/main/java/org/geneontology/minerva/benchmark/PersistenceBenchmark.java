@@ -0,0 +1,58 @@
+package org.geneontology.minerva.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.geneontology.minerva.ModelContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+
+/**
+ * Save the model to the model folder and load it again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+	private IRI modelId;
+
+	@Setup(Level.Trial)
+	public void saveInitial(ModelState state) throws Exception {
+		modelId = state.model.getModelId();
+		state.m3.saveModel(state.model, Collections.<OWLAnnotation>emptySet(), null);
+	}
+
+	@Benchmark
+	public ModelContainer save(ModelState state) throws Exception {
+		state.m3.saveModel(state.model, Collections.<OWLAnnotation>emptySet(), null);
+		return state.model;
+	}
+
+	/**
+	 * Remove the model from memory and load it from the file.
+	 *
+	 * @param state
+	 * @return model
+	 */
+	@Benchmark
+	public ModelContainer load(ModelState state) {
+		state.m3.unlinkModel(modelId);
+		state.model = state.m3.getModel(modelId);
+		return state.model;
+	}
+}
@@ -0,0 +1,64 @@
+package org.geneontology.minerva.benchmark;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.reasoner.NodeSet;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/**
+ * Reasoner costs: incremental flush after an edit and the creation of a new
+ * reasoner for the whole model.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReasonerBenchmark {
+
+	private static final Set<OWLAnnotation> NO_ANNOTATIONS = Collections.emptySet();
+
+	/**
+	 * Add an individual, flush the reasoner and retrieve the inferred types,
+	 * then remove the individual and flush again.
+	 *
+	 * @param state
+	 * @return inferred types
+	 */
+	@Benchmark
+	public NodeSet<OWLClass> editAndFlush(ModelState state) {
+		OWLReasoner reasoner = state.model.getReasoner();
+		OWLNamedIndividual i = state.m3.createIndividualNonReasoning(state.model, NO_ANNOTATIONS, null);
+		state.m3.addTypeNonReasoning(state.model, i, SyntheticModels.pick(state.synthetic.getFunctions(), state.random));
+		state.m3.addFactNonReasoning(state.model, state.synthetic.getPartOf(), i, state.randomIndividual(), NO_ANNOTATIONS, null);
+		reasoner.flush();
+		NodeSet<OWLClass> types = reasoner.getTypes(i, false);
+		state.m3.deleteIndividualNonReasoning(state.model, i, null);
+		reasoner.flush();
+		return types;
+	}
+
+	/**
+	 * Dispose the reasoner and create a new one, including the consistency check.
+	 *
+	 * @param state
+	 * @return consistency
+	 */
+	@Benchmark
+	public boolean createReasoner(ModelState state) {
+		state.model.disposeReasoner();
+		return state.model.getReasoner().isConsistent();
+	}
+}
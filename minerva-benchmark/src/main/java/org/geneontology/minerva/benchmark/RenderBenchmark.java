@@ -0,0 +1,70 @@
+package org.geneontology.minerva.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.geneontology.minerva.json.JsonModel;
+import org.geneontology.minerva.json.JsonOwlFact;
+import org.geneontology.minerva.json.JsonOwlIndividual;
+import org.geneontology.minerva.json.MolecularModelJsonRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+
+/**
+ * Render the model as JSON (full model, a few individuals and the complete
+ * JSON string) and export it in the default file format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+	/**
+	 * Number of individuals for the partial render, typical for a batch
+	 * response of an edit operation.
+	 */
+	static final int PARTIAL_COUNT = 5;
+
+	@Benchmark
+	public JsonModel renderFull(ModelState state) {
+		MolecularModelJsonRenderer renderer = new MolecularModelJsonRenderer(state.model, null, state.synthetic.getCurieHandler());
+		return renderer.renderModel();
+	}
+
+	@Benchmark
+	public JsonModel renderFullInferred(ModelState state) {
+		MolecularModelJsonRenderer renderer = new MolecularModelJsonRenderer(state.model, state.model.getReasoner(), state.synthetic.getCurieHandler());
+		return renderer.renderModel();
+	}
+
+	@Benchmark
+	public Pair<JsonOwlIndividual[], JsonOwlFact[]> renderPartial(ModelState state) {
+		List<OWLNamedIndividual> individuals = new ArrayList<OWLNamedIndividual>(PARTIAL_COUNT);
+		for (int i = 0; i < PARTIAL_COUNT; i++) {
+			individuals.add(state.randomIndividual());
+		}
+		MolecularModelJsonRenderer renderer = new MolecularModelJsonRenderer(state.model, null, state.synthetic.getCurieHandler());
+		return renderer.renderIndividuals(individuals);
+	}
+
+	@Benchmark
+	public String renderJsonString(ModelState state) {
+		return MolecularModelJsonRenderer.renderToJson(state.model.getAboxOntology(), null, state.synthetic.getCurieHandler());
+	}
+
+	@Benchmark
+	public String export(ModelState state) throws OWLOntologyStorageException {
+		return state.m3.exportModel(state.model);
+	}
+}
@@ -0,0 +1,106 @@
+package org.geneontology.minerva.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.geneontology.minerva.FileBasedMolecularModelManager.SaveAllReport;
+import org.geneontology.minerva.ModelContainer;
+import org.geneontology.minerva.MolecularModelManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+/**
+ * Save throughput for a corpus of modified models with
+ * {@link MolecularModelManager#saveAllModels(java.util.Set, Object)}, with
+ * and without fsync and group commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveAllBenchmark {
+
+	@Param({"100", "1000"})
+	public int models;
+
+	@Param({"200"})
+	public int axioms;
+
+	@Param({"true", "false"})
+	public boolean sync;
+
+	@Param({"true", "false"})
+	public boolean groupCommit;
+
+	private MolecularModelManager<Void> m3;
+	private List<ModelContainer> corpus;
+	private File folder;
+	private OWLDataFactory f;
+	private int revision = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		folder = Files.createTempDirectory("minerva-benchmark").toFile();
+		SyntheticModels synthetic = new SyntheticModels(ModelState.CLASS_COUNT);
+		m3 = new MolecularModelManager<Void>(synthetic.getGraph(), new ElkReasonerFactory(),
+				synthetic.getCurieHandler(), SyntheticModels.MODEL_ID_PREFIX);
+		m3.setPathToOWLFiles(folder.getAbsolutePath());
+		m3.setSyncOnSave(sync);
+		m3.setGroupCommit(groupCommit);
+		f = synthetic.getGraph().getDataFactory();
+		Random random = new Random(23);
+		corpus = new ArrayList<ModelContainer>(models);
+		for (int i = 0; i < models; i++) {
+			ModelContainer model = m3.generateBlankModel(null);
+			synthetic.fillModel(m3, model, axioms, random, null);
+			corpus.add(model);
+		}
+	}
+
+	/**
+	 * Modify every model, so that none of them is skipped.
+	 */
+	@Setup(Level.Invocation)
+	public void modifyAll() {
+		revision += 1;
+		OWLAnnotation comment = f.getOWLAnnotation(f.getRDFSComment(), f.getOWLLiteral("revision "+revision));
+		for (ModelContainer model : corpus) {
+			m3.updateAnnotation(model, comment, null);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (m3 != null) {
+			m3.dispose();
+		}
+		FileUtils.deleteQuietly(folder);
+	}
+
+	@Benchmark
+	public SaveAllReport saveAll() {
+		return m3.saveAllModels(Collections.<OWLAnnotation>emptySet(), null);
+	}
+}
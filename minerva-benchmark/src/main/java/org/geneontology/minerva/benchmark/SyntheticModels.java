@@ -0,0 +1,224 @@
+package org.geneontology.minerva.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.geneontology.minerva.ModelContainer;
+import org.geneontology.minerva.MolecularModelManager;
+import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.curie.CurieMappings;
+import org.geneontology.minerva.curie.DefaultCurieHandler;
+import org.geneontology.minerva.curie.MappedCurieHandler;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * Generator for a synthetic go-lego like ontology and for models of a given
+ * size. The models consist of activity units: a molecular function, which
+ * is enabled by a gene product, part of a biological process and occurs in a
+ * cellular component. The generation is deterministic for a given seed.
+ */
+public class SyntheticModels {
+
+	static final String OBO = "http://purl.obolibrary.org/obo/";
+	static final String TBOX_IRI = OBO+"go/extensions/go-lego-synthetic.owl";
+	static final String MODEL_ID_PREFIX = "http://model.geneontology.org/";
+	static final String MODEL_ID_CURIE = "gomodel";
+
+	static final IRI MOLECULAR_FUNCTION = IRI.create(OBO+"GO_0003674");
+	static final IRI BIOLOGICAL_PROCESS = IRI.create(OBO+"GO_0008150");
+	static final IRI CELLULAR_COMPONENT = IRI.create(OBO+"GO_0005575");
+	static final IRI ENABLED_BY = IRI.create(OBO+"RO_0002333");
+	static final IRI PART_OF = IRI.create(OBO+"BFO_0000050");
+	static final IRI OCCURS_IN = IRI.create(OBO+"BFO_0000066");
+	static final IRI HAS_INPUT = IRI.create(OBO+"RO_0002233");
+
+	private final OWLGraphWrapper graph;
+	private final CurieHandler curieHandler;
+	private final List<OWLClass> functions;
+	private final List<OWLClass> processes;
+	private final List<OWLClass> components;
+	private final List<OWLClass> geneProducts;
+	private final OWLObjectProperty enabledBy;
+	private final OWLObjectProperty partOf;
+	private final OWLObjectProperty occursIn;
+	private final OWLObjectProperty hasInput;
+
+	/**
+	 * Create the synthetic ontology with the given number of classes for each
+	 * of the three GO branches and for the gene products.
+	 *
+	 * @param classCount
+	 * @throws OWLOntologyCreationException
+	 */
+	public SyntheticModels(int classCount) throws OWLOntologyCreationException {
+		final OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		final OWLDataFactory f = m.getOWLDataFactory();
+		final OWLOntology tbox = m.createOntology(IRI.create(TBOX_IRI));
+		final Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+		final Random random = new Random(42);
+		functions = createBranch(MOLECULAR_FUNCTION, "molecular_function", 3000000, classCount, random, f, axioms);
+		processes = createBranch(BIOLOGICAL_PROCESS, "biological_process", 4000000, classCount, random, f, axioms);
+		components = createBranch(CELLULAR_COMPONENT, "cellular_component", 5000000, classCount, random, f, axioms);
+		geneProducts = new ArrayList<OWLClass>(classCount);
+		for (int i = 0; i < classCount; i++) {
+			OWLClass gp = f.getOWLClass(IRI.create("http://identifiers.org/uniprot/P"+(10000+i)));
+			axioms.add(f.getOWLDeclarationAxiom(gp));
+			axioms.add(label(f, gp.getIRI(), "gp"+i));
+			geneProducts.add(gp);
+		}
+		enabledBy = createProperty(ENABLED_BY, "enabled by", f, axioms);
+		partOf = createProperty(PART_OF, "part of", f, axioms);
+		occursIn = createProperty(OCCURS_IN, "occurs in", f, axioms);
+		hasInput = createProperty(HAS_INPUT, "has input", f, axioms);
+		m.addAxioms(tbox, axioms);
+		graph = new OWLGraphWrapper(tbox);
+
+		CurieMappings localMappings = new CurieMappings.SimpleCurieMappings(Collections.singletonMap(MODEL_ID_CURIE, MODEL_ID_PREFIX));
+		curieHandler = new MappedCurieHandler(DefaultCurieHandler.getMappings(), localMappings);
+	}
+
+	private static List<OWLClass> createBranch(IRI root, String rootLabel, int idOffset, int count, Random random, OWLDataFactory f, Set<OWLAxiom> axioms) {
+		List<OWLClass> classes = new ArrayList<OWLClass>(count + 1);
+		OWLClass rootClass = f.getOWLClass(root);
+		axioms.add(f.getOWLDeclarationAxiom(rootClass));
+		axioms.add(label(f, root, rootLabel));
+		classes.add(rootClass);
+		for (int i = 0; i < count; i++) {
+			OWLClass c = f.getOWLClass(IRI.create(String.format("%sGO_%07d", OBO, idOffset + i)));
+			// random tree, each class has a parent created earlier
+			OWLClass parent = classes.get(random.nextInt(classes.size()));
+			axioms.add(f.getOWLDeclarationAxiom(c));
+			axioms.add(f.getOWLSubClassOfAxiom(c, parent));
+			axioms.add(label(f, c.getIRI(), rootLabel+" "+i));
+			classes.add(c);
+		}
+		return classes;
+	}
+
+	private static OWLObjectProperty createProperty(IRI iri, String label, OWLDataFactory f, Set<OWLAxiom> axioms) {
+		OWLObjectProperty p = f.getOWLObjectProperty(iri);
+		axioms.add(f.getOWLDeclarationAxiom(p));
+		axioms.add(label(f, iri, label));
+		return p;
+	}
+
+	private static OWLAxiom label(OWLDataFactory f, IRI subject, String label) {
+		return f.getOWLAnnotationAssertionAxiom(f.getOWLAnnotationProperty(OWLRDFVocabulary.RDFS_LABEL.getIRI()),
+				subject, f.getOWLLiteral(label));
+	}
+
+	/**
+	 * @return graph for the synthetic ontology
+	 */
+	public OWLGraphWrapper getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return curie handler with the model id mapping
+	 */
+	public CurieHandler getCurieHandler() {
+		return curieHandler;
+	}
+
+	public List<OWLClass> getFunctions() {
+		return functions;
+	}
+
+	public List<OWLClass> getProcesses() {
+		return processes;
+	}
+
+	public List<OWLClass> getComponents() {
+		return components;
+	}
+
+	public OWLObjectProperty getEnabledBy() {
+		return enabledBy;
+	}
+
+	public OWLObjectProperty getPartOf() {
+		return partOf;
+	}
+
+	/**
+	 * @return property, which is not used in the generated models
+	 */
+	public OWLObjectProperty getHasInput() {
+		return hasInput;
+	}
+
+	/**
+	 * Add activity units to the model until it has at least the given number
+	 * of axioms.
+	 *
+	 * @param m3
+	 * @param model
+	 * @param targetAxiomCount
+	 * @param random
+	 * @param metadata
+	 * @return all created individuals
+	 */
+	public <METADATA> List<OWLNamedIndividual> fillModel(MolecularModelManager<METADATA> m3, ModelContainer model,
+			int targetAxiomCount, Random random, METADATA metadata) {
+		return fillModel(m3, model, targetAxiomCount, random, Collections.<OWLAnnotation>emptySet(), metadata);
+	}
+	
+	/**
+	 * Add activity units to the model until it has at least the given number
+	 * of axioms. The individuals and facts are annotated with the given
+	 * annotations.
+	 *
+	 * @param m3
+	 * @param model
+	 * @param targetAxiomCount
+	 * @param random
+	 * @param annotations
+	 * @param metadata
+	 * @return all created individuals
+	 */
+	public <METADATA> List<OWLNamedIndividual> fillModel(MolecularModelManager<METADATA> m3, ModelContainer model,
+			int targetAxiomCount, Random random, Set<OWLAnnotation> annotations, METADATA metadata) {
+		final OWLOntology abox = model.getAboxOntology();
+		final List<OWLNamedIndividual> individuals = new ArrayList<OWLNamedIndividual>();
+		while (abox.getAxiomCount() < targetAxiomCount) {
+			OWLNamedIndividual mf = m3.createIndividualNonReasoning(model, annotations, metadata);
+			OWLNamedIndividual gp = m3.createIndividualNonReasoning(model, annotations, metadata);
+			OWLNamedIndividual bp = m3.createIndividualNonReasoning(model, annotations, metadata);
+			OWLNamedIndividual cc = m3.createIndividualNonReasoning(model, annotations, metadata);
+			m3.addTypeNonReasoning(model, mf, pick(functions, random));
+			m3.addTypeNonReasoning(model, gp, pick(geneProducts, random));
+			m3.addTypeNonReasoning(model, bp, pick(processes, random));
+			m3.addTypeNonReasoning(model, cc, pick(components, random));
+			m3.addFactNonReasoning(model, enabledBy, mf, gp, annotations, metadata);
+			m3.addFactNonReasoning(model, partOf, mf, bp, annotations, metadata);
+			m3.addFactNonReasoning(model, occursIn, mf, cc, annotations, metadata);
+			individuals.add(mf);
+			individuals.add(gp);
+			individuals.add(bp);
+			individuals.add(cc);
+		}
+		return individuals;
+	}
+
+	static <T> T pick(List<T> list, Random random) {
+		return list.get(random.nextInt(list.size()));
+	}
+}
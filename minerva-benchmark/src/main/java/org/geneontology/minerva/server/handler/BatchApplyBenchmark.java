@@ -0,0 +1,147 @@
+package org.geneontology.minerva.server.handler;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.geneontology.minerva.ModelContainer;
+import org.geneontology.minerva.UndoAwareMolecularModelManager;
+import org.geneontology.minerva.UndoAwareMolecularModelManager.UndoMetadata;
+import org.geneontology.minerva.benchmark.SyntheticModels;
+import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.json.JsonOwlIndividual;
+import org.geneontology.minerva.json.JsonOwlObject;
+import org.geneontology.minerva.json.JsonOwlObject.JsonOwlObjectType;
+import org.geneontology.minerva.server.handler.M3BatchHandler.Entity;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3Argument;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3BatchResponse;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3Request;
+import org.geneontology.minerva.server.handler.M3BatchHandler.Operation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+/**
+ * Apply a typical batch (three individuals and two edges) via the batch
+ * handler, including parsing of the expressions and rendering of the
+ * response. The created individuals are deleted after each invocation.
+ * This benchmark is in the handler package to check the response status.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BatchApplyBenchmark {
+
+	private static final String UID = "benchmark-user";
+
+	@Param({"10", "1000", "10000", "50000"})
+	public int axioms;
+
+	@Param({"false", "true"})
+	public boolean useReasoner;
+
+	private File folder;
+	private UndoAwareMolecularModelManager m3;
+	private CurieHandler curieHandler;
+	private JsonOrJsonpBatchHandler handler;
+	private ModelContainer model;
+	private M3Request[] batch;
+	private M3BatchResponse lastResponse;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		folder = Files.createTempDirectory("minerva-benchmark").toFile();
+		SyntheticModels synthetic = new SyntheticModels(2000);
+		curieHandler = synthetic.getCurieHandler();
+		m3 = new UndoAwareMolecularModelManager(synthetic.getGraph(), new ElkReasonerFactory(),
+				curieHandler, "http://model.geneontology.org/");
+		m3.setPathToOWLFiles(folder.getAbsolutePath());
+		handler = new JsonOrJsonpBatchHandler(m3, "development", useReasoner, false, null, null);
+		UndoMetadata metadata = new UndoMetadata(UID);
+		model = m3.generateBlankModel(metadata);
+		synthetic.fillModel(m3, model, axioms, new Random(23), metadata);
+		
+		String modelId = curieHandler.getCuri(model.getModelId());
+		batch = new M3Request[]{
+			addIndividual(modelId, "GO:0003674", "mf"),
+			addIndividual(modelId, "GO:0008150", "bp"),
+			addIndividual(modelId, "UniProtKB:P10000", "gp"),
+			addEdge(modelId, "mf", "BFO:0000050", "bp"),
+			addEdge(modelId, "mf", "RO:0002333", "gp")
+		};
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (m3 != null) {
+			m3.dispose();
+		}
+		FileUtils.deleteQuietly(folder);
+	}
+
+	@TearDown(Level.Invocation)
+	public void revert() throws Exception {
+		M3BatchResponse response = lastResponse;
+		lastResponse = null;
+		if (response == null) {
+			return;
+		}
+		if (MinervaResponse.MESSAGE_TYPE_SUCCESS.equals(response.messageType) == false) {
+			throw new IllegalStateException("Batch failed: "+response.message);
+		}
+		UndoMetadata metadata = new UndoMetadata(UID);
+		for (JsonOwlIndividual individual : response.data.individuals) {
+			OWLNamedIndividual i = model.getOWLDataFactory().getOWLNamedIndividual(curieHandler.getIRI(individual.id));
+			m3.deleteIndividualNonReasoning(model, i, metadata);
+		}
+	}
+
+	@Benchmark
+	public M3BatchResponse applyBatch() {
+		lastResponse = handler.m3Batch(UID, "benchmark", null, batch, true);
+		return lastResponse;
+	}
+
+	private static M3Request addIndividual(String modelId, String cls, String variable) {
+		M3Request r = new M3Request();
+		r.entity = Entity.individual;
+		r.operation = Operation.add;
+		r.arguments = new M3Argument();
+		r.arguments.modelId = modelId;
+		r.arguments.assignToVariable = variable;
+		JsonOwlObject type = new JsonOwlObject();
+		type.type = JsonOwlObjectType.Class;
+		type.id = cls;
+		r.arguments.expressions = new JsonOwlObject[]{type};
+		return r;
+	}
+
+	private static M3Request addEdge(String modelId, String subject, String predicate, String object) {
+		M3Request r = new M3Request();
+		r.entity = Entity.edge;
+		r.operation = Operation.add;
+		r.arguments = new M3Argument();
+		r.arguments.modelId = modelId;
+		r.arguments.subject = subject;
+		r.arguments.predicate = predicate;
+		r.arguments.object = object;
+		return r;
+	}
+}
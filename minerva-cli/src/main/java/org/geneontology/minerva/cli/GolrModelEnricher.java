@@ -0,0 +1,338 @@
+package org.geneontology.minerva.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.geneontology.minerva.ModelWriterHelper;
+import org.geneontology.minerva.cli.ModelChunkLoader.LoadedModel;
+import org.geneontology.minerva.lookup.ExternalLookupService;
+import org.geneontology.minerva.lookup.ExternalLookupService.LookupEntry;
+import org.geneontology.minerva.lookup.ParallelLookupResolver;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+/**
+ * Add labels, ids and taxa from Golr to a folder of models, see
+ * {@link ModelWriterHelper}. The enrichment runs in three phases:
+ * <ol>
+ * <li>scan all models for the distinct ids to look up,</li>
+ * <li>resolve the ids with a bounded number of concurrent lookups,</li>
+ * <li>rewrite the models in parallel, using the prefetched lookups.</li>
+ * </ol>
+ * The resolved ids are appended to a checkpoint file and each model is
+ * written atomically. A restarted run only looks up the missing ids and
+ * skips the models with an existing output file.
+ */
+public class GolrModelEnricher {
+
+	private static final Logger LOG = Logger.getLogger(GolrModelEnricher.class);
+
+	private final OWLOntologyManager m;
+	private final ModelWriterHelper helper;
+	private final ExternalLookupService lookupService;
+	private final int threads;
+	private final int lookupThreads;
+	private final int chunkSize;
+
+	/**
+	 * @param m shared manager, used for the imports of the models
+	 * @param helper
+	 * @param lookupService uncached service, null results are treated as failed lookups
+	 * @param threads number of worker threads for parsing and rewriting
+	 * @param lookupThreads maximum number of concurrent lookups
+	 * @param chunkSize maximum number of models loaded together
+	 */
+	public GolrModelEnricher(OWLOntologyManager m, ModelWriterHelper helper, ExternalLookupService lookupService,
+			int threads, int lookupThreads, int chunkSize) {
+		this.m = m;
+		this.helper = helper;
+		this.lookupService = lookupService;
+		this.threads = Math.max(1, threads);
+		this.lookupThreads = lookupThreads;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param modelFiles
+	 * @param outputFolder
+	 * @param checkpointFile file for the resolved ids
+	 * @throws Exception
+	 */
+	public void enrich(List<File> modelFiles, final File outputFolder, File checkpointFile) throws Exception {
+		// skip finished models
+		List<File> pending = new ArrayList<File>(modelFiles.size());
+		for (File modelFile : modelFiles) {
+			if (getOutputFile(outputFolder, modelFile).exists() == false) {
+				pending.add(modelFile);
+			}
+		}
+		LOG.info("Models: "+modelFiles.size()+", already finished: "+(modelFiles.size() - pending.size()));
+		if (pending.isEmpty()) {
+			return;
+		}
+		final Map<IRI, List<LookupEntry>> resolved = readCheckpoint(checkpointFile);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			ModelChunkLoader loader = new ModelChunkLoader(m, executor, chunkSize);
+
+			// phase 1: scan
+			final Set<IRI> ids = new HashSet<IRI>();
+			loader.run(pending, "Scanned", new ModelChunkLoader.ChunkHandler() {
+
+				@Override
+				public void handleChunk(List<LoadedModel> models) throws Exception {
+					List<Future<Set<IRI>>> futures = new ArrayList<Future<Set<IRI>>>(models.size());
+					for (final LoadedModel loaded : models) {
+						futures.add(executor.submit(new Callable<Set<IRI>>() {
+
+							@Override
+							public Set<IRI> call() throws Exception {
+								return helper.getLookupIds(loaded.model);
+							}
+						}));
+					}
+					for (Future<Set<IRI>> future : futures) {
+						ids.addAll(ModelChunkLoader.getResult(future));
+					}
+				}
+			});
+			ids.removeAll(resolved.keySet());
+			LOG.info("Ids to resolve: "+ids.size()+", from checkpoint: "+resolved.size());
+
+			// phase 2: resolve
+			boolean truncated = isTruncated(checkpointFile);
+			PrintWriter checkpoint = new PrintWriter(new OutputStreamWriter(new FileOutputStream(checkpointFile, true), StandardCharsets.UTF_8));
+			try {
+				if (truncated) {
+					// terminate the incomplete line, do not append to it
+					checkpoint.println();
+				}
+				Map<IRI, List<LookupEntry>> results = resolve(ids, checkpoint);
+				resolved.putAll(results);
+				int failed = ids.size() - results.size();
+				if (failed > 0) {
+					LOG.warn("Failed lookups: "+failed+", the models are written without them");
+				}
+			}
+			finally {
+				IOUtils.closeQuietly(checkpoint);
+			}
+
+			// phase 3: rewrite
+			// ids, which failed during the prefetch, are not looked up again.
+			// They are missing from the checkpoint and retried by the next run.
+			final ExternalLookupService prefetched = new ExternalLookupService() {
+
+				@Override
+				public List<LookupEntry> lookup(IRI id) {
+					return resolved.get(id);
+				}
+
+				@Override
+				public LookupEntry lookup(IRI id, String taxon) {
+					return null;
+				}
+			};
+			loader.run(pending, "Enriched", new ModelChunkLoader.ChunkHandler() {
+
+				@Override
+				public void handleChunk(List<LoadedModel> models) throws Exception {
+					List<Future<List<OWLOntologyChange>>> changes = new ArrayList<Future<List<OWLOntologyChange>>>(models.size());
+					for (final LoadedModel loaded : models) {
+						changes.add(executor.submit(new Callable<List<OWLOntologyChange>>() {
+
+							@Override
+							public List<OWLOntologyChange> call() throws Exception {
+								return helper.generateLabelsAndIds(loaded.model, prefetched);
+							}
+						}));
+					}
+					// exclusive: modify the models
+					for (Future<List<OWLOntologyChange>> future : changes) {
+						m.applyChanges(ModelChunkLoader.getResult(future));
+					}
+					List<Future<Void>> saved = new ArrayList<Future<Void>>(models.size());
+					for (final LoadedModel loaded : models) {
+						saved.add(executor.submit(new Callable<Void>() {
+
+							@Override
+							public Void call() throws Exception {
+								save(loaded, outputFolder);
+								return null;
+							}
+						}));
+					}
+					for (Future<Void> future : saved) {
+						ModelChunkLoader.getResult(future);
+					}
+				}
+			});
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Map<IRI, List<LookupEntry>> resolve(Set<IRI> ids, final PrintWriter checkpoint) throws Exception {
+		ParallelLookupResolver resolver = new ParallelLookupResolver(lookupService, lookupThreads, 1000);
+		return resolver.resolve(ids, new ParallelLookupResolver.ResultHandler() {
+
+			@Override
+			public void handle(IRI id, List<LookupEntry> entries) throws Exception {
+				writeCheckpoint(id, entries, checkpoint);
+			}
+		});
+	}
+
+	private static File getOutputFile(File outputFolder, File modelFile) {
+		return new File(outputFolder, modelFile.getName());
+	}
+
+	/**
+	 * Write the model to a temporary file and move it to the final name.
+	 */
+	private void save(LoadedModel loaded, File outputFolder) throws Exception {
+		File outputFile = getOutputFile(outputFolder, loaded.file).getCanonicalFile();
+		File tempFile = new File(outputFile.getParentFile(), "."+outputFile.getName()+".tmp");
+		m.saveOntology(loaded.model, IRI.create(tempFile));
+		try {
+			Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/*
+	 * Checkpoint format: one line per entry, tab separated id, label, type
+	 * and taxon. An id without entries is written as single column. A last
+	 * line without line break is incomplete, i.e. after a crash, and ignored.
+	 */
+
+	static void writeCheckpoint(IRI id, List<LookupEntry> entries, PrintWriter writer) {
+		if (entries.isEmpty()) {
+			writer.println(id.toString());
+		}
+		for (LookupEntry entry : entries) {
+			writer.print(id.toString());
+			writer.print('\t');
+			writer.print(clean(entry.label));
+			writer.print('\t');
+			writer.print(clean(entry.type));
+			writer.print('\t');
+			writer.println(clean(entry.taxon));
+		}
+		writer.flush();
+	}
+
+	private static String clean(String s) {
+		if (s == null) {
+			return "";
+		}
+		return StringUtils.replaceChars(s, "\t\r\n", "   ");
+	}
+
+	static Map<IRI, List<LookupEntry>> readCheckpoint(File checkpointFile) throws IOException {
+		Map<IRI, List<LookupEntry>> entries = new HashMap<IRI, List<LookupEntry>>();
+		if (checkpointFile.isFile() == false) {
+			return entries;
+		}
+		boolean truncated = isTruncated(checkpointFile);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(checkpointFile), StandardCharsets.UTF_8));
+		try {
+			String previous = null;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (previous != null) {
+					readCheckpointLine(previous, entries);
+				}
+				previous = line;
+			}
+			if (previous != null && truncated == false) {
+				readCheckpointLine(previous, entries);
+			}
+		}
+		finally {
+			IOUtils.closeQuietly(reader);
+		}
+		for (Map.Entry<IRI, List<LookupEntry>> entry : entries.entrySet()) {
+			if (entry.getValue().isEmpty()) {
+				entry.setValue(Collections.<LookupEntry>emptyList());
+			}
+		}
+		return entries;
+	}
+
+	private static void readCheckpointLine(String line, Map<IRI, List<LookupEntry>> entries) {
+		if (line.isEmpty()) {
+			return;
+		}
+		String[] fields = StringUtils.splitPreserveAllTokens(line, '\t');
+		if (fields.length != 1 && fields.length != 4) {
+			// incomplete line, i.e. after a crash
+			return;
+		}
+		IRI id = IRI.create(fields[0]);
+		List<LookupEntry> list = entries.get(id);
+		if (list == null) {
+			list = new ArrayList<LookupEntry>();
+			entries.put(id, list);
+		}
+		if (fields.length == 4) {
+			list.add(new LookupEntry(id, emptyToNull(fields[1]), emptyToNull(fields[2]), emptyToNull(fields[3])));
+		}
+	}
+
+	/**
+	 * @param checkpointFile
+	 * @return true, if the file does not end with a line break
+	 * @throws IOException
+	 */
+	static boolean isTruncated(File checkpointFile) throws IOException {
+		if (checkpointFile.isFile() == false || checkpointFile.length() == 0) {
+			return false;
+		}
+		RandomAccessFile file = new RandomAccessFile(checkpointFile, "r");
+		try {
+			file.seek(file.length() - 1);
+			int last = file.read();
+			return last != '\n' && last != '\r';
+		}
+		finally {
+			IOUtils.closeQuietly(file);
+		}
+	}
+
+	private static String emptyToNull(String s) {
+		if (s.isEmpty()) {
+			return null;
+		}
+		return s;
+	}
+}
@@ -0,0 +1,156 @@
+package org.geneontology.minerva.cli;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.geneontology.minerva.cli.ModelChunkLoader.LoadedModel;
+import org.geneontology.minerva.legacy.AnnotationStreamWriter;
+import org.geneontology.minerva.legacy.GeneAnnotationSink;
+import org.geneontology.minerva.legacy.LegoToGeneAnnotationTranslator;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import owltools.gaf.Bioentity;
+import owltools.gaf.GeneAnnotation;
+
+/**
+ * Translate a folder of models into GPAD files, one for each model state.<br>
+ * <br>
+ * The OWL-API manager with the tbox is not thread-safe. The models are
+ * loaded in chunks with a {@link ModelChunkLoader} and the models of a
+ * chunk are translated in parallel. The shared manager is only modified,
+ * while no translation is running.<br>
+ * <br>
+ * The annotations of each model are appended to the GPAD file of its state
+ * in the order of the input files, the output is the same as for a
+ * sequential run. The GPAD files stay open for the whole run, only the
+ * annotations of the current chunk are kept in memory.
+ */
+public class LegoToGpadExporter {
+
+	/**
+	 * Per model settings of the translation.
+	 */
+	public static interface ModelHandler {
+
+		/**
+		 * @param model
+		 * @return model state, used as name for the output file
+		 */
+		public String getModelState(OWLOntology model);
+
+		/**
+		 * @param model
+		 * @return additional references for the annotations of the model or null
+		 */
+		public List<String> getAdditionalRefs(OWLOntology model);
+	}
+
+	private final OWLOntologyManager m;
+	private final LegoToGeneAnnotationTranslator translator;
+	private final ModelHandler handler;
+	private final int threads;
+	private final int chunkSize;
+
+	/**
+	 * @param m manager with the loaded tbox, used for the imports of the models
+	 * @param translator
+	 * @param handler
+	 * @param threads number of worker threads
+	 * @param chunkSize maximum number of models translated together
+	 */
+	public LegoToGpadExporter(OWLOntologyManager m, LegoToGeneAnnotationTranslator translator,
+			ModelHandler handler, int threads, int chunkSize) {
+		this.m = m;
+		this.translator = translator;
+		this.handler = handler;
+		this.threads = Math.max(1, threads);
+		this.chunkSize = Math.max(1, chunkSize);
+	}
+
+	private static class Translated implements GeneAnnotationSink {
+		String modelState;
+		final List<GeneAnnotation> annotations = new ArrayList<GeneAnnotation>();
+
+		@Override
+		public void addBioentity(Bioentity entity) {
+			// referenced by the annotations
+		}
+
+		@Override
+		public void addGeneAnnotation(GeneAnnotation annotation) {
+			annotations.add(annotation);
+		}
+	}
+
+	/**
+	 * Translate all model files and write the GPAD files into the output
+	 * folder.
+	 *
+	 * @param files model files
+	 * @param outputFolder
+	 * @return model states with an output file
+	 * @throws Exception
+	 */
+	public Set<String> export(List<File> files, final File outputFolder) throws Exception {
+		final Map<String, AnnotationStreamWriter> writers = new HashMap<String, AnnotationStreamWriter>();
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			ModelChunkLoader loader = new ModelChunkLoader(m, executor, chunkSize);
+			loader.run(files, "Translated", new ModelChunkLoader.ChunkHandler() {
+
+				@Override
+				public void handleChunk(List<LoadedModel> models) throws Exception {
+					List<Future<Translated>> translated = new ArrayList<Future<Translated>>(models.size());
+					for (final LoadedModel loaded : models) {
+						translated.add(executor.submit(new Callable<Translated>() {
+
+							@Override
+							public Translated call() throws Exception {
+								return translate(loaded.model);
+							}
+						}));
+					}
+					// write in file order
+					for (Future<Translated> future : translated) {
+						Translated result = ModelChunkLoader.getResult(future);
+						AnnotationStreamWriter writer = writers.get(result.modelState);
+						if (writer == null) {
+							File outputFile = new File(outputFolder, result.modelState+".gpad");
+							outputFile.getParentFile().mkdirs();
+							writer = AnnotationStreamWriter.createGpadWriter(new FileWriter(outputFile));
+							writers.put(result.modelState, writer);
+						}
+						for (GeneAnnotation annotation : result.annotations) {
+							writer.addGeneAnnotation(annotation);
+						}
+						writer.flush();
+					}
+				}
+			});
+		}
+		finally {
+			executor.shutdownNow();
+			for (AnnotationStreamWriter writer : writers.values()) {
+				writer.close();
+			}
+		}
+		return writers.keySet();
+	}
+
+	private Translated translate(OWLOntology model) {
+		Translated result = new Translated();
+		result.modelState = handler.getModelState(model);
+		translator.translate(model, result, handler.getAdditionalRefs(model));
+		return result;
+	}
+}
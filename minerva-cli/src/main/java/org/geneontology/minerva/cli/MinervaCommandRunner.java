@@ -4,22 +4,26 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.coode.owlapi.manchesterowlsyntax.ManchesterOWLSyntaxOntologyFormat;
 import org.geneontology.minerva.GafToLegoIndividualTranslator;
+import org.geneontology.minerva.GafToLegoIndividualTranslator.ShardFunction;
+import org.geneontology.minerva.GafToLegoIndividualTranslator.ShardHandler;
+import org.geneontology.minerva.GafToLegoStreamer;
+import org.geneontology.minerva.GafToLegoStreamer.BatchTranslator;
 import org.geneontology.minerva.GafToLegoTranslator;
 import org.geneontology.minerva.ModelContainer;
+import org.geneontology.minerva.ModelFolderLayout;
 import org.geneontology.minerva.ModelWriterHelper;
 import org.geneontology.minerva.curie.CurieHandler;
 import org.geneontology.minerva.curie.CurieMappings;
@@ -27,11 +31,11 @@ import org.geneontology.minerva.curie.DefaultCurieHandler;
 import org.geneontology.minerva.curie.MappedCurieHandler;
 import org.geneontology.minerva.generate.LegoModelGenerator;
 import org.geneontology.minerva.legacy.LegoToGeneAnnotationTranslator;
-import org.geneontology.minerva.lookup.CachingExternalLookupService;
 import org.geneontology.minerva.lookup.ExternalLookupService;
 import org.geneontology.minerva.lookup.GolrExternalLookupService;
 import org.geneontology.minerva.util.AnnotationShorthand;
 import org.geneontology.minerva.util.MinimalModelGenerator;
+import org.geneontology.minerva.util.TaxonomySnapshot;
 import org.semanticweb.elk.owlapi.ElkReasonerFactory;
 import org.semanticweb.owlapi.io.OWLFunctionalSyntaxOntologyFormat;
 import org.semanticweb.owlapi.io.RDFXMLOntologyFormat;
@@ -45,6 +49,7 @@ import org.semanticweb.owlapi.model.OWLClassExpression;
 import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
+import org.semanticweb.owlapi.model.OWLException;
 import org.semanticweb.owlapi.model.OWLLiteral;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
 import org.semanticweb.owlapi.model.OWLObjectIntersectionOf;
@@ -59,11 +64,9 @@ import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 import owltools.cli.JsCommandRunner;
 import owltools.cli.Opts;
 import owltools.cli.tools.CLIMethod;
-import owltools.gaf.BioentityDocument;
 import owltools.gaf.GafDocument;
 import owltools.gaf.eco.EcoMapperFactory;
 import owltools.gaf.eco.SimpleEcoMapper;
-import owltools.gaf.io.GpadWriter;
 import owltools.graph.OWLGraphWrapper;
 import owltools.io.OWLPrettyPrinter;
 import owltools.vocab.OBOUpperVocabulary;
@@ -242,6 +245,9 @@ public class MinervaCommandRunner extends JsCommandRunner {
 	public void gaf2Lego(Opts opts) throws Exception {
 		String output = null;
 		boolean minimize = false;
+		String streamGaf = null;
+		int batchSize = 10000;
+		int maxPending = 2;
 		OWLOntologyFormat format = new RDFXMLOntologyFormat();
 		while (opts.hasOpts()) {
 			if (opts.nextEq("-m|--minimize")) {
@@ -257,11 +263,48 @@ public class MinervaCommandRunner extends JsCommandRunner {
 					format = new ManchesterOWLSyntaxOntologyFormat();
 				}
 			}
+			else if (opts.nextEq("--stream-gaf")) {
+				opts.info("FILE", "read the GAF in batches, -o is the folder for the part ontologies");
+				streamGaf = opts.nextOpt();
+			}
+			else if (opts.nextEq("--batch-size")) {
+				batchSize = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--max-pending")) {
+				opts.info("", "maximum number of translated batches waiting to be written");
+				maxPending = Integer.parseInt(opts.nextOpt());
+			}
 			else {
 				break;
 			}
 		}
-		if (g != null && gafdoc != null && output != null) {
+		if (g != null && streamGaf != null && output != null) {
+			if (minimize) {
+				System.err.println("Minimize is not supported for a streamed GAF, ignoring it.");
+			}
+			final GafToLegoTranslator translator = new GafToLegoTranslator(g, null);
+			Set<IRI> imports = new HashSet<IRI>();
+			for (OWLOntology importOntology : g.getAllOntologies()) {
+				IRI importIRI = importOntology.getOntologyID().getOntologyIRI();
+				if (importIRI != null) {
+					imports.add(importIRI);
+				}
+			}
+			streamGaf(streamGaf, new BatchTranslator() {
+
+				@Override
+				public Set<OWLAxiom> translate(GafDocument batch) {
+					OWLOntology lego = translator.translate(batch.getGeneAnnotations());
+					try {
+						return new HashSet<OWLAxiom>(lego.getAxioms());
+					}
+					finally {
+						lego.getOWLOntologyManager().removeOntology(lego);
+					}
+				}
+			}, imports, format, output, batchSize, maxPending);
+		}
+		else if (g != null && gafdoc != null && output != null) {
 			GafToLegoTranslator translator = new GafToLegoTranslator(g, null);
 			OWLOntology lego;
 			if (minimize) {
@@ -310,10 +353,17 @@ public class MinervaCommandRunner extends JsCommandRunner {
 		boolean merge = true;
 		boolean minimize = false;
 		String output = null;
+		int threads = 1;
+		int chunkSize = 1000;
+		ShardFunction shards = null; // no sharding
+		String streamGaf = null;
+		int batchSize = 10000;
+		int maxPending = 2;
 		CurieHandler curieHandler = DefaultCurieHandler.getDefaultHandler();
 		OWLOntologyFormat format = new RDFXMLOntologyFormat();
 		while (opts.hasOpts()) {
 			if (opts.nextEq("-o|--output")) {
+				opts.info("", "output file, or output folder for sharded output");
 				output = opts.nextOpt();
 			}
 			else if (opts.nextEq("--format")) {
@@ -334,37 +384,101 @@ public class MinervaCommandRunner extends JsCommandRunner {
 			else if (opts.nextEq("-m|--minimize")) {
 				minimize = true;
 			}
+			else if (opts.nextEq("--threads")) {
+				opts.info("", "number of translation threads");
+				threads = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--chunk-size")) {
+				opts.info("", "number of annotations per translation task");
+				chunkSize = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--stream-gaf")) {
+				opts.info("FILE", "read the GAF in batches, -o is the folder for the part ontologies");
+				streamGaf = opts.nextOpt();
+			}
+			else if (opts.nextEq("--batch-size")) {
+				batchSize = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--max-pending")) {
+				opts.info("", "maximum number of translated batches waiting to be written");
+				maxPending = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--shard-by")) {
+				opts.info("", "write one ontology per gene|process|<number of lines>");
+				String shardString = opts.nextOpt();
+				if ("gene".equalsIgnoreCase(shardString)) {
+					shards = GafToLegoIndividualTranslator.BY_GENE;
+				}
+				else if ("process".equalsIgnoreCase(shardString)) {
+					shards = GafToLegoIndividualTranslator.BY_PROCESS;
+				}
+				else {
+					shards = GafToLegoIndividualTranslator.byLineRange(Integer.parseInt(shardString));
+				}
+			}
 			else {
 				break;
 			}
 		}
-		if (g != null && gafdoc != null && output != null) {
-			GafToLegoIndividualTranslator tr = new GafToLegoIndividualTranslator(g, curieHandler, addLineNumber);
-			OWLOntology lego = tr.translate(gafdoc);
-			
-			if (merge) {
-				new OWLGraphWrapper(lego).mergeImportClosure(true);	
-			}
-			if (minimize) {
-				final OWLOntologyManager m = lego.getOWLOntologyManager();
-				
-				SyntacticLocalityModuleExtractor sme = new SyntacticLocalityModuleExtractor(m, lego, ModuleType.BOT);
-				Set<OWLEntity> sig = new HashSet<OWLEntity>(lego.getIndividualsInSignature());
-				Set<OWLAxiom> moduleAxioms = sme.extract(sig);
-				
-				OWLOntology module = m.createOntology(IRI.generateDocumentIRI());
-				m.addAxioms(module, moduleAxioms);
-				lego = module;
-			}
-			
-			OWLOntologyManager manager = lego.getOWLOntologyManager();
-			OutputStream outputStream = null;
+		if (g != null && streamGaf != null && output != null) {
+			// the parts only import the source ontology, they are never merged
+			if (minimize || shards != null) {
+				System.err.println("Minimize and sharding are not supported for a streamed GAF, ignoring them.");
+			}
+			final GafToLegoIndividualTranslator tr = new GafToLegoIndividualTranslator(g, curieHandler, addLineNumber);
+			final int translationChunkSize = chunkSize;
+			Set<IRI> imports = new HashSet<IRI>();
+			IRI sourceIRI = g.getSourceOntology().getOntologyID().getOntologyIRI();
+			if (sourceIRI != null) {
+				imports.add(sourceIRI);
+			}
+			// one thread pool for all batches
+			final ExecutorService executor = GafToLegoIndividualTranslator.createExecutor(threads);
 			try {
-				outputStream = new FileOutputStream(output);
-				manager.saveOntology(lego, format, outputStream);
+				streamGaf(streamGaf, new BatchTranslator() {
+
+					@Override
+					public Set<OWLAxiom> translate(GafDocument batch) throws OWLException {
+						Map<String, Set<OWLAxiom>> axioms = tr.translate(batch.getGeneAnnotations(),
+								GafToLegoIndividualTranslator.SINGLE, executor, translationChunkSize);
+						Set<OWLAxiom> all = new HashSet<OWLAxiom>();
+						for (Set<OWLAxiom> shardAxioms : axioms.values()) {
+							all.addAll(shardAxioms);
+						}
+						return all;
+					}
+				}, imports, format, output, batchSize, maxPending);
 			}
 			finally {
-				IOUtils.closeQuietly(outputStream);
+				executor.shutdownNow();
+			}
+		}
+		else if (g != null && gafdoc != null && output != null) {
+			GafToLegoIndividualTranslator tr = new GafToLegoIndividualTranslator(g, curieHandler, addLineNumber);
+			if (shards != null) {
+				final File outputFolder = new File(output).getCanonicalFile();
+				outputFolder.mkdirs();
+				final boolean shardMerge = merge;
+				final boolean shardMinimize = minimize;
+				final OWLOntologyFormat shardFormat = format;
+				final Set<String> fileNames = new HashSet<String>();
+				// create, save and remove one shard ontology at a time
+				tr.translate(gafdoc, shards, threads, chunkSize, new ShardHandler() {
+
+					@Override
+					public void handle(String shard, OWLOntology lego) throws Exception {
+						String fileName = getShardFileName(shard, fileNames);
+						saveLego(lego, shardMerge, shardMinimize, shardFormat, new File(outputFolder, fileName));
+					}
+				});
+			}
+			else if (threads > 1) {
+				OWLOntology lego = tr.translate(gafdoc, threads, chunkSize);
+				saveLego(lego, merge, minimize, format, new File(output));
+			}
+			else {
+				OWLOntology lego = tr.translate(gafdoc);
+				saveLego(lego, merge, minimize, format, new File(output));
 			}
 		}
 		else {
@@ -382,6 +496,74 @@ public class MinervaCommandRunner extends JsCommandRunner {
 		}
 	}
 	
+	private void streamGaf(String gaf, BatchTranslator translator, Set<IRI> imports, OWLOntologyFormat format,
+			String output, int batchSize, int maxPending) throws Exception {
+		File outputFolder = new File(output).getCanonicalFile();
+		GafToLegoStreamer streamer = new GafToLegoStreamer(batchSize, maxPending);
+		int parts = streamer.run(new File(gaf), translator, imports, format, outputFolder);
+		System.out.println("Finished writing "+parts+" parts to: "+outputFolder);
+	}
+	
+	/**
+	 * Create a file name for the shard, which is not in the set of used
+	 * names. Different shards may have the same sanitized name, these get a
+	 * numeric suffix. The names are compared case insensitive.
+	 * 
+	 * @param shard
+	 * @param used file names, the new name is added
+	 * @return file name
+	 */
+	private static String getShardFileName(String shard, Set<String> used) {
+		String base = shard.replaceAll("[^a-zA-Z0-9_.-]", "_");
+		String fileName = base+".owl";
+		int count = 1;
+		while (used.add(fileName.toLowerCase()) == false) {
+			count += 1;
+			fileName = base+"-"+count+".owl";
+		}
+		if (count > 1) {
+			System.err.println("The file name for shard '"+shard+"' is already in use, writing: "+fileName);
+		}
+		return fileName;
+	}
+	
+	private void saveLego(OWLOntology lego, boolean merge, boolean minimize, OWLOntologyFormat format, File output) throws Exception {
+		if (merge) {
+			new OWLGraphWrapper(lego).mergeImportClosure(true);	
+		}
+		if (minimize) {
+			final OWLOntologyManager m = lego.getOWLOntologyManager();
+			
+			SyntacticLocalityModuleExtractor sme = new SyntacticLocalityModuleExtractor(m, lego, ModuleType.BOT);
+			Set<OWLEntity> sig = new HashSet<OWLEntity>(lego.getIndividualsInSignature());
+			Set<OWLAxiom> moduleAxioms = sme.extract(sig);
+			
+			OWLOntology module = m.createOntology(IRI.generateDocumentIRI());
+			try {
+				m.addAxioms(module, moduleAxioms);
+				saveOntology(module, format, output);
+			}
+			finally {
+				m.removeOntology(module);
+			}
+		}
+		else {
+			saveOntology(lego, format, output);
+		}
+	}
+	
+	private void saveOntology(OWLOntology ontology, OWLOntologyFormat format, File output) throws Exception {
+		OWLOntologyManager manager = ontology.getOWLOntologyManager();
+		OutputStream outputStream = null;
+		try {
+			outputStream = new FileOutputStream(output);
+			manager.saveOntology(ontology, format, outputStream);
+		}
+		finally {
+			IOUtils.closeQuietly(outputStream);
+		}
+	}
+	
 	@CLIMethod("--generate-molecular-model")
 	@Deprecated
 	public void generateMolecularModel(Opts opts) throws Exception {
@@ -422,6 +604,7 @@ public class MinervaCommandRunner extends JsCommandRunner {
 		LegoModelGenerator ni = new LegoModelGenerator(model);
 		ni.setPrecomputePropertyClassCombinations(isPrecomputePropertyClassCombinations);
 		ni.initialize(gafdoc, g);
+		ni.setTaxonomy(TaxonomySnapshot.create(model.getReasoner()));
 
 		String p = g.getIdentifier(processCls);
 		seedGenes.addAll(ni.getGenes(processCls));
@@ -479,6 +662,7 @@ public class MinervaCommandRunner extends JsCommandRunner {
 		ni.setPrecomputePropertyClassCombinations(false);
 
 		ni.initialize(gafdoc, g);
+		ni.setTaxonomy(TaxonomySnapshot.create(model.getReasoner()));
 		OWLClass nothing = g.getDataFactory().getOWLNothing();
 		Map<OWLClass, Double> smap = ni.fetchScoredCandidateProcesses(disease, popSize);
 		int MAX = 500;
@@ -529,6 +713,7 @@ public class MinervaCommandRunner extends JsCommandRunner {
 		LegoModelGenerator ni = new LegoModelGenerator(model);
 
 		ni.initialize(gafdoc, g);
+		ni.setTaxonomy(TaxonomySnapshot.create(model.getReasoner()));
 		OWLPrettyPrinter owlpp = new OWLPrettyPrinter(g);
 		OWLClass nothing = g.getDataFactory().getOWLNothing();
 		Set<OWLClass> sampleSet = model.getReasoner().getSubClasses(rc2, false).getFlattened();
@@ -583,6 +768,8 @@ public class MinervaCommandRunner extends JsCommandRunner {
 		String outputFolder = null;
 		List<String> defaultRefs = null;
 		boolean addLegoModelId = true;
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		int chunkSize = 100;
 		while (opts.hasOpts()) {
 			if (opts.nextEq("-i|--input")) {
 				inputFolder = opts.nextOpt();
@@ -605,22 +792,24 @@ public class MinervaCommandRunner extends JsCommandRunner {
 			else if (opts.nextEq("--model-id-curie")) {
 				modelIdcurie = opts.nextOpt();
 			}
+			else if (opts.nextEq("--threads")) {
+				threads = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--chunk-size")) {
+				chunkSize = Integer.parseInt(opts.nextOpt());
+			}
 			else {
 				break;
 			}
 		}
 		// create curie handler
 		CurieMappings localMappings = new CurieMappings.SimpleCurieMappings(Collections.singletonMap(modelIdcurie, modelIdPrefix));
-		CurieHandler curieHandler = new MappedCurieHandler(DefaultCurieHandler.getMappings(), localMappings);
+		final CurieHandler curieHandler = new MappedCurieHandler(DefaultCurieHandler.getMappings(), localMappings);
 
 		SimpleEcoMapper mapper = EcoMapperFactory.createSimple();
 		LegoToGeneAnnotationTranslator translator = new LegoToGeneAnnotationTranslator(g.getSourceOntology(), curieHandler, reasoner, mapper);
-		Set<String> modelStates = new HashSet<>();
-		Map<String, GafDocument> typedAnnotations = new HashMap<>();
-		Map<String, BioentityDocument> typedEntities = new HashMap<>();
 
 		File inputFile = new File(inputFolder).getCanonicalFile();
-		OWLOntologyManager m = g.getManager();
 		if (inputFile.isDirectory()) {
 			File[] files = inputFile.listFiles(new FilenameFilter() {
 
@@ -629,50 +818,25 @@ public class MinervaCommandRunner extends JsCommandRunner {
 					return StringUtils.isAlphanumeric(name);
 				}
 			});
-			for (File file : files) {
-				OWLOntology model = m.loadOntology(IRI.create(file));
+			Arrays.sort(files);
+			final List<String> finalDefaultRefs = defaultRefs;
+			final boolean finalAddLegoModelId = addLegoModelId;
+			LegoToGpadExporter exporter = new LegoToGpadExporter(g.getManager(), translator, new LegoToGpadExporter.ModelHandler() {
 				
-				// get curie
-				String modelCurie = getModelCurie(model, curieHandler, null);
-				
-				List<String> addtitionalRefs = handleRefs(defaultRefs, addLegoModelId, modelCurie);
-				
-				// get state
-				final String modelState = getModelState(model, "unknown");
-				modelStates.add(modelState);
-				
-				// get appropriate annotation containers
-				GafDocument annotations = typedAnnotations.get(modelState);
-				if (annotations == null) {
-					annotations = new GafDocument(null, null);
-					typedAnnotations.put(modelState, annotations);
-				}
-				BioentityDocument entities = typedEntities.get(modelState);
-				if (entities == null) {
-					entities = new BioentityDocument(null);
+				@Override
+				public String getModelState(OWLOntology model) {
+					return MinervaCommandRunner.getModelState(model, "unknown");
 				}
 				
-				// translate
-				translator.translate(model, annotations, entities, addtitionalRefs);	
-			}
-		}
-
-		for(String modelState : modelStates) {
-			// write GPAD to avoid bioentity data issues
-			GafDocument annotations = typedAnnotations.get(modelState);
-			if (annotations != null) {
-				PrintWriter fileWriter = null;
-				File outputFile = new File(outputFolder, modelState+".gpad");
-				try {
-					outputFile.getParentFile().mkdirs();
-					fileWriter = new PrintWriter(outputFile);
-					GpadWriter writer = new GpadWriter(fileWriter, 1.2d);
-					writer.write(annotations);
-				}
-				finally {
-					IOUtils.closeQuietly(fileWriter);	
+				@Override
+				public List<String> getAdditionalRefs(OWLOntology model) {
+					// get curie
+					String modelCurie = getModelCurie(model, curieHandler, null);
+					return handleRefs(finalDefaultRefs, finalAddLegoModelId, modelCurie);
 				}
-			}
+			}, threads, chunkSize);
+			// write GPAD to avoid bioentity data issues
+			exporter.export(Arrays.asList(files), new File(outputFolder));
 		}
 	}
 	
@@ -735,6 +899,38 @@ public class MinervaCommandRunner extends JsCommandRunner {
 		return addtitionalRefs;
 	}
 
+	@CLIMethod("--migrate-model-folder")
+	public void migrateModelFolder(Opts opts) throws Exception {
+		opts.info("-i MODEL-FOLDER [--flat]", "Move the model files into hashed sub folders, or back into the flat layout with --flat");
+		String modelFolder = null;
+		boolean sharded = true;
+		while (opts.hasArgs()) {
+			if (opts.nextEq("-i|--model-folder")) {
+				modelFolder = opts.nextOpt();
+			}
+			else if (opts.nextEq("--flat")) {
+				sharded = false;
+			}
+			else if (opts.nextEq("--sharded")) {
+				sharded = true;
+			}
+			else {
+				break;
+			}
+		}
+		if (modelFolder == null) {
+			System.err.println("No model folder available");
+			System.exit(-1);
+		}
+		File folder = new File(modelFolder).getCanonicalFile();
+		if (folder.isDirectory() == false) {
+			System.err.println("The model folder is not a directory: "+folder);
+			System.exit(-1);
+		}
+		int count = ModelFolderLayout.migrate(folder, sharded);
+		System.out.println("Moved "+count+" model files into the "+(sharded ? "sharded" : "flat")+" layout: "+folder);
+	}
+
 	@CLIMethod("--enrich-models-for-golr")
 	@Deprecated
 	public void enrichModelsForGolrLoad(Opts opts) throws Exception {
@@ -744,16 +940,17 @@ public class MinervaCommandRunner extends JsCommandRunner {
 		String modelIdPrefix = "http://model.geneontology.org/";
 		String modelIdcurie = "gomodel";
 		String golrUrl = null;
-		int golrCacheSize = 100000;
-		long golrCacheDuration = 24l;
-		TimeUnit golrCacheDurationUnit = TimeUnit.HOURS;
+		String checkpointFile = null;
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		int golrThreads = 8;
+		int chunkSize = 100;
 		
 		// check parameters
 		while (opts.hasArgs()) {
 			if (opts.nextEq("-i|--model-folder")) {
 				modelFolder = opts.nextOpt();
 			}
-			if (opts.nextEq("-o|--output-folder")) {
+			else if (opts.nextEq("-o|--output-folder")) {
 				outputFolder = opts.nextOpt();
 			}
 			else if (opts.nextEq("--model-id-prefix")) {
@@ -763,12 +960,25 @@ public class MinervaCommandRunner extends JsCommandRunner {
 				modelIdcurie = opts.nextOpt();
 			}
 			else if (opts.nextEq("--golr-cache-size")) {
-				String sizeString = opts.nextOpt();
-				golrCacheSize = Integer.parseInt(sizeString);
+				// deprecated, each id is only resolved once
+				opts.nextOpt();
+				System.err.println("The option --golr-cache-size is deprecated and ignored, each id is only looked up once.");
 			}
 			else if (opts.nextEq("--golr-url")) {
 				golrUrl = opts.nextOpt();
 			}
+			else if (opts.nextEq("--golr-threads")) {
+				golrThreads = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--threads")) {
+				threads = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--chunk-size")) {
+				chunkSize = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--checkpoint")) {
+				checkpointFile = opts.nextOpt();
+			}
 			else {
 				break;
 			}
@@ -792,9 +1002,8 @@ public class MinervaCommandRunner extends JsCommandRunner {
 		CurieMappings localMappings = new CurieMappings.SimpleCurieMappings(Collections.singletonMap(modelIdcurie, modelIdPrefix));
 		CurieHandler curieHandler = new MappedCurieHandler(defaultMappings, localMappings);
 		
-		// cached golr lookup
+		// golr lookup, the distinct ids are resolved before the models are written
 		ExternalLookupService lookupService = new GolrExternalLookupService(golrUrl, curieHandler);
-		lookupService = new CachingExternalLookupService(lookupService, golrCacheSize, golrCacheDuration, golrCacheDurationUnit);
 
 		File[] modelFiles = new File(modelFolder).getCanonicalFile().listFiles(new FilenameFilter() {
 			
@@ -803,24 +1012,20 @@ public class MinervaCommandRunner extends JsCommandRunner {
 				return StringUtils.isAlphanumeric(name);
 			}
 		});
-		File outputFolderFile = new File(outputFolder);
+		Arrays.sort(modelFiles);
+		File outputFolderFile = new File(outputFolder).getCanonicalFile();
 		outputFolderFile.mkdirs();
-		ModelWriterHelper writerHelper = new ModelWriterHelper(curieHandler, lookupService);
-		for (File modelFile : modelFiles) {
-			OWLOntology model = null;
-			try {
-				System.out.println("Model: "+modelFile.getName());
-				model = pw.parseOWL(IRI.create(modelFile));
-				writerHelper.handle(model);
-				File outputFile = new File(outputFolderFile, modelFile.getName()).getCanonicalFile();
-				pw.getManager().saveOntology(model, IRI.create(outputFile));
-				System.out.println("Finished saving: "+outputFile);
-			}
-			finally {
-				if (model != null) {
-					model.getOWLOntologyManager().removeOntology(model);
-				}
-			}
+		File checkpoint;
+		if (checkpointFile != null) {
+			checkpoint = new File(checkpointFile);
 		}
+		else {
+			checkpoint = new File(outputFolderFile, ".golr-lookups.tsv");
+		}
+		ModelWriterHelper writerHelper = new ModelWriterHelper(curieHandler, lookupService);
+		GolrModelEnricher enricher = new GolrModelEnricher(pw.getManager(), writerHelper, lookupService,
+				threads, golrThreads, chunkSize);
+		enricher.enrich(Arrays.asList(modelFiles), outputFolderFile, checkpoint);
+		System.out.println("Finished enriching models: "+outputFolderFile);
 	}
 }
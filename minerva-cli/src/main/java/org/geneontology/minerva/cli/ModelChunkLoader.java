@@ -0,0 +1,227 @@
+package org.geneontology.minerva.cli;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyAlreadyExistsException;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyDocumentAlreadyExistsException;
+import org.semanticweb.owlapi.model.OWLOntologyFormat;
+import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+/**
+ * Load model files in chunks into a shared manager, which is not
+ * thread-safe.<br>
+ * <br>
+ * The files are parsed in parallel into private managers (without imports),
+ * copied into the shared manager by one thread and handed to the
+ * {@link ChunkHandler}. The models are removed again after the chunk is
+ * handled. The shared manager is only modified between chunks. The next
+ * chunk is parsed while the current one is handled, at most two chunks are
+ * in memory.
+ */
+class ModelChunkLoader {
+
+	private static final Logger LOG = Logger.getLogger(ModelChunkLoader.class);
+
+	/**
+	 * A model in the shared manager and its source file.
+	 */
+	static class LoadedModel {
+
+		final File file;
+		final OWLOntology model;
+
+		LoadedModel(File file, OWLOntology model) {
+			this.file = file;
+			this.model = model;
+		}
+	}
+
+	static interface ChunkHandler {
+
+		/**
+		 * Handle the models of one chunk. The handler may submit tasks for
+		 * concurrent reads of the models, but must wait for them to finish.
+		 *
+		 * @param models loaded models in file order
+		 * @throws Exception
+		 */
+		public void handleChunk(List<LoadedModel> models) throws Exception;
+	}
+
+	private final OWLOntologyManager m;
+	private final ExecutorService executor;
+	private final int chunkSize;
+
+	/**
+	 * @param m shared manager, used for the imports of the models
+	 * @param executor
+	 * @param chunkSize maximum number of models loaded together
+	 */
+	ModelChunkLoader(OWLOntologyManager m, ExecutorService executor, int chunkSize) {
+		this.m = m;
+		this.executor = executor;
+		this.chunkSize = Math.max(1, chunkSize);
+	}
+
+	/**
+	 * Load all files chunk by chunk and call the handler for each chunk.
+	 *
+	 * @param files model files
+	 * @param name of the step, used for the progress log
+	 * @param handler
+	 * @throws Exception
+	 */
+	void run(List<File> files, String name, ChunkHandler handler) throws Exception {
+		List<Future<OWLOntology>> parsed = parseChunk(files, 0);
+		for (int start = 0; start < files.size(); start += chunkSize) {
+			List<File> chunk = files.subList(start, Math.min(files.size(), start + chunkSize));
+			// exclusive: no other task is running
+			List<LoadedModel> models = new ArrayList<LoadedModel>(chunk.size());
+			try {
+				for (int i = 0; i < chunk.size(); i++) {
+					OWLOntology model = copyIntoManager(getResult(parsed.get(i)), chunk.get(i));
+					if (model != null) {
+						models.add(new LoadedModel(chunk.get(i), model));
+					}
+				}
+				// fill the imports closure cache, before the concurrent reads
+				for (LoadedModel loaded : models) {
+					loaded.model.getImportsClosure();
+				}
+				// parse the next chunk, while handling the current one
+				parsed = parseChunk(files, start + chunkSize);
+				handler.handleChunk(models);
+			}
+			finally {
+				for (LoadedModel loaded : models) {
+					m.removeOntology(loaded.model);
+				}
+			}
+			LOG.info(name+": "+Math.min(files.size(), start + chunkSize)+" of "+files.size()+" models");
+		}
+	}
+
+	private List<Future<OWLOntology>> parseChunk(List<File> files, int start) {
+		List<Future<OWLOntology>> futures = new ArrayList<Future<OWLOntology>>();
+		for (int i = start; i < Math.min(files.size(), start + chunkSize); i++) {
+			final File file = files.get(i);
+			futures.add(executor.submit(new Callable<OWLOntology>() {
+
+				@Override
+				public OWLOntology call() throws Exception {
+					return parseWithoutImports(file);
+				}
+			}));
+		}
+		return futures;
+	}
+
+	static <T> T getResult(Future<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Parse the model into a new manager, the imports are replaced with empty
+	 * ontologies.
+	 *
+	 * @param file
+	 * @return model
+	 * @throws OWLOntologyCreationException
+	 */
+	static OWLOntology parseWithoutImports(File file) throws OWLOntologyCreationException {
+		final IRI sourceIRI = IRI.create(file);
+		final OWLOntologyManager pm = OWLManager.createOWLOntologyManager();
+		final Set<IRI> emptyOntologies = new HashSet<IRI>();
+		pm.addIRIMapper(new OWLOntologyIRIMapper() {
+
+			@Override
+			public IRI getDocumentIRI(IRI ontologyIRI) {
+				if (sourceIRI.equals(ontologyIRI) || emptyOntologies.contains(ontologyIRI)) {
+					return null;
+				}
+				emptyOntologies.add(ontologyIRI);
+				try {
+					OWLOntology emptyOntology = pm.createOntology(ontologyIRI);
+					return emptyOntology.getOntologyID().getDefaultDocumentIRI();
+				} catch (OWLOntologyCreationException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		return pm.loadOntologyFromOntologyDocument(sourceIRI);
+	}
+
+	/**
+	 * Create a copy of the parsed model in the shared manager. Missing
+	 * imports are loaded, the format (incl. prefixes) is kept.
+	 *
+	 * @param parsed
+	 * @param file
+	 * @return model or null, if a model with the same id is already loaded
+	 * @throws OWLOntologyCreationException
+	 */
+	private OWLOntology copyIntoManager(OWLOntology parsed, File file) throws OWLOntologyCreationException {
+		OWLOntology model;
+		try {
+			model = m.createOntology(parsed.getOntologyID());
+		} catch (OWLOntologyAlreadyExistsException e) {
+			LOG.warn("Skipping model with duplicate id: "+parsed.getOntologyID()+" file: "+file);
+			return null;
+		}
+		OWLOntologyFormat format = parsed.getOWLOntologyManager().getOntologyFormat(parsed);
+		if (format != null) {
+			m.setOntologyFormat(model, format);
+		}
+		List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+		for (OWLImportsDeclaration importsDeclaration : parsed.getImportsDeclarations()) {
+			IRI importIRI = importsDeclaration.getIRI();
+			if (m.getOntology(importIRI) == null) {
+				try {
+					m.loadOntology(importIRI);
+				} catch (OWLOntologyDocumentAlreadyExistsException e) {
+					// ignore
+				} catch (OWLOntologyAlreadyExistsException e) {
+					// ignore
+				}
+			}
+			changes.add(new AddImport(model, importsDeclaration));
+		}
+		for (OWLAnnotation annotation : parsed.getAnnotations()) {
+			changes.add(new AddOntologyAnnotation(model, annotation));
+		}
+		for (OWLAxiom axiom : parsed.getAxioms()) {
+			changes.add(new AddAxiom(model, axiom));
+		}
+		m.applyChanges(changes);
+		return model;
+	}
+}
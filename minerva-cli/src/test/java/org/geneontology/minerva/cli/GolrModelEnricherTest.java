@@ -0,0 +1,94 @@
+package org.geneontology.minerva.cli;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.geneontology.minerva.lookup.ExternalLookupService.LookupEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.model.IRI;
+
+public class GolrModelEnricherTest {
+
+	private static final String OBO = "http://purl.obolibrary.org/obo/";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testCheckpoint() throws Exception {
+		File file = new File(folder.getRoot(), "checkpoint.tsv");
+		assertTrue(GolrModelEnricher.readCheckpoint(file).isEmpty());
+
+		IRI gene = IRI.create(OBO+"ZFIN_ZDB-GENE-1");
+		IRI empty = IRI.create(OBO+"ZFIN_ZDB-GENE-2");
+		IRI multiple = IRI.create(OBO+"ZFIN_ZDB-GENE-3");
+		write(file, gene, Collections.singletonList(new LookupEntry(gene, "gene\tone", "gene", "NCBITaxon:7955")));
+		write(file, empty, Collections.<LookupEntry>emptyList());
+		write(file, multiple, Arrays.asList(new LookupEntry(multiple, "first", null, null),
+				new LookupEntry(multiple, "second", "protein", null)));
+		assertFalse(GolrModelEnricher.isTruncated(file));
+
+		Map<IRI, List<LookupEntry>> entries = GolrModelEnricher.readCheckpoint(file);
+		assertEquals(3, entries.size());
+		LookupEntry entry = getOnly(entries.get(gene));
+		assertEquals(gene, entry.id);
+		assertEquals("gene one", entry.label);
+		assertEquals("gene", entry.type);
+		assertEquals("NCBITaxon:7955", entry.taxon);
+		assertTrue(entries.get(empty).isEmpty());
+		List<LookupEntry> list = entries.get(multiple);
+		assertEquals(2, list.size());
+		assertEquals("first", list.get(0).label);
+		assertNull(list.get(0).type);
+		assertNull(list.get(0).taxon);
+		assertEquals("second", list.get(1).label);
+		assertEquals("protein", list.get(1).type);
+	}
+
+	@Test
+	public void testTruncatedLastLine() throws Exception {
+		File file = new File(folder.getRoot(), "checkpoint.tsv");
+		IRI gene = IRI.create(OBO+"ZFIN_ZDB-GENE-1");
+		IRI partial = IRI.create(OBO+"ZFIN_ZDB-GENE-2");
+		write(file, gene, Collections.singletonList(new LookupEntry(gene, "one", "gene", "NCBITaxon:7955")));
+
+		// crash after the id or within the last column, both are incomplete
+		for (String tail : new String[]{partial.toString(), partial+"\ttwo\tgene\tNCBITaxon:79"}) {
+			File truncated = new File(folder.getRoot(), "truncated.tsv");
+			FileUtils.copyFile(file, truncated);
+			FileUtils.writeStringToFile(truncated, tail, "UTF-8", true);
+			assertTrue(GolrModelEnricher.isTruncated(truncated));
+			Map<IRI, List<LookupEntry>> entries = GolrModelEnricher.readCheckpoint(truncated);
+			assertEquals(Collections.singleton(gene), entries.keySet());
+			assertEquals("NCBITaxon:7955", getOnly(entries.get(gene)).taxon);
+		}
+	}
+
+	private static void write(File file, IRI id, List<LookupEntry> entries) throws Exception {
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+		try {
+			GolrModelEnricher.writeCheckpoint(id, entries, writer);
+		}
+		finally {
+			IOUtils.closeQuietly(writer);
+		}
+	}
+
+	private static LookupEntry getOnly(List<LookupEntry> entries) {
+		assertEquals(1, entries.size());
+		return entries.get(0);
+	}
+}
@@ -1,16 +1,29 @@
 package org.geneontology.minerva;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.util.IdentifierIndex;
 import org.semanticweb.owlapi.model.AddImport;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotation;
@@ -22,7 +35,6 @@ import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLException;
 import org.semanticweb.owlapi.model.OWLImportsDeclaration;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
-import org.semanticweb.owlapi.model.OWLObject;
 import org.semanticweb.owlapi.model.OWLObjectProperty;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyID;
@@ -37,13 +49,86 @@ import owltools.vocab.OBOUpperVocabulary;
 
 
 /**
- * Simple translation of {@link GeneAnnotation} to the all individual lego annotation model.
- *
+ * Simple translation of {@link GeneAnnotation} to the all individual lego annotation model.<br>
+ * <br>
+ * The translation of an annotation only creates axioms, the output ontology
+ * is not modified. The annotations can be translated in parallel chunks,
+ * see {@link #translate(Collection, ShardFunction, int, int)}. The class
+ * identifiers are resolved with the shared {@link IdentifierIndex} of the
+ * graph, the graph itself is only accessed by one thread at a time.
  */
 public class GafToLegoIndividualTranslator {
 	
 	private static Logger logger = Logger.getLogger(GafToLegoIndividualTranslator.class);
 	
+	/**
+	 * Assign each annotation to an output shard.
+	 */
+	public static interface ShardFunction {
+		
+		/**
+		 * @param annotation
+		 * @return shard name, never null
+		 */
+		public String getShard(GeneAnnotation annotation);
+	}
+	
+	/**
+	 * All annotations in one shard.
+	 */
+	public static final ShardFunction SINGLE = new ShardFunction() {
+		
+		@Override
+		public String getShard(GeneAnnotation annotation) {
+			return "all";
+		}
+	};
+	
+	/**
+	 * One shard per bioentity.
+	 */
+	public static final ShardFunction BY_GENE = new ShardFunction() {
+		
+		@Override
+		public String getShard(GeneAnnotation annotation) {
+			return annotation.getBioentity();
+		}
+	};
+	
+	/**
+	 * One shard per process class, annotations to functions and components
+	 * are in the shard 'no-process'.
+	 */
+	public static final ShardFunction BY_PROCESS = new ShardFunction() {
+		
+		@Override
+		public String getShard(GeneAnnotation annotation) {
+			if ("P".equals(annotation.getAspect())) {
+				return annotation.getCls();
+			}
+			return "no-process";
+		}
+	};
+	
+	/**
+	 * @param size number of GAF lines per shard
+	 * @return shard function for consecutive line ranges
+	 */
+	public static ShardFunction byLineRange(final int size) {
+		return new ShardFunction() {
+			
+			@Override
+			public String getShard(GeneAnnotation annotation) {
+				int lineNumber = 0;
+				if (annotation.getSource() != null) {
+					lineNumber = annotation.getSource().getLineNumber();
+				}
+				int start = (lineNumber / size) * size;
+				return "lines-"+start+"-"+(start + size - 1);
+			}
+		};
+	}
+	
 	private final OWLGraphWrapper graph;
 	private final CurieHandler curieHandler;
 	private final OWLObjectProperty partOf;
@@ -52,15 +137,18 @@ public class GafToLegoIndividualTranslator {
 	private OWLClass mf;
 	private OWLObjectProperty enabledBy;
 
-	private Map<String, OWLObject> allOWLObjectsByAltId;
+	private final IdentifierIndex identifiers;
 
 	private final boolean addLineNumber;
+	
+	// properties resolved via the graph, shared by the translation threads
+	private final ConcurrentMap<String, OWLObjectProperty> properties = new ConcurrentHashMap<String, OWLObjectProperty>();
 
 	public GafToLegoIndividualTranslator(OWLGraphWrapper graph, CurieHandler curieHandler, boolean addLineNumber) {
 		this.graph = graph;
 		this.curieHandler = curieHandler;
 		this.addLineNumber = addLineNumber;
-		allOWLObjectsByAltId = graph.getAllOWLObjectsByAltId();
+		identifiers = IdentifierIndex.get(graph);
 		OWLDataFactory df = graph.getDataFactory();
 		partOf = OBOUpperVocabulary.BFO_part_of.getObjectProperty(df);
 		occursIn = OBOUpperVocabulary.BFO_occurs_in.getObjectProperty(df);
@@ -86,6 +174,37 @@ public class GafToLegoIndividualTranslator {
 	 * @throws OWLException
 	 */
 	public OWLOntology translate(GafDocument gaf) throws OWLException {
+		OWLOntology lego = createLego();
+		translate(gaf.getGeneAnnotations(), lego);
+		return lego;
+	}
+	
+	/**
+	 * Translate the given {@link GafDocument} in parallel into one ontology.
+	 * 
+	 * @param gaf
+	 * @param threads
+	 * @param chunkSize number of annotations per translation task
+	 * @return lego ontology
+	 * @throws OWLException
+	 * @see #translate(Collection, ShardFunction, int, int)
+	 */
+	public OWLOntology translate(GafDocument gaf, int threads, int chunkSize) throws OWLException {
+		Map<String, Set<OWLAxiom>> axioms = translate(gaf.getGeneAnnotations(), SINGLE, threads, chunkSize);
+		OWLOntology lego = createLego();
+		for (Set<OWLAxiom> shardAxioms : axioms.values()) {
+			graph.getManager().addAxioms(lego, shardAxioms);
+		}
+		return lego;
+	}
+	
+	/**
+	 * Create an empty ontology, which imports the source ontology of the graph.
+	 * 
+	 * @return lego ontology
+	 * @throws OWLException
+	 */
+	private OWLOntology createLego() throws OWLException {
 		final OWLOntologyManager m = graph.getManager();
 		OWLOntology lego = m.createOntology(IRI.generateDocumentIRI());
 		OWLOntology sourceOntology = graph.getSourceOntology();
@@ -98,10 +217,191 @@ public class GafToLegoIndividualTranslator {
 				m.applyChange(new AddImport(lego, importDeclaration ));
 			}
 		}
-		translate(gaf.getGeneAnnotations(), lego);
 		return lego;
 	}
 	
+	/**
+	 * Receive the ontology of one shard.
+	 */
+	public static interface ShardHandler {
+		
+		/**
+		 * The ontology is removed from the manager after the call.
+		 * 
+		 * @param shard
+		 * @param lego
+		 * @throws Exception
+		 */
+		public void handle(String shard, OWLOntology lego) throws Exception;
+	}
+	
+	/**
+	 * Translate the {@link GafDocument} in parallel into one ontology per
+	 * shard. Each ontology imports the source ontology of the graph. The
+	 * ontologies are created one at a time, in the order of the first
+	 * annotation, and removed after the handler was called.
+	 * 
+	 * @param gaf
+	 * @param shards
+	 * @param threads
+	 * @param chunkSize number of annotations per translation task
+	 * @param handler
+	 * @throws Exception
+	 */
+	public void translate(GafDocument gaf, ShardFunction shards, int threads, int chunkSize, ShardHandler handler) throws Exception {
+		Map<String, Set<OWLAxiom>> axioms = translate(gaf.getGeneAnnotations(), shards, threads, chunkSize);
+		final OWLOntologyManager m = graph.getManager();
+		Iterator<Map.Entry<String, Set<OWLAxiom>>> iterator = axioms.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, Set<OWLAxiom>> entry = iterator.next();
+			OWLOntology lego = createLego();
+			try {
+				m.addAxioms(lego, entry.getValue());
+				iterator.remove();
+				handler.handle(entry.getKey(), lego);
+			}
+			finally {
+				m.removeOntology(lego);
+			}
+		}
+	}
+	
+	/**
+	 * Translate the annotations in parallel, without modifying any ontology.
+	 * The annotations are split into chunks, each chunk is translated into
+	 * axiom sets per shard. The chunk results are merged in annotation
+	 * order.
+	 * 
+	 * @param annotations
+	 * @param shards
+	 * @param threads
+	 * @param chunkSize number of annotations per translation task
+	 * @return axioms for each shard in the order of the first annotation
+	 * @throws OWLException
+	 */
+	public Map<String, Set<OWLAxiom>> translate(Collection<GeneAnnotation> annotations, ShardFunction shards,
+			int threads, int chunkSize) throws OWLException {
+		ExecutorService executor = createExecutor(threads);
+		try {
+			return translate(annotations, shards, executor, chunkSize);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Create a thread pool for the parallel translation, see
+	 * {@link #translate(Collection, ShardFunction, ExecutorService, int)}.
+	 * The caller is responsible for the shutdown.
+	 * 
+	 * @param threads
+	 * @return executor
+	 */
+	public static ExecutorService createExecutor(int threads) {
+		return Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+
+			private final AtomicInteger count = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "minerva-gaf2lego-"+count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Translate the annotations with the given executor, i.e. to reuse the
+	 * threads for several batches of a GAF.
+	 * 
+	 * @param annotations
+	 * @param shards
+	 * @param executor
+	 * @param chunkSize number of annotations per translation task
+	 * @return axioms for each shard in the order of the first annotation
+	 * @throws OWLException
+	 * @see #translate(Collection, ShardFunction, int, int)
+	 */
+	public Map<String, Set<OWLAxiom>> translate(Collection<GeneAnnotation> annotations, final ShardFunction shards,
+			ExecutorService executor, int chunkSize) throws OWLException {
+		final List<GeneAnnotation> all = new ArrayList<GeneAnnotation>(annotations);
+		chunkSize = Math.max(1, chunkSize);
+		Map<String, Set<OWLAxiom>> merged = new LinkedHashMap<String, Set<OWLAxiom>>();
+		// parallel stage: axioms per shard for each chunk
+		List<Future<Map<String, Set<OWLAxiom>>>> futures = new ArrayList<Future<Map<String, Set<OWLAxiom>>>>();
+		boolean completed = false;
+		try {
+			for (int start = 0; start < all.size(); start += chunkSize) {
+				final List<GeneAnnotation> chunk = all.subList(start, Math.min(all.size(), start + chunkSize));
+				futures.add(executor.submit(new Callable<Map<String, Set<OWLAxiom>>>() {
+
+					@Override
+					public Map<String, Set<OWLAxiom>> call() throws Exception {
+						Map<String, Set<OWLAxiom>> chunkAxioms = new LinkedHashMap<String, Set<OWLAxiom>>();
+						for (GeneAnnotation annotation : chunk) {
+							String shard = shards.getShard(annotation);
+							Set<OWLAxiom> axioms = chunkAxioms.get(shard);
+							if (axioms == null) {
+								axioms = new HashSet<OWLAxiom>();
+								chunkAxioms.put(shard, axioms);
+							}
+							translate(annotation, axioms);
+						}
+						return chunkAxioms;
+					}
+				}));
+			}
+			// merge stage
+			int done = 0;
+			for (Future<Map<String, Set<OWLAxiom>>> future : futures) {
+				Map<String, Set<OWLAxiom>> chunkAxioms = getResult(future);
+				for (Map.Entry<String, Set<OWLAxiom>> entry : chunkAxioms.entrySet()) {
+					Set<OWLAxiom> axioms = merged.get(entry.getKey());
+					if (axioms == null) {
+						merged.put(entry.getKey(), entry.getValue());
+					}
+					else {
+						axioms.addAll(entry.getValue());
+					}
+				}
+				done += 1;
+				if (done % 100 == 0) {
+					logger.info("Translated "+Math.min(all.size(), done * chunkSize)+" of "+all.size()+" annotations");
+				}
+			}
+			completed = true;
+		}
+		finally {
+			if (completed == false) {
+				// the executor may be shared, only stop the tasks of this translation
+				for (Future<Map<String, Set<OWLAxiom>>> future : futures) {
+					future.cancel(true);
+				}
+			}
+		}
+		return merged;
+	}
+	
+	private static <T> T getResult(Future<T> future) throws OWLException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted during the translation", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof OWLException) {
+				throw (OWLException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException("Could not translate annotations", cause);
+		}
+	}
+	
 	/**
 	 * Translate the given annotations ({@link GeneAnnotation}) into an OWL representation of the LEGO model.
 	 * 
@@ -164,7 +464,7 @@ public class GafToLegoIndividualTranslator {
 						IRI extensionIRI = curieHandler.getIRI(extensionClsString);
 						extensionCls = f.getOWLClass(extensionIRI);
 					}
-					final OWLObjectProperty extensionRelation = graph.getOWLObjectPropertyByIdentifier(extensionRelationString);
+					final OWLObjectProperty extensionRelation = getOwlObjectProperty(extensionRelationString);
 					if (extensionRelation == null) {
 						reportError("Could not find a class for the given extension relation identifier: "+extensionRelationString, annotation);
 						continue;
@@ -334,15 +634,28 @@ public class GafToLegoIndividualTranslator {
 	 * @return cls or null
 	 */
 	private OWLClass getOwlClass(String id) {
-		OWLClass cls = graph.getOWLClassByIdentifier(id);
-		if (cls == null) {
-			// check alt ids
-			OWLObject owlObject = allOWLObjectsByAltId.get(id);
-			if (owlObject != null && owlObject instanceof OWLClass) {
-				cls = (OWLClass) owlObject;
+		// primary and alt ids, obsolete classes are replaced
+		return identifiers.getCurrentOWLClassByIdentifier(id);
+	}
+	
+	/**
+	 * @param id
+	 * @return property or null
+	 */
+	private OWLObjectProperty getOwlObjectProperty(String id) {
+		OWLObjectProperty p = identifiers.getOWLObjectPropertyByIdentifier(id);
+		if (p == null) {
+			p = properties.get(id);
+		}
+		if (p == null) {
+			synchronized (graph) {
+				p = graph.getOWLObjectPropertyByIdentifier(id);
+			}
+			if (p != null) {
+				properties.put(id, p);
 			}
 		}
-		return cls;
+		return p;
 	}
 	
 
@@ -0,0 +1,195 @@
+package org.geneontology.minerva;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyFormat;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import owltools.gaf.GafDocument;
+import owltools.gaf.parser.GafObjectsBuilder;
+
+/**
+ * Read a GAF in batches, translate each batch and write the axioms as one
+ * part ontology per batch. The GAF is never loaded as a whole, the memory
+ * only depends on the batch size and the number of pending batches.<br>
+ * <br>
+ * The batches are read and translated by the calling thread. The parts are
+ * written by a separate thread with a private {@link OWLOntologyManager},
+ * the translated batches are handed over in a bounded queue. If the writer
+ * falls behind, the reader waits (backpressure).
+ */
+public class GafToLegoStreamer {
+
+	private static final Logger LOG = Logger.getLogger(GafToLegoStreamer.class);
+
+	/**
+	 * Translate one batch of annotations into axioms.
+	 */
+	public static interface BatchTranslator {
+
+		/**
+		 * @param batch
+		 * @return axioms, the translator may not modify them afterwards
+		 * @throws OWLException
+		 */
+		public Set<OWLAxiom> translate(GafDocument batch) throws OWLException;
+	}
+
+	private static final Part END = new Part(-1, null);
+
+	private static class Part {
+
+		final int number;
+		final Set<OWLAxiom> axioms;
+
+		Part(int number, Set<OWLAxiom> axioms) {
+			this.number = number;
+			this.axioms = axioms;
+		}
+	}
+
+	private final int batchSize;
+	private final int maxPending;
+
+	/**
+	 * @param batchSize number of GAF lines per batch
+	 * @param maxPending maximum number of translated batches waiting for the writer
+	 */
+	public GafToLegoStreamer(int batchSize, int maxPending) {
+		this.batchSize = Math.max(1, batchSize);
+		this.maxPending = Math.max(1, maxPending);
+	}
+
+	/**
+	 * Stream the GAF into part ontologies in the output folder. Each part
+	 * imports the given ontologies.
+	 *
+	 * @param gaf
+	 * @param translator
+	 * @param imports
+	 * @param format
+	 * @param outputFolder
+	 * @return number of written parts
+	 * @throws Exception
+	 */
+	public int run(File gaf, BatchTranslator translator, final Collection<IRI> imports,
+			final OWLOntologyFormat format, final File outputFolder) throws Exception {
+		outputFolder.mkdirs();
+		final BlockingQueue<Part> queue = new ArrayBlockingQueue<Part>(maxPending);
+		ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "minerva-gaf-writer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			Future<Integer> writer = executor.submit(new Callable<Integer>() {
+
+				@Override
+				public Integer call() throws Exception {
+					OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+					int count = 0;
+					while (true) {
+						Part part = queue.take();
+						if (part == END) {
+							return Integer.valueOf(count);
+						}
+						writePart(part, m, imports, format, outputFolder);
+						count += 1;
+					}
+				}
+			});
+			GafObjectsBuilder builder = new GafObjectsBuilder(batchSize);
+			GafDocument batch = builder.buildDocument(gaf);
+			int number = 0;
+			int lines = 0;
+			while (batch != null && batch.getGeneAnnotations().isEmpty() == false) {
+				number += 1;
+				lines += batch.getGeneAnnotations().size();
+				Set<OWLAxiom> axioms = translator.translate(batch);
+				batch = null; // release before reading the next batch
+				put(new Part(number, axioms), queue, writer);
+				LOG.info("Translated "+lines+" annotations in "+number+" batches");
+				batch = builder.getNextSplitDocument();
+			}
+			put(END, queue, writer);
+			return getResult(writer).intValue();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Wait until the writer accepts the part. Fail, if the writer stopped.
+	 */
+	private static void put(Part part, BlockingQueue<Part> queue, Future<Integer> writer) throws Exception {
+		while (queue.offer(part, 1, TimeUnit.SECONDS) == false) {
+			if (writer.isDone()) {
+				getResult(writer);
+				throw new IllegalStateException("The writer stopped before the end of the GAF");
+			}
+		}
+	}
+
+	private static <T> T getResult(Future<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+
+	private static void writePart(Part part, OWLOntologyManager m, Collection<IRI> imports,
+			OWLOntologyFormat format, File outputFolder) throws Exception {
+		OWLDataFactory f = m.getOWLDataFactory();
+		OWLOntology lego = m.createOntology(IRI.generateDocumentIRI());
+		try {
+			for (IRI importIRI : imports) {
+				m.applyChange(new AddImport(lego, f.getOWLImportsDeclaration(importIRI)));
+			}
+			m.addAxioms(lego, part.axioms);
+			File file = new File(outputFolder, String.format("part-%05d.owl", Integer.valueOf(part.number)));
+			OutputStream outputStream = null;
+			try {
+				outputStream = new FileOutputStream(file);
+				m.saveOntology(lego, format, outputStream);
+			}
+			finally {
+				IOUtils.closeQuietly(outputStream);
+			}
+		}
+		finally {
+			m.removeOntology(lego);
+		}
+	}
+}
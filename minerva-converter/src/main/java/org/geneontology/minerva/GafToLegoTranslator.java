@@ -9,6 +9,7 @@ import java.util.Set;
 import java.util.UUID;
 
 import org.apache.log4j.Logger;
+import org.geneontology.minerva.util.IdentifierIndex;
 import org.obolibrary.obo2owl.Obo2OWLConstants;
 import org.semanticweb.owlapi.model.AddImport;
 import org.semanticweb.owlapi.model.IRI;
@@ -22,7 +23,6 @@ import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLException;
 import org.semanticweb.owlapi.model.OWLImportsDeclaration;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
-import org.semanticweb.owlapi.model.OWLObject;
 import org.semanticweb.owlapi.model.OWLObjectProperty;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
@@ -141,11 +141,11 @@ public class GafToLegoTranslator {
 	private OWLObjectProperty enabledBy;
 	private OWLObjectProperty geneProductOf;
 
-	private Map<String, OWLObject> allOWLObjectsByAltId;
+	private final IdentifierIndex identifiers;
 
 	public GafToLegoTranslator(OWLGraphWrapper graph, Map<String,String> gp2protein) {
 		this.graph = graph;
-		allOWLObjectsByAltId = graph.getAllOWLObjectsByAltId();
+		identifiers = IdentifierIndex.get(graph);
 		this.gp2protein = gp2protein;
 		OWLDataFactory df = graph.getDataFactory();
 		partOf = OBOUpperVocabulary.BFO_part_of.getObjectProperty(df);
@@ -421,15 +421,8 @@ public class GafToLegoTranslator {
 	 * @return cls or null
 	 */
 	private OWLClass getOwlClass(String id) {
-		OWLClass cls = graph.getOWLClassByIdentifier(id);
-		if (cls == null) {
-			// check alt ids
-			OWLObject owlObject = allOWLObjectsByAltId.get(id);
-			if (owlObject != null && owlObject instanceof OWLClass) {
-				cls = (OWLClass) owlObject;
-			}
-		}
-		return cls;
+		// primary and alt ids, obsolete classes are replaced
+		return identifiers.getCurrentOWLClassByIdentifier(id);
 	}
 	
 	private void addBioEntity(OWLClass pr, OWLOntology lego, Bioentity bioentity) {
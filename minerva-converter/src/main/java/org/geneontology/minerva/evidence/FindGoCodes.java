@@ -5,6 +5,8 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.geneontology.minerva.curie.CurieHandler;
@@ -16,10 +18,22 @@ import org.semanticweb.owlapi.util.OWLClassExpressionVisitorAdapter;
 import owltools.gaf.eco.EcoMapperFactory;
 import owltools.gaf.eco.SimpleEcoMapper;
 
+/**
+ * Find the GO evidence code for an ECO class, using the mapping of the class
+ * or of its nearest named super class.<br>
+ * <br>
+ * The results are memoized for each ECO class, this assumes that the ECO
+ * hierarchy is the same for all models, i.e. it is part of the tbox. The
+ * memo is thread-safe, one instance can be shared by all translators.
+ */
 public class FindGoCodes {
 
+	// marker for ECO classes without a GO code
+	private static final Pair<String, String> NO_CODE = Pair.of(null, null);
+
 	private final SimpleEcoMapper mapper;
 	private final CurieHandler curieHandler;
+	private final ConcurrentMap<OWLClass, Pair<String, String>> resolved = new ConcurrentHashMap<OWLClass, Pair<String,String>>();
 
 	public FindGoCodes(CurieHandler curieHandler) throws IOException {
 		this(EcoMapperFactory.createSimple(), curieHandler);
@@ -31,6 +45,48 @@ public class FindGoCodes {
 	}
 
 	public Pair<String, String> findShortEvidence(OWLClass eco, String ecoId, OWLOntology model) {
+		Pair<String, String> pair = resolved.get(eco);
+		if (pair == null) {
+			pair = findShortEvidenceInGraph(eco, ecoId, model);
+			if (pair == null) {
+				pair = NO_CODE;
+			}
+			resolved.putIfAbsent(eco, pair);
+		}
+		if (pair == NO_CODE) {
+			return null;
+		}
+		return pair;
+	}
+
+	/**
+	 * Resolve the GO codes for all ECO classes in the ontology and its
+	 * imports, i.e. at start up.
+	 * 
+	 * @param ontology
+	 * @return number of ECO classes with a GO code
+	 */
+	public int precompute(OWLOntology ontology) {
+		int count = 0;
+		for (OWLClass cls : ontology.getClassesInSignature(true)) {
+			String id = curieHandler.getCuri(cls);
+			if (id != null && id.startsWith("ECO:")) {
+				if (findShortEvidence(cls, id, ontology) != null) {
+					count += 1;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of memoized ECO classes
+	 */
+	public int getResolvedCount() {
+		return resolved.size();
+	}
+
+	private Pair<String, String> findShortEvidenceInGraph(OWLClass eco, String ecoId, OWLOntology model) {
 		Pair<String, String> pair =  mapper.getGoCode(ecoId);
 		if (pair == null) {
 			// try to find a GO-Code mapping in the named super classes
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -13,6 +12,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.geneontology.minerva.curie.CurieHandler;
 import org.geneontology.minerva.evidence.FindGoCodes;
 import org.geneontology.minerva.taxon.FindTaxonTool;
+import org.geneontology.minerva.taxon.TaxonIndex;
 import org.obolibrary.obo2owl.Owl2Obo;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassExpression;
@@ -35,54 +35,48 @@ import owltools.vocab.OBOUpperVocabulary;
 abstract class AbstractLegoTranslator extends LegoModelWalker<AbstractLegoTranslator.Summary> {
 
 	protected final OWLClass mf;
-	protected final Set<OWLClass> mfSet;
-
 	protected final OWLClass cc;
-	protected final Set<OWLClass> ccSet;
-
 	protected final OWLClass bp;
-	protected final Set<OWLClass> bpSet;
+
+	protected final GoAspectIndex aspects;
 
 	protected final FindGoCodes goCodes;
 	protected final CurieHandler curieHandler;
 
 	protected String assignedBy;
 
+	private FindTaxonTool taxonTool;
+
 	protected AbstractLegoTranslator(OWLOntology model, CurieHandler curieHandler, OWLReasoner reasoner, SimpleEcoMapper mapper) {
+		this(model, curieHandler, GoAspectIndex.create(reasoner, curieHandler, model.getOWLOntologyManager().getOWLDataFactory()), mapper);
+	}
+
+	protected AbstractLegoTranslator(OWLOntology model, CurieHandler curieHandler, GoAspectIndex aspects, SimpleEcoMapper mapper) {
+		this(model, curieHandler, aspects, new FindGoCodes(mapper, curieHandler));
+	}
+
+	protected AbstractLegoTranslator(OWLOntology model, CurieHandler curieHandler, GoAspectIndex aspects, FindGoCodes goCodes) {
 		super(model.getOWLOntologyManager().getOWLDataFactory());
 		this.curieHandler = curieHandler;
-		goCodes = new FindGoCodes(mapper, curieHandler);
+		this.aspects = aspects;
+		this.goCodes = goCodes;
 
 		mf = OBOUpperVocabulary.GO_molecular_function.getOWLClass(f);
 		cc = f.getOWLClass(curieHandler.getIRI("GO:0005575"));
 		bp = OBOUpperVocabulary.GO_biological_process.getOWLClass(f);
 	
-		bpSet = getAllSubClasses(bp, reasoner, true, "GO:", curieHandler);
-		mfSet = getAllSubClasses(mf, reasoner, true, "GO:", curieHandler);
-		ccSet = getAllSubClasses(cc, reasoner, false, "GO:", curieHandler);
-	
 		assignedBy = "GO_Noctua";
+		taxonTool = new FindTaxonTool(curieHandler, f);
 	}
 
-	protected static Set<OWLClass> getAllSubClasses(OWLClass cls, OWLReasoner r, boolean reflexive, String idSpace, CurieHandler curieHandler) {
-		Set<OWLClass> allSubClasses = r.getSubClasses(cls, false).getFlattened();
-		Iterator<OWLClass> it = allSubClasses.iterator();
-		while (it.hasNext()) {
-			OWLClass current = it.next();
-			if (current.isBuiltIn()) {
-				it.remove();
-				continue;
-			}
-			String id = curieHandler.getCuri(current);
-			if (id.startsWith(idSpace) == false) {
-				it.remove();
-				continue;
-			}
-		}
-		if (reflexive) {
-			allSubClasses.add(cls);
-		}
-		return allSubClasses;
+	/**
+	 * Use a shared taxon index for the tbox, instead of scanning the
+	 * imports closure for each bioentity.
+	 * 
+	 * @param taxonIndex
+	 */
+	public void setTaxonIndex(TaxonIndex taxonIndex) {
+		taxonTool = new FindTaxonTool(curieHandler, f, taxonIndex);
 	}
 
 	protected static class Entry<T> {
@@ -166,18 +160,30 @@ abstract class AbstractLegoTranslator extends LegoModelWalker<AbstractLegoTransl
 	}
 
 	protected boolean isMf(OWLClass cls) {
-		return mfSet.contains(cls);
+		return aspects.isMf(cls);
 	}
 
 	protected boolean isBp(OWLClass cls) {
-		return bpSet.contains(cls);
+		return aspects.isBp(cls);
 	}
 
 	protected boolean isCc(OWLClass cls) {
-		return ccSet.contains(cls);
+		return aspects.isCc(cls);
 	}
 
-	public abstract void translate(OWLOntology modelAbox, GafDocument annotations, BioentityDocument entities, List<String> additionalRefs);
+	/**
+	 * Translate the model and hand each bioentity and annotation to the sink,
+	 * as soon as it is created.
+	 * 
+	 * @param modelAbox
+	 * @param sink
+	 * @param additionalRefs
+	 */
+	public abstract void translate(OWLOntology modelAbox, GeneAnnotationSink sink, List<String> additionalRefs);
+
+	public void translate(OWLOntology modelAbox, GafDocument annotations, BioentityDocument entities, List<String> additionalRefs) {
+		translate(modelAbox, new GeneAnnotationSink.DocumentSink(annotations, entities), additionalRefs);
+	}
 
 	/**
 	 * Get the type of an enabled by entity, e.g. gene, protein
@@ -199,8 +205,7 @@ abstract class AbstractLegoTranslator extends LegoModelWalker<AbstractLegoTransl
 		if (entity == null) {
 			return null;
 		}
-		FindTaxonTool tool = new FindTaxonTool(curieHandler, model.getOWLOntologyManager().getOWLDataFactory());
-		return tool.getEntityTaxon(curieHandler.getCuri(entity), model);
+		return taxonTool.getEntityTaxon(curieHandler.getCuri(entity), model);
 	}
 
 	public Pair<GafDocument, BioentityDocument> translate(String id, OWLOntology modelAbox, List<String> additionalReferences) {
@@ -331,11 +336,10 @@ abstract class AbstractLegoTranslator extends LegoModelWalker<AbstractLegoTransl
 
 	protected void addAnnotations(OWLGraphWrapper modelGraph,
 			Summary summary, List<String> additionalRefs,
-			GafDocument annotations, BioentityDocument entities) 
+			GeneAnnotationSink sink) 
 	{
 		Bioentity entity = createBioentity(summary.entity, summary.entityType, summary.entityTaxon , modelGraph);
-		entities.addBioentity(entity);
-		annotations.addBioentity(entity);
+		sink.addBioentity(entity);
 		
 		if (summary.activities != null) {
 			for (Entry<OWLClass> e: summary.activities) {
@@ -350,21 +354,21 @@ abstract class AbstractLegoTranslator extends LegoModelWalker<AbstractLegoTransl
 				}
 				if (renderActivity) {
 					GeneAnnotation annotation = createAnnotation(e, entity, "F", additionalRefs, modelGraph, e.expressions);
-					annotations.addGeneAnnotation(annotation);
+					sink.addGeneAnnotation(annotation);
 				}
 			}
 		}
 		if (summary.processes != null) {
 			for (Entry<OWLClass> e : summary.processes) {
 				GeneAnnotation annotation = createAnnotation(e, entity, "P", additionalRefs, modelGraph, e.expressions);
-				annotations.addGeneAnnotation(annotation);
+				sink.addGeneAnnotation(annotation);
 			}
 		}
 		if (summary.locations != null) {
 			for (Entry<OWLClass> e : summary.locations) {
 				if (isCc(e.value)) {
 					GeneAnnotation annotation = createAnnotation(e, entity, "C", additionalRefs, modelGraph, e.expressions);
-					annotations.addGeneAnnotation(annotation);
+					sink.addGeneAnnotation(annotation);
 				}
 			}
 		}
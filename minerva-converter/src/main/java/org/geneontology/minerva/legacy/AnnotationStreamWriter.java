@@ -0,0 +1,180 @@
+package org.geneontology.minerva.legacy;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import org.apache.commons.io.IOUtils;
+
+import owltools.gaf.Bioentity;
+import owltools.gaf.GafDocument;
+import owltools.gaf.GeneAnnotation;
+import owltools.gaf.io.GafWriter;
+import owltools.gaf.io.GpadWriter;
+
+/**
+ * {@link GeneAnnotationSink}, which writes each annotation directly to the
+ * output, nothing is kept in memory. The header is written once, before the
+ * first annotation or on close for an empty output.<br>
+ * <br>
+ * The bioentities are not written separately, GAF and GPAD only contain
+ * the entities referenced by the annotations. The writer is thread-safe,
+ * but the order of the annotations is only defined for a single thread.
+ */
+public abstract class AnnotationStreamWriter implements GeneAnnotationSink, Closeable {
+
+	private boolean headerWritten = false;
+	private long count = 0;
+
+	/**
+	 * Create a GAF 2.0 writer.
+	 *
+	 * @param outputStream
+	 * @return writer
+	 */
+	public static AnnotationStreamWriter createGafWriter(OutputStream outputStream) {
+		return new GafStreamWriter(new PrintStream(outputStream));
+	}
+
+	/**
+	 * Create a GPAD 1.2 writer.
+	 *
+	 * @param writer
+	 * @return writer
+	 */
+	public static AnnotationStreamWriter createGpadWriter(Writer writer) {
+		return new GpadStreamWriter(new PrintWriter(writer));
+	}
+
+	/**
+	 * Create a writer for the legacy format name, see
+	 * {@link GafExportTool#exportModelLegacy(org.geneontology.minerva.ModelContainer, org.geneontology.minerva.curie.CurieHandler, boolean, String)}.
+	 *
+	 * @param format gaf, gpad or null for gaf
+	 * @param outputStream
+	 * @return writer or null, if the format is unknown
+	 */
+	public static AnnotationStreamWriter create(String format, OutputStream outputStream) {
+		if (format == null || "gaf".equalsIgnoreCase(format)) {
+			return createGafWriter(outputStream);
+		}
+		else if ("gpad".equalsIgnoreCase(format)) {
+			return createGpadWriter(new OutputStreamWriter(outputStream));
+		}
+		return null;
+	}
+
+	@Override
+	public void addBioentity(Bioentity entity) {
+		// written as part of the annotations
+	}
+
+	@Override
+	public synchronized void addGeneAnnotation(GeneAnnotation annotation) {
+		ensureHeader();
+		writeAnnotation(annotation);
+		count += 1;
+	}
+
+	private void ensureHeader() {
+		if (headerWritten == false) {
+			writeHeader(new GafDocument(null, null));
+			headerWritten = true;
+		}
+	}
+
+	/**
+	 * @return number of written annotations
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Flush the written annotations to the underlying output.
+	 */
+	public synchronized void flush() {
+		flushOutput();
+	}
+
+	@Override
+	public synchronized void close() {
+		ensureHeader();
+		flushOutput();
+		closeOutput();
+	}
+
+	protected abstract void writeHeader(GafDocument document);
+
+	protected abstract void writeAnnotation(GeneAnnotation annotation);
+
+	protected abstract void flushOutput();
+
+	protected abstract void closeOutput();
+
+	private static class GafStreamWriter extends AnnotationStreamWriter {
+
+		private final PrintStream stream;
+		private final GafWriter writer;
+
+		GafStreamWriter(PrintStream stream) {
+			this.stream = stream;
+			this.writer = new GafWriter();
+			writer.setStream(stream);
+		}
+
+		@Override
+		protected void writeHeader(GafDocument document) {
+			writer.writeHeader(document);
+		}
+
+		@Override
+		protected void writeAnnotation(GeneAnnotation annotation) {
+			writer.write(annotation);
+		}
+
+		@Override
+		protected void flushOutput() {
+			stream.flush();
+		}
+
+		@Override
+		protected void closeOutput() {
+			IOUtils.closeQuietly(stream);
+		}
+	}
+
+	private static class GpadStreamWriter extends AnnotationStreamWriter {
+
+		private final PrintWriter printWriter;
+		private final GpadWriter writer;
+
+		GpadStreamWriter(PrintWriter printWriter) {
+			this.printWriter = printWriter;
+			this.writer = new GpadWriter(printWriter, 1.2d);
+		}
+
+		@Override
+		protected void writeHeader(GafDocument document) {
+			writer.writeHeader(document);
+		}
+
+		@Override
+		protected void writeAnnotation(GeneAnnotation annotation) {
+			writer.write(annotation);
+		}
+
+		@Override
+		protected void flushOutput() {
+			printWriter.flush();
+		}
+
+		@Override
+		protected void closeOutput() {
+			IOUtils.closeQuietly(printWriter);
+		}
+	}
+}
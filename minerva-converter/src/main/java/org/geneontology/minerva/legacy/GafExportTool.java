@@ -2,23 +2,24 @@ package org.geneontology.minerva.legacy;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
-import java.io.PrintWriter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.geneontology.minerva.ModelContainer;
 import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.evidence.FindGoCodes;
+import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
-import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
-import owltools.gaf.BioentityDocument;
-import owltools.gaf.GafDocument;
 import owltools.gaf.eco.EcoMapperFactory;
 import owltools.gaf.eco.SimpleEcoMapper;
-import owltools.gaf.io.GafWriter;
-import owltools.gaf.io.GpadWriter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 public class GafExportTool {
 
@@ -26,6 +27,12 @@ public class GafExportTool {
 	
 	private final SimpleEcoMapper ecoMapper;
 	
+	// aspects of the GO classes for each tbox, released with the tbox
+	private final Cache<OWLOntology, GoAspectIndex> aspectIndexes = CacheBuilder.newBuilder().weakKeys().build();
+	
+	// memoized evidence codes, shared by all exports
+	private final ConcurrentMap<CurieHandler, FindGoCodes> goCodes = new ConcurrentHashMap<CurieHandler, FindGoCodes>();
+	
 	private GafExportTool(SimpleEcoMapper mapper) {
 		this.ecoMapper = mapper;
 	}
@@ -37,6 +44,30 @@ public class GafExportTool {
 		return INSTANCE;
 	}
 
+	private FindGoCodes getGoCodes(CurieHandler curieHandler) {
+		FindGoCodes codes = goCodes.get(curieHandler);
+		if (codes == null) {
+			codes = new FindGoCodes(ecoMapper, curieHandler);
+			FindGoCodes previous = goCodes.putIfAbsent(curieHandler, codes);
+			if (previous != null) {
+				codes = previous;
+			}
+		}
+		return codes;
+	}
+
+	/**
+	 * Resolve the GO evidence codes for all ECO classes of the tbox in
+	 * advance, instead of during the first exports.
+	 * 
+	 * @param curieHandler
+	 * @param tbox
+	 * @return number of ECO classes with a GO code
+	 */
+	public int precomputeEvidenceCodes(CurieHandler curieHandler, OWLOntology tbox) {
+		return getGoCodes(curieHandler).precompute(tbox);
+	}
+
 	/**
 	 * Export the model (ABox) in a legacy format, such as GAF or GPAD.
 	 * 
@@ -50,44 +81,45 @@ public class GafExportTool {
 	 */
 	public String exportModelLegacy(ModelContainer model, CurieHandler curieHandler, boolean useModuleReasoner, String format) throws IOException, OWLOntologyCreationException {
 		final OWLOntology aBox = model.getAboxOntology();
-		OWLReasoner r;
-		if (useModuleReasoner) {
-			r = model.getModuleReasoner();
-		}
-		else {
-			r = model.getReasoner();
-		}
+		GoAspectIndex aspects = getAspectIndex(model, curieHandler, useModuleReasoner);
 		
-		LegoToGeneAnnotationTranslator translator = new LegoToGeneAnnotationTranslator(aBox, curieHandler, r, ecoMapper);
-		Pair<GafDocument,BioentityDocument> pair = translator.translate(model.getModelId().toString(), aBox, null);
-		ByteArrayOutputStream outputStream = null;
+		LegoToGeneAnnotationTranslator translator = new LegoToGeneAnnotationTranslator(aBox, curieHandler, aspects, getGoCodes(curieHandler));
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		AnnotationStreamWriter writer = AnnotationStreamWriter.create(format, outputStream);
+		if (writer == null) {
+			throw new IOException("Unknown legacy format: "+format);
+		}
 		try {
-			outputStream = new ByteArrayOutputStream();
-			if (format == null || "gaf".equalsIgnoreCase(format)) {
-				// GAF
-				GafWriter writer = new GafWriter();
-				try {
-					writer.setStream(new PrintStream(outputStream));
-					GafDocument gafdoc = pair.getLeft();
-					writer.write(gafdoc);
-				}
-				finally {
-					writer.close();
-				}
-
-			}
-			else if ("gpad".equalsIgnoreCase(format)) {
-				// GPAD version 1.2
-				GpadWriter writer = new GpadWriter(new PrintWriter(outputStream) , 1.2);
-				writer.write(pair.getLeft());
-			}
-			else {
-				throw new IOException("Unknown legacy format: "+format);
-			}
-			return outputStream.toString();
+			translator.translate(aBox, writer, null);
 		}
 		finally {
-			IOUtils.closeQuietly(outputStream);
+			writer.close();
+		}
+		return outputStream.toString();
+	}
+
+	/**
+	 * The aspects only depend on the tbox, the index is computed once for
+	 * each tbox. A module reasoner only covers the classes of one model, the
+	 * index is not cached in this case.
+	 */
+	private GoAspectIndex getAspectIndex(final ModelContainer model, final CurieHandler curieHandler, boolean useModuleReasoner) throws OWLOntologyCreationException {
+		final OWLDataFactory f = model.getOWLDataFactory();
+		if (useModuleReasoner) {
+			return GoAspectIndex.create(model.getModuleReasoner(), curieHandler, f);
+		}
+		try {
+			return aspectIndexes.get(model.getTboxOntology(), new Callable<GoAspectIndex>() {
+
+				@Override
+				public GoAspectIndex call() throws Exception {
+					return GoAspectIndex.create(model.getReasoner(), curieHandler, f);
+				}
+			});
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Could not create the aspect index", e.getCause());
+		} catch (UncheckedExecutionException e) {
+			throw new RuntimeException("Could not create the aspect index", e.getCause());
 		}
 	}
 }
@@ -0,0 +1,46 @@
+package org.geneontology.minerva.legacy;
+
+import owltools.gaf.Bioentity;
+import owltools.gaf.BioentityDocument;
+import owltools.gaf.GafDocument;
+import owltools.gaf.GeneAnnotation;
+
+/**
+ * Receives the bioentities and annotations created by a
+ * {@link AbstractLegoTranslator}, in the order they are produced.
+ */
+public interface GeneAnnotationSink {
+
+	public void addBioentity(Bioentity entity);
+
+	public void addGeneAnnotation(GeneAnnotation annotation);
+
+	/**
+	 * Sink collecting everything into the given documents.
+	 */
+	public static class DocumentSink implements GeneAnnotationSink {
+
+		private final GafDocument annotations;
+		private final BioentityDocument entities;
+
+		/**
+		 * @param annotations
+		 * @param entities
+		 */
+		public DocumentSink(GafDocument annotations, BioentityDocument entities) {
+			this.annotations = annotations;
+			this.entities = entities;
+		}
+
+		@Override
+		public void addBioentity(Bioentity entity) {
+			entities.addBioentity(entity);
+			annotations.addBioentity(entity);
+		}
+
+		@Override
+		public void addGeneAnnotation(GeneAnnotation annotation) {
+			annotations.addGeneAnnotation(annotation);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package org.geneontology.minerva.legacy;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.geneontology.minerva.curie.CurieHandler;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import owltools.vocab.OBOUpperVocabulary;
+
+/**
+ * The GO aspects (molecular function, biological process and cellular
+ * component) of the classes in a tbox. The sets only depend on the tbox,
+ * they are computed once and can be shared by all translators for the same
+ * tbox. The index is immutable and thread-safe.<br>
+ * <br>
+ * Each GO class has a dense index, the aspects are stored as one
+ * {@link BitSet} per aspect.
+ */
+public class GoAspectIndex {
+
+	private final Map<OWLClass, Integer> index;
+	private final BitSet mf;
+	private final BitSet bp;
+	private final BitSet cc;
+
+	private GoAspectIndex(Map<OWLClass, Integer> index, BitSet mf, BitSet bp, BitSet cc) {
+		this.index = index;
+		this.mf = mf;
+		this.bp = bp;
+		this.cc = cc;
+	}
+
+	/**
+	 * Query the reasoner for all GO subclasses of the three aspects.
+	 *
+	 * @param reasoner
+	 * @param curieHandler
+	 * @param f
+	 * @return index
+	 */
+	public static GoAspectIndex create(OWLReasoner reasoner, CurieHandler curieHandler, OWLDataFactory f) {
+		OWLClass mfRoot = OBOUpperVocabulary.GO_molecular_function.getOWLClass(f);
+		OWLClass ccRoot = f.getOWLClass(curieHandler.getIRI("GO:0005575"));
+		OWLClass bpRoot = OBOUpperVocabulary.GO_biological_process.getOWLClass(f);
+
+		Map<OWLClass, Integer> index = new HashMap<OWLClass, Integer>();
+		BitSet bp = createBitSet(getAllSubClasses(bpRoot, reasoner, true, "GO:", curieHandler), index);
+		BitSet mf = createBitSet(getAllSubClasses(mfRoot, reasoner, true, "GO:", curieHandler), index);
+		BitSet cc = createBitSet(getAllSubClasses(ccRoot, reasoner, false, "GO:", curieHandler), index);
+		return new GoAspectIndex(index, mf, bp, cc);
+	}
+
+	private static BitSet createBitSet(Set<OWLClass> classes, Map<OWLClass, Integer> index) {
+		BitSet bits = new BitSet();
+		for (OWLClass cls : classes) {
+			Integer i = index.get(cls);
+			if (i == null) {
+				i = Integer.valueOf(index.size());
+				index.put(cls, i);
+			}
+			bits.set(i.intValue());
+		}
+		return bits;
+	}
+
+	static Set<OWLClass> getAllSubClasses(OWLClass cls, OWLReasoner r, boolean reflexive, String idSpace, CurieHandler curieHandler) {
+		Set<OWLClass> allSubClasses = r.getSubClasses(cls, false).getFlattened();
+		Iterator<OWLClass> it = allSubClasses.iterator();
+		while (it.hasNext()) {
+			OWLClass current = it.next();
+			if (current.isBuiltIn()) {
+				it.remove();
+				continue;
+			}
+			String id = curieHandler.getCuri(current);
+			if (id.startsWith(idSpace) == false) {
+				it.remove();
+				continue;
+			}
+		}
+		if (reflexive) {
+			allSubClasses.add(cls);
+		}
+		return allSubClasses;
+	}
+
+	private boolean contains(BitSet bits, OWLClass cls) {
+		Integer i = index.get(cls);
+		return i != null && bits.get(i.intValue());
+	}
+
+	public boolean isMf(OWLClass cls) {
+		return contains(mf, cls);
+	}
+
+	public boolean isBp(OWLClass cls) {
+		return contains(bp, cls);
+	}
+
+	public boolean isCc(OWLClass cls) {
+		return contains(cc, cls);
+	}
+
+	/**
+	 * @return number of indexed GO classes
+	 */
+	public int size() {
+		return index.size();
+	}
+}
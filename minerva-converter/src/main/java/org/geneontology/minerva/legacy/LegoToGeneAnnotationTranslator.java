@@ -5,14 +5,13 @@ import java.util.List;
 import java.util.Set;
 
 import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.evidence.FindGoCodes;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
 import org.semanticweb.owlapi.model.OWLObjectSomeValuesFrom;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
-import owltools.gaf.BioentityDocument;
-import owltools.gaf.GafDocument;
 import owltools.gaf.eco.SimpleEcoMapper;
 import owltools.graph.OWLGraphWrapper;
 
@@ -22,6 +21,26 @@ public class LegoToGeneAnnotationTranslator extends AbstractLegoTranslator {
 		super(model, curieHandler, reasoner, mapper);
 	}
 
+	/**
+	 * @param model
+	 * @param curieHandler
+	 * @param aspects precomputed aspects for the tbox of the model
+	 * @param mapper
+	 */
+	public LegoToGeneAnnotationTranslator(OWLOntology model, CurieHandler curieHandler, GoAspectIndex aspects, SimpleEcoMapper mapper) {
+		super(model, curieHandler, aspects, mapper);
+	}
+
+	/**
+	 * @param model
+	 * @param curieHandler
+	 * @param aspects precomputed aspects for the tbox of the model
+	 * @param goCodes shared evidence code lookup
+	 */
+	public LegoToGeneAnnotationTranslator(OWLOntology model, CurieHandler curieHandler, GoAspectIndex aspects, FindGoCodes goCodes) {
+		super(model, curieHandler, aspects, goCodes);
+	}
+
 	@Override
 	protected boolean isEco(OWLClass cls) {
 		String identifier = curieHandler.getCuri(cls);
@@ -29,14 +48,14 @@ public class LegoToGeneAnnotationTranslator extends AbstractLegoTranslator {
 	}
 
 	@Override
-	public void translate(OWLOntology modelAbox, GafDocument annotations, BioentityDocument entities, List<String> additionalRefs) {
+	public void translate(OWLOntology modelAbox, GeneAnnotationSink sink, List<String> additionalRefs) {
 		Set<Summary> summaries = new HashSet<Summary>();
 		walkModel(modelAbox, summaries);
 		
 		final OWLGraphWrapper modelGraph = new OWLGraphWrapper(modelAbox);
 		for(Summary summary : summaries) {
 			if (summary.entity != null) {
-				addAnnotations(modelGraph, summary, additionalRefs, annotations, entities);
+				addAnnotations(modelGraph, summary, additionalRefs, sink);
 			}
 		}
 	}
@@ -26,9 +26,20 @@ public class FindTaxonTool {
 	
 	private final OWLObjectProperty inTaxon;
 	private final CurieHandler curieHandler;
+	private final TaxonIndex index;
 	
 	public FindTaxonTool(CurieHandler curieHandler, OWLDataFactory df) {
+		this(curieHandler, df, null);
+	}
+	
+	/**
+	 * @param curieHandler
+	 * @param df
+	 * @param index shared index for the tbox or null
+	 */
+	public FindTaxonTool(CurieHandler curieHandler, OWLDataFactory df, TaxonIndex index) {
 		this.curieHandler = curieHandler;
+		this.index = index;
 		inTaxon = df.getOWLObjectProperty(IN_TAXON_IRI);
 	}
 	
@@ -38,6 +49,15 @@ public class FindTaxonTool {
 		}
 		OWLDataFactory df = model.getOWLOntologyManager().getOWLDataFactory();
 		OWLClass cls = df.getOWLClass(curieHandler.getIRI(curie));
+		if (index != null) {
+			// model local axioms first, the tbox is covered by the index
+			String taxon = getLocalEntityTaxon(cls, model);
+			if (taxon == null) {
+				// one lookup for the class, by CURIE or OBO style id
+				taxon = index.getTaxon(curie);
+			}
+			return taxon;
+		}
 		String taxon = getEntityTaxon(cls, model);
 		if (taxon == null) {
 			OWLGraphWrapper g = new OWLGraphWrapper(model);
@@ -51,9 +71,22 @@ public class FindTaxonTool {
 	}
 
 	String getEntityTaxon(OWLClass entity, OWLOntology model) {
+		if (index != null) {
+			String taxon = getLocalEntityTaxon(entity, model);
+			if (taxon == null) {
+				taxon = index.getTaxon(entity);
+			}
+			return taxon;
+		}
+		return getLocalEntityTaxon(entity, model);
+	}
+
+	private String getLocalEntityTaxon(OWLClass entity, OWLOntology model) {
 		Set<OWLSubClassOfAxiom> axioms = new HashSet<OWLSubClassOfAxiom>();
 		for(OWLOntology ont : model.getImportsClosure()) {
-			axioms.addAll(ont.getSubClassAxiomsForSubClass(entity));
+			if (index == null || index.isIndexed(ont) == false) {
+				axioms.addAll(ont.getSubClassAxiomsForSubClass(entity));
+			}
 		}
 		for (OWLSubClassOfAxiom axiom : axioms) {
 			OWLClassExpression ce = axiom.getSuperClass();
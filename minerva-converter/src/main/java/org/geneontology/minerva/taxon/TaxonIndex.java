@@ -0,0 +1,173 @@
+package org.geneontology.minerva.taxon;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.geneontology.minerva.curie.CurieHandler;
+import org.obolibrary.obo2owl.Owl2Obo;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLObjectSomeValuesFrom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+
+/**
+ * Index of the in_taxon restrictions of the bioentity classes in a tbox,
+ * built once with a scan of the imports closure. The index listens to the
+ * changes of the tbox ontologies and is updated incrementally, call
+ * {@link #dispose()} to remove the listener.<br>
+ * <br>
+ * The taxon can be found by class or by identifier. Besides the CURIE of
+ * the class, the OBO style identifier is indexed, i.e. for classes, which
+ * are not in the namespace registered for the prefix. The index is
+ * thread-safe.
+ */
+public class TaxonIndex implements OWLOntologyChangeListener {
+
+	private final CurieHandler curieHandler;
+	private final OWLObjectProperty inTaxon;
+	private final OWLOntologyManager manager;
+	private final Set<OWLOntology> ontologies;
+
+	private final ConcurrentMap<OWLClass, String> taxa = new ConcurrentHashMap<OWLClass, String>();
+	private final ConcurrentMap<String, OWLClass> identifiers = new ConcurrentHashMap<String, OWLClass>();
+
+	private TaxonIndex(OWLOntology tbox, CurieHandler curieHandler) {
+		this.curieHandler = curieHandler;
+		this.manager = tbox.getOWLOntologyManager();
+		this.inTaxon = manager.getOWLDataFactory().getOWLObjectProperty(FindTaxonTool.IN_TAXON_IRI);
+		Set<OWLOntology> closure = Collections.newSetFromMap(new IdentityHashMap<OWLOntology, Boolean>());
+		closure.addAll(tbox.getImportsClosure());
+		this.ontologies = Collections.unmodifiableSet(closure);
+	}
+
+	/**
+	 * Scan the tbox and register the index as change listener.
+	 *
+	 * @param tbox
+	 * @param curieHandler
+	 * @return index
+	 */
+	public static TaxonIndex create(OWLOntology tbox, CurieHandler curieHandler) {
+		TaxonIndex index = new TaxonIndex(tbox, curieHandler);
+		for (OWLOntology ont : index.ontologies) {
+			for (OWLSubClassOfAxiom axiom : ont.getAxioms(AxiomType.SUBCLASS_OF)) {
+				index.add(axiom);
+			}
+		}
+		index.manager.addOntologyChangeListener(index);
+		return index;
+	}
+
+	/**
+	 * @param entity
+	 * @return taxon CURIE or null
+	 */
+	public String getTaxon(OWLClass entity) {
+		return taxa.get(entity);
+	}
+
+	/**
+	 * @param identifier CURIE or OBO style identifier of the class
+	 * @return taxon CURIE or null
+	 */
+	public String getTaxon(String identifier) {
+		OWLClass entity = identifiers.get(identifier);
+		if (entity != null) {
+			return taxa.get(entity);
+		}
+		return null;
+	}
+
+	/**
+	 * @param ont
+	 * @return true, if the axioms of the ontology are covered by the index
+	 */
+	public boolean isIndexed(OWLOntology ont) {
+		return ontologies.contains(ont);
+	}
+
+	/**
+	 * @return number of classes with a taxon
+	 */
+	public int size() {
+		return taxa.size();
+	}
+
+	public void dispose() {
+		manager.removeOntologyChangeListener(this);
+	}
+
+	@Override
+	public void ontologiesChanged(List<? extends OWLOntologyChange> changes) throws OWLException {
+		for (OWLOntologyChange change : changes) {
+			if (change.isAxiomChange() && ontologies.contains(change.getOntology())) {
+				OWLAxiom axiom = change.getAxiom();
+				if (axiom instanceof OWLSubClassOfAxiom) {
+					OWLSubClassOfAxiom subClassAxiom = (OWLSubClassOfAxiom) axiom;
+					if (change.isAddAxiom()) {
+						add(subClassAxiom);
+					}
+					else if (getTaxonClass(subClassAxiom) != null) {
+						rescan(subClassAxiom.getSubClass().asOWLClass());
+					}
+				}
+			}
+		}
+	}
+
+	private void add(OWLSubClassOfAxiom axiom) {
+		OWLClass taxon = getTaxonClass(axiom);
+		if (taxon != null) {
+			OWLClass entity = axiom.getSubClass().asOWLClass();
+			taxa.put(entity, curieHandler.getCuri(taxon));
+			identifiers.put(curieHandler.getCuri(entity), entity);
+			String oboId = Owl2Obo.getIdentifier(entity.getIRI());
+			if (oboId != null) {
+				identifiers.put(oboId, entity);
+			}
+		}
+	}
+
+	private void rescan(OWLClass entity) {
+		for (OWLOntology ont : ontologies) {
+			for (OWLSubClassOfAxiom axiom : ont.getSubClassAxiomsForSubClass(entity)) {
+				OWLClass taxon = getTaxonClass(axiom);
+				if (taxon != null) {
+					taxa.put(entity, curieHandler.getCuri(taxon));
+					return;
+				}
+			}
+		}
+		taxa.remove(entity);
+	}
+
+	/**
+	 * @param axiom
+	 * @return taxon of a named class in_taxon restriction or null
+	 */
+	OWLClass getTaxonClass(OWLSubClassOfAxiom axiom) {
+		if (axiom.getSubClass().isAnonymous()) {
+			return null;
+		}
+		OWLClassExpression ce = axiom.getSuperClass();
+		if (ce instanceof OWLObjectSomeValuesFrom) {
+			OWLObjectSomeValuesFrom svf = (OWLObjectSomeValuesFrom) ce;
+			if (inTaxon.equals(svf.getProperty()) && svf.getFiller().isAnonymous() == false) {
+				return svf.getFiller().asOWLClass();
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,138 @@
+package org.geneontology.minerva;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.geneontology.minerva.GafToLegoIndividualTranslator.ShardHandler;
+import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.curie.DefaultCurieHandler;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import owltools.gaf.GafDocument;
+import owltools.gaf.GeneAnnotation;
+import owltools.gaf.parser.GafObjectsBuilder;
+import owltools.graph.OWLGraphWrapper;
+
+public class GafToLegoIndividualTranslatorTest {
+
+	private static final String OBO = "http://purl.obolibrary.org/obo/";
+	private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+	private static OWLGraphWrapper graph;
+	private static GafDocument gaf;
+	private static CurieHandler curieHandler = DefaultCurieHandler.getDefaultHandler();
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		OWLDataFactory f = m.getOWLDataFactory();
+		OWLOntology tbox = m.createOntology(IRI.create("http://example.org/go-test"));
+		for (String id : new String[]{"GO_0003674", "GO_0008150", "GO_0005575"}) {
+			m.addAxiom(tbox, f.getOWLDeclarationAxiom(f.getOWLClass(IRI.create(OBO+id))));
+		}
+		m.addAxiom(tbox, f.getOWLDeclarationAxiom(f.getOWLObjectProperty(IRI.create(OBO+"RO_0002162"))));
+		graph = new OWLGraphWrapper(tbox);
+		gaf = new GafObjectsBuilder().buildDocument(new File("src/test/resources/streamer-test.gaf"));
+	}
+
+	@Test
+	public void testParallelMatchesSequential() throws Exception {
+		GafToLegoIndividualTranslator tr = new GafToLegoIndividualTranslator(graph, curieHandler, true);
+		OWLOntology sequential = tr.translate(gaf);
+		OWLOntology parallel = tr.translate(gaf, 3, 2);
+		try {
+			List<String> expected = normalize(sequential.getAxioms());
+			assertFalse(expected.isEmpty());
+			assertEquals(expected, normalize(parallel.getAxioms()));
+			assertEquals(sequential.getImportsDeclarations(), parallel.getImportsDeclarations());
+		}
+		finally {
+			graph.getManager().removeOntology(sequential);
+			graph.getManager().removeOntology(parallel);
+		}
+	}
+
+	@Test
+	public void testShards() throws Exception {
+		GafToLegoIndividualTranslator tr = new GafToLegoIndividualTranslator(graph, curieHandler, false);
+		Map<String, Set<OWLAxiom>> byGene = tr.translate(gaf.getGeneAnnotations(), GafToLegoIndividualTranslator.BY_GENE, 2, 1);
+		assertEquals(5, byGene.size());
+		assertTrue(byGene.containsKey("ZFIN:ZDB-GENE-1"));
+
+		Map<String, Set<OWLAxiom>> byProcess = tr.translate(gaf.getGeneAnnotations(), GafToLegoIndividualTranslator.BY_PROCESS, 2, 1);
+		assertEquals(new HashSet<String>(Arrays.asList("GO:0008150", "no-process")), byProcess.keySet());
+
+		// all shards together are the unsharded translation
+		Map<String, Set<OWLAxiom>> single = tr.translate(gaf.getGeneAnnotations(), GafToLegoIndividualTranslator.SINGLE, 2, 1);
+		assertEquals(Collections.singleton("all"), single.keySet());
+		assertEquals(normalize(single.get("all")), normalize(union(byProcess.values())));
+
+		// consecutive lines share a range
+		for (GeneAnnotation annotation : gaf.getGeneAnnotations()) {
+			int lineNumber = annotation.getSource().getLineNumber();
+			int start = (lineNumber / 2) * 2;
+			assertEquals("lines-"+start+"-"+(start + 1), GafToLegoIndividualTranslator.byLineRange(2).getShard(annotation));
+		}
+
+		// the shard ontologies are created one at a time and removed after the handler
+		final OWLOntologyManager m = graph.getManager();
+		final int ontologies = m.getOntologies().size();
+		final Map<String, Integer> axiomCounts = new HashMap<String, Integer>();
+		final List<OWLOntology> handled = new ArrayList<OWLOntology>();
+		tr.translate(gaf, GafToLegoIndividualTranslator.BY_GENE, 2, 1, new ShardHandler() {
+
+			@Override
+			public void handle(String shard, OWLOntology lego) throws Exception {
+				assertEquals(ontologies + 1, m.getOntologies().size());
+				axiomCounts.put(shard, Integer.valueOf(lego.getAxiomCount()));
+				handled.add(lego);
+			}
+		});
+		assertEquals(ontologies, m.getOntologies().size());
+		assertEquals(byGene.keySet(), axiomCounts.keySet());
+		for (Map.Entry<String, Set<OWLAxiom>> entry : byGene.entrySet()) {
+			assertEquals(entry.getValue().size(), axiomCounts.get(entry.getKey()).intValue());
+		}
+		for (OWLOntology lego : handled) {
+			assertFalse(m.contains(lego.getOntologyID()));
+		}
+	}
+
+	private static Set<OWLAxiom> union(Collection<Set<OWLAxiom>> sets) {
+		Set<OWLAxiom> all = new HashSet<OWLAxiom>();
+		for (Set<OWLAxiom> set : sets) {
+			all.addAll(set);
+		}
+		return all;
+	}
+
+	/**
+	 * @return sorted axiom strings with the random UUIDs of the generated IRIs removed
+	 */
+	private static List<String> normalize(Set<OWLAxiom> axioms) {
+		List<String> result = new ArrayList<String>(axioms.size());
+		for (OWLAxiom axiom : axioms) {
+			result.add(UUID_PATTERN.matcher(axiom.toString()).replaceAll("UUID"));
+		}
+		Collections.sort(result);
+		return result;
+	}
+}
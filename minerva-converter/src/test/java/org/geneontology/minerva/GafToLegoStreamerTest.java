@@ -0,0 +1,84 @@
+package org.geneontology.minerva;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.geneontology.minerva.GafToLegoStreamer.BatchTranslator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.RDFXMLOntologyFormat;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import owltools.gaf.GafDocument;
+import owltools.gaf.GeneAnnotation;
+import owltools.gaf.parser.GafObjectsBuilder;
+
+public class GafToLegoStreamerTest {
+
+	private static final String OBO = "http://purl.obolibrary.org/obo/";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final File gaf = new File("src/test/resources/streamer-test.gaf");
+
+	/**
+	 * Deterministic translator: one class assertion per annotation.
+	 */
+	private static final BatchTranslator TRANSLATOR = new BatchTranslator() {
+
+		@Override
+		public Set<OWLAxiom> translate(GafDocument batch) {
+			OWLDataFactory f = OWLManager.getOWLDataFactory();
+			Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+			for (GeneAnnotation annotation : batch.getGeneAnnotations()) {
+				String id = (annotation.getBioentity()+"-"+annotation.getCls()).replace(':', '_');
+				axioms.add(f.getOWLClassAssertionAxiom(f.getOWLClass(IRI.create(OBO+annotation.getCls().replace(':', '_'))),
+						f.getOWLNamedIndividual(IRI.create(OBO+id))));
+			}
+			return axioms;
+		}
+	};
+
+	@Test
+	public void testStreamMatchesInMemory() throws Exception {
+		GafDocument whole = new GafObjectsBuilder().buildDocument(gaf);
+		assertEquals(5, whole.getGeneAnnotations().size());
+		Set<OWLAxiom> expected = TRANSLATOR.translate(whole);
+
+		File output = folder.newFolder("parts");
+		GafToLegoStreamer streamer = new GafToLegoStreamer(2, 1);
+		int parts = streamer.run(gaf, TRANSLATOR, Collections.<IRI>emptySet(), new RDFXMLOntologyFormat(), output);
+		assertEquals(3, parts);
+		File[] files = output.listFiles();
+		assertNotNull(files);
+		assertEquals(3, files.length);
+
+		Set<OWLAxiom> streamed = new HashSet<OWLAxiom>();
+		for (File file : files) {
+			OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+			OWLOntology part = m.loadOntologyFromOntologyDocument(file);
+			streamed.addAll(part.getLogicalAxioms());
+		}
+		assertEquals(expected, streamed);
+	}
+
+	@Test(timeout = 30000, expected = IOException.class)
+	public void testWriterFailureStopsReader() throws Exception {
+		// the output folder is a file, the writer fails with the first part
+		File output = folder.newFile("not-a-folder");
+		GafToLegoStreamer streamer = new GafToLegoStreamer(1, 1);
+		streamer.run(gaf, TRANSLATOR, Collections.<IRI>emptySet(), new RDFXMLOntologyFormat(), output);
+	}
+}
@@ -43,6 +43,21 @@ public class FindGoCodesTest {
 		assertEquals("IC", pair2.getLeft());
 	}
 	
+	@Test
+	public void testMemoized() throws Exception {
+		FindGoCodes memo = new FindGoCodes(curieHandler);
+		IRI testIRI = curieHandler.getIRI("ECO:0001828");
+		OWLClass testOwlClass = eco.getOWLOntologyManager().getOWLDataFactory().getOWLClass(testIRI);
+		Pair<String, String> first = memo.findShortEvidence(testOwlClass, "ECO:0001828", eco);
+		assertEquals(1, memo.getResolvedCount());
+		assertSame(first, memo.findShortEvidence(testOwlClass, "ECO:0001828", eco));
+		assertEquals(1, memo.getResolvedCount());
+		
+		FindGoCodes precomputed = new FindGoCodes(curieHandler);
+		assertTrue(precomputed.precompute(eco) > 0);
+		assertEquals("IC", precomputed.findShortEvidence(testOwlClass, "ECO:0001828", eco).getLeft());
+	}
+	
 	private Pair<String, String> lookup(String testId) {
 		IRI testIRI = curieHandler.getIRI(testId);
 		OWLClass testOwlClass = eco.getOWLOntologyManager().getOWLDataFactory().getOWLClass(testIRI);
@@ -3,6 +3,7 @@ package org.geneontology.minerva.legacy;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -114,6 +115,48 @@ public class LegoToGeneAnnotationTranslatorTest {
 		assertEquals(1, withAnnotations.size());
 	}
 	
+	@Test
+	public void testStreamingGpad() throws Exception {
+		OWLOntology model = loadModel("gomodel-2.owl");
+		OWLReasoner reasoner = rf.createReasoner(model);
+		try {
+			LegoToGeneAnnotationTranslator t = new LegoToGeneAnnotationTranslator(model, curieHandler, reasoner, mapper);
+			StringWriter stringWriter = new StringWriter();
+			AnnotationStreamWriter writer = AnnotationStreamWriter.createGpadWriter(stringWriter);
+			t.translate(model, writer, null);
+			writer.close();
+			assertEquals(3, writer.getCount());
+			
+			int lines = 0;
+			for (String line : stringWriter.toString().split("\n")) {
+				if (line.isEmpty() == false && line.startsWith("!") == false) {
+					lines += 1;
+				}
+			}
+			assertEquals(3, lines);
+		}
+		finally {
+			reasoner.dispose();
+		}
+	}
+	
+	@Test
+	public void testSharedAspectIndex() throws Exception {
+		OWLOntology model = loadModel("gomodel-2.owl");
+		OWLReasoner reasoner = rf.createReasoner(model);
+		GoAspectIndex aspects;
+		try {
+			aspects = GoAspectIndex.create(reasoner, curieHandler, model.getOWLOntologyManager().getOWLDataFactory());
+		}
+		finally {
+			reasoner.dispose();
+		}
+		assertTrue(aspects.size() > 0);
+		LegoToGeneAnnotationTranslator t = new LegoToGeneAnnotationTranslator(model, curieHandler, aspects, mapper);
+		Pair<GafDocument, BioentityDocument> pair = t.translate("gomodel-2", model, null);
+		assertEquals(3, pair.getLeft().getGeneAnnotations().size());
+	}
+	
 	private OWLOntology loadModel(String name) throws Exception {
 		OWLOntology model = pw.parseOWL(IRI.create(new File("src/test/resources/"+name).getCanonicalFile()));
 		return model;
@@ -0,0 +1,70 @@
+package org.geneontology.minerva.taxon;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.curie.DefaultCurieHandler;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+public class TaxonIndexTest {
+
+	private static final String OBO = "http://purl.obolibrary.org/obo/";
+
+	@Test
+	public void testIndex() throws Exception {
+		CurieHandler curieHandler = DefaultCurieHandler.getDefaultHandler();
+		OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		OWLDataFactory f = m.getOWLDataFactory();
+		OWLObjectProperty inTaxon = f.getOWLObjectProperty(FindTaxonTool.IN_TAXON_IRI);
+		OWLClass zebrafish = f.getOWLClass(IRI.create(OBO+"NCBITaxon_7955"));
+		OWLClass human = f.getOWLClass(IRI.create(OBO+"NCBITaxon_9606"));
+		OWLClass gene1 = f.getOWLClass(IRI.create(OBO+"ZFIN_ZDB-GENE-1"));
+		OWLClass gene2 = f.getOWLClass(IRI.create(OBO+"ZFIN_ZDB-GENE-2"));
+		OWLClass gene3 = f.getOWLClass(IRI.create(OBO+"ZFIN_ZDB-GENE-3"));
+
+		OWLOntology tbox = m.createOntology(IRI.create("http://example.org/tbox"));
+		m.addAxiom(tbox, f.getOWLSubClassOfAxiom(gene1, f.getOWLObjectSomeValuesFrom(inTaxon, zebrafish)));
+		OWLOntology model = m.createOntology(IRI.create("http://example.org/model"));
+		m.applyChange(new AddImport(model, f.getOWLImportsDeclaration(tbox.getOntologyID().getOntologyIRI())));
+		m.addAxiom(model, f.getOWLSubClassOfAxiom(gene2, f.getOWLObjectSomeValuesFrom(inTaxon, human)));
+
+		TaxonIndex index = TaxonIndex.create(tbox, curieHandler);
+		try {
+			assertEquals(1, index.size());
+			String zebrafishId = curieHandler.getCuri(zebrafish);
+			assertEquals(zebrafishId, index.getTaxon(gene1));
+			assertEquals(zebrafishId, index.getTaxon("ZFIN:ZDB-GENE-1"));
+			assertNull(index.getTaxon(gene2));
+			assertFalse(index.isIndexed(model));
+
+			FindTaxonTool tool = new FindTaxonTool(curieHandler, f, index);
+			assertEquals(zebrafishId, tool.getEntityTaxon(curieHandler.getCuri(gene1), model));
+			// model local axiom
+			assertEquals(curieHandler.getCuri(human), tool.getEntityTaxon(curieHandler.getCuri(gene2), model));
+			assertNull(tool.getEntityTaxon(curieHandler.getCuri(gene3), model));
+
+			// incremental updates
+			OWLAxiom axiom3 = f.getOWLSubClassOfAxiom(gene3, f.getOWLObjectSomeValuesFrom(inTaxon, zebrafish));
+			m.addAxiom(tbox, axiom3);
+			assertEquals(zebrafishId, index.getTaxon(gene3));
+			m.removeAxiom(tbox, axiom3);
+			assertNull(index.getTaxon(gene3));
+			m.removeAxioms(tbox, Collections.<OWLAxiom>singleton(f.getOWLSubClassOfAxiom(gene1, f.getOWLObjectSomeValuesFrom(inTaxon, zebrafish))));
+			assertNull(index.getTaxon(gene1));
+		}
+		finally {
+			index.dispose();
+		}
+	}
+}
@@ -12,6 +12,9 @@ import java.util.Set;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
+import org.geneontology.minerva.metrics.MinervaMetrics;
+import org.geneontology.minerva.metrics.NoOpMetrics;
+import org.geneontology.minerva.util.OWLObjectInterner;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.io.IRIDocumentSource;
 import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
@@ -81,12 +84,25 @@ public abstract class CoreMolecularModelManager<METADATA> {
 	private final IRI tboxIRI;
 	final Map<IRI, ModelContainer> modelMap = new HashMap<IRI, ModelContainer>();
 	Set<IRI> additionalImports;
+	private ModelReasonerManager reasonerManager = null;
+	private ModelContainer.ModifiedListener modifiedListener = null;
+	private MinervaMetrics metrics = NoOpMetrics.INSTANCE;
+	private OWLObjectInterner interner = null;
 
 	/**
-	 * Use start up time to create a unique prefix for id generation
+	 * Id generator, uses the start up time to create a unique prefix
 	 */
-	static String uniqueTop = Long.toHexString(Math.abs((System.currentTimeMillis()/1000)));
-	static long instanceCounter = 0;
+	private static volatile IdGenerator idGenerator = new IdGenerator();
+	
+	/**
+	 * Replace the generator for model and individual ids, i.e. to include a
+	 * node id for several servers.
+	 * 
+	 * @param generator
+	 */
+	public static void setIdGenerator(IdGenerator generator) {
+		idGenerator = generator;
+	}
 	
 	/**
 	 * Generate a new id from the unique server prefix and a global counter
@@ -94,9 +110,7 @@ public abstract class CoreMolecularModelManager<METADATA> {
 	 * @return id
 	 */
 	private static String localUnique(){
-		instanceCounter++;
-		String unique = uniqueTop + String.format("%08d", instanceCounter);
-		return unique;		
+		return idGenerator.nextId();
 	}
 	
 	/**
@@ -120,7 +134,7 @@ public abstract class CoreMolecularModelManager<METADATA> {
 		return result;
 	}
 	
-	private static boolean isHex(char c) {
+	static boolean isHex(char c) {
 		// check that char is a digit or a-e
 		boolean result = false;
 		if (Character.isDigit(c)) {
@@ -190,6 +204,85 @@ public abstract class CoreMolecularModelManager<METADATA> {
 	}
 
 
+	/**
+	 * Set the manager for the reasoner life cycle of all models created or
+	 * loaded after this call.
+	 * 
+	 * @param reasonerManager manager or null
+	 */
+	public void setReasonerManager(ModelReasonerManager reasonerManager) {
+		this.reasonerManager = reasonerManager;
+	}
+	
+	/**
+	 * @return reasoner manager or null
+	 */
+	public ModelReasonerManager getReasonerManager() {
+		return reasonerManager;
+	}
+	
+	/**
+	 * @return interner for axioms and annotations or null
+	 */
+	public OWLObjectInterner getInterner() {
+		return interner;
+	}
+	
+	/**
+	 * Set the interner for the literals and annotations of added and loaded
+	 * axioms, shared across all models. Use null (default) to disable the interning.
+	 * 
+	 * @param interner
+	 */
+	public void setInterner(OWLObjectInterner interner) {
+		this.interner = interner;
+	}
+	
+	/**
+	 * @param metrics the metrics, use {@link NoOpMetrics#INSTANCE} to disable
+	 */
+	public void setMetrics(MinervaMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * @return metrics, never null
+	 */
+	public MinervaMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Set the listener for the modified state of all models created or loaded
+	 * after this call.
+	 * 
+	 * @param modifiedListener listener or null
+	 */
+	public void setModifiedListener(ModelContainer.ModifiedListener modifiedListener) {
+		this.modifiedListener = modifiedListener;
+	}
+	
+	/**
+	 * Create a new container for the model and register the reasoner
+	 * manager and modified listener, if available.
+	 * 
+	 * @param modelId
+	 * @param tbox
+	 * @param abox
+	 * @return model
+	 * @throws OWLOntologyCreationException
+	 */
+	protected ModelContainer createModelContainer(IRI modelId, OWLOntology tbox, OWLOntology abox) throws OWLOntologyCreationException {
+		ModelContainer m = new ModelContainer(modelId, tbox, abox, rf);
+		if (reasonerManager != null) {
+			m.setReasonerListener(reasonerManager);
+		}
+		if (modifiedListener != null) {
+			m.setModifiedListener(modifiedListener);
+		}
+		return m;
+	}
+
 	/**
 	 * @return graph wrapper for core/source ontology
 	 */
@@ -569,6 +662,21 @@ public abstract class CoreMolecularModelManager<METADATA> {
 				LOG.info("Could not load model with id: "+id, e);
 			}
 		}
+		ModelContainer model = modelMap.get(id);
+		if (model != null) {
+			model.setLastAccess(System.currentTimeMillis());
+		}
+		return model;
+	}
+	
+	/**
+	 * Fetches a model by its Id, only if it is already in memory.
+	 * Does not load the model and does not update the access time.
+	 * 
+	 * @param id
+	 * @return wrapped model or null
+	 */
+	public ModelContainer getLoadedModel(IRI id) {
 		return modelMap.get(id);
 	}
 	
@@ -617,6 +725,7 @@ public abstract class CoreMolecularModelManager<METADATA> {
 		ModelContainer model = modelMap.get(id);
 		model.dispose();
 		modelMap.remove(id);
+		metrics.increment("minerva_models_unlinked_total");
 	}
 	
 	/**
@@ -737,8 +846,11 @@ public abstract class CoreMolecularModelManager<METADATA> {
 	protected abstract void loadModel(IRI modelId, boolean isOverride) throws OWLOntologyCreationException;
 
 	ModelContainer addModel(IRI modelId, OWLOntology abox) throws OWLOntologyCreationException {
+		if (interner != null) {
+			interner.internOntology(abox);
+		}
 		OWLOntology tbox = graph.getSourceOntology();
-		ModelContainer m = new ModelContainer(modelId, tbox, abox, rf);
+		ModelContainer m = createModelContainer(modelId, tbox, abox);
 		modelMap.put(modelId, m);
 		return m;
 	}
@@ -1154,6 +1266,9 @@ public abstract class CoreMolecularModelManager<METADATA> {
 	
 	private void applyChanges(ModelContainer model, OWLOntologyManager m, 
 			List<? extends OWLOntologyChange> changes, METADATA metadata) {
+		if (interner != null) {
+			changes = interner.internChanges(changes);
+		}
 		List<OWLOntologyChange> appliedChanges = m.applyChanges(changes);
 		addToHistory(model, appliedChanges, metadata);
 	}
@@ -1171,11 +1286,15 @@ public abstract class CoreMolecularModelManager<METADATA> {
 	}
 	
 	protected OWLOntology loadOntologyIRI(final IRI sourceIRI, boolean minimal) throws OWLOntologyCreationException {
+		return loadOntologyDocumentSource(new IRIDocumentSource(sourceIRI), minimal);
+	}
+	
+	protected OWLOntology loadOntologyDocumentSource(final OWLOntologyDocumentSource source, boolean minimal) throws OWLOntologyCreationException {
 		// silence the OBO parser in the OWL-API
 		java.util.logging.Logger.getLogger("org.obolibrary").setLevel(java.util.logging.Level.SEVERE);
 		
 		// load model from source
-		OWLOntologyDocumentSource source = new IRIDocumentSource(sourceIRI);
+		final IRI sourceIRI = source.getDocumentIRI();
 		if (minimal == false) {
 			// add the obsolete imports to the ignored imports
 			OWLOntology abox = graph.getManager().loadOntologyFromOntologyDocument(source);
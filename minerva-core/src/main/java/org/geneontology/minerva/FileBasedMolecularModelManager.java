@@ -1,20 +1,38 @@
 package org.geneontology.minerva;
 
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.coode.owlapi.manchesterowlsyntax.ManchesterOWLSyntaxOntologyFormat;
+import org.geneontology.minerva.ModelFolderLayout.ModelFileHandler;
 import org.geneontology.minerva.util.ReverseChangeGenerator;
+import org.semanticweb.owlapi.io.IRIDocumentSource;
 import org.semanticweb.owlapi.io.OWLFunctionalSyntaxOntologyFormat;
+import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
 import org.semanticweb.owlapi.io.OWLXMLOntologyFormat;
 import org.semanticweb.owlapi.io.RDFXMLOntologyFormat;
 import org.semanticweb.owlapi.model.AddImport;
@@ -59,6 +77,28 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 	private final List<PreFileSaveHandler> preFileSaveHandlers = new ArrayList<PreFileSaveHandler>();
 	private final List<PostLoadOntologyFilter> postLoadOntologyFilters = new ArrayList<PostLoadOntologyFilter>();
 	
+	// number of threads for bulk operations, i.e. saving all models
+	private int parallelism = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	
+	// store model files in hashed sub folders, see ModelFolderLayout
+	private boolean shardedLayout = false;
+	
+	// stored model ids, kept current with a watch service
+	private boolean watchModelFolder = true;
+	private volatile StoredModelIdIndex storedModelIdIndex = null;
+	
+	// shared threads for loading aboxes, created on demand
+	private ExecutorService loadExecutor = null;
+	
+	// fsync saved model files and the model folder
+	private boolean syncOnSave = true;
+	
+	// sync the model folder once per batch in saveAllModels
+	private boolean groupCommit = true;
+	
+	// memory mapped model files, null for reading the files via streams
+	private MappedFileCache mappedFileCache = new MappedFileCache(64, 256L * 1024L * 1024L);
+	
 	/**
 	 * @param graph
 	 * @param rf
@@ -84,6 +124,108 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 	 */
 	public void setPathToOWLFiles(String pathToOWLFiles) {
 		this.pathToOWLFiles = pathToOWLFiles;
+		disposeStoredModelIdIndex();
+	}
+	
+	/**
+	 * @return number of threads used for bulk operations
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Set the number of threads for bulk operations, such as
+	 * {@link #saveAllModels(Set, Object)} and {@link #visitModelAboxes(Collection, ModelAboxVisitor)}.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+		disposeLoadExecutor();
+	}
+	
+	/**
+	 * @return true, if the model files are stored in hashed sub folders
+	 */
+	public boolean isShardedLayout() {
+		return shardedLayout;
+	}
+	
+	/**
+	 * If true, new and saved model files are stored in hashed sub folders of
+	 * the model folder. Existing model files are found in either layout, use
+	 * {@link ModelFolderLayout#migrate(File, boolean)} to move them.
+	 * 
+	 * @param shardedLayout
+	 */
+	public void setShardedLayout(boolean shardedLayout) {
+		this.shardedLayout = shardedLayout;
+	}
+	
+	/**
+	 * If true (default), the stored model ids are kept in memory and the
+	 * model folder is watched for changes. Otherwise, the folder is scanned
+	 * for each call of {@link #getStoredModelIds()}.
+	 * 
+	 * @param watchModelFolder
+	 */
+	public synchronized void setWatchModelFolder(boolean watchModelFolder) {
+		this.watchModelFolder = watchModelFolder;
+		if (watchModelFolder == false) {
+			disposeStoredModelIdIndex();
+		}
+	}
+	
+	/**
+	 * @return true, if saved models are synced to the disk
+	 */
+	public boolean isSyncOnSave() {
+		return syncOnSave;
+	}
+	
+	/**
+	 * If true, each saved model file and its folder are synced to the disk
+	 * before the save returns. Disable only for tests or temporary data.
+	 * 
+	 * @param syncOnSave
+	 */
+	public void setSyncOnSave(boolean syncOnSave) {
+		this.syncOnSave = syncOnSave;
+	}
+	
+	/**
+	 * @return true, if {@link #saveAllModels(Set, Object)} uses group commit
+	 */
+	public boolean isGroupCommit() {
+		return groupCommit;
+	}
+	
+	/**
+	 * If true, {@link #saveAllModels(Set, Object)} syncs the model folder
+	 * once for all saved models instead of once for each model.
+	 * 
+	 * @param groupCommit
+	 */
+	public void setGroupCommit(boolean groupCommit) {
+		this.groupCommit = groupCommit;
+	}
+	
+	/**
+	 * @return cache for memory mapped model files or null
+	 */
+	public MappedFileCache getMappedFileCache() {
+		return mappedFileCache;
+	}
+	
+	/**
+	 * Set the cache for reading model files via memory mapped buffers. If
+	 * null, the model files are read with a regular input stream.
+	 * 
+	 * @param mappedFileCache
+	 */
+	public void setMappedFileCache(MappedFileCache mappedFileCache) {
+		this.mappedFileCache = mappedFileCache;
 	}
 	
 
@@ -142,7 +284,7 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 			createImports(abox, tbox.getOntologyID(), metadata);
 			
 			// generate model
-			model = new ModelContainer(modelId, tbox, abox, rf);
+			model = createModelContainer(modelId, tbox, abox);
 		}
 		catch (OWLOntologyCreationException exception) {
 			if (abox != null) {
@@ -156,23 +298,130 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 	}
 	
 	/**
-	 * Save all models to disk. The optional annotations may be used to set saved_by and other meta data. 
+	 * Save all modified models to disk. The optional annotations may be used
+	 * to set saved_by and other meta data. The models are saved in parallel,
+	 * see {@link #setParallelism(int)}. Models, which are not modified, are
+	 * skipped. A failure for one model does not prevent saving the others, it
+	 * is recorded in the report. With group commit, the model folder is only
+	 * synced once after all models have been written.
 	 * 
 	 * @param annotations
 	 * @param metadata
+	 * @return report, never null
+	 */
+	public SaveAllReport saveAllModels(final Set<OWLAnnotation> annotations, final METADATA metadata) {
+		final long start = System.currentTimeMillis();
+		final SaveAllReport report = new SaveAllReport();
+		final List<ModelContainer> models = new ArrayList<ModelContainer>(modelMap.values());
+		final Map<IRI, Future<Long>> futures = new LinkedHashMap<IRI, Future<Long>>();
+		final Set<File> folders = Collections.synchronizedSet(new HashSet<File>());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, models.size())));
+		try {
+			for (final ModelContainer model : models) {
+				if (model.isModified() == false) {
+					report.skipped.add(model.getModelId());
+					continue;
+				}
+				futures.put(model.getModelId(), executor.submit(new Callable<Long>() {
+
+					@Override
+					public Long call() throws Exception {
+						long modelStart = System.currentTimeMillis();
+						if (groupCommit) {
+							File targetFile = writeModelFile(model, metadata, syncOnSave);
+							folders.add(targetFile.getParentFile());
+						}
+						else {
+							saveModel(model, annotations, metadata);
+						}
+						return Long.valueOf(System.currentTimeMillis() - modelStart);
+					}
+				}));
+			}
+			for (Entry<IRI, Future<Long>> entry : futures.entrySet()) {
+				IRI modelId = entry.getKey();
+				try {
+					report.saveTimes.put(modelId, entry.getValue().get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					LOG.error("Could not save model: "+modelId, cause);
+					report.failures.put(modelId, cause);
+				} catch (InterruptedException e) {
+					LOG.warn("Interrupted while saving model: "+modelId);
+					report.failures.put(modelId, e);
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		if (groupCommit && syncOnSave) {
+			// one folder sync makes all renames of the batch durable
+			for (File folder : folders) {
+				syncDirectory(folder);
+			}
+		}
+		report.totalTime = System.currentTimeMillis() - start;
+		LOG.info(report.toString());
+		return report;
+	}
+	
+	/**
+	 * Result for saving all models.
 	 * 
-	 * @throws OWLOntologyStorageException
-	 * @throws OWLOntologyCreationException
-	 * @throws IOException 
+	 * @see FileBasedMolecularModelManager#saveAllModels(Set, Object)
 	 */
-	public void saveAllModels(Set<OWLAnnotation> annotations, METADATA metadata) throws OWLOntologyStorageException, OWLOntologyCreationException, IOException {
-		for (Entry<IRI, ModelContainer> entry : modelMap.entrySet()) {
-			saveModel(entry.getValue(), annotations, metadata);
+	public static class SaveAllReport {
+		
+		final Map<IRI, Long> saveTimes = new LinkedHashMap<IRI, Long>();
+		final Map<IRI, Throwable> failures = new LinkedHashMap<IRI, Throwable>();
+		final Set<IRI> skipped = new HashSet<IRI>();
+		long totalTime = 0L;
+		
+		/**
+		 * @return time in milliseconds for each successfully saved model
+		 */
+		public Map<IRI, Long> getSaveTimes() {
+			return Collections.unmodifiableMap(saveTimes);
+		}
+		
+		/**
+		 * @return the error for each model, which could not be saved
+		 */
+		public Map<IRI, Throwable> getFailures() {
+			return Collections.unmodifiableMap(failures);
+		}
+		
+		/**
+		 * @return ids of unmodified models
+		 */
+		public Set<IRI> getSkipped() {
+			return Collections.unmodifiableSet(skipped);
+		}
+		
+		/**
+		 * @return wall clock time in milliseconds for saving all models
+		 */
+		public long getTotalTime() {
+			return totalTime;
+		}
+		
+		public boolean hasFailures() {
+			return failures.isEmpty() == false;
+		}
+		
+		@Override
+		public String toString() {
+			return "Saved "+saveTimes.size()+" models in "+totalTime+" ms, skipped "+skipped.size()+
+					" unmodified models, failed "+failures.size()+" models";
 		}
 	}
 	
 	/**
-	 * Save a model to disk.
+	 * Save a model to disk. The model is written to a temporary file in the
+	 * model folder, synced and then atomically renamed to the model file. If
+	 * the save fails, the previous version of the model file is unchanged.
 	 * 
 	 * @param m 
 	 * @param annotations 
@@ -183,12 +432,30 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 	 * @throws IOException
 	 */
 	public void saveModel(ModelContainer m, Set<OWLAnnotation> annotations, METADATA metadata) throws OWLOntologyStorageException, OWLOntologyCreationException, IOException {
+		File targetFile = writeModelFile(m, metadata, syncOnSave);
+		if (syncOnSave) {
+			syncDirectory(targetFile.getParentFile());
+		}
+	}
+	
+	/**
+	 * Save the model, without syncing the model folder.
+	 * 
+	 * @param m
+	 * @param metadata
+	 * @param sync if true, sync the file content before the rename
+	 * @return target file
+	 * @throws OWLOntologyStorageException
+	 * @throws IOException
+	 */
+	private File writeModelFile(ModelContainer m, METADATA metadata, boolean sync) throws OWLOntologyStorageException, IOException {
 		IRI modelId = m.getModelId();
 		final OWLOntology ont = m.getAboxOntology();
 		final OWLOntologyManager manager = ont.getOWLOntologyManager();
 		
 		// prelimiary checks for the target file
 		File targetFile = getOwlModelFile(modelId).getCanonicalFile();
+		File targetFolder = targetFile.getParentFile();
 		if (targetFile.exists()) {
 			if (targetFile.isFile() == false) {
 				throw new IOException("For modelId: '"+modelId+"', the resulting path is not a file: "+targetFile.getAbsolutePath());
@@ -198,31 +465,82 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 			}
 		}
 		else {
-			File targetFolder = targetFile.getParentFile();
 			FileUtils.forceMkdir(targetFolder);
 		}
-		File tempFile = null;
-		try {
-			m.setListenToOntologyChanges(false);
-			// create tempFile
-			String prefix = modelId.toString(); // TODO escape
-			tempFile = File.createTempFile(prefix, ".owl");
-		
-			// write to a temp file
-			synchronized (ont) {
-				saveToFile(ont, manager, tempFile, metadata);	
-			}
-			
-			// copy temp file to the finalFile
-			FileUtils.copyFile(tempFile, targetFile);
+		// lock the model for the whole save, this prevents concurrent saves of the same model
+		final long start = System.nanoTime();
+		synchronized (ont) {
+			File tempFile = null;
+			try {
+				m.setListenToOntologyChanges(false);
+				// create tempFile in the target folder, the rename requires the same file system
+				// the leading dot excludes the file from the stored model ids
+				tempFile = File.createTempFile("."+targetFile.getName()+".", ".tmp", targetFolder);
 			
-			// reset modified flag for abox after successful save
-			m.setAboxModified(false);
+				// write to a temp file
+				saveToFile(ont, manager, tempFile, metadata);
+				if (sync) {
+					syncFile(tempFile);
+				}
+				
+				// replace the model file
+				moveAtomic(tempFile, targetFile);
+				tempFile = null;
+				
+				StoredModelIdIndex index = storedModelIdIndex;
+				if (index != null) {
+					index.add(modelId);
+				}
+				
+				// remove the outdated file from the other layout
+				File otherFile = ModelFolderLayout.getModelFile(new File(pathToOWLFiles), targetFile.getName(), shardedLayout == false);
+				if (otherFile.isFile()) {
+					FileUtils.deleteQuietly(otherFile);
+				}
+				if (mappedFileCache != null) {
+					mappedFileCache.invalidate(targetFile);
+					mappedFileCache.invalidate(otherFile);
+				}
+				
+				// reset modified flag for abox after successful save
+				m.setAboxModified(false);
+				getMetrics().increment("minerva_models_saved_total");
+			}
+			finally {
+				// delete temp file, if the rename failed
+				FileUtils.deleteQuietly(tempFile);
+				m.setListenToOntologyChanges(true);
+			}
 		}
-		finally {
-			// delete temp file
-			FileUtils.deleteQuietly(tempFile);
-			m.setListenToOntologyChanges(true);
+		getMetrics().timer("minerva_model_save_seconds").record(System.nanoTime() - start);
+		return targetFile;
+	}
+	
+	private static void syncFile(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+	}
+	
+	/**
+	 * Make the renames in the folder durable. Not all platforms support
+	 * opening a directory, failures are only logged.
+	 * 
+	 * @param folder
+	 */
+	private static void syncDirectory(File folder) {
+		try (FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			LOG.debug("Could not sync folder: "+folder, e);
+		}
+	}
+	
+	private static void moveAtomic(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
 		}
 	}
 
@@ -321,35 +639,66 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 	/*
 	 * look for all files in the give model folder.
 	 */
-	private Set<IRI> getModelIdsFromPath(String pathTo) {
-		Set<IRI> allModelIds = new HashSet<>();
-		File modelFolder = new File(pathTo);
-		File[] modelFiles = modelFolder.listFiles(new FilenameFilter() {
+	private Set<IRI> getModelIdsFromPath(String pathTo) throws IOException {
+		final Set<IRI> allModelIds = new HashSet<>();
+		ModelFolderLayout.visitModelFiles(new File(pathTo), new ModelFileHandler() {
 			
 			@Override
-			public boolean accept(File dir, String name) {
-				return isLocalUnique(name);
+			public void handle(Path modelFile) {
+				String modelFileName = modelFile.getFileName().toString();
+				String modelIdLong = modelIdPrefix + modelFileName;
+				allModelIds.add(IRI.create(modelIdLong));
 			}
 		});
-		for (File modelFile : modelFiles) {
-			String modelFileName = modelFile.getName();
-			String modelIdLong = modelIdPrefix + modelFileName;
-			allModelIds.add(IRI.create(modelIdLong));
-		}
 		return allModelIds;
 	}
 	
 	/**
 	 * Retrieve a collection of all file/stored model ids found in the repo.<br>
-	 * Note: Models may not be loaded at this point.
+	 * Note: Models may not be loaded at this point.<br>
+	 * The ids are held in memory and updated via a watch on the model folder,
+	 * see {@link #setWatchModelFolder(boolean)}.
 	 * 
-	 * @return set of modelids.
+	 * @return unmodifiable set of modelids.
 	 * @throws IOException
 	 */
 	public Set<IRI> getStoredModelIds() throws IOException {
+		StoredModelIdIndex index = getStoredModelIdIndex();
+		if (index != null) {
+			return index.getModelIds();
+		}
 		return getModelIdsFromPath(this.pathToOWLFiles);
 	}
 	
+	private synchronized StoredModelIdIndex getStoredModelIdIndex() {
+		if (storedModelIdIndex == null && watchModelFolder) {
+			File folder = new File(pathToOWLFiles);
+			if (folder.isDirectory()) {
+				try {
+					storedModelIdIndex = new StoredModelIdIndex(folder, modelIdPrefix);
+				} catch (IOException e) {
+					LOG.warn("Could not watch model folder, the folder is scanned for each request: "+folder, e);
+					watchModelFolder = false;
+				}
+			}
+		}
+		return storedModelIdIndex;
+	}
+	
+	private synchronized void disposeStoredModelIdIndex() {
+		if (storedModelIdIndex != null) {
+			storedModelIdIndex.dispose();
+			storedModelIdIndex = null;
+		}
+	}
+	
+	@Override
+	public void dispose() {
+		disposeStoredModelIdIndex();
+		disposeLoadExecutor();
+		super.dispose();
+	}
+	
 	/**
 	 * Retrieve all model ids currently in memory in long and short form.<br>
 	 * 
@@ -360,6 +709,98 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 		return new HashSet<IRI>(modelMap.keySet());
 	}
 
+	/**
+	 * Callback for {@link FileBasedMolecularModelManager#visitModelAboxes(Collection, ModelAboxVisitor)}.
+	 */
+	public static interface ModelAboxVisitor {
+		
+		/**
+		 * @param modelId
+		 * @param abox abox of the model or null, if the model could not be loaded
+		 */
+		public void visit(IRI modelId, OWLOntology abox);
+	}
+	
+	/**
+	 * Visit the abox ontologies for the given model ids, see
+	 * {@link #getModelAbox(IRI)}. Models which are not in memory are loaded
+	 * (without imports) in parallel batches of the size of the parallelism.
+	 * The visitor is called in the current thread as soon as the abox of a
+	 * batch is available, the loaded aboxes are not retained.
+	 * 
+	 * @param modelIds
+	 * @param visitor
+	 */
+	public void visitModelAboxes(Collection<IRI> modelIds, ModelAboxVisitor visitor) {
+		final List<IRI> pending = new ArrayList<IRI>();
+		for (IRI modelId : modelIds) {
+			ModelContainer model = modelMap.get(modelId);
+			if (model != null) {
+				visitor.visit(modelId, model.getAboxOntology());
+			}
+			else {
+				pending.add(modelId);
+			}
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+		final ExecutorService executor = getLoadExecutor();
+		final int batchSize = parallelism;
+		for (int start = 0; start < pending.size(); start += batchSize) {
+			final List<IRI> batch = pending.subList(start, Math.min(start + batchSize, pending.size()));
+			final List<Future<OWLOntology>> futures = new ArrayList<Future<OWLOntology>>(batch.size());
+			for (final IRI modelId : batch) {
+				// the minimal load uses a separate ontology manager per model
+				futures.add(executor.submit(new Callable<OWLOntology>() {
+
+					@Override
+					public OWLOntology call() throws Exception {
+						return loadModelABox(modelId);
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				IRI modelId = batch.get(i);
+				OWLOntology abox = null;
+				try {
+					abox = futures.get(i).get();
+				} catch (ExecutionException e) {
+					LOG.info("Could not load model with id: "+modelId, e.getCause());
+				} catch (InterruptedException e) {
+					for (Future<OWLOntology> future : futures) {
+						future.cancel(true);
+					}
+					Thread.currentThread().interrupt();
+					return;
+				}
+				visitor.visit(modelId, abox);
+			}
+		}
+	}
+	
+	private synchronized ExecutorService getLoadExecutor() {
+		if (loadExecutor == null) {
+			loadExecutor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "minerva-model-loader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return loadExecutor;
+	}
+	
+	private synchronized void disposeLoadExecutor() {
+		if (loadExecutor != null) {
+			loadExecutor.shutdownNow();
+			loadExecutor = null;
+		}
+	}
+	
 	/**
 	 * Retrieve a collection of all available model ids.<br>
 	 * Note: Models may not be loaded at this point.
@@ -383,23 +824,29 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 			}
 			unlinkModel(modelId);
 		}
-		File modelFile = getOwlModelFile(modelId);
-		IRI sourceIRI = IRI.create(modelFile);
-		OWLOntology abox = loadOntologyIRI(sourceIRI, false);
+		File modelFile = findOwlModelFile(modelId);
+		OWLOntology abox = loadOntologyDocumentSource(createDocumentSource(modelFile), false);
 		abox = postLoadFileFilter(abox);
 		ModelContainer model = addModel(modelId, abox);
 		updateImports(model);
+		getMetrics().increment("minerva_models_loaded_total");
 	}
 
 	@Override
 	protected OWLOntology loadModelABox(IRI modelId) throws OWLOntologyCreationException {
-		File modelFile = getOwlModelFile(modelId);
-		IRI sourceIRI = IRI.create(modelFile);
-		OWLOntology abox = loadOntologyIRI(sourceIRI, true);
+		File modelFile = findOwlModelFile(modelId);
+		OWLOntology abox = loadOntologyDocumentSource(createDocumentSource(modelFile), true);
 		abox = postLoadFileFilter(abox);
 		return abox;
 	}
 	
+	private OWLOntologyDocumentSource createDocumentSource(File modelFile) {
+		if (mappedFileCache != null && modelFile.isFile() && modelFile.length() <= Integer.MAX_VALUE) {
+			return new MappedFileDocumentSource(modelFile, mappedFileCache);
+		}
+		return new IRIDocumentSource(IRI.create(modelFile));
+	}
+	
 	private OWLOntology postLoadFileFilter(OWLOntology model) {
 		for (PostLoadOntologyFilter filter : postLoadOntologyFilters) {
 			model = filter.filter(model);
@@ -418,8 +865,25 @@ public class FileBasedMolecularModelManager<METADATA> extends CoreMolecularModel
 		}
 	}
 
+	private String getOwlModelFileName(IRI modelId) {
+		return StringUtils.replaceOnce(modelId.toString(), modelIdPrefix, "");
+	}
+	
+	/**
+	 * @param modelId
+	 * @return model file in the current layout, the file may not exist
+	 */
 	private File getOwlModelFile(IRI modelId) {
-		String fileName = StringUtils.replaceOnce(modelId.toString(), modelIdPrefix, "");
-		return new File(pathToOWLFiles, fileName).getAbsoluteFile();
+		File folder = new File(pathToOWLFiles);
+		return ModelFolderLayout.getModelFile(folder, getOwlModelFileName(modelId), shardedLayout).getAbsoluteFile();
+	}
+	
+	/**
+	 * @param modelId
+	 * @return existing model file in any layout, preferring the current one
+	 */
+	private File findOwlModelFile(IRI modelId) {
+		File folder = new File(pathToOWLFiles);
+		return ModelFolderLayout.findModelFile(folder, getOwlModelFileName(modelId), shardedLayout).getAbsoluteFile();
 	}
 }
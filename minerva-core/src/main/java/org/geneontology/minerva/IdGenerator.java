@@ -0,0 +1,64 @@
+package org.geneontology.minerva;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator for the local unique part of model and individual ids. The id
+ * is the start time in seconds (hex), the optional node id (two hex digits)
+ * and a counter with at least eight digits. The start time makes the ids
+ * unique across restarts, the node id across several servers using the same
+ * model folder.<br>
+ * <br>
+ * The counter is an {@link AtomicLong}, there is no lock for generating an
+ * id. All ids only contain hex characters, see
+ * {@link CoreMolecularModelManager#isLocalUnique(String)}.
+ */
+public class IdGenerator {
+
+	/**
+	 * Maximum node id, fits into two hex digits.
+	 */
+	public static final int MAX_NODE_ID = 0xFF;
+
+	private final String prefix;
+	private final AtomicLong counter = new AtomicLong(0);
+
+	/**
+	 * Create a generator without node id.
+	 */
+	public IdGenerator() {
+		this(-1);
+	}
+
+	/**
+	 * @param nodeId id of this server between 0 and {@link #MAX_NODE_ID} or -1 for none
+	 */
+	public IdGenerator(int nodeId) {
+		this(System.currentTimeMillis(), nodeId);
+	}
+
+	IdGenerator(long startTimeMillis, int nodeId) {
+		if (nodeId < -1 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("The node id must be between 0 and "+MAX_NODE_ID+": "+nodeId);
+		}
+		String top = Long.toHexString(Math.abs(startTimeMillis / 1000));
+		if (nodeId >= 0) {
+			top = top + String.format("%02x", Integer.valueOf(nodeId));
+		}
+		this.prefix = top;
+	}
+
+	/**
+	 * @return new unique id
+	 */
+	public String nextId() {
+		String count = Long.toString(counter.incrementAndGet());
+		StringBuilder sb = new StringBuilder(prefix.length() + Math.max(8, count.length()));
+		sb.append(prefix);
+		for (int i = count.length(); i < 8; i++) {
+			sb.append('0');
+		}
+		sb.append(count);
+		return sb.toString();
+	}
+}
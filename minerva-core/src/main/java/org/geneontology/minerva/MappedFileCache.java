@@ -0,0 +1,164 @@
+package org.geneontology.minerva;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+/**
+ * Small LRU cache of read-only memory mapped files. An entry is only used, if
+ * the file key (i.e. the inode), size and modification time have not changed.
+ * The modification time may have a coarse granularity, so writers should
+ * still call {@link #invalidate(File)} after replacing a file.<br>
+ * <br>
+ * The mapped regions are outside of the Java heap, they are released by the
+ * garbage collector after the eviction from the cache.
+ */
+public class MappedFileCache {
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final LinkedHashMap<String, MappedFile> entries = new LinkedHashMap<String, MappedFile>(16, 0.75f, true);
+	private long totalBytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	private static class MappedFile {
+		final MappedByteBuffer buffer;
+		final long length;
+		final FileTime lastModified;
+		final Object fileKey;
+
+		MappedFile(MappedByteBuffer buffer, BasicFileAttributes attributes) {
+			this.buffer = buffer;
+			this.length = attributes.size();
+			this.lastModified = attributes.lastModifiedTime();
+			this.fileKey = attributes.fileKey();
+		}
+
+		boolean isValid(BasicFileAttributes attributes) {
+			return length == attributes.size()
+					&& lastModified.equals(attributes.lastModifiedTime())
+					&& Objects.equals(fileKey, attributes.fileKey());
+		}
+	}
+
+	/**
+	 * @param maxEntries maximum number of mapped files
+	 * @param maxBytes maximum total size of the mapped files
+	 */
+	public MappedFileCache(int maxEntries, long maxBytes) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Retrieve the content of the file as read-only buffer. The buffer is
+	 * independent of other calls, i.e. it has its own position.
+	 *
+	 * @param file
+	 * @return buffer
+	 * @throws IOException
+	 */
+	public ByteBuffer getBuffer(File file) throws IOException {
+		final String key = file.getAbsolutePath();
+		final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		final long length = attributes.size();
+		synchronized (entries) {
+			MappedFile mapped = entries.get(key);
+			if (mapped != null && mapped.isValid(attributes)) {
+				hits += 1;
+				return mapped.buffer.asReadOnlyBuffer();
+			}
+			misses += 1;
+		}
+		MappedByteBuffer buffer = map(file, length);
+		if (length <= maxBytes) {
+			synchronized (entries) {
+				MappedFile old = entries.put(key, new MappedFile(buffer, attributes));
+				if (old != null) {
+					totalBytes -= old.length;
+				}
+				totalBytes += length;
+				evict();
+			}
+		}
+		return buffer.asReadOnlyBuffer();
+	}
+
+	private static MappedByteBuffer map(File file, long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("File is too large for mapping: "+file);
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			// the mapping stays valid after closing the channel
+			FileChannel channel = raf.getChannel();
+			return channel.map(MapMode.READ_ONLY, 0, length);
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Only call within a synchronized block.
+	 */
+	private void evict() {
+		Iterator<Entry<String, MappedFile>> it = entries.entrySet().iterator();
+		while ((entries.size() > maxEntries || totalBytes > maxBytes) && it.hasNext()) {
+			Entry<String, MappedFile> eldest = it.next();
+			totalBytes -= eldest.getValue().length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Remove the mapping for the file, if it exists.
+	 *
+	 * @param file
+	 */
+	public void invalidate(File file) {
+		synchronized (entries) {
+			MappedFile old = entries.remove(file.getAbsolutePath());
+			if (old != null) {
+				totalBytes -= old.length;
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			totalBytes = 0;
+		}
+	}
+
+	/**
+	 * @return number of lookups with a valid mapping
+	 */
+	public long getHitCount() {
+		synchronized (entries) {
+			return hits;
+		}
+	}
+
+	/**
+	 * @return number of lookups, which required a new mapping
+	 */
+	public long getMissCount() {
+		synchronized (entries) {
+			return misses;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.geneontology.minerva;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.semanticweb.owlapi.io.FileDocumentSource;
+import org.semanticweb.owlapi.model.OWLRuntimeException;
+
+/**
+ * Document source for a local file, which provides the content from a
+ * memory mapped buffer. The OWL-API may request the input stream several
+ * times (once per tried parser), each call returns a new stream over the
+ * same mapping.
+ */
+public class MappedFileDocumentSource extends FileDocumentSource {
+
+	private final File file;
+	private final MappedFileCache cache;
+
+	/**
+	 * @param file
+	 * @param cache
+	 */
+	public MappedFileDocumentSource(File file, MappedFileCache cache) {
+		super(file);
+		this.file = file;
+		this.cache = cache;
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		try {
+			return new ByteBufferInputStream(cache.getBuffer(file));
+		} catch (IOException e) {
+			throw new OWLRuntimeException("Could not map file: "+file, e);
+		}
+	}
+
+	/**
+	 * Input stream backed by a {@link ByteBuffer}, reads without copying the
+	 * data into an intermediate buffer.
+	 */
+	static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			if (buffer.hasRemaining() == false) {
+				return -1;
+			}
+			return buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			int remaining = buffer.remaining();
+			if (remaining == 0) {
+				return -1;
+			}
+			int count = Math.min(len, remaining);
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			if (n <= 0) {
+				return 0;
+			}
+			int count = (int) Math.min(n, buffer.remaining());
+			buffer.position(buffer.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+
+		@Override
+		public synchronized void mark(int readlimit) {
+			buffer.mark();
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			buffer.reset();
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package org.geneontology.minerva;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.geneontology.minerva.ModelContainer.ModifiedListener;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+
+/**
+ * Background saving of modified models. The scheduler is notified via the
+ * {@link ModifiedListener}, when a model becomes dirty. The save is delayed by
+ * a quiet period to coalesce bursts of edits and each model is saved at most
+ * once per interval. All saves run on a single thread with a minimum spacing
+ * between two saves, which limits the total disk and lookup service load.<br>
+ * <br>
+ * Call {@link #shutdown()} to save all pending models before exiting.
+ *
+ * @param <METADATA>
+ */
+public class ModelAutoSaveScheduler<METADATA> implements ModifiedListener {
+
+	private static Logger LOG = Logger.getLogger(ModelAutoSaveScheduler.class);
+
+	private final FileBasedMolecularModelManager<METADATA> manager;
+	private final METADATA metadata;
+	private final long intervalMillis;
+	private final long quietMillis;
+	private final long spacingMillis;
+
+	private final ScheduledExecutorService executor;
+	private final Map<IRI, ScheduledFuture<?>> pending = new ConcurrentHashMap<IRI, ScheduledFuture<?>>();
+	private final Map<IRI, Long> lastSaves = new ConcurrentHashMap<IRI, Long>();
+	private final AtomicLong saveCount = new AtomicLong(0);
+	private final AtomicLong failureCount = new AtomicLong(0);
+	private volatile long lastSave = 0L;
+	private volatile boolean isShutdown = false;
+
+	/**
+	 * @param manager
+	 * @param metadata metadata used for the automatic saves
+	 * @param interval minimum time between two saves of the same model
+	 * @param quietPeriod delay after the first modification, before a model is saved
+	 * @param spacing minimum time between two saves of any model
+	 * @param unit time unit for interval, quiet period and spacing
+	 */
+	public ModelAutoSaveScheduler(FileBasedMolecularModelManager<METADATA> manager, METADATA metadata,
+			long interval, long quietPeriod, long spacing, TimeUnit unit) {
+		this.manager = manager;
+		this.metadata = metadata;
+		this.intervalMillis = unit.toMillis(interval);
+		this.quietMillis = unit.toMillis(quietPeriod);
+		this.spacingMillis = unit.toMillis(spacing);
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "minerva-autosave");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	@Override
+	public void modelModified(ModelContainer model) {
+		schedule(model.getModelId(), quietMillis);
+	}
+
+	private synchronized void schedule(final IRI modelId, long minDelay) {
+		if (isShutdown || pending.containsKey(modelId)) {
+			// coalesce with the already scheduled save
+			return;
+		}
+		long delay = minDelay;
+		Long previous = lastSaves.get(modelId);
+		if (previous != null) {
+			delay = Math.max(delay, previous.longValue() + intervalMillis - System.currentTimeMillis());
+		}
+		ScheduledFuture<?> future = executor.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				runSave(modelId);
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+		pending.put(modelId, future);
+	}
+
+	private void runSave(IRI modelId) {
+		long wait = lastSave + spacingMillis - System.currentTimeMillis();
+		if (wait > 0 && isShutdown == false) {
+			// rate limit, try again later
+			synchronized (this) {
+				pending.remove(modelId);
+				schedule(modelId, wait);
+			}
+			return;
+		}
+		pending.remove(modelId);
+		save(modelId);
+	}
+
+	private boolean save(IRI modelId) {
+		// only save models, which are still in memory and modified
+		if (manager.isModelModified(modelId) == false) {
+			return false;
+		}
+		ModelContainer model = manager.getModel(modelId);
+		if (model == null) {
+			return false;
+		}
+		long start = System.currentTimeMillis();
+		try {
+			manager.saveModel(model, Collections.<OWLAnnotation>emptySet(), metadata);
+			long now = System.currentTimeMillis();
+			lastSave = now;
+			lastSaves.put(modelId, Long.valueOf(now));
+			saveCount.incrementAndGet();
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Autosaved model: "+modelId+" in "+(now - start)+" ms");
+			}
+			return true;
+		} catch (Exception e) {
+			failureCount.incrementAndGet();
+			LOG.error("Could not autosave model: "+modelId, e);
+			lastSave = System.currentTimeMillis();
+			lastSaves.put(modelId, Long.valueOf(lastSave));
+			if (model.isModified()) {
+				// retry after the interval
+				schedule(modelId, intervalMillis);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * @return ids of models with a scheduled save
+	 */
+	public Set<IRI> getPendingModelIds() {
+		return Collections.unmodifiableSet(pending.keySet());
+	}
+
+	/**
+	 * @return number of successful automatic saves
+	 */
+	public long getSaveCount() {
+		return saveCount.get();
+	}
+
+	/**
+	 * @return number of failed automatic saves
+	 */
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	/**
+	 * Stop the scheduler and save all pending models in the calling thread.
+	 *
+	 * @return number of saved models during the shutdown
+	 */
+	public int shutdown() {
+		List<IRI> remaining;
+		synchronized (this) {
+			if (isShutdown) {
+				return 0;
+			}
+			isShutdown = true;
+			remaining = new ArrayList<IRI>(pending.keySet());
+			for (ScheduledFuture<?> future : pending.values()) {
+				future.cancel(false);
+			}
+			pending.clear();
+		}
+		// let a running save finish
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		int count = 0;
+		for (IRI modelId : remaining) {
+			if (save(modelId)) {
+				count += 1;
+			}
+		}
+		LOG.info("Autosave shutdown, saved "+count+" pending models");
+		return count;
+	}
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.semanticweb.owlapi.apibinding.OWLManager;
@@ -41,6 +42,43 @@ public class ModelContainer {
 	
 	private OWLReasonerFactory reasonerFactory = null;
 	
+	/**
+	 * Callback for the life cycle of the reasoners of a model. The methods are
+	 * never called while holding a reasoner lock of the model.
+	 */
+	public static interface ReasonerListener {
+		
+		/**
+		 * @param model
+		 * @param creationNanos time it took to create the reasoner
+		 */
+		public void reasonerCreated(ModelContainer model, long creationNanos);
+		
+		/**
+		 * @param model
+		 */
+		public void reasonerDisposed(ModelContainer model);
+	}
+	
+	/**
+	 * Callback for the modified state of the abox.
+	 */
+	public static interface ModifiedListener {
+		
+		/**
+		 * Called, if the abox was changed and the model was not modified before.
+		 * 
+		 * @param model
+		 */
+		public void modelModified(ModelContainer model);
+	}
+	
+	private volatile ReasonerListener reasonerListener = null;
+	private volatile ModifiedListener modifiedListener = null;
+	private volatile long lastReasonerAccess = 0L;
+	private final AtomicInteger reasonerUsers = new AtomicInteger(0);
+	private volatile long lastAccess = System.currentTimeMillis();
+	
 	private volatile OWLReasoner reasoner = null;
 	private final Object reasonerMutex = new Object();
 	
@@ -51,7 +89,7 @@ public class ModelContainer {
 	
 	private final IRI modelId;
 	private OWLOntology aboxOntology = null;
-	private boolean aboxModified = false;
+	private volatile boolean aboxModified = false;
 	
 	private OWLOntology tboxOntology = null;
 	private OWLOntology queryOntology = null;
@@ -185,18 +223,109 @@ public class ModelContainer {
 	 * 
 	 */
 	public void disposeReasoner() {
+		boolean disposed = false;
 		synchronized (reasonerMutex) {
 			if (reasoner != null) {
 				reasoner.dispose();
 				reasoner = null;
+				disposed = true;
 			}
 		}
+		if (disposed) {
+			fireReasonerDisposed();
+		}
 	}
 	
 	public void disposeModuleReasoner() {
+		boolean disposed;
 		synchronized (moduleReasonerMutex) {
+			disposed = moduleReasoner != null;
 			_internalDisposeModuleReasonerAndListener();
 		}
+		if (disposed) {
+			fireReasonerDisposed();
+		}
+	}
+	
+	/**
+	 * @param listener the listener or null
+	 */
+	public void setReasonerListener(ReasonerListener listener) {
+		this.reasonerListener = listener;
+	}
+	
+	/**
+	 * @return true, if there is a reasoner or module reasoner for this model
+	 */
+	public boolean hasReasoner() {
+		return reasoner != null || moduleReasoner != null;
+	}
+	
+	/**
+	 * @return true, if there is a module reasoner for this model
+	 */
+	public boolean hasModuleReasoner() {
+		return moduleReasoner != null;
+	}
+	
+	/**
+	 * @return time in milliseconds of the last request for a reasoner, 0 if never requested
+	 */
+	public long getLastReasonerAccess() {
+		return lastReasonerAccess;
+	}
+	
+	/**
+	 * Mark the reasoners of this model as in use. Always call
+	 * {@link #releaseReasoner()} in a finally block. A {@link ReasonerListener}
+	 * must not dispose reasoners, which are in use.
+	 */
+	public void acquireReasoner() {
+		reasonerUsers.incrementAndGet();
+		lastReasonerAccess = System.currentTimeMillis();
+	}
+	
+	/**
+	 * End the use started with {@link #acquireReasoner()}.
+	 */
+	public void releaseReasoner() {
+		lastReasonerAccess = System.currentTimeMillis();
+		reasonerUsers.decrementAndGet();
+	}
+	
+	/**
+	 * @return true, if the reasoners are in use between {@link #acquireReasoner()} and {@link #releaseReasoner()}
+	 */
+	public boolean isReasonerInUse() {
+		return reasonerUsers.get() > 0;
+	}
+	
+	/**
+	 * @return time in milliseconds of the last retrieval of this model from the manager
+	 */
+	public long getLastAccess() {
+		return lastAccess;
+	}
+	
+	/**
+	 * @param lastAccess time in milliseconds
+	 */
+	public void setLastAccess(long lastAccess) {
+		this.lastAccess = lastAccess;
+	}
+	
+	private void fireReasonerCreated(long creationNanos) {
+		ReasonerListener listener = reasonerListener;
+		if (listener != null) {
+			listener.reasonerCreated(this, creationNanos);
+		}
+	}
+	
+	private void fireReasonerDisposed() {
+		ReasonerListener listener = reasonerListener;
+		if (listener != null) {
+			listener.reasonerDisposed(this);
+		}
 	}
 	
 	/**
@@ -239,6 +368,9 @@ public class ModelContainer {
 	 * @return current reasoner, operating over abox
 	 */
 	public OWLReasoner getReasoner() {
+		lastReasonerAccess = System.currentTimeMillis();
+		final OWLReasoner current;
+		long creationNanos = -1L;
 		synchronized (reasonerMutex) {
 			if (reasoner == null) {
 				// reasoner -> query -> abox -> tbox
@@ -246,10 +378,16 @@ public class ModelContainer {
 					LOG.debug("Creating reasoner on "+queryOntology+" ImportsClosure="+
 						queryOntology.getImportsClosure());
 				}
+				long start = System.nanoTime();
 				reasoner = reasonerFactory.createReasoner(queryOntology);
+				creationNanos = System.nanoTime() - start;
 			}
+			current = reasoner;
 		}
-		return reasoner;
+		if (creationNanos >= 0) {
+			fireReasonerCreated(creationNanos);
+		}
+		return current;
 	}
 	/**
 	 * @param reasoner
@@ -259,17 +397,26 @@ public class ModelContainer {
 	}
 	
 	public OWLReasoner getModuleReasoner() throws OWLOntologyCreationException {
+		lastReasonerAccess = System.currentTimeMillis();
+		final OWLReasoner current;
+		long creationNanos = -1L;
 		synchronized (moduleReasonerMutex) {
 			if (moduleReasoner == null) {
+				long start = System.nanoTime();
 				moduleReasoner = createModuleReasoner();
+				creationNanos = System.nanoTime() - start;
 			}
 			if (moduleListener == null) {
 				moduleListener = createModuleChangeListener();
 				OWLOntologyChangeBroadcastStrategy strategy = new SpecificOntologyChangeBroadcastStrategy(aboxOntology);
 				aboxOntology.getOWLOntologyManager().addOntologyChangeListener(moduleListener, strategy);
 			}
+			current = moduleReasoner;
+		}
+		if (creationNanos >= 0) {
+			fireReasonerCreated(creationNanos);
 		}
-		return moduleReasoner;
+		return current;
 	}
 	
 	@SuppressWarnings({ "unchecked", "rawtypes" })
@@ -394,7 +541,21 @@ public class ModelContainer {
 	}
 	
 	void setAboxModified(boolean modified) {
+		boolean wasModified = aboxModified;
 		aboxModified = modified;
+		if (modified && wasModified == false) {
+			ModifiedListener listener = modifiedListener;
+			if (listener != null) {
+				listener.modelModified(this);
+			}
+		}
+	}
+	
+	/**
+	 * @param listener the listener or null
+	 */
+	public void setModifiedListener(ModifiedListener listener) {
+		this.modifiedListener = listener;
 	}
 	
 	public void setListenToOntologyChanges(boolean listen) {
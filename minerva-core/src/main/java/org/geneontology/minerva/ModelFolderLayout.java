@@ -0,0 +1,182 @@
+package org.geneontology.minerva;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Layout of the model files in the model folder.<br>
+ * In the flat layout, all model files are directly in the model folder. In
+ * the sharded layout, each model file is in a sub folder named with a two
+ * digit hex hash of the file name. This limits the number of entries per
+ * folder to a fraction of the corpus.<br>
+ * <br>
+ * The enumeration and lookup of model files always considers both layouts,
+ * this allows to use a partially migrated model folder.
+ */
+public class ModelFolderLayout {
+
+	private static Logger LOG = Logger.getLogger(ModelFolderLayout.class);
+
+	private ModelFolderLayout() {
+		// no instances
+	}
+
+	/**
+	 * Call back for the model files in a model folder.
+	 */
+	public static interface ModelFileHandler {
+
+		/**
+		 * @param modelFile
+		 * @throws IOException
+		 */
+		public void handle(Path modelFile) throws IOException;
+	}
+
+	/**
+	 * @param fileName
+	 * @return name of the sub folder for the file name in the sharded layout
+	 */
+	public static String getShardName(String fileName) {
+		int hash = fileName.hashCode();
+		hash ^= (hash >>> 16);
+		hash ^= (hash >>> 8);
+		return String.format("%02x", Integer.valueOf(hash & 0xFF));
+	}
+
+	static boolean isShardName(String name) {
+		return name.length() == 2
+				&& CoreMolecularModelManager.isHex(name.charAt(0))
+				&& CoreMolecularModelManager.isHex(name.charAt(1));
+	}
+
+	static boolean isModelFileName(String name) {
+		return CoreMolecularModelManager.isLocalUnique(name);
+	}
+
+	/**
+	 * @param folder model folder
+	 * @param fileName
+	 * @param sharded
+	 * @return file for the given layout, the file may not exist
+	 */
+	public static File getModelFile(File folder, String fileName, boolean sharded) {
+		if (sharded) {
+			return new File(new File(folder, getShardName(fileName)), fileName);
+		}
+		return new File(folder, fileName);
+	}
+
+	/**
+	 * Find an existing model file. The file in the preferred layout is
+	 * checked first.
+	 *
+	 * @param folder model folder
+	 * @param fileName
+	 * @param sharded preferred layout
+	 * @return existing file or the file in the preferred layout
+	 */
+	public static File findModelFile(File folder, String fileName, boolean sharded) {
+		File preferred = getModelFile(folder, fileName, sharded);
+		if (preferred.exists() == false) {
+			File alternative = getModelFile(folder, fileName, sharded == false);
+			if (alternative.exists()) {
+				return alternative;
+			}
+		}
+		return preferred;
+	}
+
+	/**
+	 * Visit all model files in the folder and its shard sub folders. The
+	 * directory entries are streamed, they are not materialized as array.
+	 *
+	 * @param folder model folder
+	 * @param handler
+	 * @throws IOException
+	 */
+	public static void visitModelFiles(File folder, ModelFileHandler handler) throws IOException {
+		if (folder.isDirectory() == false) {
+			return;
+		}
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(folder.toPath())) {
+			for (Path entry : entries) {
+				String name = entry.getFileName().toString();
+				if (isModelFileName(name)) {
+					handler.handle(entry);
+				}
+				else if (isShardName(name) && Files.isDirectory(entry)) {
+					try (DirectoryStream<Path> shardEntries = Files.newDirectoryStream(entry)) {
+						for (Path shardEntry : shardEntries) {
+							if (isModelFileName(shardEntry.getFileName().toString())) {
+								handler.handle(shardEntry);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Move all model files into the given layout. Model files, which exist
+	 * in both layouts are not moved and reported as conflict.
+	 *
+	 * @param folder model folder
+	 * @param sharded target layout
+	 * @return number of moved files
+	 * @throws IOException
+	 */
+	public static int migrate(final File folder, final boolean sharded) throws IOException {
+		final int[] count = {0};
+		visitModelFiles(folder, new ModelFileHandler() {
+
+			@Override
+			public void handle(Path modelFile) throws IOException {
+				String fileName = modelFile.getFileName().toString();
+				Path target = getModelFile(folder, fileName, sharded).toPath();
+				if (target.equals(modelFile)) {
+					return;
+				}
+				if (Files.exists(target)) {
+					LOG.warn("Skipping model file, it exists in both layouts: "+fileName);
+					return;
+				}
+				Files.createDirectories(target.getParent());
+				try {
+					Files.move(modelFile, target, StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(modelFile, target);
+				}
+				count[0] += 1;
+			}
+		});
+		if (sharded == false) {
+			removeEmptyShards(folder);
+		}
+		return count[0];
+	}
+
+	private static void removeEmptyShards(File folder) throws IOException {
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(folder.toPath())) {
+			for (Path entry : entries) {
+				if (isShardName(entry.getFileName().toString()) && Files.isDirectory(entry)) {
+					boolean empty;
+					try (DirectoryStream<Path> shardEntries = Files.newDirectoryStream(entry)) {
+						empty = shardEntries.iterator().hasNext() == false;
+					}
+					if (empty) {
+						Files.delete(entry);
+					}
+				}
+			}
+		}
+	}
+}
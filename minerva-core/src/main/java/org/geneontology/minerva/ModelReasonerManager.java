@@ -0,0 +1,345 @@
+package org.geneontology.minerva;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import org.apache.log4j.Logger;
+import org.geneontology.minerva.ModelContainer.ReasonerListener;
+import org.semanticweb.owlapi.model.IRI;
+
+/**
+ * Central bookkeeping for the reasoners of all models of a model manager.
+ * Limits the number of live reasoners, disposes reasoners which have not been
+ * used for a given time and, under heap pressure, disposes the least recently
+ * used reasoners. Disposed reasoners are re-created on demand by the
+ * {@link ModelContainer}.<br>
+ * <br>
+ * Heap pressure is observed via the collection usage thresholds of the heap
+ * {@link MemoryPoolMXBean}s.<br>
+ * <br>
+ * Reasoners are only disposed with the lock of the abox ontology and never
+ * while they are in use, see {@link ModelContainer#acquireReasoner()}. The
+ * manager disposes reasoners in its own thread, a thread holding the abox
+ * lock of one model never waits for the lock of another model.
+ */
+public class ModelReasonerManager implements ReasonerListener {
+
+	private static Logger LOG = Logger.getLogger(ModelReasonerManager.class);
+
+	private final int maxReasoners;
+	private final long idleTimeoutMillis;
+	private final long minIdleMillis;
+
+	private final Set<ModelContainer> live = Collections.newSetFromMap(new ConcurrentHashMap<ModelContainer, Boolean>());
+	private final Set<IRI> evicted = Collections.newSetFromMap(new ConcurrentHashMap<IRI, Boolean>());
+
+	private final AtomicLong created = new AtomicLong(0);
+	private final AtomicLong disposed = new AtomicLong(0);
+	private final AtomicLong recreated = new AtomicLong(0);
+	private final AtomicLong creationNanos = new AtomicLong(0);
+	private final AtomicLong recreationNanos = new AtomicLong(0);
+
+	private final ScheduledExecutorService scheduler;
+	private NotificationListener memoryListener = null;
+
+	/**
+	 * @param maxReasoners maximum number of live reasoners, use 0 for no limit
+	 * @param idleTimeout dispose reasoners not used for this time, use 0 to disable
+	 * @param minIdle reasoners used within this time are never disposed by the manager
+	 * @param unit time unit for the timeouts
+	 */
+	public ModelReasonerManager(int maxReasoners, long idleTimeout, long minIdle, TimeUnit unit) {
+		this.maxReasoners = maxReasoners;
+		this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+		this.minIdleMillis = unit.toMillis(minIdle);
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "minerva-reasoner-manager");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		if (idleTimeoutMillis > 0) {
+			long period = Math.max(1000L, idleTimeoutMillis / 4);
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						disposeIdleReasoners();
+					} catch (Throwable t) {
+						LOG.error("Could not dispose idle reasoners", t);
+					}
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Register a threshold for the heap memory pools. If the used memory after
+	 * a garbage collection exceeds the fraction of the maximum pool size, the
+	 * least recently used reasoners are disposed.
+	 *
+	 * @param heapFraction value between 0 and 1
+	 * @param evictFraction fraction of live reasoners to dispose, if the threshold is exceeded
+	 */
+	public synchronized void enableMemoryPressureEviction(double heapFraction, final double evictFraction) {
+		if (memoryListener != null) {
+			return;
+		}
+		boolean hasThreshold = false;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+				MemoryUsage usage = pool.getUsage();
+				long max = usage.getMax();
+				if (max > 0) {
+					pool.setCollectionUsageThreshold((long) (max * heapFraction));
+					hasThreshold = true;
+				}
+			}
+		}
+		if (hasThreshold == false) {
+			LOG.warn("No heap memory pool supports collection usage thresholds, memory pressure eviction is disabled.");
+			return;
+		}
+		memoryListener = new NotificationListener() {
+
+			@Override
+			public void handleNotification(Notification notification, Object handback) {
+				if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+					// do not dispose in the notification thread
+					scheduler.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							int count = (int) Math.ceil(live.size() * evictFraction);
+							LOG.info("Heap usage threshold exceeded, disposing up to "+count+" reasoners");
+							disposeLeastRecentlyUsed(count);
+						}
+					});
+				}
+			}
+		};
+		NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+		emitter.addNotificationListener(memoryListener, null, null);
+	}
+
+	@Override
+	public void reasonerCreated(ModelContainer model, long nanos) {
+		live.add(model);
+		created.incrementAndGet();
+		creationNanos.addAndGet(nanos);
+		if (evicted.remove(model.getModelId())) {
+			recreated.incrementAndGet();
+			recreationNanos.addAndGet(nanos);
+		}
+		if (maxReasoners > 0 && live.size() > maxReasoners) {
+			// the caller may hold the abox lock of the model, evict asynchronously
+			scheduler.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					disposeLeastRecentlyUsed(live.size() - maxReasoners);
+				}
+			});
+		}
+	}
+
+	@Override
+	public void reasonerDisposed(ModelContainer model) {
+		if (model.hasReasoner() == false) {
+			live.remove(model);
+		}
+		disposed.incrementAndGet();
+	}
+
+	/**
+	 * Dispose all reasoners, which have not been used within the idle timeout.
+	 * Reasoners which have been used within the minimum idle time are kept.
+	 */
+	public void disposeIdleReasoners() {
+		if (idleTimeoutMillis <= 0) {
+			return;
+		}
+		final long timeout = Math.max(idleTimeoutMillis, minIdleMillis);
+		for (ModelContainer model : new ArrayList<ModelContainer>(live)) {
+			if (model.hasReasoner() == false) {
+				live.remove(model);
+			}
+			else if (evict(model, timeout)) {
+				LOG.info("Disposed idle reasoner for model: "+model.getModelId());
+			}
+		}
+	}
+
+	/**
+	 * Dispose the reasoners, which have not been used for the longest time.
+	 * Reasoners which have been used within the minimum idle time are kept.<br>
+	 * Do not call this method while holding the abox lock of a model.
+	 *
+	 * @param count maximum number of models for which the reasoners are disposed
+	 * @return number of models with disposed reasoners
+	 */
+	public int disposeLeastRecentlyUsed(int count) {
+		if (count <= 0) {
+			return 0;
+		}
+		// snapshot the access times, they change during the sort
+		List<ModelAccess> candidates = new ArrayList<ModelAccess>(live.size());
+		for (ModelContainer model : live) {
+			candidates.add(new ModelAccess(model, model.getLastReasonerAccess()));
+		}
+		Collections.sort(candidates, new Comparator<ModelAccess>() {
+
+			@Override
+			public int compare(ModelAccess m1, ModelAccess m2) {
+				long l1 = m1.lastAccess;
+				long l2 = m2.lastAccess;
+				return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+			}
+		});
+		final long now = System.currentTimeMillis();
+		int disposedCount = 0;
+		for (ModelAccess candidate : candidates) {
+			if (disposedCount >= count) {
+				break;
+			}
+			if (now - candidate.lastAccess < minIdleMillis) {
+				// all remaining candidates are more recent
+				break;
+			}
+			ModelContainer model = candidate.model;
+			if (model.hasReasoner() == false) {
+				live.remove(model);
+			}
+			else if (evict(model, minIdleMillis)) {
+				disposedCount += 1;
+			}
+		}
+		return disposedCount;
+	}
+
+	private static class ModelAccess {
+
+		final ModelContainer model;
+		final long lastAccess;
+
+		ModelAccess(ModelContainer model, long lastAccess) {
+			this.model = model;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	/**
+	 * Dispose the reasoners of the model regardless of the last access, i.e.
+	 * on request of an administrator. The reasoners are kept, if they are in
+	 * use.
+	 *
+	 * @param model
+	 * @return true, if the reasoners have been disposed
+	 */
+	public boolean disposeReasoners(ModelContainer model) {
+		return evict(model, -1L);
+	}
+
+	/**
+	 * Dispose the reasoners of the model with the abox lock. Skip the model,
+	 * if the reasoners are in use or have been used within the given time.
+	 *
+	 * @param model
+	 * @param idleMillis
+	 * @return true, if the reasoners have been disposed
+	 */
+	private boolean evict(ModelContainer model, long idleMillis) {
+		synchronized (model.getAboxOntology()) {
+			if (model.isReasonerInUse()
+					|| System.currentTimeMillis() - model.getLastReasonerAccess() <= idleMillis) {
+				return false;
+			}
+			evicted.add(model.getModelId());
+			model.disposeReasoner();
+			model.disposeModuleReasoner();
+			live.remove(model);
+			return true;
+		}
+	}
+
+	/**
+	 * @return number of models with a live reasoner
+	 */
+	public int getLiveCount() {
+		return live.size();
+	}
+
+	/**
+	 * @return total number of created reasoners
+	 */
+	public long getCreatedCount() {
+		return created.get();
+	}
+
+	/**
+	 * @return total number of disposed reasoner instances, a model with a
+	 * reasoner and a module reasoner counts twice
+	 */
+	public long getDisposedCount() {
+		return disposed.get();
+	}
+
+	/**
+	 * @return number of reasoners, which were re-created after being disposed by this manager
+	 */
+	public long getRecreatedCount() {
+		return recreated.get();
+	}
+
+	/**
+	 * @return total time in nanoseconds spent creating reasoners
+	 */
+	public long getCreationNanos() {
+		return creationNanos.get();
+	}
+
+	/**
+	 * @return total time in nanoseconds spent re-creating disposed reasoners
+	 */
+	public long getRecreationNanos() {
+		return recreationNanos.get();
+	}
+
+	public synchronized void dispose() {
+		scheduler.shutdownNow();
+		if (memoryListener != null) {
+			NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+			try {
+				emitter.removeNotificationListener(memoryListener);
+			} catch (ListenerNotFoundException e) {
+				// ignore
+			}
+			memoryListener = null;
+		}
+		live.clear();
+		evicted.clear();
+	}
+}
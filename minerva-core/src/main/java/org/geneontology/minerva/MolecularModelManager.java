@@ -10,6 +10,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.util.IdentifierIndex;
 import org.geneontology.minerva.util.ManchesterSyntaxTool;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotation;
@@ -93,7 +94,8 @@ public class MolecularModelManager<METADATA> extends FileBasedMolecularModelMana
 	 */
 	public Set<OWLNamedIndividual> getIndividualsByQuery(IRI modelId, String qs) throws UnknownIdentifierException {
 		ModelContainer mod = checkModelId(modelId);
-		ManchesterSyntaxTool mst = new ManchesterSyntaxTool(new OWLGraphWrapper(mod.getAboxOntology()), false);
+		ManchesterSyntaxTool mst = new ManchesterSyntaxTool(new OWLGraphWrapper(mod.getAboxOntology()),
+				IdentifierIndex.get(getGraph()), false);
 		OWLClassExpression q = mst.parseManchesterExpression(qs);
 		return getIndividualsByQuery(mod, q);
 	}
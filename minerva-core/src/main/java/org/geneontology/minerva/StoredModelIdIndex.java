@@ -0,0 +1,216 @@
+package org.geneontology.minerva;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.geneontology.minerva.ModelFolderLayout.ModelFileHandler;
+import org.semanticweb.owlapi.model.IRI;
+
+/**
+ * In-memory set of the model ids stored in a model folder. The set is seeded
+ * with one scan of the folder and then kept current with a
+ * {@link WatchService} on the model folder and its shard sub folders. This
+ * also picks up external changes, i.e. a git pull of model files. Only if
+ * the watch service reports lost events, the folder is scanned again.
+ */
+public class StoredModelIdIndex {
+
+	private static Logger LOG = Logger.getLogger(StoredModelIdIndex.class);
+
+	private final File folder;
+	private final Path root;
+	private final String modelIdPrefix;
+	private final Set<IRI> modelIds = Collections.newSetFromMap(new ConcurrentHashMap<IRI, Boolean>());
+	private final Map<WatchKey, Path> watchedFolders = new ConcurrentHashMap<WatchKey, Path>();
+	private final WatchService watchService;
+	private final Thread watchThread;
+
+	/**
+	 * Create the index and scan the folder. The watch service is registered
+	 * before the scan, no change is lost between the scan and the start of
+	 * the watching.
+	 *
+	 * @param folder model folder
+	 * @param modelIdPrefix
+	 * @throws IOException
+	 */
+	public StoredModelIdIndex(File folder, String modelIdPrefix) throws IOException {
+		this.folder = folder.getCanonicalFile();
+		this.root = this.folder.toPath();
+		this.modelIdPrefix = modelIdPrefix;
+		this.watchService = root.getFileSystem().newWatchService();
+		try {
+			register(root);
+			rescan();
+		} catch (IOException e) {
+			watchService.close();
+			throw e;
+		}
+		watchThread = new Thread("minerva-model-folder-watch") {
+
+			@Override
+			public void run() {
+				watch();
+			}
+		};
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	private void register(Path dir) throws IOException {
+		WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE);
+		watchedFolders.put(key, dir);
+	}
+
+	private IRI getModelId(Path modelFile) {
+		return IRI.create(modelIdPrefix + modelFile.getFileName().toString());
+	}
+
+	/**
+	 * Scan the complete model folder and replace the content of the index.
+	 *
+	 * @throws IOException
+	 */
+	void rescan() throws IOException {
+		final Set<IRI> scanned = new HashSet<IRI>();
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+			for (Path entry : entries) {
+				if (ModelFolderLayout.isShardName(entry.getFileName().toString()) && Files.isDirectory(entry)) {
+					register(entry);
+				}
+			}
+		}
+		ModelFolderLayout.visitModelFiles(folder, new ModelFileHandler() {
+
+			@Override
+			public void handle(Path modelFile) {
+				scanned.add(getModelId(modelFile));
+			}
+		});
+		modelIds.addAll(scanned);
+		modelIds.retainAll(scanned);
+		LOG.info("Found "+scanned.size()+" stored models in folder: "+folder);
+	}
+
+	private void watch() {
+		while (true) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (InterruptedException e) {
+				return;
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+			Path dir = watchedFolders.get(key);
+			try {
+				for (WatchEvent<?> event : key.pollEvents()) {
+					handleEvent(event.kind(), dir, (Path) event.context());
+				}
+			} catch (IOException e) {
+				LOG.error("Could not update stored model ids for folder: "+folder, e);
+			}
+			if (key.reset() == false) {
+				watchedFolders.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Update the index for one event of the watch service.
+	 *
+	 * @param kind
+	 * @param dir watched folder or null, if the folder is unknown
+	 * @param context relative path of the event or null
+	 * @throws IOException
+	 */
+	void handleEvent(WatchEvent.Kind<?> kind, Path dir, Path context) throws IOException {
+		if (kind == OVERFLOW) {
+			LOG.warn("Lost file system events, scanning model folder: "+folder);
+			rescan();
+			return;
+		}
+		if (dir == null || context == null) {
+			return;
+		}
+		handle(kind, dir, dir.resolve(context));
+	}
+
+	private void handle(WatchEvent.Kind<?> kind, Path dir, Path child) throws IOException {
+		String name = child.getFileName().toString();
+		if (ModelFolderLayout.isModelFileName(name)) {
+			if (kind == ENTRY_CREATE) {
+				modelIds.add(getModelId(child));
+			}
+			else if (kind == ENTRY_DELETE) {
+				// a migration moves files between the layouts
+				if (ModelFolderLayout.findModelFile(folder, name, false).exists() == false) {
+					modelIds.remove(getModelId(child));
+				}
+			}
+		}
+		else if (kind == ENTRY_CREATE && dir.equals(root) && ModelFolderLayout.isShardName(name) && Files.isDirectory(child)) {
+			register(child);
+			// files created before the registration
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(child)) {
+				for (Path entry : entries) {
+					if (ModelFolderLayout.isModelFileName(entry.getFileName().toString())) {
+						modelIds.add(getModelId(entry));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return live unmodifiable view of the stored model ids
+	 */
+	public Set<IRI> getModelIds() {
+		return Collections.unmodifiableSet(modelIds);
+	}
+
+	/**
+	 * Explicit update after saving a model file, this does not wait for the
+	 * watch service.
+	 *
+	 * @param modelId
+	 */
+	public void add(IRI modelId) {
+		modelIds.add(modelId);
+	}
+
+	/**
+	 * Explicit update after deleting a model file.
+	 *
+	 * @param modelId
+	 */
+	public void remove(IRI modelId) {
+		modelIds.remove(modelId);
+	}
+
+	public void dispose() {
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			LOG.warn("Could not close watch service for folder: "+folder, e);
+		}
+		watchThread.interrupt();
+	}
+}
@@ -404,7 +404,7 @@ public class LegoModelGenerator extends MinimalModelGenerator {
 						// alternateProcessCls is more specific
 						isCandidate = true;
 						for (OWLObjectSomeValuesFrom r : getExistentialRelationships(alternateProcessCls)) {
-							if (model.getReasoner().getSuperClasses(r.getFiller(), false).getFlattened().contains(processCls)) {
+							if (isStrictSubClassOf(r.getFiller(), processCls)) {
 								// should not cause a deepening
 								isCandidate = false;
 							}
@@ -412,7 +412,7 @@ public class LegoModelGenerator extends MinimalModelGenerator {
 					}
 				}
 				if (isCandidate) {
-					if (model.getReasoner().getSuperClasses(alternateProcessCls, false).getFlattened().contains(processCls)) {
+					if (isStrictSubClassOf(alternateProcessCls, processCls)) {
 						// skip
 						// todo - keep the information somehow that g is annotated to specific
 						// subtypes of c
@@ -502,8 +502,7 @@ public class LegoModelGenerator extends MinimalModelGenerator {
 					" is under/equiv to "+getIdLabelPair(bestParentClass) +
 					" for gene: "+g);
 			if (bestActivityClass != null) {
-				if (model.getReasoner().getSubClasses(bestActivityClass, false).getFlattened().contains(bestParentClass) ||
-						model.getReasoner().getEquivalentClasses(bestActivityClass).getEntities().contains(bestParentClass)) {
+				if (isSubClassOf(bestParentClass, bestActivityClass)) {
 					LOG.debug("Merging "+bestParent+" --> "+ai);
 					mergeInto(bestParent, ai);
 				}
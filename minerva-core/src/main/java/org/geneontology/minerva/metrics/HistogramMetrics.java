@@ -0,0 +1,169 @@
+package org.geneontology.minerva.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory metrics with fixed bucket latency histograms. The metrics are
+ * exported in the Prometheus text exposition format.
+ */
+public class HistogramMetrics implements MinervaMetrics {
+
+	/**
+	 * Upper bounds of the histogram buckets in seconds.
+	 */
+	static final double[] BUCKETS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+	private final ConcurrentMap<String, ConcurrentMap<String, HistogramTimer>> timers = new ConcurrentHashMap<String, ConcurrentMap<String,HistogramTimer>>();
+	private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> counters = new ConcurrentHashMap<String, ConcurrentMap<String,AtomicLong>>();
+	private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+	@Override
+	public Timer timer(String name, String...labels) {
+		ConcurrentMap<String, HistogramTimer> family = getFamily(timers, name);
+		String key = renderLabels(labels);
+		HistogramTimer timer = family.get(key);
+		if (timer == null) {
+			HistogramTimer newTimer = new HistogramTimer();
+			timer = family.putIfAbsent(key, newTimer);
+			if (timer == null) {
+				timer = newTimer;
+			}
+		}
+		return timer;
+	}
+
+	@Override
+	public void increment(String name, String...labels) {
+		ConcurrentMap<String, AtomicLong> family = getFamily(counters, name);
+		String key = renderLabels(labels);
+		AtomicLong counter = family.get(key);
+		if (counter == null) {
+			AtomicLong newCounter = new AtomicLong();
+			counter = family.putIfAbsent(key, newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+	@Override
+	public void gauge(String name, Gauge gauge) {
+		gauges.put(name, gauge);
+	}
+
+	private static <T> ConcurrentMap<String, T> getFamily(ConcurrentMap<String, ConcurrentMap<String, T>> all, String name) {
+		ConcurrentMap<String, T> family = all.get(name);
+		if (family == null) {
+			ConcurrentMap<String, T> newFamily = new ConcurrentHashMap<String, T>();
+			family = all.putIfAbsent(name, newFamily);
+			if (family == null) {
+				family = newFamily;
+			}
+		}
+		return family;
+	}
+
+	static String renderLabels(String...labels) {
+		if (labels == null || labels.length == 0) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i + 1 < labels.length; i += 2) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(labels[i]).append("=\"");
+			String value = labels[i+1];
+			if (value != null) {
+				sb.append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+			}
+			sb.append('"');
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public void writeText(Writer writer) throws IOException {
+		for (Entry<String, ConcurrentMap<String, AtomicLong>> family : new TreeMap<String, ConcurrentMap<String, AtomicLong>>(counters).entrySet()) {
+			String name = family.getKey();
+			writer.append("# TYPE ").append(name).append(" counter\n");
+			for (Entry<String, AtomicLong> entry : sorted(family.getValue()).entrySet()) {
+				writeLine(writer, name, entry.getKey(), null, Long.toString(entry.getValue().get()));
+			}
+		}
+		for (Entry<String, Gauge> entry : new TreeMap<String, Gauge>(gauges).entrySet()) {
+			String name = entry.getKey();
+			writer.append("# TYPE ").append(name).append(" gauge\n");
+			writeLine(writer, name, "", null, Double.toString(entry.getValue().getValue()));
+		}
+		for (Entry<String, ConcurrentMap<String, HistogramTimer>> family : new TreeMap<String, ConcurrentMap<String, HistogramTimer>>(timers).entrySet()) {
+			String name = family.getKey();
+			writer.append("# TYPE ").append(name).append(" histogram\n");
+			for (Entry<String, HistogramTimer> entry : sorted(family.getValue()).entrySet()) {
+				entry.getValue().write(writer, name, entry.getKey());
+			}
+		}
+		writer.flush();
+	}
+
+	private static <T> SortedMap<String, T> sorted(Map<String, T> map) {
+		return new TreeMap<String, T>(map);
+	}
+
+	private static void writeLine(Writer writer, String name, String labels, String extraLabel, String value) throws IOException {
+		writer.append(name);
+		if (labels.isEmpty() == false || extraLabel != null) {
+			writer.append('{').append(labels);
+			if (extraLabel != null) {
+				if (labels.isEmpty() == false) {
+					writer.append(',');
+				}
+				writer.append(extraLabel);
+			}
+			writer.append('}');
+		}
+		writer.append(' ').append(value).append('\n');
+	}
+
+	static class HistogramTimer implements Timer {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.length);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sumNanos = new AtomicLong();
+
+		@Override
+		public void record(long nanos) {
+			double seconds = nanos / 1e9d;
+			for (int i = 0; i < BUCKETS.length; i++) {
+				if (seconds <= BUCKETS[i]) {
+					buckets.incrementAndGet(i);
+					break;
+				}
+			}
+			count.incrementAndGet();
+			sumNanos.addAndGet(nanos);
+		}
+
+		void write(Writer writer, String name, String labels) throws IOException {
+			long cumulative = 0;
+			for (int i = 0; i < BUCKETS.length; i++) {
+				cumulative += buckets.get(i);
+				writeLine(writer, name+"_bucket", labels, "le=\""+BUCKETS[i]+"\"", Long.toString(cumulative));
+			}
+			long total = count.get();
+			writeLine(writer, name+"_bucket", labels, "le=\"+Inf\"", Long.toString(total));
+			writeLine(writer, name+"_sum", labels, null, Double.toString(sumNanos.get() / 1e9d));
+			writeLine(writer, name+"_count", labels, null, Long.toString(total));
+		}
+	}
+}
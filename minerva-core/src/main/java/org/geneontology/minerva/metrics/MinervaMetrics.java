@@ -0,0 +1,62 @@
+package org.geneontology.minerva.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Minimal metrics facade for timers, counters and gauges. Labels are given
+ * as alternating key and value strings.<br>
+ * <br>
+ * Use {@link NoOpMetrics#INSTANCE} to disable the metrics.
+ *
+ * @see HistogramMetrics
+ */
+public interface MinervaMetrics {
+
+	/**
+	 * Timer with a latency histogram.
+	 */
+	public static interface Timer {
+
+		/**
+		 * @param nanos duration in nanoseconds
+		 */
+		public void record(long nanos);
+	}
+
+	/**
+	 * Value, which is retrieved when the metrics are exported.
+	 */
+	public static interface Gauge {
+
+		public double getValue();
+	}
+
+	/**
+	 * @param name
+	 * @param labels alternating key and value
+	 * @return timer, never null
+	 */
+	public Timer timer(String name, String...labels);
+
+	/**
+	 * @param name
+	 * @param labels alternating key and value
+	 */
+	public void increment(String name, String...labels);
+
+	/**
+	 * @param name
+	 * @param gauge
+	 */
+	public void gauge(String name, Gauge gauge);
+
+	/**
+	 * Write all metrics in a text format, which can be scraped by monitoring
+	 * tools (Prometheus text exposition format).
+	 *
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void writeText(Writer writer) throws IOException;
+}
@@ -0,0 +1,44 @@
+package org.geneontology.minerva.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Default metrics implementation, which does nothing.
+ */
+public class NoOpMetrics implements MinervaMetrics {
+
+	public static final NoOpMetrics INSTANCE = new NoOpMetrics();
+
+	private static final Timer NO_OP_TIMER = new Timer() {
+
+		@Override
+		public void record(long nanos) {
+			// do nothing
+		}
+	};
+
+	private NoOpMetrics() {
+		// no public constructor, use instance
+	}
+
+	@Override
+	public Timer timer(String name, String...labels) {
+		return NO_OP_TIMER;
+	}
+
+	@Override
+	public void increment(String name, String...labels) {
+		// do nothing
+	}
+
+	@Override
+	public void gauge(String name, Gauge gauge) {
+		// do nothing
+	}
+
+	@Override
+	public void writeText(Writer writer) throws IOException {
+		// do nothing
+	}
+}
@@ -0,0 +1,253 @@
+package org.geneontology.minerva.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.obolibrary.obo2owl.Owl2Obo;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDeclarationAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import owltools.graph.OWLGraphWrapper;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Immutable index to resolve identifiers of the declared classes, object
+ * properties and individuals of an {@link OWLGraphWrapper}. The index
+ * contains the primary ids (OBO style and IRI), alt ids, labels and the
+ * replacements of obsolete classes. It replaces the repeated scans of all
+ * ontologies of the graph for each lookup.<br>
+ * <br>
+ * There is one shared index for each graph, built lazily with the first
+ * {@link #get(OWLGraphWrapper)} call. The index is a snapshot and
+ * thread-safe, later changes of the ontologies are not visible.
+ */
+public class IdentifierIndex {
+
+	// released together with the graph, the index must not reference the graph
+	private static final Cache<OWLGraphWrapper, IdentifierIndex> INDEXES = CacheBuilder.newBuilder().weakKeys().build();
+
+	private final Set<OWLOntology> ontologies;
+	private final Map<IRI, OWLEntity> byIRI;
+	private final Map<String, OWLObject> byId;
+	private final Map<String, OWLObject> byAltId;
+	private final Map<String, OWLObject> byLabel;
+	private final Map<OWLClass, OWLClass> replacements;
+
+	private IdentifierIndex(OWLGraphWrapper graph) {
+		Set<OWLOntology> allOntologies = Collections.newSetFromMap(new IdentityHashMap<OWLOntology, Boolean>());
+		allOntologies.addAll(graph.getAllOntologies());
+		Map<IRI, OWLEntity> byIRI = new HashMap<IRI, OWLEntity>();
+		Map<String, OWLObject> byId = new HashMap<String, OWLObject>();
+		Map<String, OWLObject> byLabel = new HashMap<String, OWLObject>();
+		for (OWLOntology ont : allOntologies) {
+			for (OWLDeclarationAxiom axiom : ont.getAxioms(AxiomType.DECLARATION)) {
+				OWLEntity entity = axiom.getEntity();
+				if (entity.isOWLClass() || entity.isOWLObjectProperty() || entity.isOWLNamedIndividual()) {
+					// same precedence as the graph: class, individual, property
+					OWLEntity previous = byIRI.get(entity.getIRI());
+					if (previous == null || previous.isOWLObjectProperty()
+							|| (previous.isOWLNamedIndividual() && entity.isOWLClass())) {
+						byIRI.put(entity.getIRI(), entity);
+					}
+				}
+			}
+		}
+		Map<OWLClass, OWLClass> replacements = new HashMap<OWLClass, OWLClass>();
+		Map<OWLClass, List<String>> obsoletes = new HashMap<OWLClass, List<String>>();
+		for (OWLEntity entity : byIRI.values()) {
+			IRI iri = entity.getIRI();
+			byId.put(iri.toString(), entity);
+			String oboId = Owl2Obo.getIdentifier(iri);
+			if (oboId != null) {
+				byId.put(oboId, entity);
+			}
+			String graphId = graph.getIdentifier(entity);
+			if (graphId != null && byId.containsKey(graphId) == false) {
+				byId.put(graphId, entity);
+			}
+			String label = graph.getLabel(entity);
+			if (label != null && byLabel.containsKey(label) == false) {
+				byLabel.put(label, entity);
+			}
+			if (entity.isOWLClass() && graph.isObsolete(entity)) {
+				List<String> replacedBy = graph.getReplacedBy(entity);
+				if (replacedBy != null && replacedBy.isEmpty() == false) {
+					obsoletes.put(entity.asOWLClass(), replacedBy);
+				}
+			}
+		}
+		for (Map.Entry<OWLClass, List<String>> entry : obsoletes.entrySet()) {
+			for (String replacementId : entry.getValue()) {
+				OWLObject replacement = byId.get(replacementId);
+				if (replacement instanceof OWLClass) {
+					replacements.put(entry.getKey(), (OWLClass) replacement);
+					break;
+				}
+			}
+		}
+		this.ontologies = Collections.unmodifiableSet(allOntologies);
+		this.byIRI = Collections.unmodifiableMap(byIRI);
+		this.byId = Collections.unmodifiableMap(byId);
+		this.byAltId = Collections.unmodifiableMap(new HashMap<String, OWLObject>(graph.getAllOWLObjectsByAltId()));
+		this.byLabel = Collections.unmodifiableMap(byLabel);
+		this.replacements = Collections.unmodifiableMap(replacements);
+	}
+
+	/**
+	 * Get the shared index for the graph, build it if necessary.
+	 *
+	 * @param graph
+	 * @return index
+	 */
+	public static IdentifierIndex get(final OWLGraphWrapper graph) {
+		try {
+			return INDEXES.get(graph, new Callable<IdentifierIndex>() {
+
+				@Override
+				public IdentifierIndex call() throws Exception {
+					return new IdentifierIndex(graph);
+				}
+			});
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Could not create identifier index", e.getCause());
+		} catch (UncheckedExecutionException e) {
+			throw new RuntimeException("Could not create identifier index", e.getCause());
+		}
+	}
+
+	/**
+	 * @param ont
+	 * @return true, if the declarations of the ontology are in the index
+	 */
+	public boolean isIndexed(OWLOntology ont) {
+		return ontologies.contains(ont);
+	}
+
+	/**
+	 * @param iri
+	 * @return declared class or null
+	 */
+	public OWLClass getOWLClass(IRI iri) {
+		OWLEntity entity = byIRI.get(iri);
+		if (entity != null && entity.isOWLClass()) {
+			return entity.asOWLClass();
+		}
+		return null;
+	}
+
+	/**
+	 * @param iri
+	 * @return declared object property or null
+	 */
+	public OWLObjectProperty getOWLObjectProperty(IRI iri) {
+		OWLEntity entity = byIRI.get(iri);
+		if (entity != null && entity.isOWLObjectProperty()) {
+			return entity.asOWLObjectProperty();
+		}
+		return null;
+	}
+
+	/**
+	 * @param id OBO style id or IRI
+	 * @return declared entity or null
+	 */
+	public OWLObject getOWLObjectByIdentifier(String id) {
+		return byId.get(id);
+	}
+
+	/**
+	 * @param id
+	 * @return object with the alt id or null
+	 */
+	public OWLObject getOWLObjectByAltId(String id) {
+		return byAltId.get(id);
+	}
+
+	/**
+	 * @param label
+	 * @return object with the label or null
+	 */
+	public OWLObject getOWLObjectByLabel(String label) {
+		return byLabel.get(label);
+	}
+
+	/**
+	 * Resolve the id of a class, check the primary ids first and then the
+	 * alt ids.
+	 *
+	 * @param id
+	 * @return class or null
+	 */
+	public OWLClass getOWLClassByIdentifier(String id) {
+		OWLObject owlObject = byId.get(id);
+		if (owlObject == null) {
+			owlObject = byAltId.get(id);
+		}
+		if (owlObject instanceof OWLClass) {
+			return (OWLClass) owlObject;
+		}
+		return null;
+	}
+
+	/**
+	 * @param id
+	 * @return declared object property or null
+	 */
+	public OWLObjectProperty getOWLObjectPropertyByIdentifier(String id) {
+		OWLObject owlObject = byId.get(id);
+		if (owlObject instanceof OWLObjectProperty) {
+			return (OWLObjectProperty) owlObject;
+		}
+		return null;
+	}
+
+	/**
+	 * Resolve the id of a class like {@link #getOWLClassByIdentifier(String)}
+	 * and replace an obsolete class with its replaced_by class.
+	 *
+	 * @param id
+	 * @return current class, the obsolete class if there is no replacement, or null
+	 */
+	public OWLClass getCurrentOWLClassByIdentifier(String id) {
+		OWLClass cls = getOWLClassByIdentifier(id);
+		// follow chains of replacements, but never loop
+		for (int i = 0; cls != null && i < replacements.size(); i++) {
+			OWLClass replacement = replacements.get(cls);
+			if (replacement == null) {
+				break;
+			}
+			cls = replacement;
+		}
+		return cls;
+	}
+
+	/**
+	 * @param obsolete class
+	 * @return replacement class or null
+	 */
+	public OWLClass getReplacement(OWLClass obsolete) {
+		return replacements.get(obsolete);
+	}
+
+	/**
+	 * @return number of declared entities
+	 */
+	public int size() {
+		return byIRI.size();
+	}
+}
@@ -39,10 +39,22 @@ public class ManchesterSyntaxTool {
 	 * @param createClasses if set to true, classes are generated even if they are not declared.
 	 */
 	public ManchesterSyntaxTool(OWLGraphWrapper graph, boolean createClasses) {
+		this(graph, null, createClasses);
+	}
+
+	/**
+	 * Create new instance, which resolves the names with the index first.
+	 * Use it with a short lived graph for a model and the index of the tbox.
+	 * 
+	 * @param graph
+	 * @param index shared index or null
+	 * @param createClasses if set to true, classes are generated even if they are not declared.
+	 */
+	public ManchesterSyntaxTool(OWLGraphWrapper graph, IdentifierIndex index, boolean createClasses) {
 		super();
 		this.dataFactory = graph.getDataFactory();
 		createdClassesMap = new HashMap<String, OWLClass>();
-		entityChecker = new AdvancedEntityChecker(graph, createClasses, createdClassesMap);
+		entityChecker = new AdvancedEntityChecker(graph, index, createClasses, createdClassesMap);
 	}
 
 	/**
@@ -78,13 +90,15 @@ public class ManchesterSyntaxTool {
 	static class AdvancedEntityChecker implements OWLEntityChecker {
 
 		private final OWLGraphWrapper graph;
+		private final IdentifierIndex index;
 		private final boolean createClasses;
 		private final Map<String, OWLClass> createdClassesMap;
 
-		AdvancedEntityChecker(OWLGraphWrapper graph, boolean createClasses, 
+		AdvancedEntityChecker(OWLGraphWrapper graph, IdentifierIndex index, boolean createClasses, 
 				Map<String, OWLClass> createdClassesMap) {
 			super();
 			this.graph = graph;
+			this.index = index;
 			this.createClasses = createClasses;
 			this.createdClassesMap = createdClassesMap;
 		}
@@ -96,12 +110,12 @@ public class ManchesterSyntaxTool {
 			OWLObject owlObject;
 			if (name.charAt(0) == '\'') {
 				name = trimQuotes(name);
-				owlObject = graph.getOWLObjectByLabel(name);
+				owlObject = getOWLObjectByLabel(name);
 			}
 			else {
-				owlObject = graph.getOWLObjectByIdentifier(name);
+				owlObject = getOWLObjectByIdentifier(name);
 				if (owlObject == null) {
-					owlObject = graph.getOWLObjectByLabel(name);
+					owlObject = getOWLObjectByLabel(name);
 				}
 			}
 			if (owlObject != null) {
@@ -150,6 +164,18 @@ public class ManchesterSyntaxTool {
 			}
 			name = trimQuotes(name);
 			OWLObjectProperty p = null;
+			if (index != null) {
+				p = index.getOWLObjectPropertyByIdentifier(name);
+				if (p == null) {
+					OWLObject owlObject = index.getOWLObjectByLabel(name);
+					if (owlObject instanceof OWLObjectProperty) {
+						p = (OWLObjectProperty) owlObject;
+					}
+				}
+				if (p != null) {
+					return p;
+				}
+			}
 			if (StringUtils.contains(name, ' ') == false) {
 				p = graph.getOWLObjectPropertyByIdentifier(name);
 				if (p == null) {
@@ -166,6 +192,28 @@ public class ManchesterSyntaxTool {
 			return p;
 		}
 		
+		private OWLObject getOWLObjectByIdentifier(String name) {
+			OWLObject owlObject = null;
+			if (index != null) {
+				owlObject = index.getOWLObjectByIdentifier(name);
+			}
+			if (owlObject == null) {
+				owlObject = graph.getOWLObjectByIdentifier(name);
+			}
+			return owlObject;
+		}
+
+		private OWLObject getOWLObjectByLabel(String label) {
+			OWLObject owlObject = null;
+			if (index != null) {
+				owlObject = index.getOWLObjectByLabel(label);
+			}
+			if (owlObject == null) {
+				owlObject = graph.getOWLObjectByLabel(label);
+			}
+			return owlObject;
+		}
+		
 		private String trimQuotes(String s) {
 			if (s.startsWith("'") && s.endsWith("'")) {
 				s = s.substring(1, s.length() - 1);
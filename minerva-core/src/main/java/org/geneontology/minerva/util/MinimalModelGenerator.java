@@ -63,6 +63,7 @@ public class MinimalModelGenerator {
 	Set<OWLClass> inclusionSet = null;
 	Set<OWLClass> exclusionSet = null;
 	Set<OWLClass> directExclusionSet = null;
+	TaxonomySnapshot taxonomy = null;
 	public boolean isStrict;
 
 	protected Map<OWLClass, OWLNamedIndividual> prototypeIndividualMap =
@@ -191,6 +192,53 @@ public class MinimalModelGenerator {
 		this.isPrecomputePropertyClassCombinations = isPrecomputePropertyClassCombinations;
 	}
 
+	public TaxonomySnapshot getTaxonomy() {
+		return taxonomy;
+	}
+
+	/**
+	 * If set, sub class tests between named tbox classes use the snapshot
+	 * instead of the reasoner. Other tests, i.e. for query classes or class
+	 * expressions, still use the reasoner.
+	 * 
+	 * @param taxonomy snapshot of the tbox or null
+	 */
+	public void setTaxonomy(TaxonomySnapshot taxonomy) {
+		this.taxonomy = taxonomy;
+	}
+
+	/**
+	 * @param sub
+	 * @param sup
+	 * @return true, if sup is a strict super class of sub
+	 */
+	protected boolean isStrictSubClassOf(OWLClassExpression sub, OWLClassExpression sup) {
+		if (sub == null || sup == null || sup.isAnonymous()) {
+			return false;
+		}
+		if (taxonomy != null && sub.isAnonymous() == false
+				&& taxonomy.contains(sub.asOWLClass()) && taxonomy.contains(sup.asOWLClass())) {
+			return taxonomy.isStrictSubClassOf(sub.asOWLClass(), sup.asOWLClass());
+		}
+		return model.getReasoner().getSuperClasses(sub, false).getFlattened().contains(sup);
+	}
+
+	/**
+	 * @param sub
+	 * @param sup
+	 * @return true, if sup is a super class of or equivalent to sub
+	 */
+	protected boolean isSubClassOf(OWLClass sub, OWLClass sup) {
+		if (sub == null || sup == null) {
+			return false;
+		}
+		if (taxonomy != null && taxonomy.contains(sub) && taxonomy.contains(sup)) {
+			return taxonomy.isSubClassOf(sub, sup);
+		}
+		return model.getReasoner().getSubClasses(sup, false).getFlattened().contains(sub) ||
+				model.getReasoner().getEquivalentClasses(sup).getEntities().contains(sub);
+	}
+
 	/**
 	 * @return all individuals that have been generated by this MMG so far
 	 */
@@ -296,7 +344,7 @@ public class MinimalModelGenerator {
 			}
 			if (exclusionSet != null) {
 				for (OWLClass testC : exclusionSet) {
-					if (model.getReasoner().getSuperClasses(jType, false).getFlattened().contains(testC)) {
+					if (isStrictSubClassOf(jType, testC)) {
 						isExcluded = true;
 						break;
 					}
@@ -308,7 +356,7 @@ public class MinimalModelGenerator {
 			if (inclusionSet != null) {
 				isExcluded = true;
 				for (OWLClass testC : inclusionSet) {
-					if (model.getReasoner().getSuperClasses(jType, false).getFlattened().contains(testC)) {
+					if (isStrictSubClassOf(jType, testC)) {
 						isExcluded = false;
 						break;
 					}
@@ -461,7 +509,7 @@ public class MinimalModelGenerator {
 			if (model.isQueryClass(dc))
 				continue;
 			//LOG.debug(fo(" Deepen_candidate="+dc);
-			if (model.getReasoner().getSuperClasses(dc, false).getFlattened().contains(jType)) {
+			if (isStrictSubClassOf(dc, jType)) {
 				LOG.debug("   DEEPENED_TO="+dc);
 				// must be more specific that original choice
 				jType = dc; // TODO - check for >1
@@ -0,0 +1,219 @@
+package org.geneontology.minerva.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationSubject;
+import org.semanticweb.owlapi.model.OWLAnnotationValue;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.RemoveAxiom;
+import org.semanticweb.owlapi.model.RemoveOntologyAnnotation;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Deduplicate IRIs, literals and annotations across models. The annotations
+ * of the model axioms repeat the same values many times, i.e. evidence,
+ * date and contributor. The interner replaces equal objects with one shared
+ * instance.<br>
+ * <br>
+ * Entities are already shared by the {@link OWLDataFactory}, but the
+ * literals and the IRIs used as annotation subject or value are not.
+ * The interned objects are weakly referenced, they are released together
+ * with the last model using them.
+ */
+public class OWLObjectInterner {
+
+	private final OWLDataFactory f;
+	private final Interner<IRI> iris = Interners.newWeakInterner();
+	private final Interner<OWLLiteral> literals = Interners.newWeakInterner();
+	private final Interner<OWLAnnotation> annotations = Interners.newWeakInterner();
+
+	/**
+	 * @param f
+	 */
+	public OWLObjectInterner(OWLDataFactory f) {
+		this.f = f;
+	}
+
+	public IRI intern(IRI iri) {
+		return iris.intern(iri);
+	}
+
+	public OWLLiteral intern(OWLLiteral literal) {
+		return literals.intern(literal);
+	}
+
+	public OWLAnnotationValue intern(OWLAnnotationValue value) {
+		if (value instanceof IRI) {
+			return intern((IRI) value);
+		}
+		if (value instanceof OWLLiteral) {
+			return intern((OWLLiteral) value);
+		}
+		return value;
+	}
+
+	public OWLAnnotationSubject intern(OWLAnnotationSubject subject) {
+		if (subject instanceof IRI) {
+			return intern((IRI) subject);
+		}
+		return subject;
+	}
+
+	/**
+	 * @param annotation
+	 * @return shared equal annotation, the given annotation if it is already
+	 * the shared instance
+	 */
+	public OWLAnnotation intern(OWLAnnotation annotation) {
+		OWLAnnotationValue value = annotation.getValue();
+		OWLAnnotationValue internedValue = intern(value);
+		Set<OWLAnnotation> nested = annotation.getAnnotations();
+		Set<OWLAnnotation> internedNested = internIfChanged(nested);
+		OWLAnnotation canonical = annotation;
+		if (internedNested != null) {
+			canonical = f.getOWLAnnotation(annotation.getProperty(), internedValue, internedNested);
+		}
+		else if (internedValue != value) {
+			canonical = f.getOWLAnnotation(annotation.getProperty(), internedValue, nested);
+		}
+		return annotations.intern(canonical);
+	}
+
+	/**
+	 * @param annotations
+	 * @return set of interned annotations, the given set if all annotations
+	 * are already the shared instances
+	 */
+	public Set<OWLAnnotation> intern(Set<OWLAnnotation> annotations) {
+		Set<OWLAnnotation> interned = internIfChanged(annotations);
+		if (interned == null) {
+			return annotations;
+		}
+		return interned;
+	}
+
+	/**
+	 * @return interned annotations or null, if all annotations are already the shared instances
+	 */
+	private Set<OWLAnnotation> internIfChanged(Set<OWLAnnotation> annotations) {
+		if (annotations.isEmpty()) {
+			return null;
+		}
+		Set<OWLAnnotation> result = new HashSet<OWLAnnotation>(annotations.size());
+		boolean changed = false;
+		for (OWLAnnotation annotation : annotations) {
+			OWLAnnotation interned = intern(annotation);
+			changed = changed || interned != annotation;
+			result.add(interned);
+		}
+		return changed ? result : null;
+	}
+
+	/**
+	 * Create an equal axiom with interned annotations and literals. Axioms
+	 * which only use shared instances are returned unchanged.
+	 *
+	 * @param axiom
+	 * @return equal axiom, the given axiom if nothing was replaced
+	 */
+	public OWLAxiom intern(OWLAxiom axiom) {
+		if (axiom instanceof OWLAnnotationAssertionAxiom) {
+			OWLAnnotationAssertionAxiom ax = (OWLAnnotationAssertionAxiom) axiom;
+			OWLAnnotationSubject subject = intern(ax.getSubject());
+			OWLAnnotationValue value = intern(ax.getValue());
+			Set<OWLAnnotation> axiomAnnotations = internIfChanged(ax.getAnnotations());
+			if (subject == ax.getSubject() && value == ax.getValue() && axiomAnnotations == null) {
+				return axiom;
+			}
+			return f.getOWLAnnotationAssertionAxiom(ax.getProperty(), subject, value,
+					axiomAnnotations != null ? axiomAnnotations : ax.getAnnotations());
+		}
+		if (axiom instanceof OWLDataPropertyAssertionAxiom) {
+			OWLDataPropertyAssertionAxiom ax = (OWLDataPropertyAssertionAxiom) axiom;
+			OWLLiteral object = intern(ax.getObject());
+			Set<OWLAnnotation> axiomAnnotations = internIfChanged(ax.getAnnotations());
+			if (object == ax.getObject() && axiomAnnotations == null) {
+				return axiom;
+			}
+			return f.getOWLDataPropertyAssertionAxiom(ax.getProperty(), ax.getSubject(), object,
+					axiomAnnotations != null ? axiomAnnotations : ax.getAnnotations());
+		}
+		if (axiom.isAnnotated()) {
+			Set<OWLAnnotation> axiomAnnotations = internIfChanged(axiom.getAnnotations());
+			if (axiomAnnotations != null) {
+				return axiom.getAxiomWithoutAnnotations().getAnnotatedAxiom(axiomAnnotations);
+			}
+		}
+		return axiom;
+	}
+
+	/**
+	 * Replace the added axioms and annotations with interned ones.
+	 *
+	 * @param changes
+	 * @return changes
+	 */
+	public List<OWLOntologyChange> internChanges(List<? extends OWLOntologyChange> changes) {
+		List<OWLOntologyChange> result = new ArrayList<OWLOntologyChange>(changes.size());
+		for (OWLOntologyChange change : changes) {
+			if (change instanceof AddAxiom) {
+				OWLAxiom axiom = change.getAxiom();
+				OWLAxiom interned = intern(axiom);
+				if (interned != axiom) {
+					change = new AddAxiom(change.getOntology(), interned);
+				}
+			}
+			else if (change instanceof AddOntologyAnnotation) {
+				AddOntologyAnnotation add = (AddOntologyAnnotation) change;
+				OWLAnnotation interned = intern(add.getAnnotation());
+				if (interned != add.getAnnotation()) {
+					change = new AddOntologyAnnotation(add.getOntology(), interned);
+				}
+			}
+			result.add(change);
+		}
+		return result;
+	}
+
+	/**
+	 * Replace the axioms and annotations of a newly loaded ontology with
+	 * interned ones.
+	 *
+	 * @param ontology
+	 */
+	public void internOntology(OWLOntology ontology) {
+		List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+		for (OWLAxiom axiom : ontology.getAxioms()) {
+			OWLAxiom interned = intern(axiom);
+			if (interned != axiom) {
+				changes.add(new RemoveAxiom(ontology, axiom));
+				changes.add(new AddAxiom(ontology, interned));
+			}
+		}
+		for (OWLAnnotation annotation : ontology.getAnnotations()) {
+			OWLAnnotation interned = intern(annotation);
+			if (interned != annotation) {
+				changes.add(new RemoveOntologyAnnotation(ontology, annotation));
+				changes.add(new AddOntologyAnnotation(ontology, interned));
+			}
+		}
+		if (changes.isEmpty() == false) {
+			ontology.getOWLOntologyManager().applyChanges(changes);
+		}
+	}
+}
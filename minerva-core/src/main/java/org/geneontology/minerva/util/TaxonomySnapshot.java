@@ -0,0 +1,290 @@
+package org.geneontology.minerva.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.reasoner.Node;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/**
+ * Immutable snapshot of the class hierarchy of a classified ontology. Use
+ * it for repeated ancestor and subsumption queries instead of reasoner
+ * round trips. The snapshot does not change, if the ontology is modified.<br>
+ * <br>
+ * Each node of the hierarchy (a set of equivalent classes) has a dense id.
+ * The ids are assigned in topological order, i.e. all ancestors of a node
+ * have a smaller id. The ancestors of each node are stored as sorted id
+ * array, a subsumption test is a binary search. The snapshot is
+ * thread-safe.
+ */
+public class TaxonomySnapshot {
+
+	private static final int[] EMPTY = new int[0];
+
+	private final Map<OWLClass, Integer> nodeIds;
+	private final List<Set<OWLClass>> nodes;
+	private final int[][] ancestors;
+	private final int[][] children;
+
+	private TaxonomySnapshot(Map<OWLClass, Integer> nodeIds, List<Set<OWLClass>> nodes, int[][] ancestors, int[][] children) {
+		this.nodeIds = nodeIds;
+		this.nodes = nodes;
+		this.ancestors = ancestors;
+		this.children = children;
+	}
+
+	/**
+	 * Create a snapshot of the current class hierarchy of the reasoner. The
+	 * hierarchy is traversed once from the top node.
+	 *
+	 * @param reasoner
+	 * @return snapshot
+	 */
+	public static TaxonomySnapshot create(OWLReasoner reasoner) {
+		// discover all nodes and the direct sub class edges
+		Map<Node<OWLClass>, List<Node<OWLClass>>> subNodes = new HashMap<Node<OWLClass>, List<Node<OWLClass>>>();
+		Map<Node<OWLClass>, Integer> parentCounts = new HashMap<Node<OWLClass>, Integer>();
+		Node<OWLClass> top = reasoner.getTopClassNode();
+		Queue<Node<OWLClass>> queue = new ArrayDeque<Node<OWLClass>>();
+		queue.add(top);
+		parentCounts.put(top, Integer.valueOf(0));
+		while (queue.isEmpty() == false) {
+			Node<OWLClass> current = queue.poll();
+			if (current.isBottomNode()) {
+				subNodes.put(current, Collections.<Node<OWLClass>>emptyList());
+				continue;
+			}
+			List<Node<OWLClass>> subs = new ArrayList<Node<OWLClass>>();
+			for (Node<OWLClass> sub : reasoner.getSubClasses(current.getRepresentativeElement(), true)) {
+				subs.add(sub);
+				Integer count = parentCounts.get(sub);
+				if (count == null) {
+					parentCounts.put(sub, Integer.valueOf(1));
+					queue.add(sub);
+				}
+				else {
+					parentCounts.put(sub, Integer.valueOf(count.intValue() + 1));
+				}
+			}
+			subNodes.put(current, subs);
+		}
+
+		// assign ids in topological order (Kahn), parents before children
+		Map<Node<OWLClass>, Integer> ids = new HashMap<Node<OWLClass>, Integer>();
+		List<Node<OWLClass>> ordered = new ArrayList<Node<OWLClass>>(subNodes.size());
+		Map<Node<OWLClass>, Integer> remaining = new HashMap<Node<OWLClass>, Integer>(parentCounts);
+		queue.add(top);
+		while (queue.isEmpty() == false) {
+			Node<OWLClass> current = queue.poll();
+			ids.put(current, Integer.valueOf(ordered.size()));
+			ordered.add(current);
+			for (Node<OWLClass> sub : subNodes.get(current)) {
+				int count = remaining.get(sub).intValue() - 1;
+				remaining.put(sub, Integer.valueOf(count));
+				if (count == 0) {
+					queue.add(sub);
+				}
+			}
+		}
+
+		// parents of each node
+		int size = ordered.size();
+		List<List<Integer>> parents = new ArrayList<List<Integer>>(size);
+		for (int i = 0; i < size; i++) {
+			parents.add(new ArrayList<Integer>(2));
+		}
+		int[][] children = new int[size][];
+		for (int i = 0; i < size; i++) {
+			List<Node<OWLClass>> subs = subNodes.get(ordered.get(i));
+			int[] childIds = subs.isEmpty() ? EMPTY : new int[subs.size()];
+			for (int j = 0; j < childIds.length; j++) {
+				int childId = ids.get(subs.get(j)).intValue();
+				childIds[j] = childId;
+				parents.get(childId).add(Integer.valueOf(i));
+			}
+			Arrays.sort(childIds);
+			children[i] = childIds;
+		}
+
+		// ancestors: union of the parents and their ancestors
+		int[][] ancestors = new int[size][];
+		BitSet scratch = new BitSet(size);
+		for (int i = 0; i < size; i++) {
+			List<Integer> nodeParents = parents.get(i);
+			if (nodeParents.isEmpty()) {
+				ancestors[i] = EMPTY;
+			}
+			else if (nodeParents.size() == 1) {
+				int parent = nodeParents.get(0).intValue();
+				int[] parentAncestors = ancestors[parent];
+				int[] result = Arrays.copyOf(parentAncestors, parentAncestors.length + 1);
+				result[parentAncestors.length] = parent; // all ancestors are smaller than the parent
+				ancestors[i] = result;
+			}
+			else {
+				scratch.clear();
+				for (Integer parent : nodeParents) {
+					scratch.set(parent.intValue());
+					for (int ancestor : ancestors[parent.intValue()]) {
+						scratch.set(ancestor);
+					}
+				}
+				int[] result = new int[scratch.cardinality()];
+				int pos = 0;
+				for (int a = scratch.nextSetBit(0); a >= 0; a = scratch.nextSetBit(a + 1)) {
+					result[pos++] = a;
+				}
+				ancestors[i] = result;
+			}
+		}
+
+		// classes
+		Map<OWLClass, Integer> nodeIds = new HashMap<OWLClass, Integer>();
+		List<Set<OWLClass>> nodes = new ArrayList<Set<OWLClass>>(size);
+		for (int i = 0; i < size; i++) {
+			Set<OWLClass> entities = ordered.get(i).getEntities();
+			nodes.add(Collections.unmodifiableSet(new HashSet<OWLClass>(entities)));
+			Integer id = Integer.valueOf(i);
+			for (OWLClass cls : entities) {
+				nodeIds.put(cls, id);
+			}
+		}
+		return new TaxonomySnapshot(nodeIds, nodes, ancestors, children);
+	}
+
+	/**
+	 * @param cls
+	 * @return true, if the class is part of the snapshot
+	 */
+	public boolean contains(OWLClass cls) {
+		return nodeIds.containsKey(cls);
+	}
+
+	/**
+	 * @param cls
+	 * @return dense id of the node of the class or -1
+	 */
+	public int getId(OWLClass cls) {
+		Integer id = nodeIds.get(cls);
+		if (id == null) {
+			return -1;
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * @return number of nodes
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Check if sup is a strict super class of sub, same as
+	 * {@code reasoner.getSuperClasses(sub, false).containsEntity(sup)}.
+	 *
+	 * @param sub
+	 * @param sup
+	 * @return true, if sup is a strict super class
+	 */
+	public boolean isStrictSubClassOf(OWLClass sub, OWLClass sup) {
+		int subId = getId(sub);
+		int supId = getId(sup);
+		if (subId < 0 || supId < 0) {
+			return false;
+		}
+		return Arrays.binarySearch(ancestors[subId], supId) >= 0;
+	}
+
+	/**
+	 * @param sub
+	 * @param sup
+	 * @return true, if sup is a super class of or equivalent to sub
+	 */
+	public boolean isSubClassOf(OWLClass sub, OWLClass sup) {
+		int subId = getId(sub);
+		int supId = getId(sup);
+		if (subId < 0 || supId < 0) {
+			return false;
+		}
+		return subId == supId || Arrays.binarySearch(ancestors[subId], supId) >= 0;
+	}
+
+	/**
+	 * @param cls
+	 * @param other
+	 * @return true, if both classes are equivalent
+	 */
+	public boolean isEquivalent(OWLClass cls, OWLClass other) {
+		int id = getId(cls);
+		return id >= 0 && id == getId(other);
+	}
+
+	/**
+	 * All strict super classes, same as
+	 * {@code reasoner.getSuperClasses(cls, false).getFlattened()}.
+	 *
+	 * @param cls
+	 * @return classes, modifiable
+	 */
+	public Set<OWLClass> getSuperClasses(OWLClass cls) {
+		Set<OWLClass> result = new HashSet<OWLClass>();
+		int id = getId(cls);
+		if (id >= 0) {
+			for (int ancestor : ancestors[id]) {
+				result.addAll(nodes.get(ancestor));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * All strict sub classes, same as
+	 * {@code reasoner.getSubClasses(cls, false).getFlattened()}.
+	 *
+	 * @param cls
+	 * @return classes, modifiable
+	 */
+	public Set<OWLClass> getSubClasses(OWLClass cls) {
+		Set<OWLClass> result = new HashSet<OWLClass>();
+		int id = getId(cls);
+		if (id >= 0) {
+			BitSet done = new BitSet(nodes.size());
+			Queue<Integer> queue = new ArrayDeque<Integer>();
+			queue.add(Integer.valueOf(id));
+			while (queue.isEmpty() == false) {
+				int current = queue.poll().intValue();
+				for (int child : children[current]) {
+					if (done.get(child) == false) {
+						done.set(child);
+						result.addAll(nodes.get(child));
+						queue.add(Integer.valueOf(child));
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param cls
+	 * @return equivalent classes including the class, unmodifiable
+	 */
+	public Set<OWLClass> getEquivalentClasses(OWLClass cls) {
+		int id = getId(cls);
+		if (id < 0) {
+			return Collections.emptySet();
+		}
+		return nodes.get(id);
+	}
+}
@@ -0,0 +1,52 @@
+package org.geneontology.minerva;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class IdGeneratorTest {
+
+	@Test
+	public void testFormat() throws Exception {
+		IdGenerator generator = new IdGenerator(0x5a5fc23aL * 1000L, -1);
+		assertEquals("5a5fc23a00000001", generator.nextId());
+		assertTrue(CoreMolecularModelManager.isLocalUnique(generator.nextId()));
+
+		IdGenerator nodeGenerator = new IdGenerator(0x5a5fc23aL * 1000L, 10);
+		assertEquals("5a5fc23a0a00000001", nodeGenerator.nextId());
+		assertTrue(CoreMolecularModelManager.isLocalUnique(nodeGenerator.nextId()));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidNodeId() throws Exception {
+		new IdGenerator(256);
+	}
+
+	@Test
+	public void testConcurrentIds() throws Exception {
+		final IdGenerator generator = new IdGenerator(3);
+		final Set<String> ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						ids.add(generator.nextId());
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		assertEquals(80000, ids.size());
+	}
+}
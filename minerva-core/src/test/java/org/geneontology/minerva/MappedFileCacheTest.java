@@ -0,0 +1,81 @@
+package org.geneontology.minerva;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testReadAndInvalidate() throws Exception {
+		File file = folder.newFile("model.owl");
+		FileUtils.write(file, "first content", "UTF-8");
+		MappedFileCache cache = new MappedFileCache(2, 1024);
+		MappedFileDocumentSource source = new MappedFileDocumentSource(file, cache);
+
+		assertEquals("first content", read(source));
+		assertEquals("first content", read(source));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+
+		FileUtils.write(file, "second, longer content", "UTF-8");
+		cache.invalidate(file);
+		assertEquals("second, longer content", read(source));
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testReplacedFile() throws Exception {
+		File file = folder.newFile("model.owl");
+		FileUtils.write(file, "first content", "UTF-8");
+		MappedFileCache cache = new MappedFileCache(2, 1024);
+		MappedFileDocumentSource source = new MappedFileDocumentSource(file, cache);
+		assertEquals("first content", read(source));
+
+		// same size and modification time, but a new file without invalidate
+		File replacement = folder.newFile("model.owl.tmp");
+		FileUtils.write(replacement, "other content", "UTF-8");
+		assertTrue(replacement.setLastModified(file.lastModified()));
+		Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		assertEquals("other content", read(source));
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		MappedFileCache cache = new MappedFileCache(2, 1024);
+		File[] files = new File[3];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = folder.newFile("model"+i+".owl");
+			FileUtils.write(files[i], "content "+i, "UTF-8");
+			cache.getBuffer(files[i]);
+		}
+		// the first file has been evicted
+		cache.getBuffer(files[2]);
+		cache.getBuffer(files[0]);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+	}
+
+	private static String read(MappedFileDocumentSource source) throws Exception {
+		InputStream in = source.getInputStream();
+		try {
+			return IOUtils.toString(in, "UTF-8");
+		}
+		finally {
+			in.close();
+		}
+	}
+}
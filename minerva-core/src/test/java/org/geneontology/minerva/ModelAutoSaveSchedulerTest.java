@@ -0,0 +1,196 @@
+package org.geneontology.minerva;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import owltools.graph.OWLGraphWrapper;
+
+public class ModelAutoSaveSchedulerTest {
+
+	private StubModelManager manager;
+	private ModelAutoSaveScheduler<Void> scheduler = null;
+
+	@Before
+	public void before() throws Exception {
+		OWLGraphWrapper graph = new OWLGraphWrapper(OWLManager.createOWLOntologyManager().createOntology(IRI.create("http://example.org/autosave-test")));
+		manager = new StubModelManager(graph);
+	}
+
+	@After
+	public void after() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+		manager.dispose();
+	}
+
+	@Test(timeout = 30000)
+	public void testCoalesce() throws Exception {
+		scheduler = createScheduler(0, 200, 0);
+		ModelContainer model = manager.addModel("m1");
+		for (int i = 0; i < 5; i++) {
+			modify(model);
+		}
+		assertEquals(Collections.singleton(model.getModelId()), scheduler.getPendingModelIds());
+		waitForSaves(1);
+		Thread.sleep(300);
+		assertEquals(1, manager.getSaveTimes(model).size());
+		assertEquals(1, scheduler.getSaveCount());
+		assertFalse(model.isModified());
+	}
+
+	@Test(timeout = 30000)
+	public void testModelInterval() throws Exception {
+		scheduler = createScheduler(500, 0, 0);
+		ModelContainer model = manager.addModel("m1");
+		modify(model);
+		waitForSaves(1);
+		modify(model);
+		waitForSaves(2);
+		List<Long> times = manager.getSaveTimes(model);
+		assertEquals(2, times.size());
+		assertTrue(times.get(1) - times.get(0) >= 500);
+	}
+
+	@Test(timeout = 30000)
+	public void testGlobalSpacing() throws Exception {
+		scheduler = createScheduler(0, 0, 300);
+		ModelContainer m1 = manager.addModel("m1");
+		ModelContainer m2 = manager.addModel("m2");
+		modify(m1);
+		modify(m2);
+		waitForSaves(2);
+		long t1 = manager.getSaveTimes(m1).get(0);
+		long t2 = manager.getSaveTimes(m2).get(0);
+		assertTrue(Math.abs(t2 - t1) >= 300);
+	}
+
+	@Test(timeout = 30000)
+	public void testRetryFailedSave() throws Exception {
+		scheduler = createScheduler(200, 0, 0);
+		ModelContainer model = manager.addModel("m1");
+		manager.failures = 1;
+		modify(model);
+		waitForSaves(1);
+		assertEquals(1, scheduler.getFailureCount());
+		List<Long> times = manager.getSaveTimes(model);
+		assertEquals(2, times.size());
+		assertTrue(times.get(1) - times.get(0) >= 200);
+		assertFalse(model.isModified());
+	}
+
+	@Test(timeout = 30000)
+	public void testShutdown() throws Exception {
+		// long quiet period, only the shutdown saves the models
+		scheduler = createScheduler(0, 1, 0, TimeUnit.HOURS);
+		ModelContainer m1 = manager.addModel("m1");
+		ModelContainer m2 = manager.addModel("m2");
+		ModelContainer unmodified = manager.addModel("m3");
+		modify(m1);
+		modify(m2);
+		assertEquals(2, scheduler.getPendingModelIds().size());
+
+		assertEquals(2, scheduler.shutdown());
+		assertEquals(1, manager.getSaveTimes(m1).size());
+		assertEquals(1, manager.getSaveTimes(m2).size());
+		assertTrue(manager.getSaveTimes(unmodified).isEmpty());
+		assertTrue(scheduler.getPendingModelIds().isEmpty());
+
+		// no saves are scheduled after the shutdown
+		modify(m1);
+		assertTrue(scheduler.getPendingModelIds().isEmpty());
+		assertEquals(0, scheduler.shutdown());
+	}
+
+	private ModelAutoSaveScheduler<Void> createScheduler(long interval, long quietPeriod, long spacing) {
+		return createScheduler(interval, quietPeriod, spacing, TimeUnit.MILLISECONDS);
+	}
+
+	private ModelAutoSaveScheduler<Void> createScheduler(long interval, long quietPeriod, long spacing, TimeUnit unit) {
+		return new ModelAutoSaveScheduler<Void>(manager, null, interval, quietPeriod, spacing, unit);
+	}
+
+	private void modify(ModelContainer model) {
+		model.setAboxModified(true);
+		scheduler.modelModified(model);
+	}
+
+	private void waitForSaves(long count) throws InterruptedException {
+		while (scheduler.getSaveCount() < count) {
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Model manager without a model folder, records the save attempts.
+	 */
+	private static class StubModelManager extends FileBasedMolecularModelManager<Void> {
+
+		private final Map<IRI, ModelContainer> models = new HashMap<IRI, ModelContainer>();
+		private final Map<IRI, List<Long>> saveTimes = new HashMap<IRI, List<Long>>();
+		volatile int failures = 0;
+
+		StubModelManager(OWLGraphWrapper graph) throws OWLOntologyCreationException {
+			super(graph, new ElkReasonerFactory(), "http://model.geneontology.org/");
+		}
+
+		synchronized ModelContainer addModel(String id) throws OWLOntologyCreationException {
+			IRI tboxId = IRI.create("http://example.org/autosave-test/"+id);
+			ModelContainer model = new ModelContainer(IRI.create("http://model.geneontology.org/"+id),
+					OWLManager.createOWLOntologyManager().createOntology(tboxId), new ElkReasonerFactory());
+			models.put(model.getModelId(), model);
+			saveTimes.put(model.getModelId(), new ArrayList<Long>());
+			return model;
+		}
+
+		synchronized List<Long> getSaveTimes(ModelContainer model) {
+			return new ArrayList<Long>(saveTimes.get(model.getModelId()));
+		}
+
+		@Override
+		public synchronized ModelContainer getModel(IRI id) {
+			return models.get(id);
+		}
+
+		@Override
+		public synchronized boolean isModelModified(IRI modelId) {
+			ModelContainer model = models.get(modelId);
+			return model != null && model.isModified();
+		}
+
+		@Override
+		public synchronized void saveModel(ModelContainer m, Set<OWLAnnotation> annotations, Void metadata) throws IOException {
+			saveTimes.get(m.getModelId()).add(Long.valueOf(System.currentTimeMillis()));
+			if (failures > 0) {
+				failures -= 1;
+				throw new IOException("Simulated save failure");
+			}
+			m.setAboxModified(false);
+		}
+
+		@Override
+		public synchronized void dispose() {
+			for (ModelContainer model : models.values()) {
+				model.dispose();
+			}
+			super.dispose();
+		}
+	}
+}
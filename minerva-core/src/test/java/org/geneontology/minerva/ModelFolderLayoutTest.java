@@ -0,0 +1,62 @@
+package org.geneontology.minerva;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.geneontology.minerva.ModelFolderLayout.ModelFileHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModelFolderLayoutTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMigrate() throws Exception {
+		File root = folder.getRoot();
+		Set<String> names = new HashSet<String>();
+		for (int i = 0; i < 20; i++) {
+			String name = String.format("5a5fc23a%08x", Integer.valueOf(i));
+			names.add(name);
+			FileUtils.write(new File(root, name), "model "+i, "UTF-8");
+		}
+		// not a model file
+		FileUtils.write(new File(root, ".5a5fc23a00000001.tmp"), "temp", "UTF-8");
+
+		assertEquals(names, list(root));
+		assertEquals(20, ModelFolderLayout.migrate(root, true));
+		assertEquals(names, list(root));
+		for (String name : names) {
+			File sharded = ModelFolderLayout.getModelFile(root, name, true);
+			assertTrue(sharded.isFile());
+			assertEquals(sharded, ModelFolderLayout.findModelFile(root, name, false));
+		}
+
+		assertEquals(20, ModelFolderLayout.migrate(root, false));
+		assertEquals(names, list(root));
+		for (String name : names) {
+			assertTrue(new File(root, name).isFile());
+			assertFalse(new File(root, ModelFolderLayout.getShardName(name)).exists());
+		}
+	}
+
+	private static Set<String> list(File root) throws IOException {
+		final Set<String> names = new HashSet<String>();
+		ModelFolderLayout.visitModelFiles(root, new ModelFileHandler() {
+
+			@Override
+			public void handle(Path modelFile) {
+				names.add(modelFile.getFileName().toString());
+			}
+		});
+		return names;
+	}
+}
@@ -0,0 +1,148 @@
+package org.geneontology.minerva;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+public class ModelReasonerManagerTest {
+
+	private final List<ModelContainer> models = new ArrayList<ModelContainer>();
+	private ModelReasonerManager manager = null;
+
+	@After
+	public void after() {
+		if (manager != null) {
+			manager.dispose();
+		}
+		for (ModelContainer model : models) {
+			model.dispose();
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testMaxReasoners() throws Exception {
+		manager = new ModelReasonerManager(2, 0, 0, TimeUnit.MILLISECONDS);
+		ModelContainer m1 = createModel(1);
+		ModelContainer m2 = createModel(2);
+		ModelContainer m3 = createModel(3);
+
+		useReasoner(m1);
+		useReasoner(m2);
+		assertEquals(2, manager.getLiveCount());
+
+		// exceeding the limit disposes the least recently used reasoner
+		useReasoner(m3);
+		waitForDisposed(1);
+		assertFalse(m1.hasReasoner());
+		assertTrue(m2.hasReasoner());
+		assertTrue(m3.hasReasoner());
+		assertEquals(3, manager.getCreatedCount());
+		assertEquals(2, manager.getLiveCount());
+		assertEquals(0, manager.getRecreatedCount());
+
+		// re-create on demand, evicts the next least recently used reasoner
+		useReasoner(m1);
+		waitForDisposed(2);
+		assertTrue(m1.hasReasoner());
+		assertFalse(m2.hasReasoner());
+		assertTrue(m3.hasReasoner());
+		assertEquals(4, manager.getCreatedCount());
+		assertEquals(2, manager.getLiveCount());
+		assertEquals(1, manager.getRecreatedCount());
+		assertTrue(manager.getCreationNanos() >= manager.getRecreationNanos());
+		assertTrue(manager.getRecreationNanos() > 0);
+	}
+
+	@Test(timeout = 30000)
+	public void testIdleTimeout() throws Exception {
+		manager = new ModelReasonerManager(0, 200, 0, TimeUnit.MILLISECONDS);
+		ModelContainer idle = createModel(1);
+		ModelContainer recent = createModel(2);
+
+		useReasoner(idle);
+		Thread.sleep(300);
+		useReasoner(recent);
+		manager.disposeIdleReasoners();
+		assertFalse(idle.hasReasoner());
+		assertTrue(recent.hasReasoner());
+		assertEquals(1, manager.getLiveCount());
+		assertEquals(1, manager.getDisposedCount());
+	}
+
+	@Test(timeout = 30000)
+	public void testSkipInUseAndRecent() throws Exception {
+		manager = new ModelReasonerManager(0, 0, 0, TimeUnit.MILLISECONDS);
+		ModelContainer inUse = createModel(1);
+		ModelContainer unused = createModel(2);
+		useReasoner(inUse);
+		useReasoner(unused);
+		Thread.sleep(10);
+
+		inUse.acquireReasoner();
+		try {
+			assertEquals(1, manager.disposeLeastRecentlyUsed(2));
+			assertTrue(inUse.hasReasoner());
+			assertFalse(unused.hasReasoner());
+			assertFalse(manager.disposeReasoners(inUse));
+			assertTrue(inUse.hasReasoner());
+		}
+		finally {
+			inUse.releaseReasoner();
+		}
+		Thread.sleep(10);
+		assertTrue(manager.disposeReasoners(inUse));
+		assertFalse(inUse.hasReasoner());
+		assertEquals(0, manager.getLiveCount());
+
+		// reasoners used within the minimum idle time are kept
+		manager.dispose();
+		manager = new ModelReasonerManager(0, 0, 1, TimeUnit.MINUTES);
+		ModelContainer recent = createModel(3);
+		useReasoner(recent);
+		assertEquals(0, manager.disposeLeastRecentlyUsed(1));
+		assertTrue(recent.hasReasoner());
+		assertEquals(1, manager.getLiveCount());
+	}
+
+	private ModelContainer createModel(int n) throws Exception {
+		OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		IRI tboxId = IRI.create("http://example.org/reasoner-manager-test/"+n);
+		ModelContainer model = new ModelContainer(IRI.create("http://model.geneontology.org/"+n),
+				m.createOntology(tboxId), new ElkReasonerFactory());
+		models.add(model);
+		return model;
+	}
+
+	private void useReasoner(ModelContainer model) throws Exception {
+		model.setReasonerListener(manager);
+		synchronized (model.getAboxOntology()) {
+			model.acquireReasoner();
+			try {
+				model.getReasoner().isConsistent();
+			}
+			finally {
+				model.releaseReasoner();
+			}
+		}
+		// distinct access times
+		Thread.sleep(10);
+	}
+
+	/**
+	 * The eviction for the maximum number of reasoners is asynchronous.
+	 */
+	private void waitForDisposed(long count) throws InterruptedException {
+		while (manager.getDisposedCount() < count) {
+			Thread.sleep(10);
+		}
+	}
+}
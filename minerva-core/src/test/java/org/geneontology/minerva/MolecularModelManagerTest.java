@@ -6,12 +6,18 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.geneontology.minerva.FileBasedMolecularModelManager.SaveAllReport;
 import org.geneontology.minerva.curie.CurieHandler;
 import org.geneontology.minerva.curie.DefaultCurieHandler;
 import org.junit.Rule;
@@ -176,6 +182,66 @@ public class MolecularModelManagerTest extends OWLToolsTestBasics {
 		}
 	}
 
+	@Test
+	public void testSaveAllModels() throws Exception {
+		final File saveFolder = folder.newFolder();
+		ParserWrapper pw = new ParserWrapper();
+		OWLGraphWrapper g = pw.parseToOWLGraph(getResourceIRIString("go-mgi-signaling-test.obo"));
+
+		MolecularModelManager<Void> mmm = createM3(g);
+		mmm.setPathToOWLFiles(saveFolder.getCanonicalPath());
+		mmm.setShardedLayout(true);
+		mmm.setParallelism(2);
+		mmm.setGroupCommit(true);
+		mmm.setSyncOnSave(true);
+
+		final ModelContainer modified1 = mmm.generateBlankModel(null);
+		mmm.createIndividual(modified1.getModelId(), "GO:0038024", null, null);
+		final ModelContainer modified2 = mmm.generateBlankModel(null);
+		mmm.createIndividual(modified2.getModelId(), "GO:0042803", null, null);
+		final ModelContainer unmodified = mmm.generateBlankModel(null);
+		final ModelContainer unwritable = mmm.generateBlankModel(null);
+		mmm.createIndividual(unwritable.getModelId(), "GO:0008233", null, null);
+		// a folder blocks the model file
+		File blocked = getModelFile(saveFolder, unwritable);
+		assertTrue(blocked.mkdirs());
+
+		SaveAllReport report = mmm.saveAllModels(Collections.<OWLAnnotation>emptySet(), null);
+		assertEquals(new HashSet<IRI>(Arrays.asList(modified1.getModelId(), modified2.getModelId())), report.getSaveTimes().keySet());
+		assertEquals(Collections.singleton(unmodified.getModelId()), report.getSkipped());
+		assertEquals(Collections.singleton(unwritable.getModelId()), report.getFailures().keySet());
+		assertTrue(report.getFailures().get(unwritable.getModelId()) instanceof IOException);
+		assertTrue(report.hasFailures());
+		assertTrue(report.getTotalTime() >= 0);
+
+		// saved in the sharded layout, no temporary files left behind
+		assertTrue(getModelFile(saveFolder, modified1).isFile());
+		assertTrue(getModelFile(saveFolder, modified2).isFile());
+		assertFalse(getModelFile(saveFolder, unmodified).exists());
+		for (File file : FileUtils.listFiles(saveFolder, null, true)) {
+			assertFalse(file.getName().startsWith("."));
+		}
+		assertFalse(modified1.isModified());
+		assertFalse(modified2.isModified());
+		assertTrue(unwritable.isModified());
+
+		// without group commit, only the modified models are saved
+		FileUtils.deleteDirectory(blocked);
+		mmm.setGroupCommit(false);
+		mmm.createIndividual(modified1.getModelId(), "GO:0008233", null, null);
+		report = mmm.saveAllModels(Collections.<OWLAnnotation>emptySet(), null);
+		assertEquals(new HashSet<IRI>(Arrays.asList(modified1.getModelId(), unwritable.getModelId())), report.getSaveTimes().keySet());
+		assertEquals(new HashSet<IRI>(Arrays.asList(modified2.getModelId(), unmodified.getModelId())), report.getSkipped());
+		assertFalse(report.hasFailures());
+		assertTrue(getModelFile(saveFolder, unwritable).isFile());
+		mmm.dispose();
+	}
+
+	private static File getModelFile(File saveFolder, ModelContainer model) {
+		String fileName = StringUtils.removeStart(model.getModelId().toString(), "http://testmodel.geneontology.org/");
+		return ModelFolderLayout.getModelFile(saveFolder, fileName, true);
+	}
+
 	@Test
 	public void testInferredType() throws Exception {
 		ParserWrapper pw = new ParserWrapper();
@@ -0,0 +1,80 @@
+package org.geneontology.minerva;
+
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.model.IRI;
+
+public class StoredModelIdIndexTest {
+
+	private static final String PREFIX = "http://model.geneontology.org/";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testScanWatchAndRescan() throws Exception {
+		File root = folder.getRoot();
+		String flat = "5a5fc23a00000001";
+		String sharded = "5a5fc23a00000002";
+		FileUtils.write(new File(root, flat), "model", "UTF-8");
+		FileUtils.write(ModelFolderLayout.getModelFile(root, sharded, true), "model", "UTF-8");
+		// not a model file
+		FileUtils.write(new File(root, "."+flat+".tmp"), "temp", "UTF-8");
+
+		StoredModelIdIndex index = new StoredModelIdIndex(root, PREFIX);
+		try {
+			// initial scan of both layouts
+			assertEquals(ids(flat, sharded), index.getModelIds());
+
+			// watch: new files in the folder, a known shard and a new shard folder
+			String added = "5a5fc23a00000003";
+			FileUtils.write(new File(root, added), "model", "UTF-8");
+			String addedSharded = "5a5fc23a00000004";
+			FileUtils.write(ModelFolderLayout.getModelFile(root, addedSharded, true), "model", "UTF-8");
+			waitFor(index, ids(flat, sharded, added, addedSharded));
+
+			// watch: deleted file
+			FileUtils.forceDelete(new File(root, added));
+			waitFor(index, ids(flat, sharded, addedSharded));
+
+			// lost events: the rescan removes and adds the missed changes
+			index.remove(IRI.create(PREFIX+flat));
+			index.add(IRI.create(PREFIX+"5a5fc23a000000ff"));
+			index.handleEvent(OVERFLOW, null, null);
+			assertEquals(ids(flat, sharded, addedSharded), index.getModelIds());
+		}
+		finally {
+			index.dispose();
+		}
+	}
+
+	private static Set<IRI> ids(String...names) {
+		Set<IRI> ids = new HashSet<IRI>();
+		for (String name : Arrays.asList(names)) {
+			ids.add(IRI.create(PREFIX+name));
+		}
+		return Collections.unmodifiableSet(ids);
+	}
+
+	/**
+	 * The watch service reports the changes asynchronously.
+	 */
+	private static void waitFor(StoredModelIdIndex index, Set<IRI> expected) throws InterruptedException {
+		long end = System.currentTimeMillis() + 30000;
+		while (expected.equals(index.getModelIds()) == false && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		assertEquals(expected, index.getModelIds());
+	}
+}
@@ -0,0 +1,46 @@
+package org.geneontology.minerva.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.geneontology.minerva.metrics.MinervaMetrics.Gauge;
+import org.junit.Test;
+
+public class HistogramMetricsTest {
+
+	@Test
+	public void testWriteText() throws Exception {
+		HistogramMetrics metrics = new HistogramMetrics();
+		metrics.timer("test_seconds", "phase", "parse").record(2000000l); // 2ms
+		metrics.timer("test_seconds", "phase", "parse").record(3000000000l); // 3s
+		metrics.increment("test_total");
+		metrics.increment("test_total");
+		metrics.gauge("test_gauge", new Gauge() {
+			
+			@Override
+			public double getValue() {
+				return 42;
+			}
+		});
+		StringWriter writer = new StringWriter();
+		metrics.writeText(writer);
+		String text = writer.toString();
+		
+		assertTrue(text.contains("# TYPE test_total counter\ntest_total 2\n"));
+		assertTrue(text.contains("# TYPE test_gauge gauge\ntest_gauge 42.0\n"));
+		assertTrue(text.contains("# TYPE test_seconds histogram\n"));
+		assertTrue(text.contains("test_seconds_bucket{phase=\"parse\",le=\"0.001\"} 0\n"));
+		assertTrue(text.contains("test_seconds_bucket{phase=\"parse\",le=\"0.005\"} 1\n"));
+		assertTrue(text.contains("test_seconds_bucket{phase=\"parse\",le=\"2.5\"} 1\n"));
+		assertTrue(text.contains("test_seconds_bucket{phase=\"parse\",le=\"5.0\"} 2\n"));
+		assertTrue(text.contains("test_seconds_bucket{phase=\"parse\",le=\"+Inf\"} 2\n"));
+		assertTrue(text.contains("test_seconds_count{phase=\"parse\"} 2\n"));
+	}
+
+	@Test
+	public void testRenderLabels() {
+		assertEquals("", HistogramMetrics.renderLabels());
+		assertEquals("a=\"1\",b=\"x\\\"y\"", HistogramMetrics.renderLabels("a", "1", "b", "x\"y"));
+	}
+}
@@ -0,0 +1,69 @@
+package org.geneontology.minerva.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import owltools.graph.OWLGraphWrapper;
+
+public class IdentifierIndexTest {
+
+	private static final String OBO = "http://purl.obolibrary.org/obo/";
+
+	@Test
+	public void testIndex() throws Exception {
+		OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		OWLDataFactory f = m.getOWLDataFactory();
+		OWLOntology ont = m.createOntology(IRI.create("http://example.org/test"));
+		OWLClass cls = f.getOWLClass(IRI.create(OBO+"GO_0000001"));
+		OWLClass undeclared = f.getOWLClass(IRI.create(OBO+"GO_0000003"));
+		OWLObjectProperty partOf = f.getOWLObjectProperty(IRI.create(OBO+"BFO_0000050"));
+		m.addAxiom(ont, f.getOWLDeclarationAxiom(cls));
+		m.addAxiom(ont, f.getOWLDeclarationAxiom(partOf));
+		m.addAxiom(ont, f.getOWLAnnotationAssertionAxiom(f.getRDFSLabel(), cls.getIRI(), f.getOWLLiteral("mitochondrion inheritance")));
+		m.addAxiom(ont, f.getOWLAnnotationAssertionAxiom(
+				f.getOWLAnnotationProperty(IRI.create("http://www.geneontology.org/formats/oboInOwl#hasAlternativeId")),
+				cls.getIRI(), f.getOWLLiteral("GO:0000002")));
+		// obsolete class with replaced_by
+		OWLClass obsolete = f.getOWLClass(IRI.create(OBO+"GO_0000005"));
+		OWLClass replacement = f.getOWLClass(IRI.create(OBO+"GO_0000004"));
+		m.addAxiom(ont, f.getOWLDeclarationAxiom(obsolete));
+		m.addAxiom(ont, f.getOWLDeclarationAxiom(replacement));
+		m.addAxiom(ont, f.getOWLAnnotationAssertionAxiom(f.getOWLDeprecated(), obsolete.getIRI(), f.getOWLLiteral(true)));
+		m.addAxiom(ont, f.getOWLAnnotationAssertionAxiom(f.getOWLAnnotationProperty(IRI.create(OBO+"IAO_0100001")),
+				obsolete.getIRI(), f.getOWLLiteral("GO:0000004")));
+
+		OWLGraphWrapper graph = new OWLGraphWrapper(ont);
+		IdentifierIndex index = IdentifierIndex.get(graph);
+		assertSame(index, IdentifierIndex.get(graph));
+		assertTrue(index.isIndexed(ont));
+		assertEquals(4, index.size());
+
+		assertEquals(cls, index.getOWLClass(cls.getIRI()));
+		assertNull(index.getOWLClass(undeclared.getIRI()));
+		assertNull(index.getOWLClass(partOf.getIRI()));
+		assertEquals(partOf, index.getOWLObjectProperty(partOf.getIRI()));
+
+		assertEquals(cls, index.getOWLClassByIdentifier("GO:0000001"));
+		assertEquals(cls, index.getOWLClassByIdentifier(cls.getIRI().toString()));
+		assertEquals(cls, index.getOWLClassByIdentifier("GO:0000002"));
+		assertNull(index.getOWLClassByIdentifier("GO:0000003"));
+		assertEquals(partOf, index.getOWLObjectPropertyByIdentifier("BFO:0000050"));
+		assertEquals(cls, index.getOWLObjectByLabel("mitochondrion inheritance"));
+		assertNull(index.getReplacement(cls));
+		assertEquals(cls, index.getCurrentOWLClassByIdentifier("GO:0000001"));
+
+		assertEquals(obsolete, index.getOWLClassByIdentifier("GO:0000005"));
+		assertEquals(replacement, index.getReplacement(obsolete));
+		assertEquals(replacement, index.getCurrentOWLClassByIdentifier("GO:0000005"));
+		assertEquals(replacement, index.getCurrentOWLClassByIdentifier("GO:0000004"));
+		assertNull(index.getCurrentOWLClassByIdentifier("GO:0000003"));
+	}
+}
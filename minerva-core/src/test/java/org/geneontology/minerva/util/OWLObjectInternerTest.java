@@ -0,0 +1,111 @@
+package org.geneontology.minerva.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+public class OWLObjectInternerTest {
+
+	private static final String NS = "http://example.org/test/";
+
+	@Test
+	public void testDeduplication() throws Exception {
+		OWLDataFactory f = OWLManager.getOWLDataFactory();
+		OWLObjectInterner interner = new OWLObjectInterner(f);
+		OWLAnnotationProperty evidence = f.getOWLAnnotationProperty(IRI.create(NS+"evidence"));
+		OWLAnnotationProperty comment = f.getOWLAnnotationProperty(IRI.create(NS+"comment"));
+		OWLNamedIndividual i1 = f.getOWLNamedIndividual(IRI.create(NS+"i1"));
+		OWLNamedIndividual i2 = f.getOWLNamedIndividual(IRI.create(NS+"i2"));
+
+		// equal, but separately created values
+		OWLAxiom ax1 = f.getOWLAnnotationAssertionAxiom(comment, i1.getIRI(), f.getOWLLiteral(new String("text")),
+				Collections.singleton(f.getOWLAnnotation(evidence, IRI.create(NS+"ECO_1"))));
+		OWLAxiom ax2 = f.getOWLAnnotationAssertionAxiom(comment, i2.getIRI(), f.getOWLLiteral(new String("text")),
+				Collections.singleton(f.getOWLAnnotation(evidence, IRI.create(NS+"ECO_1"))));
+
+		OWLAnnotationAssertionAxiom interned1 = (OWLAnnotationAssertionAxiom) interner.intern(ax1);
+		OWLAnnotationAssertionAxiom interned2 = (OWLAnnotationAssertionAxiom) interner.intern(ax2);
+		assertEquals(ax1, interned1);
+		assertEquals(ax2, interned2);
+		assertSame(interned1.getValue(), interned2.getValue());
+		assertSame(getOnly(interned1.getAnnotations()), getOnly(interned2.getAnnotations()));
+		assertSame(getOnly(interned1.getAnnotations()).getValue(), getOnly(interned2.getAnnotations()).getValue());
+
+		OWLDataPropertyAssertionAxiom data1 = f.getOWLDataPropertyAssertionAxiom(
+				f.getOWLDataProperty(IRI.create(NS+"p")), i1, f.getOWLLiteral(new String("2016-01-01")));
+		OWLDataPropertyAssertionAxiom data2 = f.getOWLDataPropertyAssertionAxiom(
+				f.getOWLDataProperty(IRI.create(NS+"p")), i2, f.getOWLLiteral(new String("2016-01-01")));
+		OWLDataPropertyAssertionAxiom internedData1 = (OWLDataPropertyAssertionAxiom) interner.intern(data1);
+		OWLDataPropertyAssertionAxiom internedData2 = (OWLDataPropertyAssertionAxiom) interner.intern(data2);
+		assertEquals(data1, internedData1);
+		assertSame(internedData1.getObject(), internedData2.getObject());
+	}
+
+	@Test
+	public void testNoOp() throws Exception {
+		OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		OWLDataFactory f = m.getOWLDataFactory();
+		OWLObjectInterner interner = new OWLObjectInterner(f);
+		OWLAnnotationProperty evidence = f.getOWLAnnotationProperty(IRI.create(NS+"evidence"));
+		OWLAnnotationProperty comment = f.getOWLAnnotationProperty(IRI.create(NS+"comment"));
+		OWLNamedIndividual i1 = f.getOWLNamedIndividual(IRI.create(NS+"i1"));
+		OWLClass c = f.getOWLClass(IRI.create(NS+"C"));
+		Set<OWLAnnotation> annotations = Collections.singleton(f.getOWLAnnotation(evidence, IRI.create(NS+"ECO_1")));
+
+		// axioms without literals or annotations are never replaced
+		OWLAxiom plain = f.getOWLClassAssertionAxiom(c, i1);
+		assertSame(plain, interner.intern(plain));
+
+		// interning an interned axiom returns the same instance
+		OWLAxiom annotated = interner.intern(f.getOWLClassAssertionAxiom(c, i1, annotations));
+		assertSame(annotated, interner.intern(annotated));
+		OWLAxiom assertion = interner.intern(f.getOWLAnnotationAssertionAxiom(comment, i1.getIRI(), f.getOWLLiteral("text"), annotations));
+		assertSame(assertion, interner.intern(assertion));
+		OWLAxiom data = interner.intern(f.getOWLDataPropertyAssertionAxiom(f.getOWLDataProperty(IRI.create(NS+"p")), i1, f.getOWLLiteral("text")));
+		assertSame(data, interner.intern(data));
+
+		// a second pass over an interned ontology does not change it
+		OWLOntology ont = m.createOntology(IRI.create(NS+"model"));
+		m.addAxiom(ont, f.getOWLClassAssertionAxiom(c, i1, annotations));
+		m.addAxiom(ont, f.getOWLAnnotationAssertionAxiom(comment, i1.getIRI(), f.getOWLLiteral("text"), annotations));
+		m.addAxiom(ont, f.getOWLDataPropertyAssertionAxiom(f.getOWLDataProperty(IRI.create(NS+"p")), i1, f.getOWLLiteral("text")));
+		final List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+		m.addOntologyChangeListener(new OWLOntologyChangeListener() {
+
+			@Override
+			public void ontologiesChanged(List<? extends OWLOntologyChange> list) throws OWLException {
+				changes.addAll(list);
+			}
+		});
+		interner.internOntology(ont);
+		changes.clear();
+		interner.internOntology(ont);
+		assertTrue(changes.isEmpty());
+		assertEquals(3, ont.getAxiomCount());
+	}
+
+	private static OWLAnnotation getOnly(Set<OWLAnnotation> annotations) {
+		assertEquals(1, annotations.size());
+		return annotations.iterator().next();
+	}
+}
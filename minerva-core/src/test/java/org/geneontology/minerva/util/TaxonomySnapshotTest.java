@@ -0,0 +1,64 @@
+package org.geneontology.minerva.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+public class TaxonomySnapshotTest {
+
+	@Test
+	public void testSnapshot() throws Exception {
+		OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		OWLDataFactory f = m.getOWLDataFactory();
+		OWLOntology ont = m.createOntology(IRI.create("http://example.org/test"));
+		// diamond a -> b,c -> d with e equivalent to c
+		OWLClass a = cls(f, "a");
+		OWLClass b = cls(f, "b");
+		OWLClass c = cls(f, "c");
+		OWLClass d = cls(f, "d");
+		OWLClass e = cls(f, "e");
+		OWLClass unknown = cls(f, "unknown");
+		m.addAxiom(ont, f.getOWLSubClassOfAxiom(b, a));
+		m.addAxiom(ont, f.getOWLSubClassOfAxiom(c, a));
+		m.addAxiom(ont, f.getOWLSubClassOfAxiom(d, b));
+		m.addAxiom(ont, f.getOWLSubClassOfAxiom(d, c));
+		m.addAxiom(ont, f.getOWLEquivalentClassesAxiom(c, e));
+
+		OWLReasoner reasoner = new ElkReasonerFactory().createReasoner(ont);
+		TaxonomySnapshot snapshot;
+		try {
+			snapshot = TaxonomySnapshot.create(reasoner);
+			for (OWLClass x : new OWLClass[]{a, b, c, d, e}) {
+				assertEquals(reasoner.getSuperClasses(x, false).getFlattened(), snapshot.getSuperClasses(x));
+				assertEquals(reasoner.getSubClasses(x, false).getFlattened(), snapshot.getSubClasses(x));
+			}
+		}
+		finally {
+			reasoner.dispose();
+		}
+		assertTrue(snapshot.isStrictSubClassOf(d, a));
+		assertTrue(snapshot.isStrictSubClassOf(d, e));
+		assertFalse(snapshot.isStrictSubClassOf(c, e));
+		assertTrue(snapshot.isSubClassOf(c, e));
+		assertTrue(snapshot.isEquivalent(c, e));
+		assertFalse(snapshot.isStrictSubClassOf(a, d));
+		assertFalse(snapshot.isStrictSubClassOf(b, c));
+		assertTrue(snapshot.isStrictSubClassOf(a, f.getOWLThing()));
+		assertFalse(snapshot.contains(unknown));
+		assertFalse(snapshot.isSubClassOf(unknown, a));
+		assertTrue(snapshot.getId(a) < snapshot.getId(b));
+		assertTrue(snapshot.getId(b) < snapshot.getId(d));
+	}
+
+	private static OWLClass cls(OWLDataFactory f, String name) {
+		return f.getOWLClass(IRI.create("http://example.org/"+name));
+	}
+}
@@ -0,0 +1,10 @@
+#!/bin/sh
+DIRNAME=`dirname $0`
+
+JAVAARGS="-Xmx4G"
+
+if [ $MINERVA_LOADTEST_MEMORY ]
+then
+  JAVAARGS="-Xmx$MINERVA_LOADTEST_MEMORY"
+fi
+java $JAVAARGS -jar $DIRNAME/minerva-loadtest.jar "$@"
@@ -0,0 +1,361 @@
+package org.geneontology.minerva.loadtest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.LineIterator;
+import org.apache.log4j.Logger;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Sends recorded batches to a Minerva server using the privileged batch
+ * resource. The model ids in the batches are replaced with the given
+ * target model.<br>
+ * <br>
+ * The recorded individual ids do not exist in the target models. Each
+ * recorded id is mapped to an individual created during the replay in the
+ * same target model, in the order in which the server returned them.
+ * Batches with ids, which could not be mapped yet, are still sent, but
+ * reported separately.
+ */
+public class BatchReplayer {
+
+	private static final Logger LOG = Logger.getLogger(BatchReplayer.class);
+
+	private static final String MODEL_ID = "model-id";
+	private static final String[] INDIVIDUAL_KEYS = {"individual", "subject", "object"};
+	private static final String VARIABLE = "assign-to-variable";
+
+	private final String batchUrl;
+	private final String uid;
+	private final ConcurrentMap<String, IndividualMapping> mappings = new ConcurrentHashMap<String, IndividualMapping>();
+
+	/**
+	 * @param serverUrl base URL of the server, i.e. http://localhost:6800/
+	 * @param uid user id for the privileged requests
+	 */
+	public BatchReplayer(String serverUrl, String uid) {
+		if (serverUrl.endsWith("/") == false) {
+			serverUrl = serverUrl + "/";
+		}
+		this.batchUrl = serverUrl + "m3BatchPrivileged";
+		this.uid = uid;
+	}
+
+	/**
+	 * Read the recorded batches, one JSON object per line with the requests
+	 * array as written by the BatchRequestRecorder. Lines with just a
+	 * requests array are also accepted.
+	 *
+	 * @param file
+	 * @return list of request arrays
+	 * @throws IOException
+	 */
+	public static List<JsonArray> readTrace(File file) throws IOException {
+		List<JsonArray> batches = new ArrayList<JsonArray>();
+		JsonParser parser = new JsonParser();
+		LineIterator lines = FileUtils.lineIterator(file, "UTF-8");
+		try {
+			int lineNumber = 0;
+			while (lines.hasNext()) {
+				String line = lines.next().trim();
+				lineNumber += 1;
+				if (line.isEmpty()) {
+					continue;
+				}
+				try {
+					JsonElement element = parser.parse(line);
+					if (element.isJsonArray()) {
+						batches.add(element.getAsJsonArray());
+					}
+					else if (element.isJsonObject() && element.getAsJsonObject().has("requests")) {
+						batches.add(element.getAsJsonObject().getAsJsonArray("requests"));
+					}
+					else {
+						LOG.warn("Skipping line "+lineNumber+", no requests found");
+					}
+				} catch (RuntimeException e) {
+					LOG.warn("Skipping line "+lineNumber+", could not parse JSON: "+e.getMessage());
+				}
+			}
+		}
+		finally {
+			LineIterator.closeQuietly(lines);
+		}
+		return batches;
+	}
+
+	/**
+	 * Map of the recorded individual ids to the individuals of one target
+	 * model, which were created during the replay. Thread-safe, clients
+	 * share the mapping of a model.
+	 */
+	static class IndividualMapping {
+
+		private final Map<String, String> recordedToReplayed = new HashMap<String, String>();
+		private final Set<String> mapped = new HashSet<String>();
+		private final Set<String> replayed = new LinkedHashSet<String>();
+
+		/**
+		 * @param replayedId id of an individual returned by the server
+		 */
+		synchronized void addReplayed(String replayedId) {
+			replayed.add(replayedId);
+		}
+
+		/**
+		 * @param recordedId
+		 * @return replayed id or null, if there is no unmapped individual
+		 */
+		synchronized String map(String recordedId) {
+			String replayedId = recordedToReplayed.get(recordedId);
+			if (replayedId == null) {
+				for (String candidate : replayed) {
+					if (mapped.contains(candidate) == false) {
+						replayedId = candidate;
+						recordedToReplayed.put(recordedId, candidate);
+						mapped.add(candidate);
+						break;
+					}
+				}
+			}
+			return replayedId;
+		}
+	}
+
+	/**
+	 * Copy of a batch for the target model.
+	 */
+	static class Retargeted {
+
+		final String requests;
+		final int unmapped;
+
+		Retargeted(String requests, int unmapped) {
+			this.requests = requests;
+			this.unmapped = unmapped;
+		}
+	}
+
+	/**
+	 * Create a copy of the batch with all model ids replaced. The recorded
+	 * individual ids are replaced using the mapping, variables assigned in
+	 * the batch are kept.
+	 *
+	 * @param batch
+	 * @param modelId
+	 * @param mapping
+	 * @return requests JSON and the number of ids, which could not be mapped
+	 */
+	static Retargeted retarget(JsonArray batch, String modelId, IndividualMapping mapping) {
+		JsonArray copy = new JsonArray();
+		Set<String> variables = new HashSet<String>();
+		int unmapped = 0;
+		for (JsonElement element : batch) {
+			JsonObject request = copy(element.getAsJsonObject());
+			JsonElement arguments = request.get("arguments");
+			if (arguments != null && arguments.isJsonObject()) {
+				JsonObject args = copy(arguments.getAsJsonObject());
+				if (args.has(MODEL_ID)) {
+					args.addProperty(MODEL_ID, modelId);
+				}
+				for (String key : INDIVIDUAL_KEYS) {
+					JsonElement value = args.get(key);
+					if (value != null && value.isJsonPrimitive()) {
+						String recordedId = value.getAsString();
+						if (variables.contains(recordedId)) {
+							continue;
+						}
+						String replayedId = mapping.map(recordedId);
+						if (replayedId != null) {
+							args.addProperty(key, replayedId);
+						}
+						else {
+							unmapped += 1;
+						}
+					}
+				}
+				JsonElement variable = args.get(VARIABLE);
+				if (variable != null && variable.isJsonPrimitive()) {
+					variables.add(variable.getAsString());
+				}
+				request.add("arguments", args);
+			}
+			copy.add(request);
+		}
+		return new Retargeted(copy.toString(), unmapped);
+	}
+
+	/**
+	 * Register the individuals of a successful response with the mapping.
+	 */
+	private static void addReplayedIndividuals(JsonObject json, IndividualMapping mapping) {
+		JsonElement data = json.get("data");
+		if (data == null || data.isJsonObject() == false) {
+			return;
+		}
+		JsonElement individuals = data.getAsJsonObject().get("individuals");
+		if (individuals != null && individuals.isJsonArray()) {
+			for (JsonElement individual : individuals.getAsJsonArray()) {
+				JsonElement id = individual.isJsonObject() ? individual.getAsJsonObject().get("id") : null;
+				if (id != null && id.isJsonPrimitive()) {
+					mapping.addReplayed(id.getAsString());
+				}
+			}
+		}
+	}
+
+	private IndividualMapping getMapping(String modelId) {
+		IndividualMapping mapping = mappings.get(modelId);
+		if (mapping == null) {
+			IndividualMapping created = new IndividualMapping();
+			mapping = mappings.putIfAbsent(modelId, created);
+			if (mapping == null) {
+				mapping = created;
+			}
+		}
+		return mapping;
+	}
+
+	private static JsonObject copy(JsonObject object) {
+		// shallow copy is sufficient, only top level properties are replaced
+		JsonObject copy = new JsonObject();
+		for (Entry<String, JsonElement> entry : object.entrySet()) {
+			copy.add(entry.getKey(), entry.getValue());
+		}
+		return copy;
+	}
+
+	/**
+	 * Create a new model on the server.
+	 *
+	 * @return model id
+	 * @throws IOException
+	 */
+	public String createModel() throws IOException {
+		String requests = "[{\"entity\":\"model\",\"operation\":\"add\",\"arguments\":{}}]";
+		Response response = send(requests);
+		if (response.status != 200) {
+			throw new IOException("Could not create model, status: "+response.status);
+		}
+		JsonObject json = new JsonParser().parse(response.body).getAsJsonObject();
+		if (isSuccess(json) == false) {
+			throw new IOException("Could not create model: "+json.get("message"));
+		}
+		return json.getAsJsonObject("data").get("id").getAsString();
+	}
+
+	/**
+	 * Send the batch and record the result.
+	 *
+	 * @param batch
+	 * @param modelId target model
+	 * @param stats target for the result or null
+	 */
+	public void replay(JsonArray batch, String modelId, LatencyStats stats) {
+		IndividualMapping mapping = getMapping(modelId);
+		Retargeted retargeted = retarget(batch, modelId, mapping);
+		long start = System.nanoTime();
+		try {
+			Response response = send(retargeted.requests);
+			long duration = System.nanoTime() - start;
+			boolean success = false;
+			if (response.status == 200) {
+				JsonObject json = new JsonParser().parse(response.body).getAsJsonObject();
+				success = isSuccess(json);
+				if (success) {
+					addReplayedIndividuals(json, mapping);
+				}
+			}
+			if (stats == null) {
+				return;
+			}
+			if (response.status != 200) {
+				stats.addHttpError(response.status);
+			}
+			else {
+				stats.addLatency(duration);
+				if (success == false) {
+					if (retargeted.unmapped > 0) {
+						// expected failure, the batch refers to individuals unknown in the target model
+						stats.addUnmappedError();
+					}
+					else {
+						stats.addBatchError();
+					}
+				}
+			}
+		} catch (Exception e) {
+			LOG.debug("Request failed", e);
+			if (stats != null) {
+				stats.addException();
+			}
+		}
+	}
+
+	private static boolean isSuccess(JsonObject json) {
+		JsonElement type = json.get("message-type");
+		return type != null && "success".equals(type.getAsString());
+	}
+
+	private Response send(String requests) throws IOException {
+		String body = "uid="+URLEncoder.encode(uid, "UTF-8")
+				+"&intention="+URLEncoder.encode("loadtest", "UTF-8")
+				+"&requests="+URLEncoder.encode(requests, "UTF-8");
+		byte[] bytes = body.getBytes("UTF-8");
+		// the connection is not disconnected, this allows the reuse with keep-alive
+		HttpURLConnection connection = (HttpURLConnection) new URL(batchUrl).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+		connection.setFixedLengthStreamingMode(bytes.length);
+		OutputStream out = connection.getOutputStream();
+		try {
+			out.write(bytes);
+		}
+		finally {
+			IOUtils.closeQuietly(out);
+		}
+		Response response = new Response();
+		response.status = connection.getResponseCode();
+		InputStream in = response.status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		if (in != null) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+			try {
+				response.body = IOUtils.toString(reader);
+			}
+			finally {
+				IOUtils.closeQuietly(reader);
+			}
+		}
+		return response;
+	}
+
+	private static class Response {
+		int status;
+		String body;
+	}
+}
@@ -0,0 +1,113 @@
+package org.geneontology.minerva.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects latencies and error counts of one worker. Not thread-safe, use
+ * one instance per worker and {@link #merge(LatencyStats)} the results.
+ */
+public class LatencyStats {
+
+	private long[] latencies = new long[1024];
+	private int count = 0;
+	private long httpErrors = 0;
+	private long overloadErrors = 0;
+	private long batchErrors = 0;
+	private long unmappedErrors = 0;
+	private long exceptions = 0;
+
+	/**
+	 * @param nanos latency of a successful request
+	 */
+	public void addLatency(long nanos) {
+		if (count == latencies.length) {
+			latencies = Arrays.copyOf(latencies, latencies.length * 2);
+		}
+		latencies[count] = nanos;
+		count += 1;
+	}
+
+	public void addHttpError(int status) {
+		if (status == 503) {
+			overloadErrors += 1;
+		}
+		else {
+			httpErrors += 1;
+		}
+	}
+
+	public void addBatchError() {
+		batchErrors += 1;
+	}
+
+	/**
+	 * A failed batch, which refers to recorded individuals without a
+	 * counterpart in the target model.
+	 */
+	public void addUnmappedError() {
+		unmappedErrors += 1;
+	}
+
+	public void addException() {
+		exceptions += 1;
+	}
+
+	public void merge(LatencyStats other) {
+		for (int i = 0; i < other.count; i++) {
+			addLatency(other.latencies[i]);
+		}
+		httpErrors += other.httpErrors;
+		overloadErrors += other.overloadErrors;
+		batchErrors += other.batchErrors;
+		unmappedErrors += other.unmappedErrors;
+		exceptions += other.exceptions;
+	}
+
+	/**
+	 * @return number of requests, which returned a response
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	public long getErrorCount() {
+		return httpErrors + overloadErrors + batchErrors + exceptions;
+	}
+
+	/**
+	 * @param percentile value between 0 and 100
+	 * @return latency in nanoseconds
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100.0d * count) - 1;
+		return sorted[Math.max(0, Math.min(count - 1, index))];
+	}
+
+	/**
+	 * @param elapsedNanos duration of the measurement
+	 * @return report
+	 */
+	public String createReport(long elapsedNanos) {
+		long total = count + httpErrors + overloadErrors + exceptions;
+		double seconds = elapsedNanos / 1e9d;
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("requests:        %d in %.1f s%n", total, seconds));
+		sb.append(String.format("throughput:      %.2f requests/s%n", total / seconds));
+		sb.append(String.format("latency p50:     %.1f ms%n", getPercentile(50) / 1e6d));
+		sb.append(String.format("latency p90:     %.1f ms%n", getPercentile(90) / 1e6d));
+		sb.append(String.format("latency p99:     %.1f ms%n", getPercentile(99) / 1e6d));
+		sb.append(String.format("latency max:     %.1f ms%n", getPercentile(100) / 1e6d));
+		sb.append(String.format("error rate:      %.2f %%%n", total > 0 ? 100.0d * getErrorCount() / total : 0.0d));
+		sb.append(String.format("  batch errors:  %d%n", batchErrors));
+		sb.append(String.format("unmapped ids:    %d failed batches (not in the error rate)%n", unmappedErrors));
+		sb.append(String.format("  overload(503): %d%n", overloadErrors));
+		sb.append(String.format("  http errors:   %d%n", httpErrors));
+		sb.append(String.format("  exceptions:    %d%n", exceptions));
+		return sb.toString();
+	}
+}
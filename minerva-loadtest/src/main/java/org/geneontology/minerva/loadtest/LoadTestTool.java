@@ -0,0 +1,220 @@
+package org.geneontology.minerva.loadtest;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.eclipse.jetty.server.Server;
+import org.geneontology.minerva.UndoAwareMolecularModelManager;
+import org.geneontology.minerva.curie.CurieMappings;
+import org.geneontology.minerva.curie.DefaultCurieHandler;
+import org.geneontology.minerva.curie.MappedCurieHandler;
+import org.geneontology.minerva.server.StartUpTool;
+import org.geneontology.minerva.server.StartUpTool.MinervaStartUpConfig;
+
+import com.google.gson.JsonArray;
+
+import owltools.cli.Opts;
+
+/**
+ * Replay recorded batch requests against a Minerva server with concurrent
+ * clients. If no server URL is given, a local server is started with the
+ * given ontology. The recording can be created with the server option
+ * '--record-batch-requests'.<br>
+ * <br>
+ * Each client has its own model. With the collision ratio, a fraction of the
+ * batches is sent to one shared model instead, to simulate concurrent edits
+ * of the same model.
+ */
+public class LoadTestTool {
+
+	private static final Logger LOG = Logger.getLogger(LoadTestTool.class);
+
+	public static class LoadTestConfig {
+		public String trace = null;
+		public String url = null;
+		public String uid = "http://orcid.org/0000-0000-0000-0000";
+		public int clients = 4;
+		public long duration = 60l;
+		public long warmup = 10l;
+		public TimeUnit durationUnit = TimeUnit.SECONDS;
+		public long thinkTime = 0l; // in milliseconds
+		public double collisionRatio = 0.0d;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Opts opts = new Opts(args);
+		LoadTestConfig conf = new LoadTestConfig();
+		MinervaStartUpConfig serverConf = new MinervaStartUpConfig();
+		serverConf.port = 6801;
+
+		while (opts.hasArgs()) {
+			if (opts.nextEq("-t|--trace")) {
+				conf.trace = opts.nextOpt();
+			}
+			else if (opts.nextEq("--url")) {
+				conf.url = opts.nextOpt();
+			}
+			else if (opts.nextEq("--uid")) {
+				conf.uid = opts.nextOpt();
+			}
+			else if (opts.nextEq("--clients")) {
+				conf.clients = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--duration")) {
+				conf.duration = Long.parseLong(opts.nextOpt());
+			}
+			else if (opts.nextEq("--warmup")) {
+				conf.warmup = Long.parseLong(opts.nextOpt());
+			}
+			else if (opts.nextEq("--think-time")) {
+				conf.thinkTime = Long.parseLong(opts.nextOpt());
+			}
+			else if (opts.nextEq("--collision-ratio")) {
+				conf.collisionRatio = Double.parseDouble(opts.nextOpt());
+			}
+			// local server options
+			else if (opts.nextEq("-g|--graph")) {
+				serverConf.ontology = opts.nextOpt();
+			}
+			else if (opts.nextEq("-c|--catalog")) {
+				serverConf.catalog = opts.nextOpt();
+			}
+			else if (opts.nextEq("-f|--model-folder")) {
+				serverConf.modelFolder = opts.nextOpt();
+			}
+			else if (opts.nextEq("--port")) {
+				serverConf.port = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--no-reasoning")) {
+				serverConf.useReasoner = false;
+			}
+			else if (opts.nextEq("--server-threads")) {
+				serverConf.serverThreads = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--batch-workers")) {
+				serverConf.batchWorkers = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--batch-max-pending")) {
+				serverConf.batchMaxPending = Integer.parseInt(opts.nextOpt());
+			}
+			else {
+				break;
+			}
+		}
+		if (conf.trace == null) {
+			System.err.println("No trace file with recorded batch requests available");
+			System.exit(-1);
+		}
+		if (conf.url == null && serverConf.ontology == null) {
+			System.err.println("Either a server url or an ontology for a local server is required");
+			System.exit(-1);
+		}
+		if (conf.collisionRatio < 0.0d || conf.collisionRatio > 1.0d) {
+			System.err.println("The collision ratio must be between 0 and 1: "+conf.collisionRatio);
+			System.exit(-1);
+		}
+
+		List<JsonArray> trace = BatchReplayer.readTrace(new File(conf.trace));
+		if (trace.isEmpty()) {
+			System.err.println("The trace contains no batches: "+conf.trace);
+			System.exit(-1);
+		}
+		LOG.info("Loaded "+trace.size()+" batches from trace: "+conf.trace);
+
+		Server server = null;
+		UndoAwareMolecularModelManager models = null;
+		File tempFolder = null;
+		try {
+			if (conf.url == null) {
+				if (serverConf.modelFolder == null) {
+					tempFolder = Files.createTempDirectory("minerva-loadtest").toFile();
+					serverConf.modelFolder = tempFolder.getAbsolutePath();
+				}
+				serverConf.contextString = "/";
+				CurieMappings localMappings = new CurieMappings.SimpleCurieMappings(Collections.singletonMap(serverConf.modelIdcurie, serverConf.modelIdPrefix));
+				serverConf.curieHandler = new MappedCurieHandler(DefaultCurieHandler.getMappings(), localMappings);
+				models = StartUpTool.createModelManager(serverConf);
+				server = StartUpTool.startUp(models, serverConf);
+				conf.url = "http://localhost:"+serverConf.port+"/";
+			}
+			LatencyStats stats = run(conf, trace);
+			System.out.println("Load test: "+conf.clients+" clients, think time "+conf.thinkTime+
+					" ms, collision ratio "+conf.collisionRatio+", "+trace.size()+" recorded batches");
+			System.out.print(stats.createReport(conf.durationUnit.toNanos(conf.duration)));
+		}
+		finally {
+			if (server != null) {
+				server.stop();
+			}
+			if (models != null) {
+				models.dispose();
+			}
+			FileUtils.deleteQuietly(tempFolder);
+		}
+	}
+
+	/**
+	 * Run the load test with the given configuration.
+	 *
+	 * @param conf
+	 * @param trace
+	 * @return merged statistics of all clients
+	 * @throws Exception
+	 */
+	public static LatencyStats run(final LoadTestConfig conf, final List<JsonArray> trace) throws Exception {
+		final BatchReplayer replayer = new BatchReplayer(conf.url, conf.uid);
+		final String sharedModel = replayer.createModel();
+		final AtomicInteger position = new AtomicInteger(0);
+		final long startTime = System.nanoTime();
+		final long measureStart = startTime + conf.durationUnit.toNanos(conf.warmup);
+		final long endTime = measureStart + conf.durationUnit.toNanos(conf.duration);
+		final List<LatencyStats> allStats = new ArrayList<LatencyStats>();
+		final CountDownLatch done = new CountDownLatch(conf.clients);
+		for (int i = 0; i < conf.clients; i++) {
+			final String ownModel = replayer.createModel();
+			final LatencyStats stats = new LatencyStats();
+			final Random random = new Random(i);
+			allStats.add(stats);
+			Thread client = new Thread("minerva-loadtest-"+i) {
+
+				@Override
+				public void run() {
+					try {
+						long now;
+						while ((now = System.nanoTime()) < endTime) {
+							JsonArray batch = trace.get((position.getAndIncrement() & Integer.MAX_VALUE) % trace.size());
+							String modelId = random.nextDouble() < conf.collisionRatio ? sharedModel : ownModel;
+							replayer.replay(batch, modelId, now >= measureStart ? stats : null);
+							if (conf.thinkTime > 0) {
+								Thread.sleep(conf.thinkTime);
+							}
+						}
+					} catch (InterruptedException e) {
+						LOG.warn("Interrupted client: "+getName());
+					}
+					finally {
+						done.countDown();
+					}
+				}
+			};
+			client.setDaemon(true);
+			client.start();
+		}
+		LOG.info("Started "+conf.clients+" clients, warmup: "+conf.warmup+" duration: "+conf.duration+" "+conf.durationUnit);
+		done.await();
+		LatencyStats merged = new LatencyStats();
+		for (LatencyStats stats : allStats) {
+			merged.merge(stats);
+		}
+		return merged;
+	}
+}
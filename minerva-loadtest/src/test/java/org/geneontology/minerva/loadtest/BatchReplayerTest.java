@@ -0,0 +1,76 @@
+package org.geneontology.minerva.loadtest;
+
+import static org.junit.Assert.*;
+
+import org.geneontology.minerva.loadtest.BatchReplayer.IndividualMapping;
+import org.geneontology.minerva.loadtest.BatchReplayer.Retargeted;
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class BatchReplayerTest {
+
+	@Test
+	public void testMapping() {
+		IndividualMapping mapping = new IndividualMapping();
+		assertNull(mapping.map("recorded-1"));
+
+		mapping.addReplayed("replayed-1");
+		mapping.addReplayed("replayed-2");
+		// duplicates are ignored
+		mapping.addReplayed("replayed-1");
+		assertEquals("replayed-1", mapping.map("recorded-1"));
+		assertEquals("replayed-2", mapping.map("recorded-2"));
+		// stable mapping, each replayed id is used only once
+		assertEquals("replayed-1", mapping.map("recorded-1"));
+		assertNull(mapping.map("recorded-3"));
+	}
+
+	@Test
+	public void testRetarget() {
+		IndividualMapping mapping = new IndividualMapping();
+		mapping.addReplayed("gomodel:target/i1");
+		JsonArray batch = parse("["
+				+ "{\"entity\":\"individual\",\"operation\":\"add\",\"arguments\":{\"model-id\":\"gomodel:recorded\",\"expressions\":[],\"assign-to-variable\":\"x1\"}},"
+				+ "{\"entity\":\"edge\",\"operation\":\"add\",\"arguments\":{\"model-id\":\"gomodel:recorded\",\"subject\":\"gomodel:recorded/a\",\"object\":\"x1\",\"predicate\":\"BFO:0000050\"}},"
+				+ "{\"entity\":\"individual\",\"operation\":\"remove\",\"arguments\":{\"model-id\":\"gomodel:recorded\",\"individual\":\"gomodel:recorded/b\"}},"
+				+ "{\"entity\":\"model\",\"operation\":\"get\",\"arguments\":{\"model-id\":\"gomodel:recorded\"}}"
+				+ "]");
+
+		Retargeted retargeted = BatchReplayer.retarget(batch, "gomodel:target", mapping);
+		// b has no replayed individual left
+		assertEquals(1, retargeted.unmapped);
+		JsonArray requests = parse(retargeted.requests);
+		assertEquals(4, requests.size());
+		for (int i = 0; i < requests.size(); i++) {
+			assertEquals("gomodel:target", getArguments(requests, i).get("model-id").getAsString());
+		}
+		JsonObject edge = getArguments(requests, 1);
+		assertEquals("gomodel:target/i1", edge.get("subject").getAsString());
+		assertEquals("x1", edge.get("object").getAsString());
+		assertEquals("BFO:0000050", edge.get("predicate").getAsString());
+		assertEquals("gomodel:recorded/b", getArguments(requests, 2).get("individual").getAsString());
+
+		// the recorded batch is unchanged
+		assertEquals("gomodel:recorded", getArguments(batch, 0).get("model-id").getAsString());
+		assertEquals("gomodel:recorded/a", getArguments(batch, 1).get("subject").getAsString());
+
+		// once a replayed individual is available, the remaining id is mapped
+		mapping.addReplayed("gomodel:target/i2");
+		retargeted = BatchReplayer.retarget(batch, "gomodel:target", mapping);
+		assertEquals(0, retargeted.unmapped);
+		requests = parse(retargeted.requests);
+		assertEquals("gomodel:target/i1", getArguments(requests, 1).get("subject").getAsString());
+		assertEquals("gomodel:target/i2", getArguments(requests, 2).get("individual").getAsString());
+	}
+
+	private static JsonArray parse(String json) {
+		return new JsonParser().parse(json).getAsJsonArray();
+	}
+
+	private static JsonObject getArguments(JsonArray requests, int index) {
+		return requests.get(index).getAsJsonObject().getAsJsonObject("arguments");
+	}
+}
@@ -0,0 +1,138 @@
+package org.geneontology.minerva.lookup;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.geneontology.minerva.lookup.ExternalLookupService.LookupEntry;
+import org.semanticweb.owlapi.model.IRI;
+
+/**
+ * Resolve a set of ids with a bounded number of concurrent lookups. Used to
+ * prefetch all ids of a batch job, instead of a sequential lookup for each
+ * cache miss.
+ */
+public class ParallelLookupResolver {
+
+	private static final Logger LOG = Logger.getLogger(ParallelLookupResolver.class);
+
+	/**
+	 * Receives the results in the thread calling
+	 * {@link ParallelLookupResolver#resolve(Collection, ResultHandler)}.
+	 */
+	public static interface ResultHandler {
+
+		/**
+		 * Called for each successful lookup, failed lookups are not reported.
+		 *
+		 * @param id
+		 * @param entries result, may be empty
+		 * @throws Exception
+		 */
+		public void handle(IRI id, List<LookupEntry> entries) throws Exception;
+	}
+
+	private final ExternalLookupService service;
+	private final int threads;
+	private final int progressInterval;
+
+	/**
+	 * @param service
+	 * @param threads maximum number of concurrent lookups
+	 * @param progressInterval number of lookups between progress log messages
+	 */
+	public ParallelLookupResolver(ExternalLookupService service, int threads, int progressInterval) {
+		this.service = service;
+		this.threads = Math.max(1, threads);
+		this.progressInterval = Math.max(1, progressInterval);
+	}
+
+	/**
+	 * Lookup all ids.
+	 *
+	 * @param ids
+	 * @param handler or null
+	 * @return successful lookups
+	 * @throws Exception
+	 */
+	public Map<IRI, List<LookupEntry>> resolve(Collection<IRI> ids, ResultHandler handler) throws Exception {
+		Map<IRI, List<LookupEntry>> results = new HashMap<IRI, List<LookupEntry>>();
+		if (ids.isEmpty()) {
+			return results;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			private final AtomicInteger count = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "minerva-lookup-"+count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		int failed = 0;
+		try {
+			CompletionService<Result> completion = new ExecutorCompletionService<Result>(executor);
+			for (final IRI id : ids) {
+				completion.submit(new Callable<Result>() {
+
+					@Override
+					public Result call() throws Exception {
+						return lookup(id);
+					}
+				});
+			}
+			for (int i = 1; i <= ids.size(); i++) {
+				Result result;
+				try {
+					result = completion.take().get();
+				} catch (ExecutionException e) {
+					throw new Exception("Unexpected lookup problem", e.getCause());
+				}
+				if (result.entries == null) {
+					failed += 1;
+				}
+				else {
+					results.put(result.id, result.entries);
+					if (handler != null) {
+						handler.handle(result.id, result.entries);
+					}
+				}
+				if (i % progressInterval == 0 || i == ids.size()) {
+					LOG.info("Resolved "+i+" of "+ids.size()+" ids, failed: "+failed);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	private static class Result {
+		IRI id;
+		List<LookupEntry> entries;
+	}
+
+	private Result lookup(IRI id) {
+		Result result = new Result();
+		result.id = id;
+		try {
+			result.entries = service.lookup(id);
+		} catch (RuntimeException e) {
+			LOG.warn("Lookup failed for id: "+id, e);
+		}
+		return result;
+	}
+}
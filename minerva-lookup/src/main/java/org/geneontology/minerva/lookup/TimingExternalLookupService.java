@@ -0,0 +1,53 @@
+package org.geneontology.minerva.lookup;
+
+import java.util.List;
+
+import org.geneontology.minerva.metrics.MinervaMetrics;
+import org.geneontology.minerva.metrics.MinervaMetrics.Timer;
+import org.semanticweb.owlapi.model.IRI;
+
+/**
+ * Record the latency of all lookups of the wrapped service.
+ */
+public class TimingExternalLookupService implements ExternalLookupService {
+
+	private final ExternalLookupService service;
+	private final Timer timer;
+
+	/**
+	 * @param service
+	 * @param metrics
+	 * @param name label for the wrapped service, i.e. 'golr'
+	 */
+	public TimingExternalLookupService(ExternalLookupService service, MinervaMetrics metrics, String name) {
+		this.service = service;
+		this.timer = metrics.timer("minerva_lookup_seconds", "service", name);
+	}
+
+	@Override
+	public List<LookupEntry> lookup(IRI id) {
+		long start = System.nanoTime();
+		try {
+			return service.lookup(id);
+		}
+		finally {
+			timer.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public LookupEntry lookup(IRI id, String taxon) {
+		long start = System.nanoTime();
+		try {
+			return service.lookup(id, taxon);
+		}
+		finally {
+			timer.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Timing("+service.toString()+")";
+	}
+}
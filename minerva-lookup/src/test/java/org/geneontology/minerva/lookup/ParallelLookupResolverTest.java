@@ -0,0 +1,61 @@
+package org.geneontology.minerva.lookup;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.geneontology.minerva.lookup.ExternalLookupService.LookupEntry;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+
+public class ParallelLookupResolverTest {
+
+	@Test
+	public void testResolve() throws Exception {
+		final IRI failing = IRI.create("http://example.org/failing");
+		List<LookupEntry> table = new ArrayList<LookupEntry>();
+		List<IRI> ids = new ArrayList<IRI>();
+		for (int i = 0; i < 100; i++) {
+			IRI id = IRI.create("http://example.org/e"+i);
+			ids.add(id);
+			if (i % 2 == 0) {
+				table.add(new LookupEntry(id, "label"+i, "gene", "NCBITaxon:9606"));
+			}
+		}
+		ids.add(failing);
+		final TableLookupService tableService = new TableLookupService(table);
+		ExternalLookupService service = new ExternalLookupService() {
+
+			@Override
+			public List<LookupEntry> lookup(IRI id) {
+				if (failing.equals(id)) {
+					return null;
+				}
+				return tableService.lookup(id);
+			}
+
+			@Override
+			public LookupEntry lookup(IRI id, String taxon) {
+				return tableService.lookup(id, taxon);
+			}
+		};
+		final List<IRI> handled = new ArrayList<IRI>();
+		ParallelLookupResolver resolver = new ParallelLookupResolver(service, 4, 10);
+		Map<IRI, List<LookupEntry>> results = resolver.resolve(ids, new ParallelLookupResolver.ResultHandler() {
+
+			@Override
+			public void handle(IRI id, List<LookupEntry> entries) {
+				handled.add(id);
+			}
+		});
+		assertEquals(100, results.size());
+		assertEquals(100, handled.size());
+		assertFalse(results.containsKey(failing));
+		assertEquals("label2", results.get(IRI.create("http://example.org/e2")).get(0).label);
+		assertTrue(results.get(IRI.create("http://example.org/e3")).isEmpty());
+		assertTrue(resolver.resolve(Arrays.<IRI>asList(), null).isEmpty());
+	}
+}
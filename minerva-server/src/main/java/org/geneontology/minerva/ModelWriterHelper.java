@@ -11,6 +11,7 @@ import org.geneontology.minerva.curie.CurieHandler;
 import org.geneontology.minerva.lookup.ExternalLookupService;
 import org.geneontology.minerva.lookup.ExternalLookupService.LookupEntry;
 import org.geneontology.minerva.taxon.FindTaxonTool;
+import org.geneontology.minerva.taxon.TaxonIndex;
 import org.obolibrary.obo2owl.Obo2OWLConstants;
 import org.semanticweb.owlapi.model.AddAxiom;
 import org.semanticweb.owlapi.model.AddOntologyAnnotation;
@@ -44,15 +45,34 @@ public class ModelWriterHelper implements PreFileSaveHandler {
 	private final ExternalLookupService lookupService;
 	private final IRI shortIdPropIRI;
 	private final IRI enabledByIRI;
+	private final TaxonIndex taxonIndex;
 
 	public ModelWriterHelper(CurieHandler curieHandler, ExternalLookupService lookupService) {
+		this(curieHandler, lookupService, null);
+	}
+
+	/**
+	 * @param curieHandler
+	 * @param lookupService
+	 * @param taxonIndex shared taxon index for the tbox or null
+	 */
+	public ModelWriterHelper(CurieHandler curieHandler, ExternalLookupService lookupService, TaxonIndex taxonIndex) {
 		this.curieHandler = curieHandler;
 		this.lookupService = lookupService;
+		this.taxonIndex = taxonIndex;
 		shortIdPropIRI = IRI.create(Obo2OWLConstants.OIOVOCAB_IRI_PREFIX+"id");
 		enabledByIRI = OBOUpperVocabulary.GOREL_enabled_by.getIRI();
 	}
 
-	List<OWLOntologyChange> generateLabelsAndIds(OWLOntology model, ExternalLookupService lookupService) {
+	/**
+	 * Create the changes for the labels, ids and taxa of the used classes.
+	 * The model is not modified.
+	 * 
+	 * @param model
+	 * @param lookupService
+	 * @return changes
+	 */
+	public List<OWLOntologyChange> generateLabelsAndIds(OWLOntology model, ExternalLookupService lookupService) {
 		if (curieHandler == null && lookupService == null) {
 			return Collections.emptyList();
 		}
@@ -111,7 +131,7 @@ public class ModelWriterHelper implements PreFileSaveHandler {
 			}
 		}
 		usedClasses.addAll(bioentityClasses);
-		FindTaxonTool taxonTool = new FindTaxonTool(curieHandler, model.getOWLOntologyManager().getOWLDataFactory());
+		FindTaxonTool taxonTool = new FindTaxonTool(curieHandler, df, taxonIndex);
 		
 		// check label and ids for used classes
 		for (OWLClass cls : usedClasses) {
@@ -166,6 +186,32 @@ public class ModelWriterHelper implements PreFileSaveHandler {
 		return allChanges;
 	}
 
+	/**
+	 * Find the ids, which {@link #handle(OWLOntology)} would look up for the
+	 * model. The model is not modified.
+	 * 
+	 * @param model
+	 * @return ids
+	 */
+	public Set<IRI> getLookupIds(OWLOntology model) {
+		final Set<IRI> ids = new HashSet<IRI>();
+		generateLabelsAndIds(model, new ExternalLookupService() {
+
+			@Override
+			public List<LookupEntry> lookup(IRI id) {
+				ids.add(id);
+				return null;
+			}
+
+			@Override
+			public LookupEntry lookup(IRI id, String taxon) {
+				ids.add(id);
+				return null;
+			}
+		});
+		return ids;
+	}
+
 	@Override
 	public List<OWLOntologyChange> handle(OWLOntology model) {
 		List<OWLOntologyChange> allChanges = generateLabelsAndIds(model, lookupService);
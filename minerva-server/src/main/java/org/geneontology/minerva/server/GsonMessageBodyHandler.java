@@ -17,6 +17,10 @@ import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 
+import org.geneontology.minerva.metrics.MinervaMetrics;
+import org.geneontology.minerva.metrics.MinervaMetrics.Timer;
+import org.geneontology.minerva.metrics.NoOpMetrics;
+
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
@@ -28,6 +32,19 @@ public final class GsonMessageBodyHandler implements MessageBodyWriter<Object>,
 	private static final String UTF_8 = "UTF-8";
 
 	private Gson gson;
+	
+	private final Timer serializeTimer;
+	
+	public GsonMessageBodyHandler() {
+		this(NoOpMetrics.INSTANCE);
+	}
+	
+	/**
+	 * @param metrics used to record the time for serializing the responses
+	 */
+	public GsonMessageBodyHandler(MinervaMetrics metrics) {
+		serializeTimer = metrics.timer("minerva_batch_phase_seconds", "phase", "serialize");
+	}
 
 	private Gson getGson() {
 		if (gson == null) {
@@ -93,8 +110,10 @@ public final class GsonMessageBodyHandler implements MessageBodyWriter<Object>,
 			MultivaluedMap<String, Object> httpHeaders,
 			OutputStream entityStream) throws IOException, WebApplicationException
 	{
+		final long start = System.nanoTime();
 		OutputStreamWriter writer = new OutputStreamWriter(entityStream, UTF_8);
 		getGson().toJson(object, writer);
 		writer.flush();
+		serializeTimer.record(System.nanoTime() - start);
 	}
 }
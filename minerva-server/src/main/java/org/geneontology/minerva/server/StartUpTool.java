@@ -1,5 +1,6 @@
 package org.geneontology.minerva.server;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -10,18 +11,37 @@ import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.geneontology.minerva.CoreMolecularModelManager;
+import org.geneontology.minerva.IdGenerator;
+import org.geneontology.minerva.ModelAutoSaveScheduler;
 import org.geneontology.minerva.ModelReaderHelper;
+import org.geneontology.minerva.ModelReasonerManager;
 import org.geneontology.minerva.ModelWriterHelper;
 import org.geneontology.minerva.UndoAwareMolecularModelManager;
+import org.geneontology.minerva.UndoAwareMolecularModelManager.UndoMetadata;
 import org.geneontology.minerva.curie.CurieHandler;
 import org.geneontology.minerva.curie.CurieMappings;
 import org.geneontology.minerva.curie.DefaultCurieHandler;
 import org.geneontology.minerva.curie.MappedCurieHandler;
+import org.geneontology.minerva.legacy.GafExportTool;
 import org.geneontology.minerva.lookup.CachingExternalLookupService;
 import org.geneontology.minerva.lookup.ExternalLookupService;
 import org.geneontology.minerva.lookup.GolrExternalLookupService;
+import org.geneontology.minerva.lookup.TimingExternalLookupService;
+import org.geneontology.minerva.metrics.HistogramMetrics;
+import org.geneontology.minerva.metrics.MinervaMetrics;
+import org.geneontology.minerva.metrics.MinervaMetrics.Gauge;
+import org.geneontology.minerva.metrics.NoOpMetrics;
+import org.geneontology.minerva.server.handler.AsyncReasoningService;
+import org.geneontology.minerva.server.handler.BatchRequestDispatcher;
+import org.geneontology.minerva.server.handler.BatchRequestRecorder;
 import org.geneontology.minerva.server.handler.JsonOrJsonpBatchHandler;
 import org.geneontology.minerva.server.handler.JsonOrJsonpSeedHandler;
+import org.geneontology.minerva.server.handler.MetricsHandler;
+import org.geneontology.minerva.server.handler.ModelAdminHandler;
+import org.geneontology.minerva.taxon.TaxonIndex;
+import org.geneontology.minerva.util.OWLObjectInterner;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.servlet.ServletContainer;
 import org.semanticweb.elk.owlapi.ElkReasonerFactory;
@@ -50,6 +70,9 @@ public class StartUpTool {
 		public String ontology = null;
 		public String catalog = null;
 		public String modelFolder = null;
+		public boolean shardedModelFolder = false;
+		// id of this server for unique ids across several servers, -1 for none
+		public int nodeId = -1;
 		public String modelIdPrefix = "http://model.geneontology.org/";
 		public String modelIdcurie = "gomodel";
 		
@@ -62,6 +85,12 @@ public class StartUpTool {
 		public TimeUnit golrCacheDurationUnit = TimeUnit.HOURS;
 		public ExternalLookupService lookupService = null;
 		public boolean checkLiteralIds = true;
+		
+		// resolve the GO codes for all ECO classes at start up, for the legacy export
+		public boolean precomputeEvidenceCodes = false;
+		
+		// share equal literals and annotations across all loaded models
+		public boolean internModelObjects = false;
 
 		// reasoner settings
 		public boolean useReasoner = true;
@@ -78,6 +107,53 @@ public class StartUpTool {
 		public boolean useModuleReasoner = false;
 		public OWLReasonerFactory rf = new ElkReasonerFactory();
 		
+		/*
+		 * If set to TRUE, the batch responses only contain the asserted state of
+		 * the model. The inferred types and the consistency are computed by a
+		 * separate executor and are retrieved using the packet id.
+		 */
+		public boolean useAsyncReasoning = false;
+		public int asyncReasoningThreads = 2;
+		public int asyncReasoningQueueSize = 100;
+		public long asyncReasoningRetention = 10l;
+		public TimeUnit asyncReasoningRetentionUnit = TimeUnit.MINUTES;
+		
+		/*
+		 * Reasoner life cycle: maximum number of live reasoners (0 for no limit),
+		 * idle time after which a reasoner is disposed (0 to keep them), the
+		 * minimum idle time before any disposal and the fraction of the heap
+		 * after a GC, which triggers the disposal of the least recently used
+		 * reasoners (0 to disable).
+		 */
+		public int maxReasoners = 0;
+		public long reasonerIdleTimeout = 0l;
+		public TimeUnit reasonerIdleTimeoutUnit = TimeUnit.MINUTES;
+		public long reasonerMinIdle = 10l;
+		public TimeUnit reasonerMinIdleUnit = TimeUnit.SECONDS;
+		public double reasonerHeapThreshold = 0.0d;
+		
+		/*
+		 * Automatic saving of modified models: a model is saved at most once
+		 * per interval (0 to disable), after a quiet period since the first
+		 * modification. The spacing is the minimum time between any two saves.
+		 */
+		public long autoSaveInterval = 0l;
+		public long autoSaveQuietPeriod = 30l;
+		public long autoSaveSpacing = 1l;
+		public TimeUnit autoSaveUnit = TimeUnit.SECONDS;
+		
+		/*
+		 * Request counts and latency histograms, exported via the 'metrics'
+		 * resource. The command line tool enables the histograms by default.
+		 */
+		public MinervaMetrics metrics = NoOpMetrics.INSTANCE;
+		
+		/*
+		 * If set to TRUE, the 'admin/models' resource is available. It allows
+		 * to unlink and save models, only enable it for internal deployments.
+		 */
+		public boolean useAdminResource = false;
+		
 		public CurieHandler curieHandler;
 
 		// The subset of highly relevant relations is configured using super property
@@ -94,14 +170,29 @@ public class StartUpTool {
 		public int requestHeaderSize = 64*1024;
 		public int requestBufferSize = 128*1024;
 		
+		/*
+		 * Thread pools: the number of Jetty threads (0 for the Jetty default)
+		 * and the number of batch workers (0 to process the batch in the Jetty
+		 * thread). If more than batchMaxPending requests are queued or running,
+		 * new requests are rejected with a 503.
+		 */
+		public int serverThreads = 0;
+		public int serverAcceptQueueSize = 0;
+		public int batchWorkers = 0;
+		public int batchMaxPending = 100;
+		
 		public boolean useRequestLogging = false;
 		
+		// file for recording all batch requests, i.e. for replay in load tests
+		public String batchRecordFile = null;
+		
 		public boolean useGolrUrlLogging = false;
 	}
 	
 	public static void main(String[] args) throws Exception {
 		Opts opts = new Opts(args);
 		MinervaStartUpConfig conf = new MinervaStartUpConfig();
+		conf.metrics = new HistogramMetrics();
 		
 		
 		while (opts.hasArgs()) {
@@ -114,6 +205,18 @@ public class StartUpTool {
 			else if (opts.nextEq("-f|--model-folder")) {
 				conf.modelFolder = opts.nextOpt();
 			}
+			else if (opts.nextEq("--sharded-model-folder")) {
+				conf.shardedModelFolder = true;
+			}
+			else if (opts.nextEq("--precompute-evidence-codes")) {
+				conf.precomputeEvidenceCodes = true;
+			}
+			else if (opts.nextEq("--intern-model-objects")) {
+				conf.internModelObjects = true;
+			}
+			else if (opts.nextEq("--node-id")) {
+				conf.nodeId = Integer.parseInt(opts.nextOpt());
+			}
 			else if (opts.nextEq("--model-id-prefix")) {
 				conf.modelIdPrefix = opts.nextOpt();
 			}
@@ -185,12 +288,61 @@ public class StartUpTool {
 				conf.rf = new ElkReasonerFactory();
 				conf.useModuleReasoner = false;
 			}
+			else if (opts.nextEq("--async-reasoning")) {
+				conf.useAsyncReasoning = true;
+			}
+			else if (opts.nextEq("--async-reasoning-threads")) {
+				conf.asyncReasoningThreads = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--max-reasoners")) {
+				conf.maxReasoners = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--reasoner-idle-timeout")) {
+				// in minutes
+				conf.reasonerIdleTimeout = Long.parseLong(opts.nextOpt());
+			}
+			else if (opts.nextEq("--reasoner-min-idle")) {
+				// in seconds
+				conf.reasonerMinIdle = Long.parseLong(opts.nextOpt());
+			}
+			else if (opts.nextEq("--reasoner-heap-threshold")) {
+				conf.reasonerHeapThreshold = Double.parseDouble(opts.nextOpt());
+			}
+			else if (opts.nextEq("--autosave-interval")) {
+				// in seconds
+				conf.autoSaveInterval = Long.parseLong(opts.nextOpt());
+			}
+			else if (opts.nextEq("--autosave-quiet-period")) {
+				// in seconds
+				conf.autoSaveQuietPeriod = Long.parseLong(opts.nextOpt());
+			}
+			else if (opts.nextEq("--server-threads")) {
+				conf.serverThreads = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--server-accept-queue-size")) {
+				conf.serverAcceptQueueSize = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--batch-workers")) {
+				conf.batchWorkers = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--batch-max-pending")) {
+				conf.batchMaxPending = Integer.parseInt(opts.nextOpt());
+			}
+			else if (opts.nextEq("--enable-admin")) {
+				conf.useAdminResource = true;
+			}
+			else if (opts.nextEq("--no-metrics")) {
+				conf.metrics = NoOpMetrics.INSTANCE;
+			}
 			else if (opts.nextEq("--use-request-logging|--request-logging")) {
 				conf.useRequestLogging = true;
 			}
 			else if (opts.nextEq("--use-golr-url-logging|--golr-url-logging")) {
 				conf.useGolrUrlLogging = true;
 			}
+			else if (opts.nextEq("--record-batch-requests")) {
+				conf.batchRecordFile = opts.nextOpt();
+			}
 			else {
 				break;
 			}
@@ -218,6 +370,8 @@ public class StartUpTool {
 		// wrap the Golr service with a cache
 		if (conf.golrUrl != null) {
 			conf.lookupService = new GolrExternalLookupService(conf.golrUrl, conf.curieHandler, conf.useGolrUrlLogging);
+			// only the cache misses are timed
+			conf.lookupService = new TimingExternalLookupService(conf.lookupService, conf.metrics, "golr");
 			LOGGER.info("Setting up Golr cache with size: "+conf.golrCacheSize+" duration: "+
 					conf.golrCacheDuration+" "+conf.golrCacheDurationUnit+
 					" use url logging: "+conf.useGolrUrlLogging);
@@ -227,6 +381,30 @@ public class StartUpTool {
 		startUp(conf);
 	}
 	
+	private static void registerReasonerGauges(final ModelReasonerManager reasonerManager, MinervaMetrics metrics) {
+		metrics.gauge("minerva_reasoners_live", new Gauge() {
+			
+			@Override
+			public double getValue() {
+				return reasonerManager.getLiveCount();
+			}
+		});
+		metrics.gauge("minerva_reasoners_created", new Gauge() {
+			
+			@Override
+			public double getValue() {
+				return reasonerManager.getCreatedCount();
+			}
+		});
+		metrics.gauge("minerva_reasoners_disposed", new Gauge() {
+			
+			@Override
+			public double getValue() {
+				return reasonerManager.getDisposedCount();
+			}
+		});
+	}
+	
 	/**
 	 * Try to resolve the given string into an {@link OWLObjectProperty}.
 	 * 
@@ -277,6 +455,26 @@ public class StartUpTool {
 
 	public static void startUp(final MinervaStartUpConfig conf) 
 			throws Exception {
+		UndoAwareMolecularModelManager models = createModelManager(conf);
+		
+		// start server
+		Server server = startUp(models, conf);
+		server.join();
+	}
+	
+	/**
+	 * Load the ontology and create the model manager for the configuration.
+	 * 
+	 * @param conf
+	 * @return model manager
+	 * @throws Exception
+	 */
+	public static UndoAwareMolecularModelManager createModelManager(final MinervaStartUpConfig conf)
+			throws Exception {
+		if (conf.nodeId >= 0) {
+			LOGGER.info("Use node id for model and individual ids: "+conf.nodeId);
+			CoreMolecularModelManager.setIdGenerator(new IdGenerator(conf.nodeId));
+		}
 		// load ontology
 		LOGGER.info("Start loading ontology: "+conf.ontology);
 		ParserWrapper pw = new ParserWrapper();
@@ -309,15 +507,53 @@ public class StartUpTool {
 				conf.curieHandler, conf.modelIdPrefix);
 		// set pre and post file handlers
 		models.addPostLoadOntologyFilter(ModelReaderHelper.INSTANCE);
-		models.addPreFileSaveHandler(new ModelWriterHelper(conf.curieHandler, conf.lookupService));
+		TaxonIndex taxonIndex = TaxonIndex.create(graph.getSourceOntology(), conf.curieHandler);
+		LOGGER.info("Indexed taxa for "+taxonIndex.size()+" bioentity classes");
+		models.addPreFileSaveHandler(new ModelWriterHelper(conf.curieHandler, conf.lookupService, taxonIndex));
+		models.setMetrics(conf.metrics);
+		if (conf.internModelObjects) {
+			models.setInterner(new OWLObjectInterner(graph.getDataFactory()));
+		}
+		
+		if (conf.precomputeEvidenceCodes) {
+			int count = GafExportTool.getInstance().precomputeEvidenceCodes(conf.curieHandler, graph.getSourceOntology());
+			LOGGER.info("Precomputed GO evidence codes for "+count+" ECO classes");
+		}
+		
+		// manage the reasoner life cycle
+		LOGGER.info("Reasoner config maxReasoners: "+conf.maxReasoners+" idle timeout: "+
+				conf.reasonerIdleTimeout+" "+conf.reasonerIdleTimeoutUnit+" min idle: "+
+				conf.reasonerMinIdle+" "+conf.reasonerMinIdleUnit+" heap threshold: "+conf.reasonerHeapThreshold);
+		ModelReasonerManager reasonerManager = new ModelReasonerManager(conf.maxReasoners,
+				conf.reasonerIdleTimeoutUnit.toMillis(conf.reasonerIdleTimeout),
+				conf.reasonerMinIdleUnit.toMillis(conf.reasonerMinIdle), TimeUnit.MILLISECONDS);
+		if (conf.reasonerHeapThreshold > 0.0d) {
+			reasonerManager.enableMemoryPressureEviction(conf.reasonerHeapThreshold, 0.5d);
+		}
+		models.setReasonerManager(reasonerManager);
+		registerReasonerGauges(reasonerManager, conf.metrics);
+		
+		// save modified models in the background
+		if (conf.autoSaveInterval > 0) {
+			LOGGER.info("Autosave config interval: "+conf.autoSaveInterval+" quiet period: "+
+					conf.autoSaveQuietPeriod+" spacing: "+conf.autoSaveSpacing+" "+conf.autoSaveUnit);
+			final ModelAutoSaveScheduler<UndoMetadata> autoSave = new ModelAutoSaveScheduler<UndoMetadata>(models,
+					new UndoMetadata(null), conf.autoSaveInterval, conf.autoSaveQuietPeriod, conf.autoSaveSpacing, conf.autoSaveUnit);
+			models.setModifiedListener(autoSave);
+			Runtime.getRuntime().addShutdownHook(new Thread("minerva-autosave-shutdown") {
+
+				@Override
+				public void run() {
+					autoSave.shutdown();
+				}
+			});
+		}
 		
 		// set folder to  models
 		LOGGER.info("Model path: "+conf.modelFolder);
 		models.setPathToOWLFiles(conf.modelFolder);
-		
-		// start server
-		Server server = startUp(models, conf);
-		server.join();
+		models.setShardedLayout(conf.shardedModelFolder);
+		return models;
 	}
 	
 	public static Server startUp(UndoAwareMolecularModelManager models, MinervaStartUpConfig conf)
@@ -326,7 +562,7 @@ public class StartUpTool {
 		// Configuration: Use an already existing handler instance
 		// Configuration: Use custom JSON renderer (GSON)
 		ResourceConfig resourceConfig = new ResourceConfig();
-		resourceConfig.register(GsonMessageBodyHandler.class);
+		resourceConfig.register(new GsonMessageBodyHandler(conf.metrics));
 		resourceConfig.register(RequireJsonpFilter.class);
 		if (conf.useRequestLogging) {
 			resourceConfig.register(LoggingApplicationEventListener.class);
@@ -335,6 +571,7 @@ public class StartUpTool {
 		
 		LOGGER.info("BatchHandler config useReasoner: "+conf.useReasoner);
 		LOGGER.info("BatchHandler config useModuleReasoner: "+conf.useModuleReasoner);
+		LOGGER.info("BatchHandler config useAsyncReasoning: "+conf.useAsyncReasoning);
 		LOGGER.info("BatchHandler config importantRelations: "+conf.importantRelations);
 		LOGGER.info("BatchHandler config lookupService: "+conf.lookupService);
 		LOGGER.info("BatchHandler config checkLiteralIds: "+conf.checkLiteralIds);
@@ -348,18 +585,76 @@ public class StartUpTool {
 		JsonOrJsonpBatchHandler batchHandler = new JsonOrJsonpBatchHandler(models, conf.defaultModelState,
 				conf.useReasoner, conf.useModuleReasoner, conf.importantRelations, conf.lookupService);
 		batchHandler.CHECK_LITERAL_IDENTIFIERS = conf.checkLiteralIds;
+		if (conf.useReasoner && conf.useAsyncReasoning) {
+			final AsyncReasoningService asyncReasoningService = new AsyncReasoningService(conf.asyncReasoningThreads,
+					conf.asyncReasoningQueueSize, conf.asyncReasoningRetention, conf.asyncReasoningRetentionUnit);
+			batchHandler.setAsyncReasoningService(asyncReasoningService);
+			conf.metrics.gauge("minerva_async_reasoning_pending", new Gauge() {
+				
+				@Override
+				public double getValue() {
+					return asyncReasoningService.getPendingCount();
+				}
+			});
+		}
+		if (conf.batchWorkers > 0) {
+			LOGGER.info("BatchHandler config batchWorkers: "+conf.batchWorkers+" batchMaxPending: "+conf.batchMaxPending);
+			final BatchRequestDispatcher dispatcher = new BatchRequestDispatcher(conf.batchWorkers, conf.batchMaxPending);
+			batchHandler.setDispatcher(dispatcher);
+			conf.metrics.gauge("minerva_batch_pending", new Gauge() {
+				
+				@Override
+				public double getValue() {
+					return dispatcher.getPendingCount();
+				}
+			});
+			conf.metrics.gauge("minerva_batch_rejected", new Gauge() {
+				
+				@Override
+				public double getValue() {
+					return dispatcher.getRejectedCount();
+				}
+			});
+		}
+		
+		if (conf.batchRecordFile != null) {
+			LOGGER.info("BatchHandler config batchRecordFile: "+conf.batchRecordFile);
+			final BatchRequestRecorder recorder = new BatchRequestRecorder(new File(conf.batchRecordFile));
+			batchHandler.setRecorder(recorder);
+			Runtime.getRuntime().addShutdownHook(new Thread("minerva-recorder-shutdown") {
+				
+				@Override
+				public void run() {
+					recorder.close();
+				}
+			});
+		}
 		
 		SimpleEcoMapper ecoMapper = EcoMapperFactory.createSimple();
 		JsonOrJsonpSeedHandler seedHandler = new JsonOrJsonpSeedHandler(models, conf.defaultModelState, conf.golrSeedUrl, ecoMapper );
-		resourceConfig = resourceConfig.registerInstances(batchHandler, seedHandler);
+		MetricsHandler metricsHandler = new MetricsHandler(conf.metrics);
+		resourceConfig = resourceConfig.registerInstances(batchHandler, seedHandler, metricsHandler);
+		if (conf.useAdminResource) {
+			LOGGER.info("Enable admin resource for models");
+			resourceConfig = resourceConfig.registerInstances(new ModelAdminHandler(models));
+		}
 
 		// setup jetty server port, buffers and context path
 		Server server = new Server();
+		if (conf.serverThreads > 0) {
+			LOGGER.info("Jetty config serverThreads: "+conf.serverThreads);
+			QueuedThreadPool threadPool = new QueuedThreadPool(conf.serverThreads);
+			threadPool.setName("minerva-jetty");
+			server.setThreadPool(threadPool);
+		}
 		// create connector with port and custom buffer sizes
 		SelectChannelConnector connector = new SelectChannelConnector();
 		connector.setPort(conf.port);
 		connector.setRequestHeaderSize(conf.requestHeaderSize);
 		connector.setRequestBufferSize(conf.requestBufferSize);
+		if (conf.serverAcceptQueueSize > 0) {
+			connector.setAcceptQueueSize(conf.serverAcceptQueueSize);
+		}
 		server.addConnector(connector);
 
 		ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
@@ -0,0 +1,150 @@
+package org.geneontology.minerva.server.handler;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3BatchResponse;
+import org.semanticweb.owlapi.model.IRI;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Computes the reasoner dependent parts of a batch response (inferred types
+ * and the consistency flag) on a dedicated, bounded executor. The results are
+ * kept for a limited time and can be retrieved using the packet id of the
+ * original request.
+ */
+public class AsyncReasoningService {
+
+	private static final Logger LOG = Logger.getLogger(AsyncReasoningService.class);
+
+	/**
+	 * Upper limit for the time a single poll request may wait for a result.
+	 */
+	public static final long MAX_WAIT_MILLIS = 30000L;
+
+	private final ThreadPoolExecutor executor;
+	private final Cache<String, Future<M3BatchResponse>> results;
+	private final Map<IRI, String> latestPackets = new ConcurrentHashMap<IRI, String>();
+
+	/**
+	 * @param threads number of reasoning threads
+	 * @param maxPending maximum number of queued reasoning tasks
+	 * @param retention how long a result is available for polling
+	 * @param unit time unit for the retention
+	 */
+	public AsyncReasoningService(int threads, int maxPending, long retention, TimeUnit unit) {
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(maxPending), new ThreadFactory() {
+
+			private final AtomicInteger count = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "minerva-reasoning-"+count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		results = CacheBuilder.newBuilder().expireAfterWrite(retention, unit).build();
+	}
+
+	/**
+	 * Schedule the reasoning task for the given packet.
+	 *
+	 * @param packetId
+	 * @param modelId
+	 * @param task
+	 * @return true, if the task was accepted, false if the queue is full
+	 *         and the caller should do the reasoning itself
+	 */
+	boolean submit(String packetId, IRI modelId, Callable<M3BatchResponse> task) {
+		// register first, any older task for the model is outdated from now on,
+		// even if this task is rejected and the reasoning is done synchronously
+		latestPackets.put(modelId, packetId);
+		try {
+			Future<M3BatchResponse> future = executor.submit(task);
+			results.put(packetId, future);
+			return true;
+		} catch (RejectedExecutionException e) {
+			LOG.warn("Reasoning queue is full, falling back to synchronous reasoning for packet: "+packetId);
+			return false;
+		}
+	}
+
+	/**
+	 * Check whether there is a more recent reasoning task for the model. In
+	 * this case the results for the given packet are already outdated.
+	 *
+	 * @param modelId
+	 * @param packetId
+	 * @return true, if the packet is not the latest one for the model
+	 */
+	boolean isSuperseded(IRI modelId, String packetId) {
+		String latest = latestPackets.get(modelId);
+		return latest != null && latest.equals(packetId) == false;
+	}
+
+	/**
+	 * Retrieve the result for the packet, wait at most the given time
+	 * (capped by {@link #MAX_WAIT_MILLIS}).
+	 *
+	 * @param packetId
+	 * @param waitMillis
+	 * @return response or null, if the result is still pending
+	 * @throws UnknownPacketException
+	 * @throws ExecutionException
+	 * @throws InterruptedException
+	 */
+	M3BatchResponse getResult(String packetId, long waitMillis) throws UnknownPacketException, ExecutionException, InterruptedException {
+		Future<M3BatchResponse> future = results.getIfPresent(packetId);
+		if (future == null) {
+			throw new UnknownPacketException("No reasoning results available for packet: "+packetId);
+		}
+		if (waitMillis <= 0) {
+			if (future.isDone()) {
+				return future.get();
+			}
+			return null;
+		}
+		try {
+			return future.get(Math.min(waitMillis, MAX_WAIT_MILLIS), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return number of queued and running reasoning tasks
+	 */
+	public int getPendingCount() {
+		return executor.getQueue().size() + executor.getActiveCount();
+	}
+
+	public void dispose() {
+		executor.shutdownNow();
+		results.invalidateAll();
+		latestPackets.clear();
+	}
+
+	static class UnknownPacketException extends Exception {
+
+		private static final long serialVersionUID = -1470357218738457370L;
+
+		UnknownPacketException(String message) {
+			super(message);
+		}
+	}
+}
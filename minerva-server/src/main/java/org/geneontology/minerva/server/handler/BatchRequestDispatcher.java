@@ -0,0 +1,242 @@
+package org.geneontology.minerva.server.handler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Executes batch requests on a bounded worker pool. Requests for the same
+ * model are queued and executed one after another, requests for different
+ * models run in parallel. If the number of queued and running requests
+ * exceeds the limit, new requests are rejected immediately with an
+ * {@link OverloadedException}.<br>
+ * <br>
+ * Requests, which can not be executed, i.e. after {@link #dispose()}, are
+ * cancelled. The waiting callers fail and the admission permits are released.
+ */
+public class BatchRequestDispatcher {
+
+	private static final Logger LOG = Logger.getLogger(BatchRequestDispatcher.class);
+
+	private final ThreadPoolExecutor workers;
+	private final Semaphore admission;
+	private final int maxPending;
+	private final Map<String, Deque<FutureTask<?>>> modelQueues = new HashMap<String, Deque<FutureTask<?>>>();
+	private final AtomicLong rejectedCount = new AtomicLong(0);
+
+	/**
+	 * @param workerCount number of worker threads
+	 * @param maxPending maximum number of queued and running requests
+	 */
+	public BatchRequestDispatcher(int workerCount, int maxPending) {
+		this.maxPending = maxPending;
+		admission = new Semaphore(maxPending);
+		// the queue is bounded by the admission semaphore
+		workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+			private final AtomicInteger count = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "minerva-batch-"+count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Execute the task in the worker pool and wait for the result.
+	 *
+	 * @param modelId key for the per-model queue, may be null
+	 * @param task
+	 * @return result of the task
+	 * @throws OverloadedException if too many requests are pending
+	 * @throws ExecutionException if the task threw an exception
+	 * @throws InterruptedException
+	 */
+	<T> T dispatch(String modelId, final Callable<T> task) throws OverloadedException, ExecutionException, InterruptedException {
+		if (admission.tryAcquire() == false) {
+			rejectedCount.incrementAndGet();
+			throw new OverloadedException("Too many pending requests: "+maxPending);
+		}
+		FutureTask<T> future = new AdmittedTask<T>(task);
+		try {
+			if (modelId == null) {
+				workers.execute(future);
+			}
+			else {
+				enqueue(modelId, future);
+			}
+		} catch (RuntimeException e) {
+			future.cancel(false);
+			throw e;
+		}
+		try {
+			return future.get();
+		} catch (CancellationException e) {
+			throw new ExecutionException("The request was cancelled", e);
+		}
+	}
+
+	/**
+	 * Releases the admission permit once the task is finished, failed or
+	 * cancelled.
+	 */
+	private class AdmittedTask<T> extends FutureTask<T> {
+
+		AdmittedTask(Callable<T> callable) {
+			super(callable);
+		}
+
+		@Override
+		protected void done() {
+			admission.release();
+		}
+	}
+
+	private void enqueue(final String modelId, FutureTask<?> future) {
+		Deque<FutureTask<?>> started = null;
+		synchronized (modelQueues) {
+			Deque<FutureTask<?>> queue = modelQueues.get(modelId);
+			if (queue == null) {
+				// no active queue for the model, start a new one
+				queue = new ArrayDeque<FutureTask<?>>();
+				modelQueues.put(modelId, queue);
+				started = queue;
+			}
+			queue.add(future);
+		}
+		if (started != null) {
+			try {
+				workers.execute(new ModelQueueRunner(modelId, started));
+			} catch (RuntimeException e) {
+				cancelQueue(modelId, started);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Remove the queue of the model and cancel all its waiting tasks. Later
+	 * requests for the model start a new queue.
+	 */
+	private void cancelQueue(String modelId, Deque<FutureTask<?>> queue) {
+		List<FutureTask<?>> remaining;
+		synchronized (modelQueues) {
+			if (modelQueues.get(modelId) == queue) {
+				modelQueues.remove(modelId);
+			}
+			remaining = new ArrayList<FutureTask<?>>(queue);
+			queue.clear();
+		}
+		for (FutureTask<?> task : remaining) {
+			task.cancel(false);
+		}
+	}
+
+	/**
+	 * Runs one task of the model queue and re-submits itself for the next
+	 * one, so that a busy model does not block a worker for other models.
+	 */
+	private class ModelQueueRunner implements Runnable {
+
+		private final String modelId;
+		private final Deque<FutureTask<?>> queue;
+
+		ModelQueueRunner(String modelId, Deque<FutureTask<?>> queue) {
+			this.modelId = modelId;
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			FutureTask<?> next;
+			synchronized (modelQueues) {
+				next = queue.poll();
+			}
+			try {
+				if (next != null) {
+					next.run();
+				}
+			}
+			finally {
+				boolean more;
+				synchronized (modelQueues) {
+					more = queue.isEmpty() == false;
+					if (more == false && modelQueues.get(modelId) == queue) {
+						modelQueues.remove(modelId);
+					}
+				}
+				if (more) {
+					try {
+						workers.execute(this);
+					} catch (RuntimeException e) {
+						LOG.error("Could not continue the request queue for model: "+modelId, e);
+						cancelQueue(modelId, queue);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return number of queued and running requests
+	 */
+	public int getPendingCount() {
+		return maxPending - admission.availablePermits();
+	}
+
+	/**
+	 * @return number of rejected requests
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * Stop the workers and cancel all waiting requests.
+	 */
+	public void dispose() {
+		List<Runnable> pending = workers.shutdownNow();
+		for (Runnable runnable : pending) {
+			if (runnable instanceof FutureTask<?>) {
+				((FutureTask<?>) runnable).cancel(false);
+			}
+		}
+		// includes the queues of the dropped runners and of the running tasks
+		Map<String, Deque<FutureTask<?>>> queues;
+		synchronized (modelQueues) {
+			queues = new HashMap<String, Deque<FutureTask<?>>>(modelQueues);
+		}
+		for (Map.Entry<String, Deque<FutureTask<?>>> entry : queues.entrySet()) {
+			cancelQueue(entry.getKey(), entry.getValue());
+		}
+	}
+
+	static class OverloadedException extends Exception {
+
+		private static final long serialVersionUID = 2947468356436734457L;
+
+		OverloadedException(String message) {
+			super(message);
+		}
+	}
+}
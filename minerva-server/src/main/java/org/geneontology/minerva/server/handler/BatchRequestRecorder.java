@@ -0,0 +1,74 @@
+package org.geneontology.minerva.server.handler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3Request;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Append all batch requests to a file, one JSON object per line. The
+ * recorded traffic can be replayed with the load test tool.
+ */
+public class BatchRequestRecorder {
+
+	private static final Logger LOG = Logger.getLogger(BatchRequestRecorder.class);
+
+	/**
+	 * One line in the recording.
+	 */
+	public static class RecordedBatch {
+		public long time;
+		public String uid;
+		public boolean privileged;
+		public M3Request[] requests;
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+	private final Writer writer;
+
+	/**
+	 * @param file target file, new requests are appended
+	 * @throws IOException
+	 */
+	public BatchRequestRecorder(File file) throws IOException {
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+	}
+
+	/**
+	 * @param uid
+	 * @param privileged
+	 * @param requests
+	 */
+	public void record(String uid, boolean privileged, M3Request[] requests) {
+		RecordedBatch batch = new RecordedBatch();
+		batch.time = System.currentTimeMillis();
+		batch.uid = uid;
+		batch.privileged = privileged;
+		batch.requests = requests;
+		String json = gson.toJson(batch);
+		synchronized (writer) {
+			try {
+				writer.write(json);
+				writer.write('\n');
+				writer.flush();
+			} catch (IOException e) {
+				LOG.warn("Could not record batch request", e);
+			}
+		}
+	}
+
+	public void close() {
+		synchronized (writer) {
+			IOUtils.closeQuietly(writer);
+		}
+	}
+}
@@ -8,10 +8,18 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.Type;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
+import org.geneontology.minerva.ModelContainer;
 import org.geneontology.minerva.UndoAwareMolecularModelManager;
 import org.geneontology.minerva.UndoAwareMolecularModelManager.UndoMetadata;
 import org.geneontology.minerva.json.JsonModel;
@@ -19,8 +27,12 @@ import org.geneontology.minerva.json.JsonOwlFact;
 import org.geneontology.minerva.json.JsonOwlIndividual;
 import org.geneontology.minerva.json.MolecularModelJsonRenderer;
 import org.geneontology.minerva.lookup.ExternalLookupService;
+import org.geneontology.minerva.metrics.MinervaMetrics;
+import org.geneontology.minerva.server.handler.AsyncReasoningService.UnknownPacketException;
+import org.geneontology.minerva.server.handler.BatchRequestDispatcher.OverloadedException;
 import org.geneontology.minerva.server.handler.M3BatchHandler.M3BatchResponse.ResponseData;
 import org.glassfish.jersey.server.JSONP;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLObjectProperty;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
@@ -38,6 +50,11 @@ public class JsonOrJsonpBatchHandler extends OperationsImpl implements M3BatchHa
 	private static final Logger logger = Logger.getLogger(JsonOrJsonpBatchHandler.class);
 	
 	private final boolean useReasoner;
+	private AsyncReasoningService asyncReasoningService = null;
+	private BatchRequestDispatcher dispatcher = null;
+	private BatchRequestRecorder recorder = null;
+	
+	private static final String RETRY_AFTER_SECONDS = "1";
 	
 	public JsonOrJsonpBatchHandler(UndoAwareMolecularModelManager models,
 			String defaultModelStqte,
@@ -69,6 +86,35 @@ public class JsonOrJsonpBatchHandler extends OperationsImpl implements M3BatchHa
 		return useReasoner;
 	}
 
+	/**
+	 * Set the service for computing the reasoner results asynchronously. If
+	 * set, the batch response only contains the asserted state of the model and
+	 * the inferences can be retrieved via {@link #m3BatchReasoningGet(String, long)}.
+	 * 
+	 * @param asyncReasoningService service or null, to disable async reasoning
+	 */
+	public void setAsyncReasoningService(AsyncReasoningService asyncReasoningService) {
+		this.asyncReasoningService = asyncReasoningService;
+	}
+
+	/**
+	 * Set the dispatcher for executing the batch requests on a bounded worker
+	 * pool with per-model queues. If not set, the requests are executed in the
+	 * calling thread.
+	 * 
+	 * @param dispatcher dispatcher or null
+	 */
+	public void setDispatcher(BatchRequestDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+	
+	/**
+	 * @param recorder recorder for the incoming batch requests or null
+	 */
+	public void setRecorder(BatchRequestRecorder recorder) {
+		this.recorder = recorder;
+	}
+
 	@Override
 	@JSONP(callback = JSONP_DEFAULT_CALLBACK, queryParam = JSONP_DEFAULT_OVERWRITE)
 	public M3BatchResponse m3BatchGet(String intention, String packetId, String requestString) {
@@ -93,6 +139,36 @@ public class JsonOrJsonpBatchHandler extends OperationsImpl implements M3BatchHa
 		return m3Batch(uid, intention, packetId, requestString, true);
 	}
 
+	@Override
+	@JSONP(callback = JSONP_DEFAULT_CALLBACK, queryParam = JSONP_DEFAULT_OVERWRITE)
+	public M3BatchResponse m3BatchReasoningGet(String packetId, long wait) {
+		M3BatchResponse response = new M3BatchResponse(null, null, packetId);
+		packetId = StringUtils.trimToNull(packetId);
+		if (packetId == null) {
+			return error(response, "No packet-id specified for the reasoning results.", null);
+		}
+		if (asyncReasoningService == null) {
+			return error(response, "Asynchronous reasoning is not enabled.", null);
+		}
+		try {
+			M3BatchResponse result = asyncReasoningService.getResult(packetId, wait);
+			if (result == null) {
+				response.data = new ResponseData();
+				response.data.reasoningPendingFlag = Boolean.TRUE;
+				response.messageType = M3BatchResponse.MESSAGE_TYPE_SUCCESS;
+				response.message = "pending";
+				return response;
+			}
+			return result;
+		} catch (UnknownPacketException e) {
+			return error(response, e.getMessage(), null);
+		} catch (ExecutionException e) {
+			return error(response, "Could not compute reasoning results.", e.getCause());
+		} catch (InterruptedException e) {
+			return error(response, "Interrupted while waiting for reasoning results.", null);
+		}
+	}
+
 	private static String checkPacketId(String packetId) {
 		if (packetId == null) {
 			packetId = PacketIdGenerator.generateId();
@@ -106,40 +182,101 @@ public class JsonOrJsonpBatchHandler extends OperationsImpl implements M3BatchHa
 		if (requests == null) {
 			return error(response, "The batch contains no requests: null value for request array", null);
 		}
+		return dispatch(response, requests, uid, isPrivileged, "Could not successfully complete batch request.");
+	}
+	
+	private M3BatchResponse m3Batch(String uid, String intention, String packetId, String requestString, boolean isPrivileged) {
+		M3BatchResponse response = new M3BatchResponse(uid, intention, checkPacketId(packetId));
+		requestString = StringUtils.trimToNull(requestString);
+		if (requestString == null) {
+			return error(response, "The batch contains no requests: null value for request", null);
+		}
+		final M3Request[] requests;
 		try {
-			return m3Batch(response, requests, uid, isPrivileged);
-		} catch (InsufficientPermissionsException e) {
-			return error(response, e.getMessage(), null);
+			final long parseStart = System.nanoTime();
+			requests = MolecularModelJsonRenderer.parseFromJson(requestString, requestType);
+			m3.getMetrics().timer("minerva_batch_phase_seconds", "phase", "parse").record(System.nanoTime() - parseStart);
 		} catch (Exception e) {
-			return error(response, "Could not successfully complete batch request.", e);
+			return error(response, "Could not successfully handle batch request.", e);
 		} catch (Throwable t) {
 			logger.error("A critical error occured.", t);
 			return error(response, "An internal error occured at the server level.", t);
 		}
+		return dispatch(response, requests, uid, isPrivileged, "Could not successfully handle batch request.");
 	}
 	
-	private M3BatchResponse m3Batch(String uid, String intention, String packetId, String requestString, boolean isPrivileged) {
-		M3BatchResponse response = new M3BatchResponse(uid, intention, checkPacketId(packetId));
-		requestString = StringUtils.trimToNull(requestString);
-		if (requestString == null) {
-			return error(response, "The batch contains no requests: null value for request", null);
+	/**
+	 * Execute the batch, use the dispatcher if available. If the dispatcher
+	 * rejects the batch due to overload, the HTTP status 503 is returned.
+	 */
+	private M3BatchResponse dispatch(final M3BatchResponse response, final M3Request[] requests,
+			final String uid, final boolean isPrivileged, final String errorMsg) {
+		if (recorder != null) {
+			recorder.record(uid, isPrivileged, requests);
+		}
+		if (dispatcher == null) {
+			return execute(response, requests, uid, isPrivileged, errorMsg);
 		}
 		try {
-			M3Request[] requests = MolecularModelJsonRenderer.parseFromJson(requestString, requestType);
+			return dispatcher.dispatch(getModelId(requests), new Callable<M3BatchResponse>() {
+
+				@Override
+				public M3BatchResponse call() throws Exception {
+					return execute(response, requests, uid, isPrivileged, errorMsg);
+				}
+			});
+		} catch (OverloadedException e) {
+			logger.warn("Rejecting batch request: "+e.getMessage());
+			throw new WebApplicationException(Response.status(Status.SERVICE_UNAVAILABLE)
+					.header("Retry-After", RETRY_AFTER_SECONDS)
+					.type(MediaType.TEXT_PLAIN)
+					.entity("The server is busy, please try again later.").build());
+		} catch (ExecutionException e) {
+			return error(response, errorMsg, e.getCause());
+		} catch (InterruptedException e) {
+			return error(response, "Interrupted while waiting for the batch request.", null);
+		}
+	}
+	
+	private M3BatchResponse execute(M3BatchResponse response, M3Request[] requests, String uid, boolean isPrivileged, String errorMsg) {
+		final long start = System.nanoTime();
+		try {
 			return m3Batch(response, requests, uid, isPrivileged);
+		} catch (InsufficientPermissionsException e) {
+			return error(response, e.getMessage(), null);
 		} catch (Exception e) {
-			return error(response, "Could not successfully handle batch request.", e);
+			return error(response, errorMsg, e);
 		} catch (Throwable t) {
 			logger.error("A critical error occured.", t);
 			return error(response, "An internal error occured at the server level.", t);
 		}
+		finally {
+			m3.getMetrics().timer("minerva_batch_seconds", "privileged", Boolean.toString(isPrivileged))
+					.record(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * @param requests
+	 * @return the full IRI of the first model id in the requests or null
+	 */
+	String getModelId(M3Request[] requests) {
+		for (M3Request request : requests) {
+			if (request != null && request.arguments != null && request.arguments.modelId != null) {
+				// CURIE and IRI of a model must use the same queue
+				return curieHandler.getIRI(request.arguments.modelId).toString();
+			}
+		}
+		return null;
 	}
 	
 	private M3BatchResponse m3Batch(M3BatchResponse response, M3Request[] requests, String userId, boolean isPrivileged) throws InsufficientPermissionsException, Exception {
 		userId = normalizeUserId(userId);
 		UndoMetadata token = new UndoMetadata(userId);
 		
+		final MinervaMetrics metrics = m3.getMetrics();
 		final BatchHandlerValues values = new BatchHandlerValues();
+		final long applyStart = System.nanoTime();
 		for (M3Request request : requests) {
 			requireNotNull(request, "request");
 			requireNotNull(request.entity, "entity");
@@ -148,44 +285,52 @@ public class JsonOrJsonpBatchHandler extends OperationsImpl implements M3BatchHa
 			final Operation operation = request.operation;
 			checkPermissions(entity, operation, isPrivileged);
 
-			// individual
-			if (Entity.individual == entity) {
-				String error = handleRequestForIndividual(request, operation, userId, token, values);
-				if (error != null) {
-					return error(response, error, null);
+			final long operationStart = System.nanoTime();
+			try {
+				// individual
+				if (Entity.individual == entity) {
+					String error = handleRequestForIndividual(request, operation, userId, token, values);
+					if (error != null) {
+						return error(response, error, null);
+					}
 				}
-			}
-			// edge
-			else if (Entity.edge == entity) {
-				String error = handleRequestForEdge(request, operation, userId, token, values);
-				if (error != null) {
-					return error(response, error, null);
+				// edge
+				else if (Entity.edge == entity) {
+					String error = handleRequestForEdge(request, operation, userId, token, values);
+					if (error != null) {
+						return error(response, error, null);
+					}
 				}
-			}
-			//model
-			else if (Entity.model == entity) {
-				String error = handleRequestForModel(request, response, operation, userId, token, values);
-				if (error != null) {
-					return error(response, error, null);
+				//model
+				else if (Entity.model == entity) {
+					String error = handleRequestForModel(request, response, operation, userId, token, values);
+					if (error != null) {
+						return error(response, error, null);
+					}
 				}
-			}
-			// meta (e.g. relations, model ids, evidence)
-			else if (Entity.meta == entity) {
-				if (Operation.get == operation){
-					if (values.nonMeta) {
-						// can only be used with other "meta" operations in batch mode, otherwise it would lead to conflicts in the returned signal
-						return error(response, "Get meta entity can only be combined with other meta operations.", null);
+				// meta (e.g. relations, model ids, evidence)
+				else if (Entity.meta == entity) {
+					if (Operation.get == operation){
+						if (values.nonMeta) {
+							// can only be used with other "meta" operations in batch mode, otherwise it would lead to conflicts in the returned signal
+							return error(response, "Get meta entity can only be combined with other meta operations.", null);
+						}
+						getMeta(response, userId);
+					}
+					else {
+						return error(response, "Unknown operation: "+operation, null);
 					}
-					getMeta(response, userId);
 				}
 				else {
-					return error(response, "Unknown operation: "+operation, null);
+					return error(response, "Unknown entity: "+entity, null);
 				}
 			}
-			else {
-				return error(response, "Unknown entity: "+entity, null);
+			finally {
+				metrics.timer("minerva_batch_operation_seconds", "entity", entity.name(), "operation", operation.name())
+						.record(System.nanoTime() - operationStart);
 			}
 		}
+		metrics.timer("minerva_batch_phase_seconds", "phase", "apply").record(System.nanoTime() - applyStart);
 		if (M3BatchResponse.SIGNAL_META.equals(response.signal)) {
 			return response;
 		}
@@ -197,29 +342,99 @@ public class JsonOrJsonpBatchHandler extends OperationsImpl implements M3BatchHa
 //		if (model == null) {
 //			throw new UnknownIdentifierException("Could not retrieve a model for id: "+values.modelId);
 //		}
+		if (useReasoner && asyncReasoningService != null) {
+			if (submitReasoning(response, values)) {
+				// respond with the asserted state, inferences are computed in the background
+				renderResponseData(response, values, null, true);
+				response.data.reasoningPendingFlag = Boolean.TRUE;
+				return success(response);
+			}
+		}
 		// update reasoner
 		// report state
 		final OWLReasoner reasoner;
 		final boolean isConsistent;
 		if (useReasoner) {
-			if (useModuleReasoner) {
-				reasoner = values.model.getModuleReasoner();
+			values.model.acquireReasoner();
+		}
+		try {
+			if (useReasoner) {
+				final long reasonStart = System.nanoTime();
+				reasoner = getReasoner(values.model);
+				isConsistent = reasoner.isConsistent();
+				metrics.timer("minerva_batch_phase_seconds", "phase", "reason").record(System.nanoTime() - reasonStart);
 			}
 			else {
-				reasoner = values.model.getReasoner();
-				reasoner.flush();
+				reasoner = null;
+				isConsistent = true;
 			}
-			isConsistent = reasoner.isConsistent();
+			final long renderStart = System.nanoTime();
+			renderResponseData(response, values, reasoner, isConsistent);
+			metrics.timer("minerva_batch_phase_seconds", "phase", "render").record(System.nanoTime() - renderStart);
+		}
+		finally {
+			if (useReasoner) {
+				values.model.releaseReasoner();
+			}
+		}
+		return success(response);
+	}
+	
+	private OWLReasoner getReasoner(ModelContainer model) {
+		final OWLReasoner reasoner;
+		if (useModuleReasoner) {
+			reasoner = model.getModuleReasoner();
 		}
 		else {
-			reasoner = null;
-			isConsistent = true;
+			reasoner = model.getReasoner();
+			reasoner.flush();
 		}
+		return reasoner;
+	}
+	
+	private boolean submitReasoning(final M3BatchResponse response, final BatchHandlerValues values) {
+		final ModelContainer model = values.model;
+		final IRI modelId = model.getModelId();
+		final String packetId = response.packetId;
+		return asyncReasoningService.submit(packetId, modelId, new Callable<M3BatchResponse>() {
 
+			@Override
+			public M3BatchResponse call() throws Exception {
+				M3BatchResponse inferred = new M3BatchResponse(response.uid, response.intention, packetId);
+				if (asyncReasoningService.isSuperseded(modelId, packetId)) {
+					// a later request for the same model will deliver the current inferences
+					inferred.messageType = M3BatchResponse.MESSAGE_TYPE_SUCCESS;
+					inferred.message = "superseded";
+					return inferred;
+				}
+				// the reasoner and renderer require a stable abox, all changes are synchronized on the ontology
+				synchronized (model.getAboxOntology()) {
+					if (m3.getLoadedModel(modelId) != model) {
+						// unlinked after the response, do not re-create a reasoner for the discarded model
+						return error(inferred, "The model is no longer loaded: "+curieHandler.getCuri(modelId), null);
+					}
+					model.acquireReasoner();
+					try {
+						final long reasonStart = System.nanoTime();
+						OWLReasoner reasoner = getReasoner(model);
+						boolean isConsistent = reasoner.isConsistent();
+						m3.getMetrics().timer("minerva_batch_phase_seconds", "phase", "async-reason").record(System.nanoTime() - reasonStart);
+						renderResponseData(inferred, values, reasoner, isConsistent);
+					}
+					finally {
+						model.releaseReasoner();
+					}
+				}
+				return success(inferred);
+			}
+		});
+	}
+	
+	private void renderResponseData(M3BatchResponse response, BatchHandlerValues values, OWLReasoner reasoner, boolean isConsistent) {
 		// create response.data
 		response.data = new ResponseData();
 		final MolecularModelJsonRenderer renderer;
-		if (useReasoner && isConsistent) {
+		if (reasoner != null && isConsistent) {
 			renderer = createModelRenderer(values.model, externalLookupService, reasoner, curieHandler);
 		}
 		else {
@@ -249,6 +464,9 @@ public class JsonOrJsonpBatchHandler extends OperationsImpl implements M3BatchHa
 			response.data.inconsistentFlag =  Boolean.TRUE;
 		}
 		response.data.modifiedFlag = Boolean.valueOf(values.model.isModified());
+	}
+	
+	private static M3BatchResponse success(M3BatchResponse response) {
 		// These are required for an "okay" response.
 		response.messageType = M3BatchResponse.MESSAGE_TYPE_SUCCESS;
 		if( response.message == null ){
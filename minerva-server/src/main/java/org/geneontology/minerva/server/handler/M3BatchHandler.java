@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -114,6 +115,9 @@ public interface M3BatchHandler {
 			@SerializedName("modified-p")
 			public Boolean modifiedFlag;
 			
+			@SerializedName("reasoning-pending-p")
+			public Boolean reasoningPendingFlag;
+			
 			public JsonAnnotation[] annotations;
 			
 			public JsonOwlFact[] facts;
@@ -236,4 +240,19 @@ public interface M3BatchHandler {
 			@QueryParam("intention") String intention,
 			@QueryParam("packet-id") String packetId,
 			@QueryParam("requests") String requests);
+	
+	/**
+	 * Jersey REST method for GET to retrieve the reasoning results of an
+	 * earlier batch request, if the asynchronous reasoning is enabled. The
+	 * call may wait (long-poll) for the results.
+	 * 
+	 * @param packetId the packet id of the earlier batch response
+	 * @param wait maximum time in milliseconds to wait for the results, 0 for no wait
+	 * @return response convertible to JSON(P), with the flag reasoning-pending-p set, if the results are not yet available
+	 */
+	@Path("m3BatchReasoning")
+	@GET
+	public M3BatchResponse m3BatchReasoningGet(
+			@QueryParam("packet-id") String packetId,
+			@QueryParam("wait") @DefaultValue("0") long wait);
 }
@@ -13,11 +13,14 @@ import org.geneontology.minerva.json.JsonOwlObject.JsonOwlObjectType;
 import org.geneontology.minerva.lookup.ExternalLookupService;
 import org.geneontology.minerva.lookup.ExternalLookupService.LookupEntry;
 import org.geneontology.minerva.server.handler.OperationsTools.MissingParameterException;
+import org.geneontology.minerva.util.IdentifierIndex;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLException;
 import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
 
 import owltools.graph.OWLGraphWrapper;
 
@@ -25,10 +28,21 @@ public class M3ExpressionParser {
 	
 	private final boolean checkLiteralIds;
 	private final CurieHandler curieHandler;
+	private final IdentifierIndex index;
 	
-	M3ExpressionParser(boolean checkLiteralIds, CurieHandler curieHandler) {
+	/**
+	 * @param checkLiteralIds
+	 * @param curieHandler
+	 * @param index shared index of the tbox or null
+	 */
+	M3ExpressionParser(boolean checkLiteralIds, CurieHandler curieHandler, IdentifierIndex index) {
 		this.checkLiteralIds = checkLiteralIds;
 		this.curieHandler = curieHandler;
+		this.index = index;
+	}
+	
+	M3ExpressionParser(boolean checkLiteralIds, CurieHandler curieHandler) {
+		this(checkLiteralIds, curieHandler, null);
 	}
 	
 	M3ExpressionParser(CurieHandler curieHandler) {
@@ -61,7 +75,7 @@ public class M3ExpressionParser {
 			IRI clsIRI = curieHandler.getIRI(expression.id);
 			OWLClass cls;
 			if (checkLiteralIds) {
-				cls = g.getOWLClass(clsIRI);
+				cls = getOWLClass(clsIRI, g);
 				if (cls == null && externalLookupService != null) {
 					List<LookupEntry> lookup = externalLookupService.lookup(clsIRI);
 					if (lookup == null || lookup.isEmpty()) {
@@ -89,7 +103,7 @@ public class M3ExpressionParser {
 				throw new MissingParameterException("Unexpected type for property in 'svf': "+expression.property.type);
 			}
 			IRI propIRI = curieHandler.getIRI(expression.property.id);
-			OWLObjectProperty p = g.getOWLObjectProperty(propIRI);
+			OWLObjectProperty p = getOWLObjectProperty(propIRI, g);
 			if (p == null) {
 				throw new UnknownIdentifierException("Could not find a property for: "+expression.property);
 			}
@@ -144,6 +158,47 @@ public class M3ExpressionParser {
 		}
 	}
 	
+	/**
+	 * Check the index first, the graph is only used for the ontologies,
+	 * which are not in the index, i.e. the abox.
+	 */
+	private OWLClass getOWLClass(IRI iri, OWLGraphWrapper g) {
+		if (index == null) {
+			return g.getOWLClass(iri);
+		}
+		OWLClass cls = index.getOWLClass(iri);
+		if (cls == null) {
+			OWLClass candidate = g.getDataFactory().getOWLClass(iri);
+			if (isDeclaredInUnindexed(candidate, g)) {
+				cls = candidate;
+			}
+		}
+		return cls;
+	}
+	
+	private OWLObjectProperty getOWLObjectProperty(IRI iri, OWLGraphWrapper g) {
+		if (index == null) {
+			return g.getOWLObjectProperty(iri);
+		}
+		OWLObjectProperty p = index.getOWLObjectProperty(iri);
+		if (p == null) {
+			OWLObjectProperty candidate = g.getDataFactory().getOWLObjectProperty(iri);
+			if (isDeclaredInUnindexed(candidate, g)) {
+				p = candidate;
+			}
+		}
+		return p;
+	}
+	
+	private boolean isDeclaredInUnindexed(OWLEntity entity, OWLGraphWrapper g) {
+		for (OWLOntology ont : g.getAllOntologies()) {
+			if (index.isIndexed(ont) == false && ont.getDeclarationAxioms(entity).isEmpty() == false) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	private OWLClass createClass(IRI iri, OWLGraphWrapper g) {
 		return g.getDataFactory().getOWLClass(iri);
 	}
@@ -0,0 +1,38 @@
+package org.geneontology.minerva.server.handler;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.geneontology.minerva.metrics.MinervaMetrics;
+
+/**
+ * Export the server metrics (request counts and latency histograms) in the
+ * Prometheus text format.
+ */
+@Path("/metrics")
+public class MetricsHandler {
+
+	private final MinervaMetrics metrics;
+
+	public MetricsHandler(MinervaMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@GET
+	@Produces("text/plain; version=0.0.4; charset=utf-8")
+	public String getMetrics() {
+		StringWriter writer = new StringWriter();
+		try {
+			metrics.writeText(writer);
+		} catch (IOException e) {
+			throw new WebApplicationException(e, Status.INTERNAL_SERVER_ERROR);
+		}
+		return writer.toString();
+	}
+}
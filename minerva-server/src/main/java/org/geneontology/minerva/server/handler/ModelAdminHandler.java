@@ -0,0 +1,284 @@
+package org.geneontology.minerva.server.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.log4j.Logger;
+import org.geneontology.minerva.ModelContainer;
+import org.geneontology.minerva.ModelReasonerManager;
+import org.geneontology.minerva.UndoAwareMolecularModelManager;
+import org.geneontology.minerva.UndoAwareMolecularModelManager.ChangeEvent;
+import org.geneontology.minerva.UndoAwareMolecularModelManager.UndoMetadata;
+import org.geneontology.minerva.curie.CurieHandler;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Administration resource for the in-memory models. Reports the state of
+ * all loaded models and provides operations to save, unlink or release the
+ * reasoners of selected models, i.e. to free memory without a restart.<br>
+ * <br>
+ * This resource is not protected, only enable it for internal deployments.
+ */
+@Path("/admin/models")
+@Produces(MediaType.APPLICATION_JSON)
+public class ModelAdminHandler {
+
+	private static final Logger logger = Logger.getLogger(ModelAdminHandler.class);
+
+	/**
+	 * Rough average size of an ABox axiom including the OWL-API indexes,
+	 * used for the heap estimate.
+	 */
+	static final long ESTIMATED_BYTES_PER_AXIOM = 500l;
+
+	private final UndoAwareMolecularModelManager m3;
+	private final CurieHandler curieHandler;
+
+	public ModelAdminHandler(UndoAwareMolecularModelManager m3) {
+		this.m3 = m3;
+		this.curieHandler = m3.getCuriHandler();
+	}
+
+	public static class ModelStatus {
+		public String id;
+
+		@SerializedName("modified-p")
+		public boolean modified;
+
+		@SerializedName("axiom-count")
+		public int axiomCount;
+
+		@SerializedName("individual-count")
+		public int individualCount;
+
+		@SerializedName("estimated-heap-bytes")
+		public long estimatedHeap;
+
+		/**
+		 * true, if there is any reasoner (including the module reasoner)
+		 */
+		@SerializedName("reasoner-p")
+		public boolean reasoner;
+
+		@SerializedName("module-reasoner-p")
+		public boolean moduleReasoner;
+
+		@SerializedName("last-access")
+		public long lastAccess;
+
+		@SerializedName("last-reasoner-access")
+		public long lastReasonerAccess;
+
+		@SerializedName("undo-count")
+		public int undoCount;
+
+		@SerializedName("redo-count")
+		public int redoCount;
+	}
+
+	public static class AdminResponse {
+		public List<ModelStatus> models;
+
+		@SerializedName("model-count")
+		public int modelCount;
+
+		@SerializedName("reasoner-count")
+		public int reasonerCount;
+
+		@SerializedName("heap-used")
+		public long heapUsed;
+
+		@SerializedName("heap-max")
+		public long heapMax;
+
+		/**
+		 * result message for each requested model id
+		 */
+		public Map<String, String> results;
+	}
+
+	/**
+	 * @return status of all loaded models
+	 */
+	@GET
+	public AdminResponse getModels() {
+		AdminResponse response = new AdminResponse();
+		List<ModelStatus> models = new ArrayList<ModelStatus>();
+		for (IRI modelId : getLoadedModelIds()) {
+			ModelContainer model = m3.getLoadedModel(modelId);
+			if (model != null) {
+				ModelStatus status = getStatus(model);
+				if (status.reasoner) {
+					response.reasonerCount += 1;
+				}
+				models.add(status);
+			}
+		}
+		response.models = models;
+		response.modelCount = models.size();
+		Runtime runtime = Runtime.getRuntime();
+		response.heapUsed = runtime.totalMemory() - runtime.freeMemory();
+		response.heapMax = runtime.maxMemory();
+		return response;
+	}
+
+	private ModelStatus getStatus(ModelContainer model) {
+		ModelStatus status = new ModelStatus();
+		status.id = curieHandler.getCuri(model.getModelId());
+		status.modified = model.isModified();
+		OWLOntology abox = model.getAboxOntology();
+		status.axiomCount = abox.getAxiomCount();
+		status.individualCount = abox.getIndividualsInSignature().size();
+		status.estimatedHeap = status.axiomCount * ESTIMATED_BYTES_PER_AXIOM;
+		status.reasoner = model.hasReasoner();
+		status.moduleReasoner = model.hasModuleReasoner();
+		status.lastAccess = model.getLastAccess();
+		status.lastReasonerAccess = model.getLastReasonerAccess();
+		Pair<List<ChangeEvent>, List<ChangeEvent>> undoRedo = m3.getUndoRedoEvents(model.getModelId());
+		status.undoCount = undoRedo.getLeft().size();
+		status.redoCount = undoRedo.getRight().size();
+		return status;
+	}
+
+	/**
+	 * Save the given models.
+	 *
+	 * @param ids model ids
+	 * @return response with the result for each model
+	 */
+	@Path("save")
+	@POST
+	@Consumes("application/x-www-form-urlencoded")
+	public AdminResponse saveModels(@FormParam("id") List<String> ids) {
+		Map<String, String> results = new LinkedHashMap<String, String>();
+		for (String id : ids) {
+			ModelContainer model = getLoadedModel(id, results);
+			if (model != null) {
+				try {
+					m3.saveModel(model, Collections.<OWLAnnotation>emptySet(), new UndoMetadata(null));
+					results.put(id, "saved");
+				} catch (Exception e) {
+					logger.error("Could not save model: "+id, e);
+					results.put(id, "error: "+e.getMessage());
+				}
+			}
+		}
+		return createResponse(results);
+	}
+
+	/**
+	 * Remove the given models from memory. Modified models are only removed,
+	 * if the force flag is set, the unsaved changes are lost.
+	 *
+	 * @param ids model ids
+	 * @param force
+	 * @return response with the result for each model
+	 */
+	@Path("unlink")
+	@POST
+	@Consumes("application/x-www-form-urlencoded")
+	public AdminResponse unlinkModels(@FormParam("id") List<String> ids,
+			@FormParam("force") @DefaultValue("false") boolean force) {
+		Map<String, String> results = new LinkedHashMap<String, String>();
+		for (String id : ids) {
+			ModelContainer model = getLoadedModel(id, results);
+			if (model != null) {
+				synchronized (model.getAboxOntology()) {
+					if (model.isModified() && force == false) {
+						results.put(id, "skipped: model is modified");
+						continue;
+					}
+					m3.unlinkModel(model.getModelId());
+				}
+				logger.info("Unlinked model: "+id);
+				results.put(id, "unlinked");
+			}
+		}
+		return createResponse(results);
+	}
+
+	/**
+	 * Dispose the reasoners of the given models. If no ids are given, all
+	 * reasoners are disposed. Reasoners in use by a running request are
+	 * skipped. The reasoners are re-created on demand.
+	 *
+	 * @param ids model ids or empty
+	 * @return response with the result for each model
+	 */
+	@Path("dispose-reasoner")
+	@POST
+	@Consumes("application/x-www-form-urlencoded")
+	public AdminResponse disposeReasoners(@FormParam("id") List<String> ids) {
+		Map<String, String> results = new LinkedHashMap<String, String>();
+		if (ids == null || ids.isEmpty()) {
+			ids = new ArrayList<String>();
+			for (IRI modelId : getLoadedModelIds()) {
+				ids.add(curieHandler.getCuri(modelId));
+			}
+		}
+		for (String id : ids) {
+			ModelContainer model = getLoadedModel(id, results);
+			if (model != null) {
+				results.put(id, disposeReasoners(model));
+			}
+		}
+		return createResponse(results);
+	}
+
+	private String disposeReasoners(ModelContainer model) {
+		synchronized (model.getAboxOntology()) {
+			if (model.hasReasoner() == false) {
+				return "no reasoner";
+			}
+			if (model.isReasonerInUse()) {
+				return "skipped: in use";
+			}
+			ModelReasonerManager reasonerManager = m3.getReasonerManager();
+			if (reasonerManager != null) {
+				reasonerManager.disposeReasoners(model);
+			}
+			else {
+				model.disposeReasoner();
+				model.disposeModuleReasoner();
+			}
+			return "disposed";
+		}
+	}
+
+	private List<IRI> getLoadedModelIds() {
+		// copy, the set is modified when models are loaded or unlinked
+		return new ArrayList<IRI>(m3.getModelIds());
+	}
+
+	private ModelContainer getLoadedModel(String id, Map<String, String> results) {
+		IRI modelId = curieHandler.getIRI(id);
+		ModelContainer model = m3.getLoadedModel(modelId);
+		if (model == null) {
+			results.put(id, "not loaded");
+		}
+		return model;
+	}
+
+	private AdminResponse createResponse(Map<String, String> results) {
+		AdminResponse response = getModels();
+		response.results = results;
+		return response;
+	}
+}
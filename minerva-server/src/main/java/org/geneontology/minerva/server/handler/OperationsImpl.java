@@ -15,6 +15,7 @@ import java.util.Set;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.geneontology.minerva.CoreMolecularModelManager.DeleteInformation;
+import org.geneontology.minerva.FileBasedMolecularModelManager.ModelAboxVisitor;
 import org.geneontology.minerva.ModelContainer;
 import org.geneontology.minerva.MolecularModelManager;
 import org.geneontology.minerva.MolecularModelManager.UnknownIdentifierException;
@@ -36,6 +37,7 @@ import org.geneontology.minerva.server.handler.M3BatchHandler.M3Request;
 import org.geneontology.minerva.server.handler.M3BatchHandler.Operation;
 import org.geneontology.minerva.server.handler.OperationsTools.MissingParameterException;
 import org.geneontology.minerva.server.validation.BeforeSaveModelValidator;
+import org.geneontology.minerva.util.IdentifierIndex;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotation;
 import org.semanticweb.owlapi.model.OWLClassExpression;
@@ -308,8 +310,14 @@ abstract class OperationsImpl extends ModelCreator {
 
 	private OWLClassExpression parseM3Expression(JsonOwlObject expression, BatchHandlerValues values)
 			throws MissingParameterException, UnknownIdentifierException, OWLException {
-		M3ExpressionParser p = new M3ExpressionParser(checkLiteralIdentifiers(), curieHandler);
-		return p.parse(values.model, expression, externalLookupService);
+		final long start = System.nanoTime();
+		try {
+			M3ExpressionParser p = new M3ExpressionParser(checkLiteralIdentifiers(), curieHandler, IdentifierIndex.get(m3.getGraph()));
+			return p.parse(values.model, expression, externalLookupService);
+		}
+		finally {
+			m3.getMetrics().timer("minerva_batch_phase_seconds", "phase", "expression").record(System.nanoTime() - start);
+		}
 	}
 	
 	private OWLObjectProperty getProperty(String id, BatchHandlerValues values) throws UnknownIdentifierException {
@@ -606,27 +614,33 @@ abstract class OperationsImpl extends ModelCreator {
 		final Set<IRI> allModelIds = m3.getAvailableModelIds();
 		final Map<String,List<JsonAnnotation>> allModelAnnotations = new HashMap<>();
 		final Map<String,Map<String,Object>> allModelAnnotationsReadOnly = new HashMap<>();
-		for (IRI modelId : allModelIds) {
-			String curie = curieHandler.getCuri(modelId);
-			List<JsonAnnotation> modelAnnotations = new ArrayList<>();
-			allModelAnnotations.put(curie, modelAnnotations);
-			
-			// Iterate through the model's a.
-			OWLOntology o = m3.getModelAbox(modelId);
-			Set<OWLAnnotation> annotations = o.getAnnotations();
-			for( OWLAnnotation an : annotations ){
-				JsonAnnotation json = JsonTools.create(an.getProperty(), an.getValue(), curieHandler);
-				if (json != null) {
-					modelAnnotations.add(json);
+		// load the model aboxes in parallel batches, extract the annotations as each load completes
+		m3.visitModelAboxes(allModelIds, new ModelAboxVisitor() {
+
+			@Override
+			public void visit(IRI modelId, OWLOntology o) {
+				String curie = curieHandler.getCuri(modelId);
+				List<JsonAnnotation> modelAnnotations = new ArrayList<>();
+				allModelAnnotations.put(curie, modelAnnotations);
+				
+				// Iterate through the model's a.
+				if (o != null) {
+					Set<OWLAnnotation> annotations = o.getAnnotations();
+					for( OWLAnnotation an : annotations ){
+						JsonAnnotation json = JsonTools.create(an.getProperty(), an.getValue(), curieHandler);
+						if (json != null) {
+							modelAnnotations.add(json);
+						}
+					}
 				}
+				
+				// handle read-only information, currently only the modification flag
+				// check modification status
+				boolean modified = m3.isModelModified(modelId);
+				Map<String,Object> readOnly = Collections.<String, Object>singletonMap("modified-p", Boolean.valueOf(modified));
+				allModelAnnotationsReadOnly.put(curie, readOnly);
 			}
-			
-			// handle read-only information, currently only the modification flag
-			// check modification status
-			boolean modified = m3.isModelModified(modelId);
-			Map<String,Object> readOnly = Collections.<String, Object>singletonMap("modified-p", Boolean.valueOf(modified));
-			allModelAnnotationsReadOnly.put(curie, readOnly);
-		}
+		});
 		response.data.meta.modelsMeta = allModelAnnotations;
 		response.data.meta.modelsReadOnly = allModelAnnotationsReadOnly;
 	}
@@ -1,15 +1,16 @@
 package org.geneontology.minerva.server.handler;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class PacketIdGenerator {
 
-	private static int modCounter = 0;
+	private static final AtomicInteger modCounter = new AtomicInteger(0);
 	
-	public synchronized static String generateId() {
-		modCounter += 1;
+	public static String generateId() {
+		// keep mod counter below 10000, without a lock
+		int count = (modCounter.getAndIncrement() & Integer.MAX_VALUE) % 10000 + 1;
 		StringBuilder sb = new StringBuilder(Long.toHexString((System.nanoTime())));
-		sb.append(Integer.toHexString(modCounter));
-		// keep mod counter below 10000
-		modCounter = modCounter % 10000;
+		sb.append(Integer.toHexString(count));
 		return sb.toString();
 	}
 	
@@ -51,15 +51,21 @@ public class BeforeSaveModelValidator {
 		
 		// check that model is consistent
 		if (USE_CONSISTENCY_CHECKS) {
-			OWLReasoner reasoner;
-			if (useModuleReasoner) {
-				reasoner = model.getModuleReasoner();
-			}
-			else {
-				reasoner = model.getReasoner();
+			model.acquireReasoner();
+			try {
+				OWLReasoner reasoner;
+				if (useModuleReasoner) {
+					reasoner = model.getModuleReasoner();
+				}
+				else {
+					reasoner = model.getReasoner();
+				}
+				if (reasoner.isConsistent() == false) {
+					errors.add("The model is inconsistent. A Model must be consistent to be saved.");
+				}
 			}
-			if (reasoner.isConsistent() == false) {
-				errors.add("The model is inconsistent. A Model must be consistent to be saved.");
+			finally {
+				model.releaseReasoner();
 			}
 		}
 		
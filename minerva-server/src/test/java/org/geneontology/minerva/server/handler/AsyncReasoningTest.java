@@ -0,0 +1,155 @@
+package org.geneontology.minerva.server.handler;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.geneontology.minerva.ModelContainer;
+import org.geneontology.minerva.UndoAwareMolecularModelManager;
+import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.curie.CurieMappings;
+import org.geneontology.minerva.curie.DefaultCurieHandler;
+import org.geneontology.minerva.curie.MappedCurieHandler;
+import org.geneontology.minerva.lookup.ExternalLookupService;
+import org.geneontology.minerva.server.handler.M3BatchHandler.Entity;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3Argument;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3BatchResponse;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3Request;
+import org.geneontology.minerva.server.handler.M3BatchHandler.Operation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+
+import owltools.graph.OWLGraphWrapper;
+
+public class AsyncReasoningTest {
+
+	private static final String MODEL_PREFIX = "http://model.geneontology.org/";
+
+	private CurieHandler curieHandler;
+	private UndoAwareMolecularModelManager models;
+	private AsyncReasoningService reasoningService;
+	private JsonOrJsonpBatchHandler handler;
+	private CountDownLatch release;
+
+	@Before
+	public void before() throws Exception {
+		CurieMappings localMappings = new CurieMappings.SimpleCurieMappings(Collections.singletonMap("gomodel", MODEL_PREFIX));
+		curieHandler = new MappedCurieHandler(DefaultCurieHandler.getMappings(), localMappings);
+		OWLGraphWrapper graph = new OWLGraphWrapper(OWLManager.createOWLOntologyManager().createOntology(IRI.create("http://example.org/async-test")));
+		models = new UndoAwareMolecularModelManager(graph, new ElkReasonerFactory(), curieHandler, MODEL_PREFIX);
+		handler = new JsonOrJsonpBatchHandler(models, "development", true, false,
+				Collections.<OWLObjectProperty>emptySet(), (ExternalLookupService) null);
+		// one reasoning thread and one queued task
+		reasoningService = new AsyncReasoningService(1, 1, 1, TimeUnit.MINUTES);
+		handler.setAsyncReasoningService(reasoningService);
+	}
+
+	@After
+	public void after() throws Exception {
+		if (release != null) {
+			release.countDown();
+		}
+		reasoningService.dispose();
+		models.dispose();
+	}
+
+	@Test(timeout = 30000)
+	public void testAsyncReasoning() throws Exception {
+		String model1 = createModel();
+		String model2 = createModel();
+
+		// unknown packet
+		M3BatchResponse response = handler.m3BatchReasoningGet("unknown-packet", 0);
+		assertEquals("error", response.messageType);
+
+		// pending: the only reasoning thread is busy
+		blockReasoningThread();
+		response = executeGet(model1, "packet-1");
+		assertEquals(M3BatchResponse.MESSAGE_TYPE_SUCCESS, response.messageType);
+		assertEquals(Boolean.TRUE, response.data.reasoningPendingFlag);
+		response = handler.m3BatchReasoningGet("packet-1", 0);
+		assertEquals("pending", response.message);
+		assertEquals(Boolean.TRUE, response.data.reasoningPendingFlag);
+
+		// queue full: the reasoning is done synchronously
+		response = executeGet(model2, "packet-2");
+		assertEquals(M3BatchResponse.MESSAGE_TYPE_SUCCESS, response.messageType);
+		assertNull(response.data.reasoningPendingFlag);
+		assertNull(response.data.inconsistentFlag);
+		assertEquals("error", handler.m3BatchReasoningGet("packet-2", 0).messageType);
+
+		// a later request for the same model supersedes the queued packet
+		response = executeGet(model1, "packet-3");
+		assertNull(response.data.reasoningPendingFlag);
+		release.countDown();
+		response = handler.m3BatchReasoningGet("packet-1", 10000);
+		assertEquals(M3BatchResponse.MESSAGE_TYPE_SUCCESS, response.messageType);
+		assertEquals("superseded", response.message);
+
+		// completed result
+		response = executeGet(model2, "packet-4");
+		assertEquals(Boolean.TRUE, response.data.reasoningPendingFlag);
+		response = handler.m3BatchReasoningGet("packet-4", 10000);
+		assertEquals(M3BatchResponse.MESSAGE_TYPE_SUCCESS, response.messageType);
+		assertEquals(model2, response.data.id);
+		assertNull(response.data.reasoningPendingFlag);
+		assertNull(response.data.inconsistentFlag);
+		assertNotNull(response.data.individuals);
+	}
+
+	@Test(timeout = 30000)
+	public void testUnlinkedModel() throws Exception {
+		String modelId = createModel();
+		ModelContainer model = models.getLoadedModel(curieHandler.getIRI(modelId));
+		blockReasoningThread();
+		M3BatchResponse response = executeGet(modelId, "packet-1");
+		assertEquals(Boolean.TRUE, response.data.reasoningPendingFlag);
+
+		// unlinked before the reasoning task runs
+		models.unlinkModel(model.getModelId());
+		release.countDown();
+		response = handler.m3BatchReasoningGet("packet-1", 10000);
+		assertEquals("error", response.messageType);
+		assertFalse(model.hasReasoner());
+		assertNull(models.getLoadedModel(model.getModelId()));
+	}
+
+	private String createModel() throws Exception {
+		return curieHandler.getCuri(models.generateBlankModel(null).getModelId());
+	}
+
+	/**
+	 * Occupy the reasoning thread until {@link #release} is counted down.
+	 */
+	private void blockReasoningThread() throws InterruptedException {
+		release = new CountDownLatch(1);
+		final CountDownLatch started = new CountDownLatch(1);
+		assertTrue(reasoningService.submit("blocker", IRI.create("http://example.org/blocker"), new Callable<M3BatchResponse>() {
+
+			@Override
+			public M3BatchResponse call() throws Exception {
+				started.countDown();
+				release.await();
+				return null;
+			}
+		}));
+		started.await();
+	}
+
+	private M3BatchResponse executeGet(String modelId, String packetId) {
+		M3Request r = new M3Request();
+		r.entity = Entity.model;
+		r.operation = Operation.get;
+		r.arguments = new M3Argument();
+		r.arguments.modelId = modelId;
+		return handler.m3Batch("test-user", "query", packetId, new M3Request[]{r}, true);
+	}
+}
@@ -0,0 +1,252 @@
+package org.geneontology.minerva.server.handler;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.geneontology.minerva.UndoAwareMolecularModelManager;
+import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.curie.CurieMappings;
+import org.geneontology.minerva.curie.DefaultCurieHandler;
+import org.geneontology.minerva.curie.MappedCurieHandler;
+import org.geneontology.minerva.lookup.ExternalLookupService;
+import org.geneontology.minerva.server.handler.BatchRequestDispatcher.OverloadedException;
+import org.geneontology.minerva.server.handler.M3BatchHandler.Entity;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3Argument;
+import org.geneontology.minerva.server.handler.M3BatchHandler.M3Request;
+import org.geneontology.minerva.server.handler.M3BatchHandler.Operation;
+import org.junit.After;
+import org.junit.Test;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+
+import owltools.graph.OWLGraphWrapper;
+
+public class BatchRequestDispatcherTest {
+
+	private static final String MODEL_PREFIX = "http://model.geneontology.org/";
+
+	private final ExecutorService callers = Executors.newCachedThreadPool();
+	private final List<BatchRequestDispatcher> dispatchers = new ArrayList<BatchRequestDispatcher>();
+
+	@After
+	public void after() {
+		for (BatchRequestDispatcher dispatcher : dispatchers) {
+			dispatcher.dispose();
+		}
+		callers.shutdownNow();
+	}
+
+	private BatchRequestDispatcher createDispatcher(int workerCount, int maxPending) {
+		BatchRequestDispatcher dispatcher = new BatchRequestDispatcher(workerCount, maxPending);
+		dispatchers.add(dispatcher);
+		return dispatcher;
+	}
+
+	@Test(timeout = 30000)
+	public void testPerModelOrder() throws Exception {
+		BatchRequestDispatcher dispatcher = createDispatcher(4, 100);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final AtomicInteger active = new AtomicInteger(0);
+		final AtomicInteger maxActive = new AtomicInteger(0);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < 10; i++) {
+			final int number = i;
+			results.add(dispatch(dispatcher, "gomodel:1", new Callable<Integer>() {
+
+				@Override
+				public Integer call() throws Exception {
+					int current = active.incrementAndGet();
+					maxActive.set(Math.max(maxActive.get(), current));
+					try {
+						if (number == 0) {
+							release.await();
+						}
+						order.add(Integer.valueOf(number));
+						return Integer.valueOf(number);
+					}
+					finally {
+						active.decrementAndGet();
+					}
+				}
+			}));
+			// queue the requests in a known order
+			waitForPending(dispatcher, i + 1);
+		}
+
+		// other models are not blocked by the busy model
+		assertEquals("other", dispatcher.dispatch("gomodel:2", new Callable<String>() {
+
+			@Override
+			public String call() throws Exception {
+				return "other";
+			}
+		}));
+
+		release.countDown();
+		for (int i = 0; i < results.size(); i++) {
+			assertEquals(i, results.get(i).get().intValue());
+		}
+		assertEquals(1, maxActive.get());
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 10; i++) {
+			expected.add(Integer.valueOf(i));
+		}
+		assertEquals(expected, order);
+		assertEquals(0, dispatcher.getPendingCount());
+	}
+
+	@Test(timeout = 30000)
+	public void testOverload() throws Exception {
+		BatchRequestDispatcher dispatcher = createDispatcher(1, 2);
+		final CountDownLatch release = new CountDownLatch(1);
+		Callable<String> blocking = new Callable<String>() {
+
+			@Override
+			public String call() throws Exception {
+				release.await();
+				return "done";
+			}
+		};
+		Future<String> first = dispatch(dispatcher, "gomodel:1", blocking);
+		Future<String> second = dispatch(dispatcher, null, blocking);
+		waitForPending(dispatcher, 2);
+		try {
+			dispatcher.dispatch("gomodel:2", blocking);
+			fail("Expected an OverloadedException");
+		} catch (OverloadedException e) {
+			// expected
+		}
+		assertEquals(1, dispatcher.getRejectedCount());
+		release.countDown();
+		assertEquals("done", first.get());
+		assertEquals("done", second.get());
+		assertEquals(0, dispatcher.getPendingCount());
+	}
+
+	@Test(timeout = 30000)
+	public void testDisposeCancelsWaitingRequests() throws Exception {
+		BatchRequestDispatcher dispatcher = createDispatcher(1, 10);
+		final CountDownLatch running = new CountDownLatch(1);
+		Future<String> first = dispatch(dispatcher, "gomodel:1", new Callable<String>() {
+
+			@Override
+			public String call() throws Exception {
+				running.countDown();
+				new CountDownLatch(1).await();
+				return "never";
+			}
+		});
+		running.await();
+		Callable<String> task = new Callable<String>() {
+
+			@Override
+			public String call() throws Exception {
+				return "done";
+			}
+		};
+		Future<String> queuedForModel = dispatch(dispatcher, "gomodel:1", task);
+		Future<String> queuedInPool = dispatch(dispatcher, null, task);
+		waitForPending(dispatcher, 3);
+
+		dispatcher.dispose();
+		for (Future<String> future : Arrays.asList(first, queuedForModel, queuedInPool)) {
+			try {
+				future.get();
+				fail("Expected an ExecutionException");
+			} catch (ExecutionException e) {
+				// expected: interrupted or cancelled
+			}
+		}
+		assertEquals(0, dispatcher.getPendingCount());
+	}
+
+	@Test(timeout = 30000)
+	public void testHandlerOverloadAndModelKey() throws Exception {
+		CurieMappings localMappings = new CurieMappings.SimpleCurieMappings(Collections.singletonMap("gomodel", MODEL_PREFIX));
+		CurieHandler curieHandler = new MappedCurieHandler(DefaultCurieHandler.getMappings(), localMappings);
+		OWLGraphWrapper graph = new OWLGraphWrapper(OWLManager.createOWLOntologyManager().createOntology(IRI.create("http://example.org/dispatch-test")));
+		UndoAwareMolecularModelManager models = new UndoAwareMolecularModelManager(graph, new ElkReasonerFactory(), curieHandler, MODEL_PREFIX);
+		try {
+			JsonOrJsonpBatchHandler handler = new JsonOrJsonpBatchHandler(models, "development", false, false,
+					Collections.<OWLObjectProperty>emptySet(), (ExternalLookupService) null);
+			BatchRequestDispatcher dispatcher = createDispatcher(1, 1);
+			handler.setDispatcher(dispatcher);
+
+			// the CURIE and the IRI of a model share one queue
+			M3Request[] curieRequests = new M3Request[]{getModel("gomodel:5a5fc23a00000001")};
+			M3Request[] iriRequests = new M3Request[]{getModel(MODEL_PREFIX+"5a5fc23a00000001")};
+			assertEquals(MODEL_PREFIX+"5a5fc23a00000001", handler.getModelId(curieRequests));
+			assertEquals(handler.getModelId(curieRequests), handler.getModelId(iriRequests));
+
+			// a full dispatcher rejects the batch with 503 and Retry-After
+			final CountDownLatch release = new CountDownLatch(1);
+			Future<String> blocking = dispatch(dispatcher, null, new Callable<String>() {
+
+				@Override
+				public String call() throws Exception {
+					release.await();
+					return "done";
+				}
+			});
+			waitForPending(dispatcher, 1);
+			try {
+				handler.m3Batch("test-user", "query", "packet", curieRequests, false);
+				fail("Expected a WebApplicationException");
+			} catch (WebApplicationException e) {
+				Response response = e.getResponse();
+				assertEquals(503, response.getStatus());
+				assertEquals("1", response.getMetadata().getFirst("Retry-After"));
+			}
+			release.countDown();
+			assertEquals("done", blocking.get());
+		}
+		finally {
+			models.dispose();
+		}
+	}
+
+	private static M3Request getModel(String modelId) {
+		M3Request r = new M3Request();
+		r.entity = Entity.model;
+		r.operation = Operation.get;
+		r.arguments = new M3Argument();
+		r.arguments.modelId = modelId;
+		return r;
+	}
+
+	private <T> Future<T> dispatch(final BatchRequestDispatcher dispatcher, final String modelId, final Callable<T> task) {
+		return callers.submit(new Callable<T>() {
+
+			@Override
+			public T call() throws Exception {
+				return dispatcher.dispatch(modelId, task);
+			}
+		});
+	}
+
+	private static void waitForPending(BatchRequestDispatcher dispatcher, int count) throws InterruptedException {
+		while (dispatcher.getPendingCount() < count) {
+			Thread.sleep(5);
+		}
+		// the permit is taken before the request is queued
+		TimeUnit.MILLISECONDS.sleep(20);
+	}
+}
@@ -0,0 +1,166 @@
+package org.geneontology.minerva.server.handler;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.geneontology.minerva.ModelContainer;
+import org.geneontology.minerva.ModelReasonerManager;
+import org.geneontology.minerva.UndoAwareMolecularModelManager;
+import org.geneontology.minerva.curie.CurieHandler;
+import org.geneontology.minerva.curie.CurieMappings;
+import org.geneontology.minerva.curie.DefaultCurieHandler;
+import org.geneontology.minerva.curie.MappedCurieHandler;
+import org.geneontology.minerva.server.handler.ModelAdminHandler.AdminResponse;
+import org.geneontology.minerva.server.handler.ModelAdminHandler.ModelStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import owltools.graph.OWLGraphWrapper;
+
+public class ModelAdminHandlerTest {
+
+	private static final String MODEL_PREFIX = "http://model.geneontology.org/";
+
+	private CurieHandler curieHandler;
+	private UndoAwareMolecularModelManager models;
+	private ModelReasonerManager reasonerManager;
+	private ModelAdminHandler handler;
+
+	@Before
+	public void before() throws Exception {
+		OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+		OWLOntology tbox = m.createOntology(IRI.create("http://example.org/admin-test"));
+		CurieMappings localMappings = new CurieMappings.SimpleCurieMappings(Collections.singletonMap("gomodel", MODEL_PREFIX));
+		curieHandler = new MappedCurieHandler(DefaultCurieHandler.getMappings(), localMappings);
+		models = new UndoAwareMolecularModelManager(new OWLGraphWrapper(tbox), new ElkReasonerFactory(), curieHandler, MODEL_PREFIX);
+		// no limits, only explicit disposals
+		reasonerManager = new ModelReasonerManager(0, 0, 0, TimeUnit.SECONDS);
+		models.setReasonerManager(reasonerManager);
+		handler = new ModelAdminHandler(models);
+	}
+
+	@After
+	public void after() throws Exception {
+		reasonerManager.dispose();
+		models.dispose();
+	}
+
+	@Test
+	public void testStatus() throws Exception {
+		ModelContainer modified = createModel(true);
+		ModelContainer unmodified = createModel(false);
+		modified.getReasoner();
+
+		AdminResponse response = handler.getModels();
+		assertEquals(2, response.modelCount);
+		assertEquals(1, response.reasonerCount);
+		assertTrue(response.heapUsed > 0);
+		assertNull(response.results);
+
+		ModelStatus status = getStatus(response, modified);
+		assertTrue(status.modified);
+		assertTrue(status.reasoner);
+		assertFalse(status.moduleReasoner);
+		assertEquals(modified.getAboxOntology().getAxiomCount(), status.axiomCount);
+		assertEquals(1, status.individualCount);
+		assertEquals(status.axiomCount * ModelAdminHandler.ESTIMATED_BYTES_PER_AXIOM, status.estimatedHeap);
+		assertTrue(status.lastReasonerAccess > 0);
+
+		status = getStatus(response, unmodified);
+		assertFalse(status.modified);
+		assertFalse(status.reasoner);
+		assertEquals(0, status.individualCount);
+		assertEquals(0, status.lastReasonerAccess);
+	}
+
+	@Test
+	public void testUnlink() throws Exception {
+		ModelContainer modified = createModel(true);
+		ModelContainer unmodified = createModel(false);
+		String modifiedId = curieHandler.getCuri(modified.getModelId());
+		String unmodifiedId = curieHandler.getCuri(unmodified.getModelId());
+		String unknownId = "gomodel:0000000000000000";
+
+		AdminResponse response = handler.unlinkModels(Arrays.asList(modifiedId, unmodifiedId, unknownId), false);
+		assertEquals("skipped: model is modified", response.results.get(modifiedId));
+		assertEquals("unlinked", response.results.get(unmodifiedId));
+		assertEquals("not loaded", response.results.get(unknownId));
+		assertEquals(1, response.modelCount);
+		assertNotNull(models.getLoadedModel(modified.getModelId()));
+		assertNull(models.getLoadedModel(unmodified.getModelId()));
+
+		// force discards the changes
+		response = handler.unlinkModels(Arrays.asList(modifiedId), true);
+		assertEquals("unlinked", response.results.get(modifiedId));
+		assertEquals(0, response.modelCount);
+		assertNull(models.getLoadedModel(modified.getModelId()));
+	}
+
+	@Test
+	public void testDisposeReasoner() throws Exception {
+		ModelContainer model = createModel(true);
+		ModelContainer other = createModel(false);
+		String modelId = curieHandler.getCuri(model.getModelId());
+		String otherId = curieHandler.getCuri(other.getModelId());
+		model.getReasoner();
+		assertEquals(1, reasonerManager.getLiveCount());
+
+		// a reasoner in use by a request is never disposed
+		model.acquireReasoner();
+		try {
+			AdminResponse response = handler.disposeReasoners(Arrays.asList(modelId, otherId));
+			assertEquals("skipped: in use", response.results.get(modelId));
+			assertEquals("no reasoner", response.results.get(otherId));
+			assertTrue(model.hasReasoner());
+		}
+		finally {
+			model.releaseReasoner();
+		}
+
+		// no ids: all models
+		AdminResponse response = handler.disposeReasoners(Collections.<String>emptyList());
+		assertEquals("disposed", response.results.get(modelId));
+		assertEquals("no reasoner", response.results.get(otherId));
+		assertEquals(0, response.reasonerCount);
+		assertFalse(model.hasReasoner());
+		assertEquals(0, reasonerManager.getLiveCount());
+		assertEquals(1, reasonerManager.getDisposedCount());
+
+		// re-created on demand
+		assertNotNull(model.getReasoner());
+		assertEquals(1, reasonerManager.getRecreatedCount());
+	}
+
+	private ModelContainer createModel(boolean modified) throws Exception {
+		ModelContainer model = models.generateBlankModel(null);
+		if (modified) {
+			OWLOntology abox = model.getAboxOntology();
+			OWLDataFactory f = abox.getOWLOntologyManager().getOWLDataFactory();
+			abox.getOWLOntologyManager().addAxiom(abox,
+					f.getOWLDeclarationAxiom(f.getOWLNamedIndividual(IRI.create(model.getModelId()+"/i1"))));
+		}
+		assertEquals(modified, model.isModified());
+		return model;
+	}
+
+	private ModelStatus getStatus(AdminResponse response, ModelContainer model) {
+		String id = curieHandler.getCuri(model.getModelId());
+		for (ModelStatus status : response.models) {
+			if (id.equals(status.id)) {
+				return status;
+			}
+		}
+		fail("No status for model: "+id);
+		return null;
+	}
+}